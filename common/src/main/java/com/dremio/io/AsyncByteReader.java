@@ -22,6 +22,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.function.IntFunction;
 
 import com.dremio.io.file.Path;
 import com.google.common.collect.ImmutableList;
@@ -93,6 +94,23 @@ public interface AsyncByteReader extends AutoCloseable {
     }).whenComplete((a,b) -> buf.release());
   }
 
+  /**
+   * Vectored read of several ranges. Ranges at most maxMergeGap bytes apart are coalesced into a single request
+   * spanning at most maxMergedLength bytes, and at most maxConcurrentReads requests are in flight at a time.
+   * Each request reads into one buffer from the buffer factory, and the ranges get slices of it.
+   * @param ranges The ranges to read, in any order. Their data is released by the caller, even on failure.
+   * @param bufferFactory Allocates the buffer of a request, given its length.
+   * @param maxMergeGap Max number of unneeded bytes read in between two coalesced ranges.
+   * @param maxMergedLength Max number of bytes read by a single coalesced request.
+   * @param maxConcurrentReads Max number of requests in flight.
+   * @return A CompletableFuture that will be informed when all the ranges are read.
+   */
+  default CompletableFuture<Void> readFully(List<ReadRange> ranges, IntFunction<ByteBuf> bufferFactory, long maxMergeGap,
+                                            long maxMergedLength, int maxConcurrentReads) {
+    return CoalescedReads.readFully(this, bufferFactory, CoalescedReads.coalesce(ranges, maxMergeGap, maxMergedLength),
+      maxConcurrentReads);
+  }
+
   @Override
   default void close() throws Exception {
   }
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.io;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+
+import com.google.common.base.Preconditions;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Vectored reads over an {@link AsyncByteReader}: nearby ranges are coalesced into a single request, the
+ * requests are issued with a bounded number in flight, each one into a single buffer from the caller's buffer
+ * factory, and every range of a request gets a slice of that buffer.
+ */
+public final class CoalescedReads {
+
+  private final AsyncByteReader reader;
+  private final IntFunction<ByteBuf> bufferFactory;
+  private final Iterator<List<ReadRange>> pending;
+  private final CompletableFuture<Void> result = new CompletableFuture<>();
+  private int inFlight;
+  private Throwable failure;
+
+  private CoalescedReads(AsyncByteReader reader, IntFunction<ByteBuf> bufferFactory, List<List<ReadRange>> groups) {
+    this.reader = reader;
+    this.bufferFactory = bufferFactory;
+    this.pending = groups.iterator();
+  }
+
+  /**
+   * Groups the ranges, sorted by offset, so that the ranges of a group are at most maxMergeGap bytes apart and
+   * a group spans at most maxMergedLength bytes. A range larger than maxMergedLength is read on its own.
+   *
+   * @param ranges the ranges to read, in any order; overlapping ranges are allowed
+   * @param maxMergeGap max number of unneeded bytes read between two ranges of a group
+   * @param maxMergedLength max number of bytes read by a single merged request
+   * @return the groups of ranges, each one read by a single request
+   */
+  public static List<List<ReadRange>> coalesce(List<ReadRange> ranges, long maxMergeGap, long maxMergedLength) {
+    Preconditions.checkArgument(maxMergeGap >= 0, "Invalid merge gap %s", maxMergeGap);
+    final List<ReadRange> sorted = new ArrayList<>(ranges);
+    sorted.sort(Comparator.comparingLong(ReadRange::getOffset));
+
+    final List<List<ReadRange>> groups = new ArrayList<>();
+    List<ReadRange> group = null;
+    long groupStart = 0;
+    long groupEnd = 0;
+    for (ReadRange range : sorted) {
+      final long end = Math.max(groupEnd, range.getEnd());
+      if (group != null
+        && range.getOffset() - groupEnd <= maxMergeGap
+        && end - groupStart <= maxMergedLength) {
+        group.add(range);
+        groupEnd = end;
+        continue;
+      }
+      group = new ArrayList<>();
+      group.add(range);
+      groups.add(group);
+      groupStart = range.getOffset();
+      groupEnd = range.getEnd();
+    }
+    return groups;
+  }
+
+  /**
+   * Reads the given groups of ranges, one request per group, with at most maxConcurrentReads requests in flight.
+   * The returned future completes once every request completed; if any of them failed, it completes
+   * exceptionally with the first failure. The ranges of the requests that succeeded hold their data either way,
+   * and must be released by the caller.
+   *
+   * @param bufferFactory allocates the buffer a request is read into, given its length
+   */
+  public static CompletableFuture<Void> readFully(AsyncByteReader reader, IntFunction<ByteBuf> bufferFactory,
+                                                  List<List<ReadRange>> groups, int maxConcurrentReads) {
+    Preconditions.checkArgument(maxConcurrentReads > 0, "Invalid number of concurrent reads %s", maxConcurrentReads);
+    return new CoalescedReads(reader, bufferFactory, groups).start(maxConcurrentReads);
+  }
+
+  private synchronized CompletableFuture<Void> start(int maxConcurrentReads) {
+    while (inFlight < maxConcurrentReads && pending.hasNext()) {
+      submit(pending.next());
+    }
+    completeIfDone();
+    return result;
+  }
+
+  private void submit(List<ReadRange> group) {
+    inFlight++;
+    CompletableFuture<Void> future;
+    try {
+      future = read(group);
+    } catch (RuntimeException e) {
+      future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+    }
+    future.whenComplete((v, e) -> onReadCompleted(e));
+  }
+
+  private synchronized void onReadCompleted(Throwable e) {
+    inFlight--;
+    if (e != null && failure == null) {
+      failure = e;
+    }
+    // stop issuing requests once a read failed, but wait for the ones in flight before failing since
+    // they are still writing into the destination buffers
+    if (failure == null && pending.hasNext()) {
+      submit(pending.next());
+    }
+    completeIfDone();
+  }
+
+  private void completeIfDone() {
+    if (inFlight > 0 || (failure == null && pending.hasNext())) {
+      return;
+    }
+    if (failure != null) {
+      result.completeExceptionally(failure);
+    } else {
+      result.complete(null);
+    }
+  }
+
+  private CompletableFuture<Void> read(List<ReadRange> group) {
+    final long start = group.get(0).getOffset();
+    long end = start;
+    for (ReadRange range : group) {
+      end = Math.max(end, range.getEnd());
+    }
+    final int length = (int) (end - start);
+    final ByteBuf merged = bufferFactory.apply(length);
+    final CompletableFuture<Void> future;
+    try {
+      future = reader.readFully(start, merged, 0, length);
+    } catch (RuntimeException e) {
+      merged.release();
+      throw e;
+    }
+    return future.whenComplete((v, e) -> {
+      try {
+        if (e == null) {
+          for (ReadRange range : group) {
+            range.setData(merged.retainedSlice((int) (range.getOffset() - start), range.getLength()));
+          }
+        }
+      } finally {
+        // the slices of the ranges hold the buffer from now on
+        merged.release();
+      }
+    });
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.io;
+
+import com.google.common.base.Preconditions;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * A range of a file to be read as part of a vectored read. Once the read completed, the range holds a buffer with
+ * its data, which the caller owns and must release.
+ */
+public final class ReadRange {
+  private final long offset;
+  private final int length;
+  private volatile ByteBuf data;
+
+  public ReadRange(long offset, int length) {
+    Preconditions.checkArgument(offset >= 0, "Invalid offset %s", offset);
+    Preconditions.checkArgument(length > 0, "Empty reads not allowed");
+    this.offset = offset;
+    this.length = length;
+  }
+
+  public long getOffset() {
+    return offset;
+  }
+
+  public long getEnd() {
+    return offset + length;
+  }
+
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * @return the data of the range, or null if it wasn't read. Released by the caller.
+   */
+  public ByteBuf getData() {
+    return data;
+  }
+
+  void setData(ByteBuf data) {
+    this.data = data;
+  }
+
+  /**
+   * Releases the data of the range, if it was read.
+   */
+  public void release() {
+    final ByteBuf toRelease = data;
+    data = null;
+    if (toRelease != null) {
+      toRelease.release();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ReadRange [" + offset + ", " + getEnd() + ")";
+  }
+}
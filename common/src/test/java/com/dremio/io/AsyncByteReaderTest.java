@@ -17,18 +17,29 @@ package com.dremio.io;
 
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 
 public class AsyncByteReaderTest {
   @Test
@@ -210,6 +221,132 @@ public class AsyncByteReaderTest {
     byteReader.versionedReadFully("1", 0, mock(ByteBuf.class), 100, 100).join();
   }
 
+  @Test
+  public void testCoalesce() {
+    final List<ReadRange> ranges = Arrays.asList(
+      new ReadRange(1000, 100),
+      new ReadRange(0, 100),
+      new ReadRange(150, 100),
+      new ReadRange(200, 10),
+      new ReadRange(5000, 2000));
+
+    final List<List<ReadRange>> groups = CoalescedReads.coalesce(ranges, 50, 1000);
+    assertEquals(3, groups.size());
+    // [0, 100) and [150, 250) are 50 bytes apart, [200, 210) overlaps
+    assertEquals(Arrays.asList(ranges.get(1), ranges.get(2), ranges.get(3)), groups.get(0));
+    assertEquals(Arrays.asList(ranges.get(0)), groups.get(1));
+    // larger than the max merged length, read on its own
+    assertEquals(Arrays.asList(ranges.get(4)), groups.get(2));
+
+    // merged requests are bounded by the max merged length
+    assertEquals(2, CoalescedReads.coalesce(ranges.subList(1, 3), 50, 200).size());
+    // no gap allowed
+    assertEquals(4, CoalescedReads.coalesce(ranges, 0, 1000).size());
+  }
+
+  @Test
+  public void testVectoredReadFully() {
+    final byte[] data = new byte[10_000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    final InMemoryReader byteReader = new InMemoryReader(data, executor);
+    final List<ByteBuf> buffers = new ArrayList<>();
+    final List<ReadRange> ranges = new ArrayList<>();
+    try {
+      // ten ranges of 100 bytes, 900 bytes apart
+      for (int i = 0; i < 10; i++) {
+        ranges.add(new ReadRange(i * 1000 + 7, 100));
+      }
+
+      // pairs of ranges are coalesced, five requests with at most two in flight, each one into a single buffer
+      byteReader.readFully(ranges, length -> allocate(buffers, length), 900, 1100, 2).join();
+      assertEquals(5, byteReader.requests.get());
+      assertEquals(5, buffers.size());
+      assertTrue(byteReader.maxInFlight.get() <= 2);
+      for (int i = 0; i < 10; i++) {
+        final byte[] expected = Arrays.copyOfRange(data, i * 1000 + 7, i * 1000 + 107);
+        final byte[] actual = new byte[100];
+        assertEquals(100, ranges.get(i).getData().readableBytes());
+        ranges.get(i).getData().getBytes(0, actual);
+        assertArrayEquals(expected, actual);
+      }
+    } finally {
+      ranges.forEach(ReadRange::release);
+      executor.shutdown();
+    }
+    // the buffers are only held by the ranges
+    for (ByteBuf buffer : buffers) {
+      assertEquals(0, buffer.refCnt());
+    }
+  }
+
+  @Test
+  public void testVectoredReadFully_failure() {
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+    final InMemoryReader byteReader = new InMemoryReader(new byte[500], executor);
+    final List<ByteBuf> buffers = new ArrayList<>();
+    final List<ReadRange> ranges = Arrays.asList(
+      // past the end of the data
+      new ReadRange(0, 1000),
+      new ReadRange(2000, 100),
+      new ReadRange(3000, 100));
+    try {
+      byteReader.readFully(ranges, length -> allocate(buffers, length), 0, 1000, 1).join();
+      fail("Expect to throw exception");
+    } catch (Exception e) {
+      assertThat(e, is(instanceOf(CompletionException.class)));
+      assertThat(e.getCause(), is(instanceOf(IOException.class)));
+      // no more reads are issued after the failure
+      assertEquals(1, byteReader.requests.get());
+      assertNull(ranges.get(0).getData());
+      // the buffer of the failed read is released
+      assertEquals(1, buffers.size());
+      assertEquals(0, buffers.get(0).refCnt());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static synchronized ByteBuf allocate(List<ByteBuf> buffers, int length) {
+    final ByteBuf buffer = Unpooled.buffer(length);
+    buffers.add(buffer);
+    return buffer;
+  }
+
+  /**
+   * Reads from a byte array on the given executor, tracking the number of requests in flight.
+   */
+  private static final class InMemoryReader extends ReusableAsyncByteReader {
+    private final byte[] data;
+    private final ExecutorService executor;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private InMemoryReader(byte[] data, ExecutorService executor) {
+      this.data = data;
+      this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<Void> readFully(long offset, ByteBuf dst, int dstOffset, int len) {
+      requests.incrementAndGet();
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      return CompletableFuture.runAsync(() -> {
+        try {
+          if (offset + len > data.length) {
+            throw new CompletionException(new IOException("Read past the end of the data"));
+          }
+          dst.setBytes(dstOffset, data, (int) offset, len);
+        } finally {
+          inFlight.decrementAndGet();
+        }
+      }, executor);
+    }
+  }
+
   private Runnable sleep() {
     return () -> {
       try {
@@ -70,6 +70,7 @@ import com.dremio.dac.service.search.SearchServiceInvoker;
 import com.dremio.dac.service.source.SourceService;
 import com.dremio.dac.service.sysflight.SysFlightTablesProvider.JobsTable;
 import com.dremio.dac.service.sysflight.SysFlightTablesProvider.MaterializationsTable;
+import com.dremio.dac.service.sysflight.SysFlightTablesProvider.PlanCacheTable;
 import com.dremio.dac.service.sysflight.SysFlightTablesProvider.ReflectionDependenciesTable;
 import com.dremio.dac.service.sysflight.SysFlightTablesProvider.ReflectionsTable;
 import com.dremio.dac.service.users.UserServiceHelper;
@@ -1241,7 +1242,13 @@ public class DACDaemonModule implements DACModule {
     if(isCoordinator) {
       SystemTableManager systemTableManager = new SystemTableManagerImpl(
         getSystemTableAllocator(bootstrap),
-        () -> getSysFlightTableProviders(conduitProvider));
+        () -> {
+          final Map<SystemTableManager.TABLES, SysFlightDataProvider> tables = getSysFlightTableProviders(conduitProvider);
+          tables.put(SystemTableManager.TABLES.PLAN_CACHE, new PlanCacheTable(
+            () -> registry.provider(ForemenWorkManager.class).get().getPlanCacheHandle(),
+            registry.provider(NodeEndpoint.class)));
+          return tables;
+        });
       registry.bind(SystemTableManager.class, systemTableManager);
     }
 
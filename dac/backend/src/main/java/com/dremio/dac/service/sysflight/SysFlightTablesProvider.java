@@ -20,6 +20,9 @@ import javax.inject.Provider;
 import org.apache.arrow.flight.FlightProducer.ServerStreamListener;
 import org.apache.arrow.memory.BufferAllocator;
 
+import com.dremio.exec.planner.PlanCache;
+import com.dremio.exec.planner.proto.PlanCacheStatistics;
+import com.dremio.exec.proto.CoordinationProtos.NodeEndpoint;
 import com.dremio.exec.proto.FlightProtos.SysFlightTicket;
 import com.dremio.exec.record.BatchSchema;
 import com.dremio.service.acceleration.ReflectionDescriptionServiceGrpc;
@@ -138,4 +141,37 @@ public class SysFlightTablesProvider {
       return ProtobufRecordReader.getSchema(ListReflectionDependenciesResponse.getDescriptor());
     }
   }
+
+  /**
+   * Plan cache table, with the statistics of the plan cache of this coordinator
+   */
+  public static class PlanCacheTable implements SysFlightDataProvider {
+    private final Provider<PlanCache> planCache;
+    private final Provider<NodeEndpoint> endpoint;
+    public PlanCacheTable(Provider<PlanCache> planCache, Provider<NodeEndpoint> endpoint) {
+      this.planCache = planCache;
+      this.endpoint = endpoint;
+    }
+
+    @Override
+    public void streamData(SysFlightTicket ticket, ServerStreamListener listener, BufferAllocator allocator,
+      int recordBatchSize) {
+      final SysFlightStreamObserver<PlanCacheStatistics> observer = new SysFlightStreamObserver<>(allocator, listener,
+        PlanCacheStatistics.getDescriptor(), recordBatchSize);
+      try {
+        observer.onNext(planCache.get().getStatistics().toBuilder()
+          .setHostname(endpoint.get().getAddress())
+          .build());
+      } catch (RuntimeException e) {
+        observer.onError(e);
+        return;
+      }
+      observer.onCompleted();
+    }
+
+    @Override
+    public BatchSchema getSchema() {
+      return ProtobufRecordReader.getSchema(PlanCacheStatistics.getDescriptor());
+    }
+  }
 }
@@ -17,9 +17,11 @@ package com.dremio.plugins.elastic;
 
 import java.net.URLEncoder;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.dremio.connector.metadata.DatasetSplit;
@@ -27,6 +29,8 @@ import com.dremio.connector.metadata.DatasetSplitAffinity;
 import com.dremio.connector.metadata.PartitionChunk;
 import com.dremio.connector.metadata.PartitionChunkListing;
 import com.dremio.elastic.proto.ElasticReaderProto.ElasticSplitXattr;
+import com.dremio.exec.ExecConstants;
+import com.dremio.options.OptionManager;
 import com.dremio.plugins.elastic.ElasticActions.Count;
 import com.dremio.plugins.elastic.ElasticActions.CountResult;
 import com.dremio.plugins.elastic.ElasticActions.NodesInfo;
@@ -104,7 +108,8 @@ class ElasticPartitionChunkListing implements PartitionChunkListing {
 
     JsonArray shards = result.getAsJsonObject().getAsJsonArray("shards");
 
-    Set<String> indexes = new HashSet<>();
+    final List<ShardInfo> shardInfos = new ArrayList<>();
+    final Map<String, Integer> indexShardCounts = new HashMap<>();
 
     for (JsonElement e : shards) {
       Set<Integer> shard = new HashSet<>();
@@ -125,34 +130,80 @@ class ElasticPartitionChunkListing implements PartitionChunkListing {
       final String onlyIndex = index.iterator().next();
       final int onlyShard = shard.iterator().next();
 
-      indexes.add(onlyIndex);
-
-      final ElasticSplitXattr splitAttributes = ElasticSplitXattr.newBuilder()
-        .setResource(RESOURCE_JOINER.join(onlyIndex, typeName))
-        .setShard(onlyShard)
-        .build();
-
-      List<DatasetSplitAffinity> affinity = new ArrayList<>();
-      for (String host : hosts) {
-        affinity.add(DatasetSplitAffinity.of(host, SPLIT_DEFAULT_SIZE));
-      }
-
-      partitionChunks.add(PartitionChunk.of(
-        DatasetSplit.of(affinity, (long) SPLIT_DEFAULT_SIZE, 0, os -> splitAttributes.writeTo(os))));
-
-      partitionChunkList = partitionChunks;
+      indexShardCounts.merge(onlyIndex, 1, Integer::sum);
+      shardInfos.add(new ShardInfo(onlyIndex, onlyShard, hosts));
     }
 
     Count count = new Count();
-    for (String index : indexes) {
+    for (String index : indexShardCounts.keySet()) {
       count.addIndex(index);
     }
     count.addType(typeName);
     CountResult countResult = (CountResult) datasetHandle.getConnection().executeAndHandleResponseCode(count, true,
-      "Cannot get the number of records in [" + indexes + "." + typeName + "].  Please make sure that the user has [read] privilege.");
+      "Cannot get the number of records in [" + indexShardCounts.keySet() + "." + typeName + "].  Please make sure that the user has [read] privilege.");
 
     rowCount = countResult.getAsLong();
 
+    final ElasticVersionBehaviorProvider versionBehavior =
+      new ElasticVersionBehaviorProvider(datasetHandle.getConnection().getESVersionInCluster());
+    final int slicesPerShard = getSlicesPerShard(versionBehavior, shardInfos.size());
+
+    for (ShardInfo shardInfo : shardInfos) {
+      final int indexShardCount = indexShardCounts.get(shardInfo.index);
+      final int sliceCount = Math.min(slicesPerShard, versionBehavior.getMaxSlicesPerShard(indexShardCount));
+
+      List<DatasetSplitAffinity> affinity = new ArrayList<>();
+      for (String host : shardInfo.hosts) {
+        affinity.add(DatasetSplitAffinity.of(host, SPLIT_DEFAULT_SIZE / sliceCount));
+      }
+
+      for (int slice = 0; slice < sliceCount; slice++) {
+        final ElasticSplitXattr.Builder splitAttributes = ElasticSplitXattr.newBuilder()
+          .setResource(RESOURCE_JOINER.join(shardInfo.index, typeName))
+          .setShard(shardInfo.shard);
+        if (sliceCount > 1) {
+          splitAttributes
+            .setSlice(slice)
+            .setSliceCount(sliceCount)
+            .setIndexShardCount(indexShardCount);
+        }
+        final ElasticSplitXattr split = splitAttributes.build();
+
+        partitionChunks.add(PartitionChunk.of(
+          DatasetSplit.of(affinity, (long) (SPLIT_DEFAULT_SIZE / sliceCount), 0, os -> split.writeTo(os))));
+      }
+    }
+
+    partitionChunkList = partitionChunks;
+
     return partitionChunks.iterator();
   }
+
+  /**
+   * Number of slices each shard is read with, so that a slice holds about the configured number of
+   * documents. The documents of a dataset are assumed to be evenly spread over its shards.
+   */
+  private int getSlicesPerShard(ElasticVersionBehaviorProvider versionBehavior, int shardCount) {
+    final OptionManager options = datasetHandle.getContext().getOptionManager();
+    if (shardCount == 0 || !versionBehavior.supportsSlicedScroll() ||
+        !options.getOption(ExecConstants.ELASTIC_ENABLE_SLICED_SCROLL)) {
+      return 1;
+    }
+    final long docsPerShard = rowCount / shardCount;
+    final long docsPerSlice = options.getOption(ExecConstants.ELASTIC_SLICED_SCROLL_DOCS_PER_SLICE);
+    final long slices = (docsPerShard + docsPerSlice - 1) / docsPerSlice;
+    return (int) Math.max(1, Math.min(slices, options.getOption(ExecConstants.ELASTIC_SLICED_SCROLL_MAX_SLICES)));
+  }
+
+  private static final class ShardInfo {
+    private final String index;
+    private final int shard;
+    private final Set<String> hosts;
+
+    private ShardInfo(String index, int shard, Set<String> hosts) {
+      this.index = index;
+      this.shard = shard;
+      this.hosts = hosts;
+    }
+  }
 }
@@ -37,11 +37,13 @@ public class ElasticVersionBehaviorProvider {
 
   private final boolean enable7vFeatures;
   private final boolean es5Version;
+  private final boolean es64Version;
   private final boolean es68Version;
 
   public ElasticVersionBehaviorProvider(Version esVersionInCluster) {
     es5Version = esVersionInCluster.compareTo(ElasticsearchConstants.ELASTICSEARCH_VERSION_5X) >= 0;
     enable7vFeatures = esVersionInCluster.compareTo(ElasticsearchConstants.ELASTICSEARCH_VERSION_7_0_X) >= 0;
+    es64Version = esVersionInCluster.compareTo(ElasticsearchConstants.ELASTICSEARCH_VERSION_6_4_X) >= 0;
     es68Version = esVersionInCluster.compareTo(ElasticsearchConstants.ELASTICSEARCH_VERSION_6_8_X) >= 0;
   }
 
@@ -157,6 +159,48 @@ public class ElasticVersionBehaviorProvider {
     return es68Version;
   }
 
+  /**
+   * Sliced scroll is available from 5.0.
+   */
+  public boolean supportsSlicedScroll() {
+    return es5Version;
+  }
+
+  /**
+   * Build the slice of a sliced scroll that reads the given part of a single shard.
+   *
+   * From 6.4, the slices of a search restricted to one shard by its preference are numbered
+   * within that shard. Before, they are numbered over all the shards of the index, slice id
+   * targeting shard (id % shard count).
+   *
+   * @param shard shard read by the search
+   * @param indexShardCount number of shards of the index
+   * @param slice slice of the shard to read
+   * @param sliceCount number of slices the shard is read with
+   * @return the slice object of the search request
+   */
+  public JsonObject getShardSlice(int shard, int indexShardCount, int slice, int sliceCount) {
+    final JsonObject object = new JsonObject();
+    if (es64Version) {
+      object.addProperty(ElasticsearchConstants.SLICE_ID, slice);
+      object.addProperty(ElasticsearchConstants.SLICE_MAX, sliceCount);
+    } else {
+      object.addProperty(ElasticsearchConstants.SLICE_ID, shard + slice * indexShardCount);
+      object.addProperty(ElasticsearchConstants.SLICE_MAX, sliceCount * indexShardCount);
+    }
+    return object;
+  }
+
+  /**
+   * @return maximum number of slices a shard of an index with the given number of shards can be read with
+   */
+  public int getMaxSlicesPerShard(int indexShardCount) {
+    if (es64Version) {
+      return ElasticsearchConstants.MAX_SLICES_PER_SCROLL;
+    }
+    return Math.max(1, ElasticsearchConstants.MAX_SLICES_PER_SCROLL / indexShardCount);
+  }
+
   public int readTotalResultReader(FieldReader totalResultReader) {
     if (!enable7vFeatures) {
       return readAsInt(totalResultReader.reader("hits").reader("total").readText().toString());
@@ -52,6 +52,9 @@ public interface ElasticsearchConstants {
   // Version 6.0.x or higher
   public static final Version ELASTICSEARCH_VERSION_DEFAULT = new Version(6, 0, 0);
 
+  // Version 6.4.x or higher
+  public static final Version ELASTICSEARCH_VERSION_6_4_X = new Version(6, 4, 0);
+
   // Version 6.8.x or higher
   public static final Version ELASTICSEARCH_VERSION_6_8_X = new Version(6, 8, 0);
 
@@ -90,6 +93,11 @@ public interface ElasticsearchConstants {
   String TOTAL_HITS_VALUE = "value";
   String RELATION = "relation";
   String DOC = "doc";
+  String SLICE = "slice";
+  String SLICE_ID = "id";
+  String SLICE_MAX = "max";
+  // index.max_slices_per_scroll default
+  int MAX_SLICES_PER_SCROLL = 1024;
 
   String DISABLE_COORD_FIELD = "\"disable_coord\" : false,";
   String USE_DIS_MAX = "\"use_dis_max\" : true,";
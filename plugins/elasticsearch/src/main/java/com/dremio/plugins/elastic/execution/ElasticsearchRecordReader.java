@@ -18,7 +18,9 @@ package com.dremio.plugins.elastic.execution;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -59,10 +61,14 @@ import com.dremio.plugins.elastic.planning.ElasticsearchScanSpec;
 import com.dremio.sabot.exec.context.OperatorContext;
 import com.dremio.sabot.exec.context.OperatorStats;
 import com.dremio.sabot.op.scan.OutputMutator;
+import com.dremio.sabot.op.scan.ScanOperator;
 import com.fasterxml.jackson.core.JsonGenerationException;
 import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.protobuf.InvalidProtocolBufferException;
 
 /**
@@ -102,6 +108,8 @@ public class ElasticsearchRecordReader extends AbstractRecordReader {
   private long totalSize;
   private long totalCount;
   private String scrollId;
+  /* time spent waiting on the pages of the split */
+  private long readNanos;
   private VectorContainerWriter complexWriter;
   private BaseJsonProcessor jsonReader;
   private State state = State.INIT;
@@ -190,7 +198,7 @@ public class ElasticsearchRecordReader extends AbstractRecordReader {
 
     final Search<byte[]> search;
     final String newQuery;
-    newQuery = elasticVersionBehaviorProvider.processElasticSearchQuery(query);
+    newQuery = addSlice(elasticVersionBehaviorProvider.processElasticSearchQuery(query));
     search = new SearchBytes()
       .setQuery(newQuery)
       .setResource(resource)
@@ -203,9 +211,15 @@ public class ElasticsearchRecordReader extends AbstractRecordReader {
 
     if (this.usingElasticProjection) {
       search.setParameter(ElasticsearchConstants.SOURCE, "false");
+    } else {
+      final String sourceFields = getSourceFields();
+      if (sourceFields != null) {
+        search.setParameter(ElasticsearchConstants.SOURCE, sourceFields);
+      }
     }
 
     final byte[] bytes;
+    final long startNanos = System.nanoTime();
     try {
       bytes = elasticVersionBehaviorProvider.getSearchBytes(connection, search);
     } catch (UserException e) {
@@ -218,6 +232,8 @@ public class ElasticsearchRecordReader extends AbstractRecordReader {
       }
 
       throw e;
+    } finally {
+      readNanos += System.nanoTime() - startNanos;
     }
 
     try {
@@ -246,6 +262,7 @@ public class ElasticsearchRecordReader extends AbstractRecordReader {
   }
 
   private byte[] getNextPage() throws IOException {
+    final long startNanos = System.nanoTime();
     try {
       if (stats != null) {
         stats.startWait();
@@ -258,6 +275,57 @@ public class ElasticsearchRecordReader extends AbstractRecordReader {
       if (stats != null) {
         stats.stopWait();
       }
+      readNanos += System.nanoTime() - startNanos;
+    }
+  }
+
+  /**
+   * Restrict the search to the slice of the shard this split reads, when the shard is read
+   * with a sliced scroll.
+   */
+  private String addSlice(String query) {
+    if (splitAttributes == null || splitAttributes.getSliceCount() <= 1) {
+      return query;
+    }
+    final JsonObject body = new JsonParser().parse(query).getAsJsonObject();
+    body.add(ElasticsearchConstants.SLICE, elasticVersionBehaviorProvider.getShardSlice(splitAttributes.getShard(),
+      splitAttributes.getIndexShardCount(), splitAttributes.getSlice(), splitAttributes.getSliceCount()));
+    return body.toString();
+  }
+
+  /**
+   * Top level fields of the documents to return, so that Elasticsearch only sends the projected
+   * part of the source.
+   *
+   * @return comma separated list of fields, or null if the whole source is needed
+   */
+  private String getSourceFields() {
+    if (isStarQuery() || getColumns().isEmpty()) {
+      return null;
+    }
+    final Set<String> fields = new LinkedHashSet<>();
+    for (SchemaPath column : getColumns()) {
+      final String field = column.getRootSegment().getPath();
+      if (ElasticsearchConstants.META_COLUMNS.contains(field)) {
+        continue;
+      }
+      if (field.indexOf(',') >= 0 || field.indexOf('*') >= 0) {
+        // can't be expressed as a source filter
+        return null;
+      }
+      fields.add(field);
+    }
+    return fields.isEmpty() ? null : Joiner.on(',').join(fields);
+  }
+
+  private void updateSliceStats() {
+    if (stats == null) {
+      return;
+    }
+    stats.addLongStat(ScanOperator.Metric.NUM_ELASTIC_SLICES_READ, 1);
+    stats.addLongStat(ScanOperator.Metric.ELASTIC_SLICE_READ_TIME_NS, readNanos);
+    if (readNanos > stats.getLongStat(ScanOperator.Metric.MAX_ELASTIC_SLICE_READ_TIME_NS)) {
+      stats.setLongStat(ScanOperator.Metric.MAX_ELASTIC_SLICE_READ_TIME_NS, readNanos);
     }
   }
 
@@ -379,6 +447,8 @@ public class ElasticsearchRecordReader extends AbstractRecordReader {
       return; // scroll id is not yet set
     }
 
+    updateSliceStats();
+
     // TODO(DX-10051): fix rare race condition: above block assumes scrollId is not set, but the fragment thread
     // could be in #getFirstPage, right before setting scrollId. In this case, the scroll will never be deleted.
 
@@ -459,13 +459,26 @@ public class ITTestLimit extends ElasticBaseTestQuery {
   @Test
   public void testLimitOne() throws Exception {
     String query = String.format("select * from elasticsearch.%s.%s limit 1", schema, table);
+    QueryProfile profile = getQueryProfile(query, "elasticLimitOne");
+
+    Optional<OperatorProfile> scanProfile = profile.getFragmentProfile(0)
+      .getMinorFragmentProfile(0).getOperatorProfileList().stream()
+      .filter(operatorProfile -> operatorProfile.getOperatorType() == CoreOperatorType.ELASTICSEARCH_SUB_SCAN_VALUE)
+      .findFirst();
+    assertEquals(1L, scanProfile.get().getInputProfile(0).getRecords());
+  }
+
+  /**
+   * Runs a query and returns its profile once it completes.
+   */
+  static QueryProfile getQueryProfile(String query, String resultsTable) throws Exception {
     LocalExecutionConfig config = LocalExecutionConfig.newBuilder()
       .setEnableLeafLimits(false)
       .setFailIfNonEmptySent(false)
       .setUsername(StandardSystemProperty.USER_NAME.value())
       .setSqlContext(Collections.<String>emptyList())
       .setInternalSingleThreaded(false)
-      .setQueryResultsStorePath(format("%s.\"%s\"", TEMP_SCHEMA, "elasticLimitOne"))
+      .setQueryResultsStorePath(format("%s.\"%s\"", TEMP_SCHEMA, resultsTable))
       .setAllowPartitionPruning(true)
       .setExposeInternalSources(false)
       .setSubstitutionSettings(SubstitutionSettings.of())
@@ -480,13 +493,7 @@ public class ITTestLimit extends ElasticBaseTestQuery {
 
     ProfileGrabber grabber = new ProfileGrabber();
     getLocalQueryExecutor().submitLocalQuery(ExternalIdHelper.generateExternalId(), grabber, queryCmd, false, config, false);
-    QueryProfile profile = grabber.getProfile();
-
-    Optional<OperatorProfile> scanProfile = profile.getFragmentProfile(0)
-      .getMinorFragmentProfile(0).getOperatorProfileList().stream()
-      .filter(operatorProfile -> operatorProfile.getOperatorType() == CoreOperatorType.ELASTICSEARCH_SUB_SCAN_VALUE)
-      .findFirst();
-    assertEquals(1L, scanProfile.get().getInputProfile(0).getRecords());
+    return grabber.getProfile();
   }
 
   private static class ProfileGrabber implements QueryObserver {
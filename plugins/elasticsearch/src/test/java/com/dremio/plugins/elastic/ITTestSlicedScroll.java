@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.plugins.elastic;
+
+import static com.dremio.plugins.elastic.ElasticsearchType.INTEGER;
+import static com.dremio.plugins.elastic.ElasticsearchType.TEXT;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dremio.TestBuilder;
+import com.dremio.exec.ExecConstants;
+import com.dremio.exec.proto.UserBitShared.CoreOperatorType;
+import com.dremio.exec.proto.UserBitShared.MetricValue;
+import com.dremio.exec.proto.UserBitShared.QueryProfile;
+import com.dremio.sabot.op.scan.ScanOperator;
+import com.dremio.plugins.elastic.ElasticBaseTestQuery.ElasticScrollSize;
+
+/**
+ * Reads shards with a sliced scroll, each slice holding a few documents.
+ */
+@ElasticScrollSize(scrollSize=16)
+public class ITTestSlicedScroll extends ElasticBaseTestQuery {
+
+  private static final int ROW_COUNT = 300;
+  // ElasticsearchCluster.load() creates single shard indices
+  private static final int SHARD_COUNT = 1;
+
+  @Before
+  public void setSliceSize() throws Exception {
+    test("ALTER SYSTEM SET \"" + ExecConstants.ELASTIC_SLICED_SCROLL_DOCS_PER_SLICE.getOptionName() + "\" = 50");
+  }
+
+  @After
+  public void resetSliceSize() throws Exception {
+    test("ALTER SYSTEM RESET \"" + ExecConstants.ELASTIC_SLICED_SCROLL_DOCS_PER_SLICE.getOptionName() + "\"");
+  }
+
+  @Test
+  public void testSlicedScroll() throws Exception {
+    loadData();
+
+    // every document is read exactly once across the slices
+    final String query = String.format("select val from elasticsearch.%s.%s", schema, table);
+    TestBuilder builder = testBuilder()
+      .sqlQuery(query)
+      .unOrdered()
+      .baselineColumns("val");
+    for (int i = 0; i < ROW_COUNT; i++) {
+      builder.baselineValues(i);
+    }
+    builder.go();
+
+    // the single shard of the index is read in several slices
+    final QueryProfile profile = ITTestLimit.getQueryProfile(query, "elasticSlicedScroll");
+    final long slicesRead = profile.getFragmentProfileList().stream()
+      .flatMap(fragment -> fragment.getMinorFragmentProfileList().stream())
+      .flatMap(minorFragment -> minorFragment.getOperatorProfileList().stream())
+      .filter(operator -> operator.getOperatorType() == CoreOperatorType.ELASTICSEARCH_SUB_SCAN_VALUE)
+      .flatMap(operator -> operator.getMetricList().stream())
+      .filter(metric -> metric.getMetricId() == ScanOperator.Metric.NUM_ELASTIC_SLICES_READ.metricId())
+      .mapToLong(MetricValue::getLongValue)
+      .sum();
+    assertTrue("expected more slices than shards, read " + slicesRead, slicesRead > SHARD_COUNT);
+  }
+
+  @Test
+  public void testSlicedScrollProjection() throws Exception {
+    loadData();
+
+    // only the projected field is fetched from the source of the documents
+    TestBuilder builder = testBuilder()
+      .sqlQuery(String.format("select name from elasticsearch.%s.%s", schema, table))
+      .unOrdered()
+      .baselineColumns("name");
+    for (int i = 0; i < ROW_COUNT; i++) {
+      builder.baselineValues("name" + i);
+    }
+    builder.go();
+  }
+
+  private void loadData() throws Exception {
+    Object[][] values = new Object[ROW_COUNT][1];
+    Object[][] names = new Object[ROW_COUNT][1];
+    for (int i = 0; i < ROW_COUNT; i++) {
+      values[i][0] = i;
+      names[i][0] = "name" + i;
+    }
+    ElasticsearchCluster.ColumnData[] data = new ElasticsearchCluster.ColumnData[]{
+      new ElasticsearchCluster.ColumnData("val", INTEGER, values),
+      new ElasticsearchCluster.ColumnData("name", TEXT, names)
+    };
+
+    elastic.load(schema, table, data);
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares two JMH result files written with {@code -rf json}, typically the results of the previous release and of
+ * the current commit, and prints the change of every benchmark.
+ * <p>
+ * Usage: {@code BenchmarkComparison <baseline.json> <current.json> [threshold percent, defaults to 10]}
+ * <p>
+ * Exits with status 1 if any benchmark regressed by more than the threshold, taking the score errors into account,
+ * so that it can gate a CI job.
+ */
+public final class BenchmarkComparison {
+  private static final double DEFAULT_THRESHOLD_PERCENT = 10;
+
+  private BenchmarkComparison() {
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2 || args.length > 3) {
+      System.err.println("Usage: BenchmarkComparison <baseline.json> <current.json> [threshold percent]");
+      System.exit(2);
+    }
+    final double threshold = args.length == 3 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+
+    final Map<String, Result> baseline = read(new File(args[0]));
+    final Map<String, Result> current = read(new File(args[1]));
+
+    int regressions = 0;
+    System.out.println(String.format("%-100s %14s %14s %9s", "Benchmark", "Baseline", "Current", "Change"));
+    for (Map.Entry<String, Result> entry : current.entrySet()) {
+      final Result now = entry.getValue();
+      final Result before = baseline.get(entry.getKey());
+      if (before == null) {
+        System.out.println(String.format("%-100s %14s %14.3f %9s  new", entry.getKey(), "-", now.score, "-"));
+        continue;
+      }
+
+      final double change = 100 * (now.score - before.score) / before.score;
+      // positive when worse, whether lower or higher scores are better
+      final double degradation = now.higherIsBetter ? -change : change;
+      // ignore changes within the combined confidence intervals
+      final boolean significant = Math.abs(now.score - before.score) > now.error + before.error;
+      final boolean regression = significant && degradation > threshold;
+      if (regression) {
+        regressions++;
+      }
+      System.out.println(String.format("%-100s %14.3f %14.3f %+8.1f%%%s", entry.getKey(), before.score, now.score,
+        change, regression ? "  REGRESSION" : ""));
+    }
+
+    for (String name : baseline.keySet()) {
+      if (!current.containsKey(name)) {
+        System.out.println(String.format("%-100s  removed", name));
+      }
+    }
+
+    if (regressions > 0) {
+      System.out.println(String.format("%d benchmark(s) regressed by more than %.1f%%", regressions, threshold));
+      System.exit(1);
+    }
+  }
+
+  /**
+   * @return results keyed by benchmark name, mode and parameters
+   */
+  private static Map<String, Result> read(File file) throws IOException {
+    final Map<String, Result> results = new LinkedHashMap<>();
+    for (JsonNode node : new ObjectMapper().readTree(file)) {
+      final StringBuilder name = new StringBuilder(node.get("benchmark").asText())
+        .append(" (").append(node.get("mode").asText()).append(')');
+
+      final JsonNode params = node.get("params");
+      if (params != null) {
+        final Map<String, String> sorted = new TreeMap<>();
+        final Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+        while (fields.hasNext()) {
+          final Map.Entry<String, JsonNode> field = fields.next();
+          sorted.put(field.getKey(), field.getValue().asText());
+        }
+        name.append(' ').append(sorted);
+      }
+
+      final JsonNode metric = node.get("primaryMetric");
+      final double error = metric.get("scoreError").asDouble();
+      results.put(name.toString(), new Result(metric.get("score").asDouble(), Double.isNaN(error) ? 0 : error,
+        "thrpt".equals(node.get("mode").asText())));
+    }
+    return results;
+  }
+
+  private static final class Result {
+    private final double score;
+    private final double error;
+    private final boolean higherIsBetter;
+
+    private Result(double score, double error, boolean higherIsBetter) {
+      this.score = score;
+      this.error = error;
+      this.higherIsBetter = higherIsBetter;
+    }
+  }
+}
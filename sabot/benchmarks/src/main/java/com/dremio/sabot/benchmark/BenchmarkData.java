@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+
+import com.dremio.sabot.op.common.ht2.FieldVectorPair;
+
+/**
+ * Generates the input vectors of the benchmarks.
+ */
+final class BenchmarkData {
+
+  /**
+   * Shape of the keys, from narrow fixed width keys to composite keys with a variable width part.
+   */
+  enum KeyType {
+    INT(ColumnType.INT),
+    BIGINT(ColumnType.BIGINT),
+    VARCHAR(ColumnType.VARCHAR),
+    BIGINT_BIGINT(ColumnType.BIGINT, ColumnType.BIGINT),
+    INT_BIGINT_VARCHAR(ColumnType.INT, ColumnType.BIGINT, ColumnType.VARCHAR);
+
+    private final List<ColumnType> columns;
+
+    KeyType(ColumnType... columns) {
+      this.columns = Arrays.asList(columns);
+    }
+
+    List<ColumnType> getColumns() {
+      return columns;
+    }
+  }
+
+  enum ColumnType {
+    INT, BIGINT, VARCHAR
+  }
+
+  private BenchmarkData() {
+  }
+
+  /**
+   * Creates one vector per key column, with {@code count} values drawn from {@code cardinality} distinct values.
+   *
+   * @param nullDensity fraction of null values
+   * @param varcharLength length of the variable width values
+   */
+  static List<FieldVector> createKeys(BufferAllocator allocator, KeyType keyType, int count, int cardinality,
+                                      double nullDensity, int varcharLength, Random random) {
+    final List<FieldVector> vectors = new ArrayList<>();
+    int index = 0;
+    for (ColumnType column : keyType.getColumns()) {
+      vectors.add(createColumn(allocator, "key" + index++, column, count, cardinality, nullDensity, varcharLength, random));
+    }
+    return vectors;
+  }
+
+  static FieldVector createColumn(BufferAllocator allocator, String name, ColumnType type, int count, int cardinality,
+                                  double nullDensity, int varcharLength, Random random) {
+    switch (type) {
+      case INT: {
+        final IntVector vector = new IntVector(name, allocator);
+        vector.allocateNew(count);
+        for (int i = 0; i < count; i++) {
+          if (random.nextDouble() >= nullDensity) {
+            vector.set(i, random.nextInt(cardinality));
+          }
+        }
+        vector.setValueCount(count);
+        return vector;
+      }
+      case BIGINT: {
+        final BigIntVector vector = new BigIntVector(name, allocator);
+        vector.allocateNew(count);
+        for (int i = 0; i < count; i++) {
+          if (random.nextDouble() >= nullDensity) {
+            // spread the values over the whole long range, like real identifiers
+            vector.set(i, random.nextInt(cardinality) * 0x9E3779B97F4A7C15L);
+          }
+        }
+        vector.setValueCount(count);
+        return vector;
+      }
+      case VARCHAR: {
+        final VarCharVector vector = new VarCharVector(name, allocator);
+        vector.allocateNew((long) count * varcharLength, count);
+        for (int i = 0; i < count; i++) {
+          if (random.nextDouble() >= nullDensity) {
+            vector.setSafe(i, varchar(random.nextInt(cardinality), varcharLength));
+          }
+        }
+        vector.setValueCount(count);
+        return vector;
+      }
+      default:
+        throw new UnsupportedOperationException("Unsupported column type " + type);
+    }
+  }
+
+  /**
+   * Creates empty vectors with the same fields, to be used as the output of the benchmarked operation.
+   */
+  static List<FieldVector> createEmpty(BufferAllocator allocator, List<FieldVector> vectors) {
+    final List<FieldVector> empty = new ArrayList<>();
+    for (FieldVector vector : vectors) {
+      empty.add(vector.getField().createVector(allocator));
+    }
+    return empty;
+  }
+
+  static List<FieldVectorPair> pairs(List<FieldVector> incoming, List<FieldVector> outgoing) {
+    final List<FieldVectorPair> pairs = new ArrayList<>();
+    for (int i = 0; i < incoming.size(); i++) {
+      pairs.add(new FieldVectorPair(incoming.get(i), outgoing.get(i)));
+    }
+    return pairs;
+  }
+
+  private static byte[] varchar(int value, int length) {
+    final byte[] bytes = new byte[length];
+    Arrays.fill(bytes, (byte) 'x');
+    final byte[] digits = Integer.toString(value).getBytes(StandardCharsets.US_ASCII);
+    System.arraycopy(digits, 0, bytes, Math.max(0, length - digits.length), Math.min(length, digits.length));
+    return bytes;
+  }
+}
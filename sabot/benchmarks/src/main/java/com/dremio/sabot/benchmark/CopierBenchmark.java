@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.sabot.benchmark.BenchmarkData.ColumnType;
+import com.dremio.sabot.op.copier.FieldBufferCopier;
+import com.dremio.sabot.op.copier.FieldBufferCopier4;
+
+/**
+ * Copies of a column through a two byte selection vector ({@link FieldBufferCopier}, used after filters) and through a
+ * four byte selection vector over several batches ({@link FieldBufferCopier4}, used after sorts). Scores are per
+ * output batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CopierBenchmark {
+  private static final int NUM_BATCHES = 8;
+
+  @Param({"INT", "BIGINT", "VARCHAR"})
+  public ColumnType columnType;
+
+  @Param({"0", "0.1", "0.5"})
+  public double nullDensity;
+
+  @Param({"8", "32"})
+  public int varcharLength;
+
+  @Param({"1024", "4096"})
+  public int batchSize;
+
+  /**
+   * Fraction of the rows of a batch selected by the two byte selection vector
+   */
+  @Param({"0.1", "0.5", "1"})
+  public double selectivity;
+
+  private BufferAllocator allocator;
+  private final List<FieldVector> incoming = new ArrayList<>();
+  private FieldVector outgoing;
+  private FieldBufferCopier sv2Copier;
+  private FieldBufferCopier sv4Copier;
+  private ArrowBuf sv2;
+  private int sv2Count;
+  private ArrowBuf sv4;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    allocator = new RootAllocator(Long.MAX_VALUE);
+    final Random random = new Random(42);
+    for (int i = 0; i < NUM_BATCHES; i++) {
+      incoming.add(BenchmarkData.createColumn(allocator, "column", columnType, batchSize, batchSize, nullDensity,
+        varcharLength, random));
+    }
+    outgoing = incoming.get(0).getField().createVector(allocator);
+
+    sv2Copier = FieldBufferCopier.getCopiers(Collections.singletonList(incoming.get(0)),
+      Collections.singletonList(outgoing)).get(0);
+    sv4Copier = FieldBufferCopier4.getFourByteCopiers(
+      Collections.singletonList(incoming.toArray(new FieldVector[0])),
+      Collections.singletonList(outgoing)).get(0);
+
+    // a filter keeps the selected rows in order
+    sv2 = allocator.buffer(batchSize * 2L);
+    sv2Count = 0;
+    for (int i = 0; i < batchSize; i++) {
+      if (random.nextDouble() < selectivity) {
+        sv2.setShort(sv2Count * 2L, i);
+        sv2Count++;
+      }
+    }
+
+    // a sort interleaves rows of all the batches
+    sv4 = allocator.buffer(batchSize * 4L);
+    for (int i = 0; i < batchSize; i++) {
+      sv4.setInt(i * 4L, (random.nextInt(NUM_BATCHES) << 16) | random.nextInt(batchSize));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    AutoCloseables.close(sv2, sv4, outgoing);
+    AutoCloseables.close(incoming);
+    incoming.clear();
+    allocator.close();
+  }
+
+  @Benchmark
+  public int copySv2() {
+    sv2Copier.copy(sv2.memoryAddress(), sv2Count);
+    outgoing.setValueCount(sv2Count);
+    return outgoing.getValueCount();
+  }
+
+  @Benchmark
+  public int copySv4() {
+    sv4Copier.copy(sv4.memoryAddress(), batchSize);
+    outgoing.setValueCount(batchSize);
+    return outgoing.getValueCount();
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.benchmark;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.common.config.SabotConfig;
+import com.dremio.common.expression.CompleteType;
+import com.dremio.common.expression.FieldReference;
+import com.dremio.common.expression.FunctionCall;
+import com.dremio.common.expression.LogicalExpression;
+import com.dremio.common.logical.data.NamedExpression;
+import com.dremio.common.scanner.ClassPathScanner;
+import com.dremio.common.scanner.persistence.ScanResult;
+import com.dremio.common.utils.protos.AttemptId;
+import com.dremio.config.DremioConfig;
+import com.dremio.exec.compile.CodeCompiler;
+import com.dremio.exec.expr.fn.FunctionImplementationRegistry;
+import com.dremio.exec.physical.base.OpProps;
+import com.dremio.exec.physical.config.HashAggregate;
+import com.dremio.exec.planner.fragment.EndpointsIndex;
+import com.dremio.exec.proto.CoordExecRPC.QueryContextInformation;
+import com.dremio.exec.proto.CoordinationProtos.NodeEndpoint;
+import com.dremio.exec.proto.ExecProtos.FragmentHandle;
+import com.dremio.exec.proto.UserBitShared.UserCredentials;
+import com.dremio.exec.record.VectorContainer;
+import com.dremio.exec.server.NodeDebugContextProvider;
+import com.dremio.exec.server.options.DefaultOptionManager;
+import com.dremio.exec.server.options.OptionManagerWrapper;
+import com.dremio.exec.server.options.OptionValidatorListingImpl;
+import com.dremio.exec.testing.ExecutionControls;
+import com.dremio.options.OptionManager;
+import com.dremio.sabot.exec.context.ContextInformationImpl;
+import com.dremio.sabot.exec.context.OpProfileDef;
+import com.dremio.sabot.exec.context.OperatorContextImpl;
+import com.dremio.sabot.exec.context.OperatorStats;
+import com.dremio.sabot.op.aggregate.hash.HashAggOperator;
+import com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggOperator;
+import com.dremio.sabot.op.spi.SingleInputOperator;
+import com.dremio.service.spill.DefaultSpillServiceOptions;
+import com.dremio.service.spill.SpillService;
+import com.dremio.service.spill.SpillServiceImpl;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Grouped {@code tdigest} aggregation, either with the TDIGEST accumulator of {@link VectorizedHashAggOperator} or
+ * with the generated {@link HashAggOperator} that the planner used before. Both operators get the same batches of an
+ * INT key and a DOUBLE value, and all the digests fit in the default heap budget, so that nothing is spilled.
+ * Scores are per batch of input records.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashAggTDigestBenchmark {
+  private static final int NUM_BATCHES = 16;
+
+  @Param({"4096"})
+  public int batchSize;
+
+  @Param({"100", "1000"})
+  public int cardinality;
+
+  private BufferAllocator allocator;
+  private OptionManager options;
+  private SabotConfig config;
+  private DremioConfig dremioConfig;
+  private CodeCompiler compiler;
+  private FunctionImplementationRegistry functions;
+  private ExecutionControls executionControls;
+  private SpillService spillService;
+  private HashAggregate aggregate;
+  private int[][] keys;
+  private double[][] values;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    allocator = new RootAllocator(Long.MAX_VALUE);
+    config = SabotConfig.create();
+    dremioConfig = DremioConfig.create(null, config);
+    final ScanResult scanResult = ClassPathScanner.fromPrescan(config);
+    final OptionValidatorListingImpl optionValidatorListing = new OptionValidatorListingImpl(scanResult);
+    options = OptionManagerWrapper.Builder.newBuilder()
+      .withOptionManager(new DefaultOptionManager(optionValidatorListing))
+      .build();
+    compiler = new CodeCompiler(config, options);
+    functions = new FunctionImplementationRegistry(config, scanResult, options);
+    executionControls = new ExecutionControls(options, NodeEndpoint.getDefaultInstance());
+    // nothing is spilled, the spill directories are only created by the vectorized operator
+    spillService = new SpillServiceImpl(dremioConfig, new DefaultSpillServiceOptions() {
+      @Override
+      public boolean enableHealthCheck() {
+        return false;
+      }
+    }, () -> null);
+    spillService.start();
+
+    final LogicalExpression tdigest = new FunctionCall("tdigest", ImmutableList.of(new FieldReference("V")));
+    aggregate = new HashAggregate(OpProps.prototype(), null,
+      ImmutableList.of(new NamedExpression(new FieldReference("K"), new FieldReference("K"))),
+      ImmutableList.of(new NamedExpression(tdigest, new FieldReference("DIGEST"))),
+      true,
+      true,
+      1f);
+
+    final Random random = new Random(42);
+    keys = new int[NUM_BATCHES][batchSize];
+    values = new double[NUM_BATCHES][batchSize];
+    for (int i = 0; i < NUM_BATCHES; i++) {
+      for (int j = 0; j < batchSize; j++) {
+        keys[i][j] = random.nextInt(cardinality);
+        values[i][j] = random.nextGaussian();
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    AutoCloseables.close(spillService, allocator);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_BATCHES)
+  public int vectorized() throws Exception {
+    // the operator context closes the operator allocator
+    final BufferAllocator operatorAllocator = allocator.newChildAllocator("vectorized", 0, Long.MAX_VALUE);
+    try (OperatorContextImpl context = newOperatorContext(operatorAllocator);
+         VectorizedHashAggOperator operator = new VectorizedHashAggOperator(aggregate, context)) {
+      return aggregate(operator, operatorAllocator);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_BATCHES)
+  public int generated() throws Exception {
+    // the operator context closes the operator allocator
+    final BufferAllocator operatorAllocator = allocator.newChildAllocator("generated", 0, Long.MAX_VALUE);
+    try (OperatorContextImpl context = newOperatorContext(operatorAllocator);
+         HashAggOperator operator = new HashAggOperator(aggregate, context)) {
+      return aggregate(operator, operatorAllocator);
+    }
+  }
+
+  /**
+   * Feeds all the batches to the operator and drains its output
+   *
+   * @return number of output records
+   */
+  private int aggregate(SingleInputOperator operator, BufferAllocator operatorAllocator) throws Exception {
+    try (VectorContainer incoming = new VectorContainer(operatorAllocator)) {
+      final IntVector keyVector = incoming.addOrGet(CompleteType.INT.toField("K"));
+      final Float8Vector valueVector = incoming.addOrGet(CompleteType.DOUBLE.toField("V"));
+      incoming.buildSchema();
+      operator.setup(incoming);
+
+      int outputRecords = 0;
+      for (int i = 0; i < NUM_BATCHES; i++) {
+        incoming.allocateNew();
+        for (int j = 0; j < batchSize; j++) {
+          keyVector.set(j, keys[i][j]);
+          valueVector.set(j, values[i][j]);
+        }
+        incoming.setAllCount(batchSize);
+        operator.consumeData(batchSize);
+        outputRecords += drain(operator);
+      }
+      operator.noMoreToConsume();
+      return outputRecords + drain(operator);
+    }
+  }
+
+  private static int drain(SingleInputOperator operator) throws Exception {
+    int outputRecords = 0;
+    while (operator.getState() == SingleInputOperator.State.CAN_PRODUCE) {
+      outputRecords += operator.outputData();
+    }
+    return outputRecords;
+  }
+
+  private OperatorContextImpl newOperatorContext(BufferAllocator operatorAllocator) {
+    final FragmentHandle handle = FragmentHandle.newBuilder()
+      .setQueryId(new AttemptId().toQueryId())
+      .setMajorFragmentId(0)
+      .setMinorFragmentId(0)
+      .build();
+    return new OperatorContextImpl(
+      config,
+      dremioConfig,
+      handle,
+      aggregate,
+      operatorAllocator,
+      operatorAllocator,
+      compiler,
+      new OperatorStats(new OpProfileDef(1, 1, 1), operatorAllocator),
+      executionControls,
+      null,
+      null,
+      functions,
+      new ContextInformationImpl(UserCredentials.getDefaultInstance(), QueryContextInformation.getDefaultInstance()),
+      options,
+      spillService,
+      NodeDebugContextProvider.NOOP,
+      batchSize,
+      null,
+      ImmutableList.of(),
+      ImmutableList.of(),
+      null,
+      new EndpointsIndex(),
+      Collections.emptyList());
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.sabot.benchmark.BenchmarkData.KeyType;
+import com.dremio.sabot.op.common.ht2.BlockChunk;
+import com.dremio.sabot.op.common.ht2.FixedBlockVector;
+import com.dremio.sabot.op.common.ht2.HashComputation;
+import com.dremio.sabot.op.common.ht2.LBlockHashTable;
+import com.dremio.sabot.op.common.ht2.PivotBuilder;
+import com.dremio.sabot.op.common.ht2.PivotDef;
+import com.dremio.sabot.op.common.ht2.Pivots;
+import com.dremio.sabot.op.common.ht2.ResizeListener;
+import com.dremio.sabot.op.common.ht2.VariableBlockVector;
+import com.koloboke.collect.hash.HashConfig;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Insertion into and lookups from {@link LBlockHashTable}, on keys that were already pivoted and hashed the way the
+ * vectorized hash join and aggregation do it. Scores are per batch of keys.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashTableBenchmark {
+  private static final int NUM_BATCHES = 16;
+  private static final int VARIABLE_LENGTH_ESTIMATE = 15;
+
+  @Param({"INT", "BIGINT", "VARCHAR", "BIGINT_BIGINT", "INT_BIGINT_VARCHAR"})
+  public KeyType keyType;
+
+  @Param({"0", "0.1"})
+  public double nullDensity;
+
+  @Param({"8", "32"})
+  public int varcharLength;
+
+  @Param({"1024", "4096"})
+  public int batchSize;
+
+  @Param({"1000", "1000000"})
+  public int cardinality;
+
+  private BufferAllocator allocator;
+  private final List<PivotedBatch> batches = new ArrayList<>();
+  private LBlockHashTable table;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    allocator = new RootAllocator(Long.MAX_VALUE);
+    final Random random = new Random(42);
+    for (int i = 0; i < NUM_BATCHES; i++) {
+      batches.add(new PivotedBatch(
+        BenchmarkData.createKeys(allocator, keyType, batchSize, cardinality, nullDensity, varcharLength, random)));
+    }
+
+    table = newTable();
+    for (PivotedBatch batch : batches) {
+      batch.insert(table);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    AutoCloseables.close(table);
+    AutoCloseables.close(batches);
+    batches.clear();
+    allocator.close();
+  }
+
+  /**
+   * Builds a new table from all the batches
+   */
+  @Benchmark
+  @OperationsPerInvocation(NUM_BATCHES)
+  public int insert() throws Exception {
+    try (LBlockHashTable table = newTable()) {
+      for (PivotedBatch batch : batches) {
+        batch.insert(table);
+      }
+      return table.size();
+    }
+  }
+
+  /**
+   * Looks up all the keys of all the batches in a table that contains them
+   */
+  @Benchmark
+  @OperationsPerInvocation(NUM_BATCHES)
+  public long find() {
+    long sum = 0;
+    for (PivotedBatch batch : batches) {
+      sum += batch.find(table);
+    }
+    return sum;
+  }
+
+  private LBlockHashTable newTable() {
+    return new LBlockHashTable(HashConfig.getDefault(), batches.get(0).pivot, allocator, 16 * 1024,
+      VARIABLE_LENGTH_ESTIMATE, false, ResizeListener.NO_OP, batchSize);
+  }
+
+  /**
+   * A batch of keys with its pivoted representation and hash values
+   */
+  private final class PivotedBatch implements AutoCloseable {
+    private final List<FieldVector> keys;
+    private final PivotDef pivot;
+    private final FixedBlockVector fixed;
+    private final VariableBlockVector variable;
+    private final ArrowBuf hashes;
+
+    private PivotedBatch(List<FieldVector> keys) {
+      this.keys = keys;
+      this.pivot = PivotBuilder.getBlockDefinition(BenchmarkData.pairs(keys, keys));
+      this.fixed = new FixedBlockVector(allocator, pivot.getBlockWidth());
+      this.variable = new VariableBlockVector(allocator, pivot.getVariableCount());
+      Pivots.pivot(pivot, batchSize, fixed, variable);
+
+      this.hashes = allocator.buffer(batchSize * 8L);
+      HashComputation.computeHash(new BlockChunk(fixed.getMemoryAddress(), variable.getMemoryAddress(),
+        pivot.getVariableCount() == 0, pivot.getBlockWidth(), batchSize, hashes.memoryAddress(), 0));
+    }
+
+    private void insert(LBlockHashTable table) {
+      final long fixedAddr = fixed.getMemoryAddress();
+      final long variableAddr = variable.getMemoryAddress();
+      final long hashAddr = hashes.memoryAddress();
+      for (int i = 0; i < batchSize; i++) {
+        table.add(fixedAddr, variableAddr, i, (int) PlatformDependent.getLong(hashAddr + i * 8L));
+      }
+    }
+
+    private long find(LBlockHashTable table) {
+      final long fixedAddr = fixed.getMemoryAddress();
+      final long variableAddr = variable.getMemoryAddress();
+      final long hashAddr = hashes.memoryAddress();
+      long sum = 0;
+      for (int i = 0; i < batchSize; i++) {
+        sum += table.find(fixedAddr, variableAddr, i, (int) PlatformDependent.getLong(hashAddr + i * 8L));
+      }
+      return sum;
+    }
+
+    @Override
+    public void close() throws Exception {
+      AutoCloseables.close(hashes, fixed, variable);
+      AutoCloseables.close(keys);
+    }
+  }
+}
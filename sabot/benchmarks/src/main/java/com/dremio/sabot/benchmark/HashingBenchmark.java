@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.sabot.benchmark.BenchmarkData.KeyType;
+import com.dremio.sabot.op.common.ht2.BlockChunk;
+import com.dremio.sabot.op.common.ht2.FixedBlockVector;
+import com.dremio.sabot.op.common.ht2.HashComputation;
+import com.dremio.sabot.op.common.ht2.PivotBuilder;
+import com.dremio.sabot.op.common.ht2.PivotDef;
+import com.dremio.sabot.op.common.ht2.Pivots;
+import com.dremio.sabot.op.common.ht2.VariableBlockVector;
+import com.dremio.sabot.op.common.ht2.XXH64;
+
+/**
+ * Hashing of pivoted keys, one batch at a time with {@link HashComputation} the way the hash tables do it, and one
+ * key at a time with {@link XXH64}. Scores are per batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashingBenchmark {
+
+  @Param({"INT", "BIGINT", "VARCHAR", "BIGINT_BIGINT", "INT_BIGINT_VARCHAR"})
+  public KeyType keyType;
+
+  @Param({"0", "0.1"})
+  public double nullDensity;
+
+  @Param({"8", "32", "128"})
+  public int varcharLength;
+
+  @Param({"1024", "4096"})
+  public int batchSize;
+
+  private BufferAllocator allocator;
+  private List<FieldVector> keys;
+  private PivotDef pivot;
+  private FixedBlockVector fixed;
+  private VariableBlockVector variable;
+  private ArrowBuf hashes;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    allocator = new RootAllocator(Long.MAX_VALUE);
+    keys = BenchmarkData.createKeys(allocator, keyType, batchSize, batchSize, nullDensity, varcharLength,
+      new Random(42));
+    pivot = PivotBuilder.getBlockDefinition(BenchmarkData.pairs(keys, keys));
+    fixed = new FixedBlockVector(allocator, pivot.getBlockWidth());
+    variable = new VariableBlockVector(allocator, pivot.getVariableCount());
+    Pivots.pivot(pivot, batchSize, fixed, variable);
+    hashes = allocator.buffer(batchSize * 8L);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    AutoCloseables.close(hashes, fixed, variable);
+    AutoCloseables.close(keys);
+    allocator.close();
+  }
+
+  @Benchmark
+  public long hashBatch() {
+    HashComputation.computeHash(new BlockChunk(fixed.getMemoryAddress(), variable.getMemoryAddress(),
+      pivot.getVariableCount() == 0, pivot.getBlockWidth(), batchSize, hashes.memoryAddress(), 0));
+    return hashes.getLong(0);
+  }
+
+  /**
+   * Hashes the fixed width part of every key on its own
+   */
+  @Benchmark
+  public long hashFixedKeys() {
+    final int blockWidth = pivot.getBlockWidth();
+    final long fixedAddr = fixed.getMemoryAddress();
+    long hash = 0;
+    for (int i = 0; i < batchSize; i++) {
+      hash ^= XXH64.xxHash64(fixedAddr + (long) i * blockWidth, blockWidth, 0);
+    }
+    return hash;
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.sabot.benchmark.BenchmarkData.KeyType;
+import com.dremio.sabot.op.common.ht2.FixedBlockVector;
+import com.dremio.sabot.op.common.ht2.PivotBuilder;
+import com.dremio.sabot.op.common.ht2.PivotDef;
+import com.dremio.sabot.op.common.ht2.Pivots;
+import com.dremio.sabot.op.common.ht2.Unpivots;
+import com.dremio.sabot.op.common.ht2.VariableBlockVector;
+
+/**
+ * Conversion of key columns to the row wise block layout of the vectorized hash tables ({@link Pivots}) and back
+ * ({@link Unpivots}). Scores are per batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PivotBenchmark {
+
+  @Param({"INT", "BIGINT", "VARCHAR", "BIGINT_BIGINT", "INT_BIGINT_VARCHAR"})
+  public KeyType keyType;
+
+  @Param({"0", "0.1", "0.5"})
+  public double nullDensity;
+
+  @Param({"8", "32"})
+  public int varcharLength;
+
+  @Param({"1024", "4096"})
+  public int batchSize;
+
+  private BufferAllocator allocator;
+  private List<FieldVector> incoming;
+  private List<FieldVector> outgoing;
+  private PivotDef pivot;
+  private FixedBlockVector fixed;
+  private VariableBlockVector variable;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    allocator = new RootAllocator(Long.MAX_VALUE);
+    incoming = BenchmarkData.createKeys(allocator, keyType, batchSize, batchSize, nullDensity, varcharLength,
+      new Random(42));
+    outgoing = BenchmarkData.createEmpty(allocator, incoming);
+    pivot = PivotBuilder.getBlockDefinition(BenchmarkData.pairs(incoming, outgoing));
+    fixed = new FixedBlockVector(allocator, pivot.getBlockWidth());
+    variable = new VariableBlockVector(allocator, pivot.getVariableCount());
+    Pivots.pivot(pivot, batchSize, fixed, variable);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    AutoCloseables.close(fixed, variable);
+    AutoCloseables.close(incoming);
+    AutoCloseables.close(outgoing);
+    allocator.close();
+  }
+
+  @Benchmark
+  public long pivot() {
+    Pivots.pivot(pivot, batchSize, fixed, variable);
+    return fixed.getMemoryAddress();
+  }
+
+  @Benchmark
+  public int unpivot() {
+    Unpivots.unpivot(pivot, fixed, variable, 0, batchSize);
+    return outgoing.get(0).getValueCount();
+  }
+}
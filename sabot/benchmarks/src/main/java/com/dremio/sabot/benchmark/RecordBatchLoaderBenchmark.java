@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dremio.exec.proto.UserBitShared.RecordBatchDef;
+import com.dremio.exec.record.RecordBatchLoader;
+import com.dremio.exec.record.VectorContainer;
+import com.dremio.exec.record.WritableBatch;
+import com.dremio.sabot.benchmark.BenchmarkData.ColumnType;
+
+import io.netty.buffer.NettyArrowBuf;
+
+/**
+ * Loads of a query result batch sent as one buffer per vector buffer, the way results reach the Arrow Flight
+ * endpoint: either from a consolidated copy of the buffers, or directly over the list of buffers. Scores are batches
+ * per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordBatchLoaderBenchmark {
+
+  @Param({"INT", "BIGINT", "VARCHAR"})
+  public ColumnType columnType;
+
+  @Param({"0", "0.1"})
+  public double nullDensity;
+
+  @Param({"8", "32"})
+  public int varcharLength;
+
+  @Param({"4096"})
+  public int batchSize;
+
+  @Param({"4", "32"})
+  public int numColumns;
+
+  private BufferAllocator allocator;
+  private WritableBatch batch;
+  private RecordBatchDef def;
+  private final List<ArrowBuf> buffers = new ArrayList<>();
+  private long byteCount;
+  private RecordBatchLoader loader;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    allocator = new RootAllocator(Long.MAX_VALUE);
+    final Random random = new Random(42);
+    try (VectorContainer container = new VectorContainer(allocator)) {
+      for (int i = 0; i < numColumns; i++) {
+        container.add(BenchmarkData.createColumn(allocator, "column" + i, columnType, batchSize, batchSize,
+          nullDensity, varcharLength, random));
+      }
+      container.buildSchema();
+      container.setRecordCount(batchSize);
+      batch = WritableBatch.get(container);
+    }
+    def = batch.getDef();
+    for (NettyArrowBuf buf : batch.getBuffers()) {
+      buffers.add(buf.arrowBuf().slice(buf.readerIndex(), buf.readableBytes()));
+      byteCount += buf.readableBytes();
+    }
+    loader = new RecordBatchLoader(allocator);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    loader.close();
+    batch.close();
+    buffers.clear();
+    allocator.close();
+  }
+
+  @Benchmark
+  public int loadFromCopy() {
+    try (ArrowBuf copy = allocator.buffer(byteCount)) {
+      long offset = 0;
+      for (ArrowBuf buf : buffers) {
+        copy.setBytes(offset, buf, 0, buf.capacity());
+        offset += buf.capacity();
+      }
+      loader.load(def, copy);
+    }
+    return loader.getRecordCount();
+  }
+
+  @Benchmark
+  public int loadFromBuffers() {
+    loader.load(def, buffers);
+    return loader.getRecordCount();
+  }
+}
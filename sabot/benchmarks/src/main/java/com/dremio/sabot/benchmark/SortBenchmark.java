@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.SimpleIntVector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.exec.record.BatchSchema;
+import com.dremio.exec.record.ExpandableHyperContainer;
+import com.dremio.exec.record.RecordBatchData;
+import com.dremio.exec.record.VectorAccessible;
+import com.dremio.exec.record.VectorContainer;
+import com.dremio.exec.record.selection.SelectionVector2;
+import com.dremio.exec.record.selection.SelectionVector4;
+import com.dremio.sabot.benchmark.BenchmarkData.ColumnType;
+import com.dremio.sabot.exec.context.FunctionContext;
+import com.dremio.sabot.op.sort.external.QuickSorterTemplate;
+import com.dremio.sabot.op.sort.external.SplaySorterTemplate;
+import com.dremio.sabot.op.sort.external.SplayTree;
+
+/**
+ * Sorting of in memory batches on a single BIGINT column by the two sorters of the external sort,
+ * {@link QuickSorterTemplate} and {@link SplaySorterTemplate}. The comparison is implemented by hand the way the
+ * generated code does it, so the scores measure the sorters and not the code generation. Batches are inserted into
+ * the splay tree in arrival order, without the local pre-sort of {@code SplaySorter}. Scores are per sort of all the
+ * batches.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SortBenchmark {
+
+  @Param({"1024", "4096"})
+  public int batchSize;
+
+  @Param({"16", "64"})
+  public int numBatches;
+
+  @Param({"0", "0.1"})
+  public double nullDensity;
+
+  private BufferAllocator allocator;
+  private BatchSchema schema;
+  private final List<RecordBatchData> batches = new ArrayList<>();
+
+  @Setup(Level.Trial)
+  public void setupTrial() {
+    allocator = new RootAllocator(Long.MAX_VALUE);
+  }
+
+  @Setup(Level.Invocation)
+  public void setupInvocation() {
+    // the sorters take ownership of the batches, so every sort gets its own copy of the same data
+    final Random random = new Random(42);
+    for (int i = 0; i < numBatches; i++) {
+      final FieldVector vector = BenchmarkData.createColumn(allocator, "value", ColumnType.BIGINT, batchSize,
+        Integer.MAX_VALUE, nullDensity, 0, random);
+      try (VectorContainer container = new VectorContainer(allocator)) {
+        container.add(vector);
+        container.setRecordCount(batchSize);
+        container.buildSchema();
+        schema = container.getSchema();
+        batches.add(new RecordBatchData(container, allocator));
+      }
+    }
+  }
+
+  @TearDown(Level.Invocation)
+  public void tearDownInvocation() throws Exception {
+    // only the batches that were not handed over to a sorter are still open
+    AutoCloseables.close(batches);
+    batches.clear();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDownTrial() {
+    allocator.close();
+  }
+
+  @Benchmark
+  public int quickSort() throws Exception {
+    final QuickSorterTemplate sorter = new BigIntQuickSorter();
+    try (SimpleIntVector data = new SimpleIntVector("quick-sorter", allocator)) {
+      data.allocateNew(batchSize * numBatches);
+      sorter.setDataBuffer(data);
+      sorter.init(null, new ExpandableHyperContainer(allocator, schema));
+      for (RecordBatchData batch : batches) {
+        sorter.add(batch);
+      }
+      batches.clear();
+      try (SelectionVector4 sv4 = sorter.getFinalSort(allocator, batchSize)) {
+        return sv4.getTotalCount();
+      }
+    } finally {
+      sorter.close();
+    }
+  }
+
+  @Benchmark
+  public int splaySort() throws Exception {
+    final SplaySorterTemplate sorter = new BigIntSplaySorter();
+    try (ArrowBuf tree = allocator.buffer((batchSize * numBatches + 1L) * SplayTree.NODE_SIZE);
+         SelectionVector2 sv2 = new SelectionVector2(allocator)) {
+      tree.setZero(0, tree.capacity());
+      sorter.setDataBuffer(tree);
+      sorter.init(null, new ExpandableHyperContainer(allocator, schema));
+
+      sv2.allocateNew(batchSize);
+      for (int i = 0; i < batchSize; i++) {
+        sv2.setIndex(i * 2, i);
+      }
+      for (RecordBatchData batch : batches) {
+        sorter.add(sv2, batch);
+      }
+      batches.clear();
+      try (SelectionVector4 sv4 = sorter.getFinalSort(allocator, batchSize)) {
+        return sv4.getTotalCount();
+      }
+    } finally {
+      sorter.close();
+    }
+  }
+
+  private static BigIntVector[] getVectors(VectorAccessible incoming) {
+    return incoming.getValueAccessorById(BigIntVector.class, 0).getValueVectors();
+  }
+
+  /**
+   * Ascending order, nulls first, on compound (batch, row) indices
+   */
+  private static int compare(BigIntVector[] vectors, int leftIndex, int rightIndex) {
+    final BigIntVector left = vectors[leftIndex >>> 16];
+    final BigIntVector right = vectors[rightIndex >>> 16];
+    final int leftRow = leftIndex & 65535;
+    final int rightRow = rightIndex & 65535;
+    final boolean leftNull = left.isNull(leftRow);
+    final boolean rightNull = right.isNull(rightRow);
+    if (leftNull || rightNull) {
+      return Boolean.compare(!leftNull, !rightNull);
+    }
+    return Long.compare(left.get(leftRow), right.get(rightRow));
+  }
+
+  /**
+   * Stands in for the class generated for a single BIGINT ordering
+   */
+  public static class BigIntQuickSorter extends QuickSorterTemplate {
+    private BigIntVector[] vectors;
+
+    @Override
+    public void doSetup(FunctionContext context, VectorAccessible incoming, VectorAccessible outgoing) {
+      vectors = getVectors(incoming);
+    }
+
+    @Override
+    public int doEval(int leftIndex, int rightIndex) {
+      return compare(vectors, leftIndex, rightIndex);
+    }
+  }
+
+  /**
+   * Stands in for the class generated for a single BIGINT ordering
+   */
+  public static class BigIntSplaySorter extends SplaySorterTemplate {
+    private BigIntVector[] vectors;
+
+    @Override
+    public void doSetup(FunctionContext context, VectorAccessible incoming, VectorAccessible outgoing) {
+      vectors = getVectors(incoming);
+    }
+
+    @Override
+    public int doEval(int leftIndex, int rightIndex) {
+      return compare(vectors, leftIndex, rightIndex);
+    }
+  }
+}
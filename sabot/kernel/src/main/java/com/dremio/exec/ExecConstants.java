@@ -159,6 +159,8 @@ public interface ExecConstants {
   BooleanValidator ENABLE_VECTORIZED_COMPLEX_COPIER = new BooleanValidator("exec.operator.copier.complex.vectorize", true);
   BooleanValidator ENABLE_VECTORIZED_PARTITIONER = new BooleanValidator("exec.operator.partitioner.vectorize", true);
   BooleanValidator DEBUG_HASHJOIN_INSERTION = new BooleanValidator("exec.operator.join.debug-insertion", false);
+  // TopN purges its heap once it uses more than this ratio of its memory limit, 0 to only purge every few batches
+  DoubleValidator TOPN_PURGE_MEMORY_RATIO = new RangeDoubleValidator("exec.operator.topn.purge_memory_ratio", 0.0, 1.0, 0.5);
 
   String OUTPUT_FORMAT_OPTION = "store.format";
   StringValidator OUTPUT_FORMAT_VALIDATOR = new StringValidator(OUTPUT_FORMAT_OPTION, "parquet");
@@ -187,6 +189,12 @@ public interface ExecConstants {
 
   String PARQUET_MAX_FOOTER_LEN = "store.parquet.max_footer_length";
   LongValidator PARQUET_MAX_FOOTER_LEN_VALIDATOR = new LongValidator(PARQUET_MAX_FOOTER_LEN, 16*1024*1024);
+  BooleanValidator PARQUET_FOOTER_CACHE_ENABLED = new BooleanValidator("store.parquet.footer_cache.enabled", true);
+  PositiveLongValidator PARQUET_FOOTER_CACHE_MAX_SIZE = new PositiveLongValidator("store.parquet.footer_cache.max_size_bytes", Long.MAX_VALUE, 256 * 1024 * 1024);
+  // Executor wide cache of the decoded batches of small parquet files, shared across queries
+  BooleanValidator PARQUET_SCAN_RESULT_CACHE_ENABLED = new BooleanValidator("store.parquet.scan_result_cache.enabled", false);
+  PositiveLongValidator PARQUET_SCAN_RESULT_CACHE_MAX_SIZE = new PositiveLongValidator("store.parquet.scan_result_cache.max_size_bytes", Long.MAX_VALUE, 256 * 1024 * 1024);
+  PositiveLongValidator PARQUET_SCAN_RESULT_CACHE_MAX_FILE_SIZE = new PositiveLongValidator("store.parquet.scan_result_cache.max_file_size_bytes", Long.MAX_VALUE, 16 * 1024 * 1024);
 
   String PARQUET_MEMORY_THRESHOLD = "store.parquet.memory_threshold";
   LongValidator PARQUET_MEMORY_THRESHOLD_VALIDATOR = new LongValidator(PARQUET_MEMORY_THRESHOLD, 512*1024*1024);
@@ -271,6 +279,12 @@ public interface ExecConstants {
   String ELASTIC_ACTION_RETRIES = "store.elastic.action_retries";
   LongValidator ELASTIC_ACTION_RETRIES_VALIDATOR = new LongValidator(ELASTIC_ACTION_RETRIES, 0);
 
+  /* Read each Elasticsearch shard with a sliced scroll, in one split per slice. The slice count of a dataset is fixed
+   * when its metadata is refreshed, changing the store.elastic.sliced_scroll.* options has no effect on it until then. */
+  BooleanValidator ELASTIC_ENABLE_SLICED_SCROLL = new BooleanValidator("store.elastic.enable_sliced_scroll", true);
+  LongValidator ELASTIC_SLICED_SCROLL_DOCS_PER_SLICE = new PositiveLongValidator("store.elastic.sliced_scroll.docs_per_slice", Integer.MAX_VALUE, 1_000_000);
+  LongValidator ELASTIC_SLICED_SCROLL_MAX_SLICES = new PositiveLongValidator("store.elastic.sliced_scroll.max_slices_per_shard", 1024, 8);
+
   BooleanValidator ENABLE_UNION_TYPE = new BooleanValidator("exec.enable_union_type", true);
 
   BooleanValidator ACCELERATION_VERBOSE_LOGGING = new BooleanValidator("accelerator.system.verbose.logging", true);
@@ -372,6 +386,8 @@ public interface ExecConstants {
 
   String BOOTSTRAP_STORAGE_PLUGINS_FILE = "bootstrap-storage-plugins.json";
   String MAX_LOADING_CACHE_SIZE_CONFIG = "dremio.exec.compile.cache_max_size";
+  // directory where compiled generated classes are cached across restarts, disabled when empty
+  String PERSISTENT_CODE_CACHE_PATH_CONFIG = "dremio.exec.compile.persistent_cache_path";
 
   String ENABLE_WINDOW_FUNCTIONS = "window.enable";
   OptionValidator ENABLE_WINDOW_FUNCTIONS_VALIDATOR = new BooleanValidator(ENABLE_WINDOW_FUNCTIONS, true);
@@ -414,6 +430,13 @@ public interface ExecConstants {
   BooleanValidator PARQUET_CACHED_ENTITY_SET_FILE_SIZE = new BooleanValidator("store.parquet.set_file_length",true);
   BooleanValidator PARQUET_COLUMN_ORDERING = new BooleanValidator("store.parquet.column_ordering", false);
 
+  // prefetch the projected column chunks of a row group with coalesced vectored reads, when the file system supports async reads
+  BooleanValidator PARQUET_COALESCED_READ_ENABLE = new BooleanValidator("store.parquet.coalesced_read.enable", true);
+  LongValidator PARQUET_COALESCED_READ_MAX_GAP = new RangeLongValidator("store.parquet.coalesced_read.max_gap", 0, Integer.MAX_VALUE, 1024 * 1024);
+  LongValidator PARQUET_COALESCED_READ_MAX_MERGED_SIZE = new RangeLongValidator("store.parquet.coalesced_read.max_merged_size", 1, Integer.MAX_VALUE, 8 * 1024 * 1024);
+  LongValidator PARQUET_COALESCED_READ_MAX_CONCURRENT_READS = new RangeLongValidator("store.parquet.coalesced_read.max_concurrent_reads", 1, 64, 8);
+  LongValidator PARQUET_COALESCED_READ_MAX_PREFETCH_SIZE = new RangeLongValidator("store.parquet.coalesced_read.max_prefetch_size", 0, Integer.MAX_VALUE, 64 * 1024 * 1024);
+
   BooleanValidator HIVE_COMPLEXTYPES_ENABLED = new BooleanValidator("store.hive.parquet.support_complex_types", true);
   String PARQUET_LIST_ITEMS_KEY = "store.parquet.list_items.threshold";
   LongValidator PARQUET_LIST_ITEMS_THRESHOLD = new LongValidator(PARQUET_LIST_ITEMS_KEY, 128);
@@ -445,6 +468,18 @@ public interface ExecConstants {
   BooleanValidator EXTERNAL_SORT_VECTOR_COPIER = new BooleanValidator("exec.operator.sort.external.vector_copier", true);
   DoubleValidator EXTERNAL_SORT_SPILL_ALLOCATION_DENSITY = new RangeDoubleValidator("exec.operator.sort.external.spill.allocation_density", 0.0, Double.MAX_VALUE, 0.01);
 
+  EnumeratedStringValidator EXTERNAL_SORT_SPILL_COMPRESSION_CODEC = new EnumeratedStringValidator(
+      "exec.operator.sort.external.spill_compression_codec", "lz4", "lz4", "lz4_hc");
+  // heap read-ahead buffers of the disk runs read at once, split evenly between them; 0 disables read-ahead
+  RangeLongValidator EXTERNAL_SORT_SPILL_READ_BUFFER_BUDGET = new RangeLongValidator("exec.operator.sort.external.spill_read_buffer_budget", 0, 64 * 1024 * 1024, 1024 * 1024);
+  RangeLongValidator EXTERNAL_SORT_MAX_MERGE_FAN_IN = new RangeLongValidator("exec.operator.sort.external.max_merge_fan_in", 2, 100_000, 128);
+
+  // Compression of the batches sent by the exchange senders (broadcast, round robin and hash partition)
+  EnumeratedStringValidator EXCHANGE_COMPRESSION_CODEC = new EnumeratedStringValidator(
+      "exec.exchange.compression_codec", "none", "none", "lz4", "lz4_hc");
+  // Compression is turned off for a sender if its first batches don't compress below this ratio
+  DoubleValidator EXCHANGE_COMPRESSION_MAX_RATIO = new RangeDoubleValidator("exec.exchange.compression.max_ratio", 0.0, 1.0, 0.9);
+
   PositiveLongValidator EXTERNAL_SORT_BATCHSIZE_MULTIPLIER = new PositiveLongValidator("exec.operator.sort.external.batchsize_multiplier", Character.MAX_VALUE, 2);
 
   LongValidator VOTING_SCHEDULE = new PositiveLongValidator("vote.schedule.millis", Long.MAX_VALUE, 0);
@@ -480,6 +515,15 @@ public interface ExecConstants {
   /* XXX: Disable due to DX-37194 */
   BooleanValidator ENABLE_VECTORIZED_SPILL_VARCHAR_ACCUMULATOR = new BooleanValidator("exec.operator.vectorized_spill.varchar", false);
 
+  /* Spill hll/hll_merge sketches in the vectorized hash agg, instead of planning it without spilling */
+  BooleanValidator ENABLE_VECTORIZED_SPILL_NDV_ACCUMULATOR = new BooleanValidator("exec.operator.vectorized_spill.ndv", true);
+
+  /* Group by struct and list columns in the vectorized hash agg, by pivoting their serialized form */
+  BooleanValidator ENABLE_VECTORIZED_HASHAGG_COMPLEX_KEYS = new BooleanValidator("exec.operator.aggregate.vectorize.complex_keys", true);
+
+  /* Accumulate tdigest/tdigest_merge in the spilling vectorized hash agg, instead of the generated hash agg */
+  BooleanValidator ENABLE_VECTORIZED_SPILL_TDIGEST_ACCUMULATOR = new BooleanValidator("exec.operator.vectorized_spill.tdigest", true);
+
   BooleanValidator TRIM_ROWGROUPS_FROM_FOOTER = new BooleanValidator("exec.parquet.memory.trim_rowgroups", true);
   BooleanValidator TRIM_COLUMNS_FROM_ROW_GROUP = new BooleanValidator("exec.parquet.memory.trim_columns", true);
 
@@ -502,6 +546,8 @@ public interface ExecConstants {
   BooleanValidator SLICING_THREAD_MONITOR = new BooleanValidator("dremio.sliced.enable_monitor", true);
   PositiveLongValidator SLICING_THREAD_MIGRATION_MULTIPLE = new com.dremio.options.TypeValidators.PositiveLongValidator("dremio.sliced.migration_multiple", Long.MAX_VALUE, 50);
   PositiveLongValidator SLICING_THREAD_SPINDOWN_MULTIPLE = new com.dremio.options.TypeValidators.PositiveLongValidator("dremio.sliced.spindown_multiple", Long.MAX_VALUE, 100);
+  // number of threads of the slicing task pool, 0 means one thread per available core
+  RangeLongValidator SLICING_NUM_THREADS = new RangeLongValidator("dremio.sliced.num_threads", 0, 1024, 0);
 
   // warning threshold for spilling
   PositiveLongValidator SPILL_IO_WARN_MAX_RUNTIME_MS = new PositiveLongValidator("dremio.spill.warn_max_runtime", Long.MAX_VALUE, 3000);
@@ -531,9 +577,10 @@ public interface ExecConstants {
   String CODE_CACHE_LOCATION_PROP = "CODE_CACHE_LOCATION";
   BooleanValidator EXEC_CODE_CACHE_SAVE_EXPR = new BooleanValidator("exec.code_cache.save_expr", false);
 
-  BooleanValidator ENABLE_RUNTIME_FILTER_ON_NON_PARTITIONED_PARQUET =  new BooleanValidator("exec.non_partitioned_parquet.enable_runtime_filter", false); // in beta right now
+  BooleanValidator ENABLE_RUNTIME_FILTER_ON_NON_PARTITIONED_PARQUET =  new BooleanValidator("exec.non_partitioned_parquet.enable_runtime_filter", true);
   RangeLongValidator RUNTIME_FILTER_VALUE_FILTER_MAX_SIZE = new RangeLongValidator("exec.non_partitioned_parquet.runtime_filter.max_size", 10, 1_000_000, 100);
   RangeLongValidator RUNTIME_FILTER_KEY_MAX_SIZE = new RangeLongValidator("exec.runtime_filter.max_key_size", 32, 1_024, 128);
+  BooleanValidator RUNTIME_FILTER_ROW_GROUP_PRUNING = new BooleanValidator("exec.non_partitioned_parquet.runtime_filter.row_group_pruning", true);
 
   String ENABLE_PARQUET_VECTORIZED_COMPLEX_READERS_KEY = "exec.parquet.enable_vectorized_complex";
   BooleanValidator ENABLE_PARQUET_VECTORIZED_COMPLEX_READERS = new BooleanValidator(ENABLE_PARQUET_VECTORIZED_COMPLEX_READERS_KEY, true);
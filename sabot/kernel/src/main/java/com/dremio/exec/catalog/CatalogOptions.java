@@ -22,6 +22,7 @@ import com.dremio.options.TypeValidators;
 import com.dremio.options.TypeValidators.BooleanValidator;
 import com.dremio.options.TypeValidators.LongValidator;
 import com.dremio.options.TypeValidators.PositiveLongValidator;
+import com.dremio.options.TypeValidators.RangeLongValidator;
 import com.dremio.service.namespace.NamespaceService;
 
 /**
@@ -43,6 +44,9 @@ public final class CatalogOptions {
   // Maximum number of leaf columns allowed for metadata
   public static final LongValidator METADATA_LEAF_COLUMN_MAX = new PositiveLongValidator("store.plugin.max_metadata_leaf_columns", Integer.MAX_VALUE, 800);
 
+  // Maximum number of directories listed at the same time by a metadata refresh directory listing, 1 lists sequentially
+  public static final LongValidator DIR_LISTING_PARALLELISM = new RangeLongValidator("store.plugin.dir_listing_parallelism", 1, 64, 8);
+
   // Maximum nested levels allowed for a column
   public static final LongValidator MAX_NESTED_LEVELS = new PositiveLongValidator("store.plugin.max_nested_levels", 64, 16);
 
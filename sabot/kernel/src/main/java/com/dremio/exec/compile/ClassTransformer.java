@@ -25,16 +25,28 @@ import com.dremio.exec.ExecConstants;
 import com.dremio.exec.exception.ClassTransformationException;
 import com.dremio.options.OptionManager;
 import com.dremio.options.Options;
+import com.dremio.telemetry.api.metrics.Metrics;
+import com.dremio.telemetry.api.metrics.Metrics.ResetType;
+import com.dremio.telemetry.api.metrics.Timer;
+import com.dremio.telemetry.api.metrics.Timer.TimerContext;
 import com.google.common.base.Preconditions;
 
 @Options
 public class ClassTransformer {
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ClassTransformer.class);
 
+  private static final Timer COMPILE_TIMER = Metrics.newTimer(Metrics.join("codegen", "compile"), ResetType.NEVER);
+
   private final OptionManager optionManager;
+  private final PersistentClassCache persistentCache;
 
   public ClassTransformer(final OptionManager optionManager) {
+    this(optionManager, null);
+  }
+
+  ClassTransformer(final OptionManager optionManager, final PersistentClassCache persistentCache) {
     this.optionManager = optionManager;
+    this.persistentCache = persistentCache;
   }
 
   public static class ClassSet {
@@ -169,19 +181,51 @@ public class ClassTransformer {
       final TemplateClassDefinition<?> templateDefinition,
       final String entireClass,
       final String materializedClassName) throws ClassTransformationException {
-    return getExtendedImplementationClass(classLoader, templateDefinition, entireClass, materializedClassName);
+    return getExtendedImplementationClass(classLoader, templateDefinition, entireClass, materializedClassName, null);
+  }
+
+  /**
+   * Same as {@link #getImplementationClass(QueryClassLoader, TemplateClassDefinition, String, String)}, but first
+   * looks for classes compiled from the same generified code in the persistent cache, if one is configured.
+   *
+   * @param generifiedCode generated code before the materialized class name is substituted in
+   */
+  public Class<?> getImplementationClass(
+      final QueryClassLoader classLoader,
+      final TemplateClassDefinition<?> templateDefinition,
+      final String entireClass,
+      final String materializedClassName,
+      final String generifiedCode) throws ClassTransformationException {
+    return getExtendedImplementationClass(classLoader, templateDefinition, entireClass, materializedClassName, generifiedCode);
   }
 
   private Class<?> getExtendedImplementationClass(
       final QueryClassLoader classLoader,
       final TemplateClassDefinition<?> templateDefinition,
       final String entireClass,
-      final String materializedClassName) throws ClassTransformationException {
+      final String materializedClassName,
+      final String generifiedCode) throws ClassTransformationException {
 
     try {
       final long t1 = System.nanoTime();
       final ClassSet set = new ClassSet(null, templateDefinition.getTemplateClassName(), materializedClassName);
-      final ClassBytes[] implementationClasses = classLoader.getClassByteCode(set.generated, entireClass);
+
+      final String cacheKey = (persistentCache != null && generifiedCode != null) ?
+        persistentCache.getKey(templateDefinition, generifiedCode) : null;
+      final PersistentClassCache.Entry cached = cacheKey != null ? persistentCache.get(cacheKey) : null;
+
+      // classes loaded from the cache keep the name they were compiled with, each loader has its own namespace
+      final String className;
+      final ClassBytes[] implementationClasses;
+      if (cached != null) {
+        className = cached.getClassName();
+        implementationClasses = cached.getClasses();
+      } else {
+        className = set.generated.dot;
+        try (TimerContext ignored = COMPILE_TIMER.start()) {
+          implementationClasses = classLoader.getClassByteCode(set.generated, entireClass);
+        }
+      }
 
       long totalBytecodeSize = 0;
       for (ClassBytes clazz : implementationClasses) {
@@ -189,10 +233,14 @@ public class ClassTransformer {
         classLoader.injectByteCode(clazz.getName(), clazz.getBytes());
       }
 
-      Class<?> c = classLoader.findClass(set.generated.dot);
+      Class<?> c = classLoader.findClass(className);
       if (templateDefinition.getExternalInterface().isAssignableFrom(c)) {
         if (logger.isDebugEnabled()) {
-          logger.debug("Done compiling (bytecode size={}, time:{} millis).", DremioStringUtils.readable(totalBytecodeSize), (System.nanoTime() - t1) / 1000000);
+          logger.debug("Done {} (bytecode size={}, time:{} millis).", cached != null ? "loading from cache" : "compiling",
+            DremioStringUtils.readable(totalBytecodeSize), (System.nanoTime() - t1) / 1000000);
+        }
+        if (cacheKey != null && cached == null) {
+          persistentCache.put(cacheKey, className, implementationClasses);
         }
         return c;
       }
@@ -44,7 +44,7 @@ public class CodeCompiler {
   private final LoadingCache<ExpressionEvalInfosHolder, GeneratedClassEntryWithFunctionErrorContextSizeInfo> expressionsToCompiledClazzCache;
 
   public CodeCompiler(final SabotConfig config, final OptionManager optionManager) {
-    transformer = new ClassTransformer(optionManager);
+    transformer = new ClassTransformer(optionManager, PersistentClassCache.create(config));
     selector = new ClassCompilerSelector(config, optionManager);
     final int cacheMaxSize = config.getInt(ExecConstants.MAX_LOADING_CACHE_SIZE_CONFIG);
     generatedCodeToCompiledClazzCache = CacheBuilder.newBuilder()
@@ -115,7 +115,8 @@ public class CodeCompiler {
       CodeGenerator<?> cg = expressionEvalInfosHolder.cg;
       cg.getRoot().evaluateAllLazyExps();
       cg.generate();
-      final Class<?> c = transformer.getImplementationClass(loader, cg.getDefinition(), cg.getGeneratedCode(), cg.getMaterializedClassName());
+      final Class<?> c = transformer.getImplementationClass(loader, cg.getDefinition(), cg.getGeneratedCode(),
+        cg.getMaterializedClassName(), cg.getGenerifiedCode());
       return new GeneratedClassEntryWithFunctionErrorContextSizeInfo(c, rootGenerator.getFunctionErrorContextsCount());
     }
   }
@@ -125,7 +126,7 @@ public class CodeCompiler {
     public GeneratedClassEntry load(final CodeGenerator<?> cg) throws Exception {
       final QueryClassLoader loader = new QueryClassLoader(selector);
       final Class<?> c = transformer.getImplementationClass(loader, cg.getDefinition(),
-          cg.getGeneratedCode(), cg.getMaterializedClassName());
+          cg.getGeneratedCode(), cg.getMaterializedClassName(), cg.getGenerifiedCode());
       return new GeneratedClassEntry(c);
     }
   }
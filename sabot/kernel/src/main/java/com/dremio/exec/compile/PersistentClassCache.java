@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.compile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import com.dremio.common.config.SabotConfig;
+import com.dremio.common.util.DremioVersionInfo;
+import com.dremio.exec.ExecConstants;
+import com.dremio.telemetry.api.metrics.Counter;
+import com.dremio.telemetry.api.metrics.Metrics;
+import com.dremio.telemetry.api.metrics.Metrics.ResetType;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Content addressed cache of compiled generated classes, kept on disk so that they survive executor restarts.
+ * <p>
+ * Entries are keyed by a hash of the generated source, the template it extends, the Dremio version (which pins the
+ * function implementations inlined in the source) and the Java version. Entries are written to a temporary file and
+ * renamed in place, so the directory can be shared by several executors.
+ */
+class PersistentClassCache {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(PersistentClassCache.class);
+
+  private static final int FORMAT_VERSION = 1;
+
+  private static final Counter HITS = Metrics.newCounter(Metrics.join("codegen", "persistent_cache", "hits"), ResetType.NEVER);
+  private static final Counter MISSES = Metrics.newCounter(Metrics.join("codegen", "persistent_cache", "misses"), ResetType.NEVER);
+  private static final Counter ERRORS = Metrics.newCounter(Metrics.join("codegen", "persistent_cache", "errors"), ResetType.NEVER);
+
+  private final Path directory;
+  private final String environment;
+
+  @VisibleForTesting
+  PersistentClassCache(Path directory, String environment) {
+    this.directory = directory;
+    this.environment = environment;
+  }
+
+  /**
+   * @return the cache configured with {@link ExecConstants#PERSISTENT_CODE_CACHE_PATH_CONFIG}, or null if disabled
+   */
+  static PersistentClassCache create(SabotConfig config) {
+    if (!config.hasPath(ExecConstants.PERSISTENT_CODE_CACHE_PATH_CONFIG)) {
+      return null;
+    }
+    final String path = config.getString(ExecConstants.PERSISTENT_CODE_CACHE_PATH_CONFIG);
+    if (Strings.isNullOrEmpty(path)) {
+      return null;
+    }
+
+    final Path directory = Paths.get(path);
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      logger.warn("Unable to create compiled class cache directory {}, the cache is disabled", directory, e);
+      return null;
+    }
+    logger.info("Caching compiled classes in {}", directory);
+    return new PersistentClassCache(directory,
+      DremioVersionInfo.getVersion() + "/" + System.getProperty("java.specification.version"));
+  }
+
+  /**
+   * @param template template extended by the generated class
+   * @param generifiedCode generated source, before the materialized class name is substituted in
+   */
+  String getKey(TemplateClassDefinition<?> template, String generifiedCode) {
+    final Hasher hasher = Hashing.sha256().newHasher()
+      .putInt(FORMAT_VERSION)
+      .putString(environment, StandardCharsets.UTF_8)
+      .putString(template.getTemplateClassName(), StandardCharsets.UTF_8)
+      .putString(generifiedCode, StandardCharsets.UTF_8);
+    return hasher.hash().toString();
+  }
+
+  /**
+   * @return the cached classes, or null if they are not cached or the entry can't be read
+   */
+  Entry get(String key) {
+    final Path file = getPath(key);
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (input.readInt() != FORMAT_VERSION) {
+        MISSES.increment();
+        return null;
+      }
+      final String className = input.readUTF();
+      final ClassBytes[] classes = new ClassBytes[input.readInt()];
+      for (int i = 0; i < classes.length; i++) {
+        final String name = input.readUTF();
+        final byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        classes[i] = new ClassBytes(name, bytes);
+      }
+      HITS.increment();
+      return new Entry(className, classes);
+    } catch (NoSuchFileException e) {
+      MISSES.increment();
+      return null;
+    } catch (IOException e) {
+      ERRORS.increment();
+      logger.warn("Failure reading compiled class cache entry {}, ignoring it", file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Caches the classes compiled for the given key. Failures are logged and otherwise ignored.
+   *
+   * @param className name of the generated class implementing the template
+   * @param classes generated class and its inner classes
+   */
+  void put(String key, String className, ClassBytes[] classes) {
+    final Path file = getPath(key);
+    Path tmp = null;
+    try {
+      Files.createDirectories(file.getParent());
+      tmp = Files.createTempFile(file.getParent(), key, ".tmp");
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+        output.writeInt(FORMAT_VERSION);
+        output.writeUTF(className);
+        output.writeInt(classes.length);
+        for (ClassBytes clazz : classes) {
+          output.writeUTF(clazz.getName());
+          output.writeInt(clazz.getBytes().length);
+          output.write(clazz.getBytes());
+        }
+      }
+      try {
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+      tmp = null;
+    } catch (IOException e) {
+      ERRORS.increment();
+      logger.warn("Failure writing compiled class cache entry {}", file, e);
+    } finally {
+      if (tmp != null) {
+        try {
+          Files.deleteIfExists(tmp);
+        } catch (IOException e) {
+          logger.debug("Unable to delete {}", tmp, e);
+        }
+      }
+    }
+  }
+
+  private Path getPath(String key) {
+    // spread the entries over sub directories to keep directory listings short
+    return directory.resolve(key.substring(0, 2)).resolve(key);
+  }
+
+  /**
+   * Classes read from the cache.
+   */
+  static final class Entry {
+    private final String className;
+    private final ClassBytes[] classes;
+
+    private Entry(String className, ClassBytes[] classes) {
+      this.className = className;
+      this.classes = classes;
+    }
+
+    String getClassName() {
+      return className;
+    }
+
+    ClassBytes[] getClasses() {
+      return classes;
+    }
+  }
+}
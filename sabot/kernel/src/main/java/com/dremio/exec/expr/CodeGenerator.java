@@ -111,6 +111,13 @@ public class CodeGenerator<T> {
     return generifiedCode.replaceAll("GenericGenerated", this.className);
   }
 
+  /**
+   * @return generated code, independent of the name the class is materialized with
+   */
+  public String getGenerifiedCode() {
+    return generifiedCode;
+  }
+
   public TemplateClassDefinition<T> getDefinition() {
     return definition;
   }
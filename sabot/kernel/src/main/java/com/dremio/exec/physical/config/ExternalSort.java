@@ -22,6 +22,7 @@ import com.dremio.exec.physical.base.OpProps;
 import com.dremio.exec.physical.base.PhysicalOperator;
 import com.dremio.exec.physical.base.PhysicalVisitor;
 import com.dremio.exec.proto.UserBitShared.CoreOperatorType;
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonTypeName;
 
@@ -29,12 +30,29 @@ import com.fasterxml.jackson.annotation.JsonTypeName;
 public class ExternalSort extends AbstractSort {
   static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ExternalSort.class);
 
+  private final int limit;
+
+  public ExternalSort(OpProps props, PhysicalOperator child, List<Ordering> orderings, boolean reverse) {
+    this(props, child, orderings, reverse, 0);
+  }
+
+  /**
+   * @param limit number of sorted records needed downstream, 0 if all of them are. Each sorted run keeps at most
+   *              that many records.
+   */
+  @JsonCreator
   public ExternalSort(
       @JsonProperty("props") OpProps props,
       @JsonProperty("child") PhysicalOperator child,
       @JsonProperty("orderings") List<Ordering> orderings,
-      @JsonProperty("reverse") boolean reverse) {
+      @JsonProperty("reverse") boolean reverse,
+      @JsonProperty("limit") int limit) {
     super(props, child, orderings, reverse);
+    this.limit = limit;
+  }
+
+  public int getLimit() {
+    return limit;
   }
 
   @Override
@@ -54,7 +72,7 @@ public class ExternalSort extends AbstractSort {
 
   @Override
   protected PhysicalOperator getNewWithChild(PhysicalOperator child) {
-    return new ExternalSort(props, child, orderings, reverse);
+    return new ExternalSort(props, child, orderings, reverse, limit);
   }
 
   @Override
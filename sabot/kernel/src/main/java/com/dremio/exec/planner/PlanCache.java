@@ -15,49 +15,109 @@
  */
 package com.dremio.exec.planner;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 import com.dremio.exec.catalog.Catalog;
 import com.dremio.exec.catalog.DremioTable;
 import com.dremio.exec.planner.logical.ViewTable;
+import com.dremio.exec.planner.proto.PlanCacheStatistics;
 import com.dremio.exec.store.NamespaceTable;
+import com.dremio.options.OptionManager;
+import com.dremio.options.OptionValue;
 import com.dremio.service.namespace.dataset.proto.DatasetConfig;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.cache.Cache;
-import com.google.common.collect.Multimap;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
+/**
+ * Cache of physical plans, keyed by a 128 bit hash of the query and of everything its plan depends on.
+ *
+ * Cached plans are indexed by the datasets they read and the other way around, so that invalidating a dataset or
+ * removing a plan only touches the affected entries.
+ */
 public class PlanCache {
 
-  private final Cache<Long, CachedPlan> cachePlans;
-  private static Multimap<String, Long> datasetMap;
+  private final Cache<HashCode, CachedPlan> cachePlans;
+  private final ConcurrentMap<String, Set<HashCode>> datasetToPlans = new ConcurrentHashMap<>();
+  private final ConcurrentMap<HashCode, Set<String>> planToDatasets = new ConcurrentHashMap<>();
 
-  public PlanCache(Cache<Long, CachedPlan> cachePlans, Multimap<String, Long> map) {
-    this.cachePlans = cachePlans;
-    this.datasetMap = map;
-  }
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
 
-  public Multimap<String, Long> getDatasetMap() {
-    return datasetMap;
+  /**
+   * @param maxWeight maximum total estimated size of the cached plans
+   * @param expireAfterAccessMinutes time after which an unused plan is dropped
+   */
+  public PlanCache(long maxWeight, long expireAfterAccessMinutes) {
+    this.cachePlans = CacheBuilder.newBuilder()
+      .maximumWeight(maxWeight)
+      .weigher((Weigher<HashCode, CachedPlan>) (key, cachedPlan) -> cachedPlan.getEstimatedSize())
+      // plan caches are memory intensive. If there is memory pressure,
+      // let GC release them as last resort before running OOM.
+      .softValues()
+      .removalListener((RemovalListener<HashCode, CachedPlan>) this::onRemoval)
+      .expireAfterAccess(expireAfterAccessMinutes, TimeUnit.MINUTES)
+      .build();
   }
 
-  public Cache<Long, CachedPlan> getCachePlans() {
+  public Cache<HashCode, CachedPlan> getCachePlans() {
     return cachePlans;
   }
 
-  public void addCacheToDatasetMap(String datasetId, Long cacheId) {
-    synchronized (datasetMap) {
-      datasetMap.put(datasetId, cacheId);
+  /**
+   * Generates the key of a query plan. Besides the query text, the key covers the user running it, as access rules
+   * may change the plan, and the system and session options set to non default values.
+   *
+   * @param sql the query text, as unparsed from its validated tree so that formatting differences don't matter
+   */
+  public static HashCode generateCacheKey(String sql, String workLoadType, String defaultSchema, String userName,
+                                          OptionManager options) {
+    final Hasher hasher = Hashing.murmur3_128().newHasher()
+      .putString(sql, StandardCharsets.UTF_8).putByte((byte) 0)
+      .putString(workLoadType, StandardCharsets.UTF_8).putByte((byte) 0)
+      .putString(String.valueOf(defaultSchema), StandardCharsets.UTF_8).putByte((byte) 0)
+      .putString(String.valueOf(userName), StandardCharsets.UTF_8).putByte((byte) 0);
+    if (options != null) {
+      // query options are set per job (e.g. where to store the results) and are handled when reusing the plan
+      final List<OptionValue> planningOptions = options.getNonDefaultOptions().stream()
+        .filter(option -> option.getType() != OptionValue.OptionType.QUERY)
+        .sorted()
+        .collect(Collectors.toList());
+      for (OptionValue option : planningOptions) {
+        hasher.putString(option.getName(), StandardCharsets.UTF_8).putByte((byte) 0)
+          .putString(String.valueOf(option.getValue()), StandardCharsets.UTF_8).putByte((byte) 0);
+      }
     }
+    return hasher.hash();
   }
 
-  public static long generateCacheKey(String sql, String workLoadType, String defaultSchema) {
-    return sql.concat(workLoadType).concat(defaultSchema).hashCode();
+  public void addCacheToDatasetMap(String datasetId, HashCode cacheId) {
+    planToDatasets.computeIfAbsent(cacheId, k -> ConcurrentHashMap.newKeySet()).add(datasetId);
+    datasetToPlans.compute(datasetId, (k, plans) -> {
+      final Set<HashCode> newPlans = plans == null ? ConcurrentHashMap.newKeySet() : plans;
+      newPlans.add(cacheId);
+      return newPlans;
+    });
   }
 
-  public CachedPlan getIfPresentAndValid(Catalog catalog, long cacheId) {
-    if (cachePlans == null) {
-      return null;
-    }
+  public CachedPlan getIfPresentAndValid(Catalog catalog, HashCode cacheId) {
     CachedPlan cachedPlan = cachePlans.getIfPresent(cacheId);
     if (cachedPlan != null) {
       Iterable<DremioTable> datasets = catalog.getAllRequestedTables();
@@ -67,24 +127,68 @@ public class PlanCache {
           if (config.getLastModified() > cachedPlan.getCreationTime()) {
             // for this case, we can only invalidate this cach entry, other cache entries may still be valid
             cachePlans.invalidate(cacheId);
-            return null;
+            cachedPlan = null;
+            break;
           }
         }
       }
     }
-    return cachePlans.getIfPresent(cacheId);
+    if (cachedPlan != null) {
+      hits.increment();
+    } else {
+      misses.increment();
+    }
+    return cachedPlan;
   }
 
   public void invalidateCacheOnDataset(String datasetId) {
-    List<Long> affectedCaches = datasetMap.get(datasetId).stream().collect(Collectors.toList());
-    for(Long cacheId: affectedCaches) {
-      cachePlans.invalidate(cacheId);
+    final Set<HashCode> affectedCaches = datasetToPlans.remove(datasetId);
+    if (affectedCaches != null) {
+      // the removal listener drops the plans from the index of the other datasets they read
+      cachePlans.invalidateAll(affectedCaches);
     }
   }
 
-  public static void clearDatasetMapOnCacheGC(Long cacheId) {
-    synchronized (datasetMap) {
-      datasetMap.entries().removeIf(datasetMapEntry -> datasetMapEntry.getValue().equals(cacheId));
+  private void onRemoval(RemovalNotification<HashCode, CachedPlan> notification) {
+    if (notification.getCause() == RemovalCause.REPLACED) {
+      // the new plan for this key is already indexed
+      return;
+    }
+    if (notification.wasEvicted()) {
+      evictions.increment();
+    } else {
+      invalidations.increment();
     }
+
+    final HashCode cacheId = notification.getKey();
+    final Set<String> datasets = planToDatasets.remove(cacheId);
+    if (datasets == null) {
+      return;
+    }
+    for (String datasetId : datasets) {
+      datasetToPlans.computeIfPresent(datasetId, (k, plans) -> {
+        plans.remove(cacheId);
+        return plans.isEmpty() ? null : plans;
+      });
+    }
+  }
+
+  @VisibleForTesting
+  Set<HashCode> getPlansOnDataset(String datasetId) {
+    return datasetToPlans.getOrDefault(datasetId, Collections.emptySet());
+  }
+
+  /**
+   * @return the statistics of this cache since it was created
+   */
+  public PlanCacheStatistics getStatistics() {
+    return PlanCacheStatistics.newBuilder()
+      .setEntries(cachePlans.size())
+      .setDatasets(datasetToPlans.size())
+      .setHits(hits.sum())
+      .setMisses(misses.sum())
+      .setEvictions(evictions.sum())
+      .setInvalidations(invalidations.sum())
+      .build();
   }
 }
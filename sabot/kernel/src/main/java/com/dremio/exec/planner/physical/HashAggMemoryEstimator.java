@@ -40,7 +40,9 @@ import com.dremio.exec.record.VectorContainer;
 import com.dremio.options.OptionManager;
 import com.dremio.sabot.op.aggregate.vectorized.AccumulatorBuilder;
 import com.dremio.sabot.op.aggregate.vectorized.AccumulatorBuilder.MaterializedAggExpressionsResult;
+import com.dremio.sabot.op.aggregate.vectorized.NdvAccumulators;
 import com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggOperator;
+import com.dremio.sabot.op.common.ht2.ComplexKeySerializer;
 import com.dremio.sabot.op.common.ht2.FixedBlockVector;
 import com.dremio.sabot.op.common.ht2.LBlockHashTable;
 import com.dremio.sabot.op.common.ht2.PivotBuilder;
@@ -57,6 +59,7 @@ public class HashAggMemoryEstimator {
   private final int numPartitions;
   private final int hashTableBatchSize;
   private final int maxVariableBlockLength;
+  private final int serializedComplexKeysSize;
   private final OptionManager optionManager;
   private final PivotInfo pivotInfo;
   private final AccumulatorBuilder.MaterializedAggExpressionsResult materializedAggExpressions;
@@ -77,6 +80,7 @@ public class HashAggMemoryEstimator {
     int numPartitions,
     int hashTableBatchSize,
     int maxVariableBlockLength,
+    int serializedComplexKeysSize,
     MaterializedAggExpressionsResult materializedAggExpressions,
     PivotInfo pivotInfo,
     OptionManager optionManager) {
@@ -84,6 +88,7 @@ public class HashAggMemoryEstimator {
     this.numPartitions = numPartitions;
     this.hashTableBatchSize = hashTableBatchSize;
     this.maxVariableBlockLength = maxVariableBlockLength;
+    this.serializedComplexKeysSize = serializedComplexKeysSize;
     this.materializedAggExpressions = materializedAggExpressions;
     this.pivotInfo = pivotInfo;
     this.optionManager = optionManager;
@@ -130,13 +135,16 @@ public class HashAggMemoryEstimator {
          final VectorContainer incoming = new VectorContainer(allocator)) {
       incoming.addSchema(childSchema);
 
-      final int hashTableBatchSize = computeHashTableSize(options, schema);
-
       // construct pivot info using the group-by exprs.
       final List<LogicalExpression> materializedGroupByExprs = materializeExprs(groupByExpressions,
         childSchema,
         functionLookupContext);
       final PivotInfo pivotInfo = getPivotInfo(materializedGroupByExprs, incoming);
+      final List<Field> complexKeyFields = materializedGroupByExprs
+        .stream()
+        .filter(expr -> expr.getCompleteType().isComplex())
+        .map(expr -> expr.getCompleteType().toField("key"))
+        .collect(Collectors.toList());
 
       // construct accumulator types using the agg exprs.
       final List<LogicalExpression> materializedAggExprs = materializeExprs(aggregateExpressions,
@@ -146,23 +154,39 @@ public class HashAggMemoryEstimator {
         AccumulatorBuilder.getAccumulatorTypesFromMaterializedExpressions(
           aggregateExpressions, materializedAggExprs, incoming);
 
-      return create(pivotInfo, accumulatorTypes, hashTableBatchSize, options);
+      final int hashTableBatchSize = computeHashTableSize(options, schema, accumulatorTypes);
+
+      return create(pivotInfo, complexKeyFields, accumulatorTypes, hashTableBatchSize, options);
     }
   }
 
   // Used by the executor for verification.
   public static HashAggMemoryEstimator create(
     final PivotInfo pivotInfo,
+    final List<Field> complexKeyFields,
     final MaterializedAggExpressionsResult materializedAggExpressions,
     final int hashTableBatchSize,
     final OptionManager options) {
 
-
+    final int listSizeEstimate = (int) options.getOption(ExecConstants.BATCH_LIST_SIZE_ESTIMATE);
     final int variableWidthKeySize =
       (int) options.getOption(ExecConstants.BATCH_VARIABLE_FIELD_SIZE_ESTIMATE);
+
+    /*
+     * struct and list keys are pivoted as variable width keys in their serialized form, which is
+     * usually wider than a plain variable width key.
+     */
+    int serializedComplexKeysSize = 0;
+    for (Field field : complexKeyFields) {
+      serializedComplexKeysSize += ComplexKeySerializer.estimateSerializedSize(field, listSizeEstimate, variableWidthKeySize);
+    }
+    final int numVarColumns = pivotInfo.getNumVarColumns();
+    final int averageVariableKeySize = numVarColumns == 0 ? variableWidthKeySize :
+      (int) Math.ceil((variableWidthKeySize * (numVarColumns - complexKeyFields.size()) + serializedComplexKeysSize)
+        / (double) numVarColumns);
     final int maxVariableBlockLength =
       LBlockHashTable.computeVariableBlockMaxLength(
-        hashTableBatchSize, pivotInfo.getNumVarColumns(), variableWidthKeySize);
+        hashTableBatchSize, numVarColumns, averageVariableKeySize);
 
     final int numPartitions =
       (int) options.getOption(VectorizedHashAggOperator.VECTORIZED_HASHAGG_NUMPARTITIONS);
@@ -171,6 +195,7 @@ public class HashAggMemoryEstimator {
       numPartitions,
       hashTableBatchSize,
       maxVariableBlockLength,
+      serializedComplexKeysSize,
       materializedAggExpressions,
       pivotInfo,
       options);
@@ -240,7 +265,16 @@ public class HashAggMemoryEstimator {
   }
 
   private int computeForAuxStructures() {
-    return memFixedBlockSinglePartition + memVariableBlockSinglePartition;
+    return memFixedBlockSinglePartition + memVariableBlockSinglePartition + computeForSerializedComplexKeys();
+  }
+
+  // the incoming struct and list keys of a batch are serialized before being pivoted.
+  private int computeForSerializedComplexKeys() {
+    if (serializedComplexKeysSize == 0) {
+      return 0;
+    }
+    return getValidityBufferSizeFromCount(hashTableBatchSize) + ((hashTableBatchSize + 1) * 4) +
+      (serializedComplexKeysSize * hashTableBatchSize);
   }
 
   private int computeForOrdinals() {
@@ -262,8 +296,23 @@ public class HashAggMemoryEstimator {
     int validitySize = 0;
     int dataSize = 0;
 
-    for (Field field : materializedAggExpressions.getOutputVectorFields()) {
-      TypeProtos.MinorType minorType = CompleteType.fromField(field).toMinorType();
+    final List<Field> outputVectorFields = materializedAggExpressions.getOutputVectorFields();
+    for (int i = 0; i < outputVectorFields.size(); i++) {
+      if (isNdvAccumulator(materializedAggExpressions, i)) {
+        /* a slot for the sketch of each group, followed by the offsets used when spilling the sketches */
+        validitySize += getValidityBufferSizeFromCount(hashTableBatchSize);
+        dataSize += (NdvAccumulators.SKETCH_SIZE * hashTableBatchSize) + ((hashTableBatchSize + 1) * 4);
+        continue;
+      }
+      if (isTDigestAccumulator(materializedAggExpressions, i)) {
+        /* digests are on heap, direct memory holds the validity and the vector the digests are spilled through */
+        final int estimatedVariableWidthKeySize = (int)this.optionManager.getOption(ExecConstants.BATCH_VARIABLE_FIELD_SIZE_ESTIMATE);
+        validitySize += 2 * getValidityBufferSizeFromCount(hashTableBatchSize);
+        dataSize += ((hashTableBatchSize + 1) * 4) + (estimatedVariableWidthKeySize * hashTableBatchSize);
+        continue;
+      }
+
+      TypeProtos.MinorType minorType = CompleteType.fromField(outputVectorFields.get(i)).toMinorType();
       switch (minorType) {
         case BIT:
           validitySize += getValidityBufferSizeFromCount(hashTableBatchSize);
@@ -329,8 +378,22 @@ public class HashAggMemoryEstimator {
     return PivotBuilder.getBlockInfo(inputVectors);
   }
 
+  private static boolean isNdvAccumulator(final MaterializedAggExpressionsResult materializedAggExpressions,
+                                          final int index) {
+    final byte accumulatorType = materializedAggExpressions.getAccumulatorTypes()[index];
+    return accumulatorType == AccumulatorBuilder.AccumulatorType.HLL.ordinal() ||
+      accumulatorType == AccumulatorBuilder.AccumulatorType.HLL_MERGE.ordinal();
+  }
+
+  private static boolean isTDigestAccumulator(final MaterializedAggExpressionsResult materializedAggExpressions,
+                                              final int index) {
+    final byte accumulatorType = materializedAggExpressions.getAccumulatorTypes()[index];
+    return accumulatorType == AccumulatorBuilder.AccumulatorType.TDIGEST.ordinal() ||
+      accumulatorType == AccumulatorBuilder.AccumulatorType.TDIGEST_MERGE.ordinal();
+  }
+
   private static int computeHashTableSize(final OptionManager options,
-    final BatchSchema schema) {
+    final BatchSchema schema, final MaterializedAggExpressionsResult materializedAggExpressions) {
 
     /*
      * Estimate the outgoing record size. This is proportional to the sum of the accumulator and
@@ -338,7 +401,17 @@ public class HashAggMemoryEstimator {
      */
     final int listSizeEstimate = (int)options.getOption(ExecConstants.BATCH_LIST_SIZE_ESTIMATE);
     final int estimatedVariableWidthKeySize = (int)options.getOption(ExecConstants.BATCH_VARIABLE_FIELD_SIZE_ESTIMATE);
-    final int estimatedRecordSize = schema.estimateRecordSize(listSizeEstimate, estimatedVariableWidthKeySize);
+    int estimatedRecordSize = schema.estimateRecordSize(listSizeEstimate, estimatedVariableWidthKeySize);
+
+    /*
+     * The sketch of a group is held in memory until the group is output or spilled, account for
+     * it so that the batches of ndv aggregations stay within the same memory bounds.
+     */
+    for (int i = 0; i < materializedAggExpressions.getAccumulatorTypes().length; i++) {
+      if (isNdvAccumulator(materializedAggExpressions, i)) {
+        estimatedRecordSize += NdvAccumulators.SKETCH_SIZE;
+      }
+    }
 
     /*
      * Compute the max hash table batch size, based on the estimated record size.
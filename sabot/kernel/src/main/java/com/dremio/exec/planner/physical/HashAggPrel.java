@@ -34,6 +34,7 @@ import org.apache.calcite.util.ImmutableBitSet;
 import com.dremio.common.expression.CompleteType;
 import com.dremio.common.expression.LogicalExpression;
 import com.dremio.common.logical.data.NamedExpression;
+import com.dremio.common.types.TypeProtos.MinorType;
 import com.dremio.exec.ExecConstants;
 import com.dremio.exec.expr.ExpressionTreeMaterializer;
 import com.dremio.exec.expr.FunctionHolderExpr;
@@ -50,6 +51,8 @@ import com.dremio.options.TypeValidators.DoubleValidator;
 import com.dremio.options.TypeValidators.LongValidator;
 import com.dremio.options.TypeValidators.PositiveLongValidator;
 import com.dremio.options.TypeValidators.RangeDoubleValidator;
+import com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggOperator;
+import com.dremio.sabot.op.common.ht2.ComplexKeySerializer;
 import com.google.common.collect.ImmutableList;
 
 @Options
@@ -171,16 +174,23 @@ public class HashAggPrel extends AggPrelBase implements Prel{
     if (!canVectorize(creator, child)) {
       return false;
     }
+    return canSpillAccumulators(creator, child.getProps().getSchema());
+  }
+
+  /**
+   * Checks that the spilling operator has an accumulator for each of the aggregate functions.
+   */
+  private boolean canSpillAccumulators(PhysicalPlanCreator creator, BatchSchema childSchema) {
     boolean useSpill = true;
-    final BatchSchema childSchema = child.getProps().getSchema();
     for(NamedExpression ne : aggExprs) {
       final LogicalExpression expr = ExpressionTreeMaterializer.materializeAndCheckErrors(ne.getExpr(), childSchema, creator.getContext().getFunctionRegistry());
       if (expr != null && (expr instanceof FunctionHolderExpr)) {
         final String functionName = ((FunctionHolderExpr) expr).getName();
         final boolean isMinMaxFn = (functionName.equals("min") || functionName.equals("max"));
         final boolean isNDVFn = (functionName.equals("hll") || functionName.equals("hll_merge"));
-        if (isNDVFn || (isMinMaxFn && expr.getCompleteType().isVariableWidthScalar() &&
-                        !creator.getContext().getOptions().getOption(ExecConstants.ENABLE_VECTORIZED_SPILL_VARCHAR_ACCUMULATOR))) {
+        if ((isNDVFn && !creator.getContext().getOptions().getOption(ExecConstants.ENABLE_VECTORIZED_SPILL_NDV_ACCUMULATOR)) ||
+            (isMinMaxFn && expr.getCompleteType().isVariableWidthScalar() &&
+             !creator.getContext().getOptions().getOption(ExecConstants.ENABLE_VECTORIZED_SPILL_VARCHAR_ACCUMULATOR))) {
           useSpill = false;
           break;
         }
@@ -195,6 +205,9 @@ public class HashAggPrel extends AggPrelBase implements Prel{
     }
 
     final BatchSchema childSchema = child.getProps().getSchema();
+    /* complex keys are only serialized by the spilling operator, which needs to be the one picked at execution */
+    final boolean enabledComplexKeys = creator.getContext().getOptions().getOption(ExecConstants.ENABLE_VECTORIZED_HASHAGG_COMPLEX_KEYS) &&
+      creator.getContext().getOptions().getOption(VectorizedHashAggOperator.VECTORIZED_HASHAGG_USE_SPILLING_OPERATOR);
 
     for(NamedExpression ne : keys){
       // these should all be simple.
@@ -220,6 +233,13 @@ public class HashAggPrel extends AggPrelBase implements Prel{
         case DECIMAL:
         case BIT:
           continue;
+        case STRUCT:
+        case LIST:
+          if (enabledComplexKeys && ComplexKeySerializer.isSupported(expr.getCompleteType().toField(ne.getRef()))
+            && canSpillAccumulators(creator, childSchema)) {
+            continue;
+          }
+          return false;
         default:
           return false;
       }
@@ -227,6 +247,10 @@ public class HashAggPrel extends AggPrelBase implements Prel{
 
     final boolean enabledVarcharNdv = creator.getContext().getOptions().getOption(ExecConstants.ENABLE_VECTORIZED_NOSPILL_VARCHAR_NDV_ACCUMULATOR);
     final boolean enabledSpillVarchar = creator.getContext().getOptions().getOption(ExecConstants.ENABLE_VECTORIZED_SPILL_VARCHAR_ACCUMULATOR);
+    final boolean enabledSpillNdv = creator.getContext().getOptions().getOption(ExecConstants.ENABLE_VECTORIZED_SPILL_NDV_ACCUMULATOR);
+    /* there is no tdigest accumulator in the non spilling operator */
+    final boolean enabledSpillTDigest = creator.getContext().getOptions().getOption(ExecConstants.ENABLE_VECTORIZED_SPILL_TDIGEST_ACCUMULATOR) &&
+      creator.getContext().getOptions().getOption(VectorizedHashAggOperator.VECTORIZED_HASHAGG_USE_SPILLING_OPERATOR);
 
     for(NamedExpression ne : aggExprs){
       final LogicalExpression expr = ExpressionTreeMaterializer.materializeAndCheckErrors(ne.getExpr(), childSchema, creator.getContext().getFunctionRegistry());
@@ -289,7 +313,28 @@ public class HashAggPrel extends AggPrelBase implements Prel{
 
       case "hll":
       case "hll_merge":
-        if (!enabledVarcharNdv) {
+        if (!enabledVarcharNdv && !enabledSpillNdv) {
+          return false;
+        }
+        continue;
+
+      case "tdigest":
+        if (!enabledSpillTDigest) {
+          return false;
+        }
+        switch(inputType.toMinorType()){
+          case FLOAT8:
+          case DATE:
+          case TIME:
+          case TIMESTAMP:
+          case BIT:
+            continue;
+        }
+
+        return false;
+
+      case "tdigest_merge":
+        if (!enabledSpillTDigest || inputType.toMinorType() != MinorType.VARBINARY) {
           return false;
         }
         continue;
@@ -343,7 +388,8 @@ public class HashAggPrel extends AggPrelBase implements Prel{
         canVectorize,
         canSpill,
         1.0f,
-        hashTableBatchSize);
+        hashTableBatchSize,
+        operPhase == OperatorPhase.PHASE_1of2);
   }
 
 
@@ -16,8 +16,12 @@
 
 package com.dremio.exec.planner.physical;
 
+import java.math.BigDecimal;
+
 import org.apache.calcite.plan.RelOptRule;
 import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rex.RexBuilder;
 import org.apache.calcite.rex.RexLiteral;
 
 import com.dremio.exec.planner.logical.RelOptHelper;
@@ -35,14 +39,27 @@ public class PushLimitToTopN  extends Prule{
     final LimitPrel limit = (LimitPrel) call.rel(0);
     final SingleMergeExchangePrel smex = (SingleMergeExchangePrel) call.rel(1);
     final SortPrel sort = (SortPrel) call.rel(2);
+    if (sort.fetch != null) {
+      // already limited by this rule
+      return;
+    }
 
     // First offset to include into results (inclusive). Null implies it is starting from offset 0
     int offset = limit.getOffset() != null ? Math.max(0, RexLiteral.intValue(limit.getOffset())) : 0;
     int fetch = limit.getFetch() != null?  Math.max(0, RexLiteral.intValue(limit.getFetch())) : 0;
 
-    final TopNPrel topN = new TopNPrel(limit.getCluster(), sort.getTraitSet(), sort.getInput(), offset + fetch, sort.getCollation());
+    final long maxTopN = PrelUtil.getPlannerSettings(call.getPlanner()).getOptions().getOption(TopNPrel.MAX_LIMIT);
+    final RelNode limitedSort;
+    if ((long) offset + fetch <= maxTopN) {
+      limitedSort = new TopNPrel(limit.getCluster(), sort.getTraitSet(), sort.getInput(), offset + fetch, sort.getCollation());
+    } else {
+      // too many records to keep in memory, sort them but only keep the first ones of each sorted run
+      final RexBuilder rexBuilder = sort.getCluster().getRexBuilder();
+      limitedSort = SortPrel.create(sort.getCluster(), sort.getTraitSet(), sort.getInput(), sort.getCollation(), null,
+        rexBuilder.makeExactLiteral(BigDecimal.valueOf((long) offset + fetch)));
+    }
     final LimitPrel newLimit = new LimitPrel(limit.getCluster(), limit.getTraitSet(),
-        new SingleMergeExchangePrel(smex.getCluster(), smex.getTraitSet(), topN, sort.getCollation()),
+        new SingleMergeExchangePrel(smex.getCluster(), smex.getTraitSet(), limitedSort, sort.getCollation()),
         limit.getOffset(), limit.getFetch());
 
     call.transformTo(newLimit);
@@ -25,6 +25,7 @@ import org.apache.calcite.plan.RelTraitSet;
 import org.apache.calcite.rel.RelCollation;
 import org.apache.calcite.rel.RelNode;
 import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.rex.RexNode;
 
 import com.dremio.exec.ExecConstants;
@@ -104,7 +105,8 @@ public class SortPrel extends SortRelBase implements Prel {
         ,
         childPOP,
         PrelUtil.getOrdering(this.collation, getInput().getRowType()),
-        false
+        false,
+        getLimit()
         );
   }
 
@@ -115,7 +117,19 @@ public class SortPrel extends SortRelBase implements Prel {
       RelCollation newCollation,
       RexNode offset,
       RexNode fetch) {
-    return SortPrel.create(getCluster(), traitSet, newInput, newCollation);
+    return SortPrel.create(getCluster(), traitSet, newInput, newCollation, offset, fetch);
+  }
+
+  /**
+   * @return number of sorted records needed by the consumer of this sort, 0 if all of them are
+   */
+  private int getLimit() {
+    if (!(fetch instanceof RexLiteral)) {
+      return 0;
+    }
+    final long offsetValue = offset instanceof RexLiteral ? Math.max(0, RexLiteral.intValue(offset)) : 0;
+    final long limit = offsetValue + Math.max(0, RexLiteral.intValue(fetch));
+    return limit > 0 && limit < Integer.MAX_VALUE ? (int) limit : 0;
   }
 
   @Override
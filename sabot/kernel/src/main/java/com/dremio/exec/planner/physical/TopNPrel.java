@@ -40,6 +40,8 @@ public class TopNPrel extends SinglePrel {
 
   public static final LongValidator RESERVE = new PositiveLongValidator("planner.op.topn.reserve_bytes", Long.MAX_VALUE, DEFAULT_RESERVE);
   public static final LongValidator LIMIT = new PositiveLongValidator("planner.op.topn.limit_bytes", Long.MAX_VALUE, DEFAULT_LIMIT);
+  // TopN keeps its whole heap in memory, larger limits are planned as a sort which keeps the first records of each run
+  public static final LongValidator MAX_LIMIT = new PositiveLongValidator("planner.op.topn.max_limit", Integer.MAX_VALUE, 1_000_000);
 
   protected int limit;
   protected final RelCollation collation;
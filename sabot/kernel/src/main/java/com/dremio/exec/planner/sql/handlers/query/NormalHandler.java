@@ -50,6 +50,7 @@ import com.dremio.exec.store.NamespaceTable;
 import com.dremio.options.OptionManager;
 import com.dremio.service.namespace.dataset.proto.DatasetConfig;
 import com.google.common.cache.Cache;
+import com.google.common.hash.HashCode;
 
 /**
  * The default handler for queries.
@@ -64,10 +65,11 @@ public class NormalHandler implements SqlToPlanHandler {
     try{
       final PlannerSettings plannerSettings = config.getContext().getPlannerSettings();
       final PlanCache planCache = config.getContext().getPlanCache();
-      final Cache<Long, CachedPlan> cachedPlans = (planCache != null) ? planCache.getCachePlans():null;
-      final long cachedKey = planCache.generateCacheKey(sqlNode.toSqlString(CalciteSqlDialect.DEFAULT).getSql(),
-        config.getContext().getWorkloadType().name(), config.getContext().getContextInformation().getCurrentDefaultSchema());
-      config.getObserver().setCacheKey(cachedKey);
+      final Cache<HashCode, CachedPlan> cachedPlans = (planCache != null) ? planCache.getCachePlans():null;
+      final HashCode cachedKey = PlanCache.generateCacheKey(sqlNode.toSqlString(CalciteSqlDialect.DEFAULT).getSql(),
+        config.getContext().getWorkloadType().name(), config.getContext().getContextInformation().getCurrentDefaultSchema(),
+        config.getContext().getQueryUserName(), config.getContext().getOptions());
+      config.getObserver().setCacheKey(cachedKey.asLong());
       final ConvertedRelNode convertedRelNode = PrelTransformer.validateAndConvert(config, sqlNode);
       final RelDataType validatedRowType = convertedRelNode.getValidatedRowType();
       final RelNode queryRelNode = convertedRelNode.getConvertedNode();
@@ -78,7 +80,8 @@ public class NormalHandler implements SqlToPlanHandler {
         config.getContext().getExecutorService().submit(viewAccessEvaluator);
       }
       final Catalog catalog = config.getContext().getCatalog();
-      CachedPlan cachedPlan = (cachedPlans != null) ? planCache.getIfPresentAndValid(catalog, cachedKey) : null;
+      CachedPlan cachedPlan = (plannerSettings.isPlanCacheEnabled() && cachedPlans != null) ?
+        planCache.getIfPresentAndValid(catalog, cachedKey) : null;
       Prel prel;
       boolean supportPlanCache = config.getConverter().getFunctionContext().getContextInformation().isPlanCacheable();
       if (!plannerSettings.isPlanCacheEnabled() || cachedPlan == null) {
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.record;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.arrow.flatbuf.Buffer;
+import org.apache.arrow.flatbuf.FieldNode;
+import org.apache.arrow.flatbuf.RecordBatch;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.util.LargeMemoryUtil;
+import org.apache.arrow.vector.compression.NoCompressionCodec;
+import org.apache.arrow.vector.ipc.message.ArrowFieldNode;
+import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
+
+import com.dremio.exec.ExecConstants;
+import com.dremio.exec.proto.ExecRPC.FragmentRecordBatch;
+import com.dremio.options.OptionManager;
+import com.dremio.sabot.exec.context.MetricDef;
+import com.dremio.sabot.exec.context.OperatorStats;
+import com.dremio.sabot.op.receiver.RawFragmentBatch;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.flatbuffers.FlatBufferBuilder;
+import com.google.protobuf.ByteString;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+
+/**
+ * Compresses the body of the batches sent by an exchange sender, and decompresses them on the receiving side.
+ *
+ * Each buffer of the batch is compressed independently, and prefixed with its uncompressed length. Buffers that
+ * don't shrink are stored as is, with a length of -1. Compression is turned off for the rest of the stream if the
+ * ratio measured over the first batches isn't worth the cpu.
+ */
+public class ExchangeBatchCompressor {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ExchangeBatchCompressor.class);
+
+  public static final String CODEC_NONE = "none";
+  public static final String CODEC_LZ4 = "lz4";
+  public static final String CODEC_LZ4_HC = "lz4_hc";
+
+  private static final int LENGTH_PREFIX_SIZE = 8;
+  private static final long UNCOMPRESSED = -1L;
+
+  // number of batches sent before deciding whether compression pays off
+  @VisibleForTesting
+  static final int SAMPLE_BATCH_COUNT = 8;
+
+  private final BufferAllocator allocator;
+  private final LZ4Compressor compressor;
+  private final double maxRatio;
+  private final OperatorStats stats;
+  private final MetricDef uncompressedBytesMetric;
+  private final MetricDef compressedBytesMetric;
+
+  private boolean enabled;
+  private long batchCount;
+  private long uncompressedBytes;
+  private long compressedBytes;
+
+  @VisibleForTesting
+  ExchangeBatchCompressor(BufferAllocator allocator, String codec, double maxRatio, OperatorStats stats,
+                          MetricDef uncompressedBytesMetric, MetricDef compressedBytesMetric) {
+    this.allocator = allocator;
+    this.enabled = !CODEC_NONE.equalsIgnoreCase(codec);
+    this.compressor = CODEC_LZ4_HC.equalsIgnoreCase(codec) ?
+      LZ4Factory.fastestInstance().highCompressor() : LZ4Factory.fastestInstance().fastCompressor();
+    this.maxRatio = maxRatio;
+    this.stats = stats;
+    this.uncompressedBytesMetric = uncompressedBytesMetric;
+    this.compressedBytesMetric = compressedBytesMetric;
+  }
+
+  public static ExchangeBatchCompressor create(BufferAllocator allocator, OptionManager options, OperatorStats stats,
+                                               MetricDef uncompressedBytesMetric, MetricDef compressedBytesMetric) {
+    return new ExchangeBatchCompressor(allocator,
+      options.getOption(ExecConstants.EXCHANGE_COMPRESSION_CODEC),
+      options.getOption(ExecConstants.EXCHANGE_COMPRESSION_MAX_RATIO),
+      stats, uncompressedBytesMetric, compressedBytesMetric);
+  }
+
+  /**
+   * @return true if the next batch should be compressed
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Compresses the given buffers. The given buffers are released, and the caller owns the returned ones.
+   */
+  public List<ArrowBuf> compress(List<ArrowBuf> buffers) {
+    Preconditions.checkState(enabled, "Compression is disabled");
+    final List<ArrowBuf> compressed = new ArrayList<>(buffers.size());
+    long before = 0;
+    long after = 0;
+    try {
+      for (ArrowBuf buf : buffers) {
+        final ArrowBuf compressedBuf = compress(buf);
+        compressed.add(compressedBuf);
+        before += buf.readableBytes();
+        after += compressedBuf.readableBytes();
+      }
+    } catch (RuntimeException e) {
+      compressed.forEach(ArrowBuf::release);
+      throw e;
+    } finally {
+      buffers.forEach(ArrowBuf::release);
+    }
+    updateRatio(before, after);
+    return compressed;
+  }
+
+  private ArrowBuf compress(ArrowBuf buf) {
+    final int length = LargeMemoryUtil.checkedCastToInt(buf.readableBytes());
+    final int maxCompressedLength = compressor.maxCompressedLength(length);
+    final ArrowBuf out = allocator.buffer(LENGTH_PREFIX_SIZE + maxCompressedLength);
+    try {
+      final int compressedLength = length == 0 ? 0 : compressor.compress(buf.nioBuffer(buf.readerIndex(), length), 0,
+        length, out.nioBuffer(LENGTH_PREFIX_SIZE, maxCompressedLength), 0, maxCompressedLength);
+      if (length == 0 || compressedLength >= length) {
+        out.setLong(0, UNCOMPRESSED);
+        out.setBytes(LENGTH_PREFIX_SIZE, buf, buf.readerIndex(), length);
+        out.writerIndex(LENGTH_PREFIX_SIZE + length);
+      } else {
+        out.setLong(0, length);
+        out.writerIndex(LENGTH_PREFIX_SIZE + compressedLength);
+      }
+      return out;
+    } catch (RuntimeException e) {
+      out.release();
+      throw e;
+    }
+  }
+
+  private void updateRatio(long before, long after) {
+    uncompressedBytes += before;
+    compressedBytes += after;
+    batchCount++;
+    stats.addLongStat(uncompressedBytesMetric, before);
+    stats.addLongStat(compressedBytesMetric, after);
+
+    if (batchCount == SAMPLE_BATCH_COUNT && compressedBytes > uncompressedBytes * maxRatio) {
+      logger.debug("Disabling exchange compression, {} bytes compressed to {} bytes", uncompressedBytes, compressedBytes);
+      enabled = false;
+    }
+  }
+
+  /**
+   * Returns a batch with the decompressed body of the given batch. The given batch is left untouched, the caller
+   * owns the returned one.
+   */
+  public static RawFragmentBatch decompress(RawFragmentBatch batch, BufferAllocator allocator) {
+    final FragmentRecordBatch header = batch.getHeader();
+    Preconditions.checkArgument(header.getLz4Compressed(), "Batch is not compressed");
+    final ArrowBuf body = batch.getBody();
+    if (body == null) {
+      return new RawFragmentBatch(header.toBuilder().clearLz4Compressed().build(), null, batch.getSender());
+    }
+
+    final RecordBatch recordBatchFB = RecordBatch.getRootAsRecordBatch(header.getArrowRecordBatch().asReadOnlyByteBuffer());
+    long totalLength = 0;
+    for (int i = 0; i < recordBatchFB.buffersLength(); i++) {
+      final Buffer bufferFB = recordBatchFB.buffers(i);
+      final long length = body.getLong(bufferFB.offset());
+      totalLength += length == UNCOMPRESSED ? bufferFB.length() - LENGTH_PREFIX_SIZE : length;
+    }
+
+    final LZ4SafeDecompressor decompressor = LZ4Factory.fastestInstance().safeDecompressor();
+    try (ArrowBuf decompressed = allocator.buffer(totalLength)) {
+      final List<ArrowBuf> buffers = new ArrayList<>(recordBatchFB.buffersLength());
+      long offset = 0;
+      for (int i = 0; i < recordBatchFB.buffersLength(); i++) {
+        final Buffer bufferFB = recordBatchFB.buffers(i);
+        final long dataOffset = bufferFB.offset() + LENGTH_PREFIX_SIZE;
+        final int dataLength = LargeMemoryUtil.checkedCastToInt(bufferFB.length() - LENGTH_PREFIX_SIZE);
+        final long length = body.getLong(bufferFB.offset());
+        final int uncompressedLength;
+        if (length == UNCOMPRESSED) {
+          uncompressedLength = dataLength;
+          decompressed.setBytes(offset, body, dataOffset, dataLength);
+        } else {
+          uncompressedLength = LargeMemoryUtil.checkedCastToInt(length);
+          final int actualLength = decompressor.decompress(body.nioBuffer(dataOffset, dataLength), 0, dataLength,
+            decompressed.nioBuffer(offset, uncompressedLength), 0, uncompressedLength);
+          Preconditions.checkState(actualLength == uncompressedLength,
+            "Decompressed buffer has %s bytes, expected %s", actualLength, uncompressedLength);
+        }
+        buffers.add(decompressed.slice(offset, uncompressedLength));
+        offset += uncompressedLength;
+      }
+      decompressed.writerIndex(totalLength);
+
+      final List<ArrowFieldNode> nodes = new ArrayList<>(recordBatchFB.nodesLength());
+      for (int i = 0; i < recordBatchFB.nodesLength(); i++) {
+        final FieldNode node = recordBatchFB.nodes(i);
+        nodes.add(new ArrowFieldNode((int) node.length(), (int) node.nullCount()));
+      }
+
+      // rewrite the header, as the buffer offsets changed
+      final FlatBufferBuilder fbbuilder = new FlatBufferBuilder();
+      try (ArrowRecordBatch recordBatch = new ArrowRecordBatch(LargeMemoryUtil.checkedCastToInt(recordBatchFB.length()),
+        nodes, buffers, NoCompressionCodec.DEFAULT_BODY_COMPRESSION, false)) {
+        fbbuilder.finish(recordBatch.writeTo(fbbuilder));
+      }
+      final FragmentRecordBatch newHeader = header.toBuilder()
+        .setArrowRecordBatch(ByteString.copyFrom(fbbuilder.dataBuffer()))
+        .clearLz4Compressed()
+        .build();
+      return new RawFragmentBatch(newHeader, decompressed, batch.getSender());
+    }
+  }
+}
@@ -24,6 +24,7 @@ import org.apache.arrow.memory.ArrowBuf;
 import org.apache.arrow.vector.FieldVector;
 import org.apache.arrow.vector.VectorSchemaRoot;
 import org.apache.arrow.vector.VectorUnloader;
+import org.apache.arrow.vector.compression.NoCompressionCodec;
 import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
 import org.apache.arrow.vector.types.pojo.Field;
 
@@ -64,6 +65,40 @@ public class FragmentWritableBatch{
     );
   }
 
+  /**
+   * Same as {@link #create(QueryId, int, int, int, VectorAccessible, int)}, with the body compressed if the
+   * compressor is enabled.
+   */
+  public static FragmentWritableBatch create(
+    final QueryId queryId,
+    final int sendMajorFragmentId,
+    final int sendMinorFragmentId,
+    final int receiveMajorFragmentId,
+    final VectorAccessible batch,
+    final int receiveMinorFragmentId,
+    final ExchangeBatchCompressor compressor) {
+
+    if (!compressor.isEnabled()) {
+      return create(queryId, sendMajorFragmentId, sendMinorFragmentId, receiveMajorFragmentId, batch, receiveMinorFragmentId);
+    }
+
+    final ArrowRecordBatch recordBatch = getArrowRecordBatch(batch);
+    final List<ArrowBuf> buffers = compressor.compress(recordBatch.getBuffers());
+    try {
+      return new FragmentWritableBatch(
+        queryId,
+        sendMajorFragmentId,
+        sendMinorFragmentId,
+        receiveMajorFragmentId,
+        new ArrowRecordBatch(recordBatch.getLength(), recordBatch.getNodes(), buffers, NoCompressionCodec.DEFAULT_BODY_COMPRESSION, false),
+        true,
+        receiveMinorFragmentId
+      );
+    } finally {
+      buffers.forEach(ArrowBuf::release);
+    }
+  }
+
   public static ArrowRecordBatch getArrowRecordBatch(final VectorAccessible batch) {
     VectorSchemaRoot root = getVectorSchemaRoot(batch);
     VectorUnloader unloader = new VectorUnloader(root, false, false);
@@ -102,6 +137,20 @@ public class FragmentWritableBatch{
       final int receiveMajorFragmentId,
       ArrowRecordBatch recordBatch,
       final int... receiveMinorFragmentId){
+    this(queryId, sendMajorFragmentId, sendMinorFragmentId, receiveMajorFragmentId, recordBatch, false, receiveMinorFragmentId);
+  }
+
+  /**
+   * @param lz4Compressed true if the buffers of the record batch were compressed by {@link ExchangeBatchCompressor}
+   */
+  public FragmentWritableBatch(
+      final QueryId queryId,
+      final int sendMajorFragmentId,
+      final int sendMinorFragmentId,
+      final int receiveMajorFragmentId,
+      ArrowRecordBatch recordBatch,
+      boolean lz4Compressed,
+      final int... receiveMinorFragmentId){
     this.buffers = recordBatch.getBuffers().stream().map(buf -> NettyArrowBuf.unwrapBuffer(buf)).collect
       (Collectors.toList()).toArray(new ByteBuf[0]);
     this.recordCount = recordBatch.getLength();
@@ -114,6 +163,9 @@ public class FragmentWritableBatch{
         .setReceivingMajorFragmentId(receiveMajorFragmentId)
         .setSendingMajorFragmentId(sendMajorFragmentId)
         .setSendingMinorFragmentId(sendMinorFragmentId);
+    if (lz4Compressed) {
+      builder.setLz4Compressed(true);
+    }
 
     for(final int i : receiveMinorFragmentId){
       builder.addReceivingMinorFragmentId(i);
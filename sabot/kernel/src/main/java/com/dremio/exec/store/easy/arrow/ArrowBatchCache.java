@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.easy.arrow;
+
+import java.util.Objects;
+
+import com.dremio.io.file.Path;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * LRU cache of the serialized record batches recently read from Arrow format files, bounded by their total size.
+ *
+ * Batches are kept serialized on heap so that they can be shared by concurrent readers: each read deserializes its own
+ * copy into direct memory, without going back to the file system. Arrow format files are never modified once written,
+ * so cached batches only need to be dropped when their file is deleted.
+ */
+public class ArrowBatchCache {
+
+  private final Cache<BatchKey, byte[]> cache;
+
+  public ArrowBatchCache(long maxBytes) {
+    this.cache = CacheBuilder.newBuilder()
+      .maximumWeight(maxBytes)
+      .<BatchKey, byte[]>weigher((key, value) -> value.length)
+      .recordStats()
+      .build();
+  }
+
+  /**
+   * Get the serialized batch starting at the given offset of the file, or {@code null} if it is not cached.
+   */
+  public byte[] get(Path path, long offset) {
+    return cache.getIfPresent(new BatchKey(path, offset));
+  }
+
+  public void put(Path path, long offset, byte[] serializedBatch) {
+    cache.put(new BatchKey(path, offset), serializedBatch);
+  }
+
+  /**
+   * Drop the cached batches of all the files under the given directory.
+   */
+  public void invalidateDirectory(Path directory) {
+    final String prefix = directory.toString() + Path.SEPARATOR;
+    cache.asMap().keySet().removeIf(key -> key.path.toString().startsWith(prefix));
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  private static final class BatchKey {
+    private final Path path;
+    private final long offset;
+
+    private BatchKey(Path path, long offset) {
+      this.path = path;
+      this.offset = offset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final BatchKey that = (BatchKey) o;
+      return offset == that.offset && path.equals(that.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, offset);
+    }
+  }
+}
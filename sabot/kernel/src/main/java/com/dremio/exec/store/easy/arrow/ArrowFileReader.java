@@ -21,6 +21,9 @@ import static com.dremio.exec.store.easy.arrow.ArrowFormatPlugin.MAGIC_STRING;
 import static com.dremio.exec.store.easy.arrow.ArrowFormatPlugin.MAGIC_STRING_LENGTH;
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -69,18 +72,31 @@ public class ArrowFileReader implements AutoCloseable {
   private final ArrowFileMetadata metadata;
   private final BufferAllocator allocator;
   private final Path path;
+  private final ArrowBatchCache batchCache;
 
   private FSInputStream inputStream;
 
   public ArrowFileReader(final FileSystem dfs, Path basePath, final ArrowFileMetadata metadata,
                    final BufferAllocator allocator) {
+    this(dfs, basePath, metadata, allocator, null);
+  }
+
+  /**
+   * @param batchCache cache of the batches read from the file, or {@code null} to always read them from the file
+   */
+  public ArrowFileReader(final FileSystem dfs, Path basePath, final ArrowFileMetadata metadata,
+                   final BufferAllocator allocator, final ArrowBatchCache batchCache) {
     this.dfs = dfs;
     this.metadata = metadata;
     this.allocator = allocator;
     this.path = basePath.resolve(metadata.getPath());
+    this.batchCache = batchCache;
   }
 
   private void openFile() throws IOException {
+    if (inputStream != null) {
+      return;
+    }
     inputStream = dfs.open(path);
 
     if (false /* disable this until a PDFS getFileStatus() issue is fixed AssertionUtil.ASSERT_ENABLED */) {
@@ -135,8 +151,6 @@ public class ArrowFileReader implements AutoCloseable {
         "Invalid start index (%s) and limit (%s) combination. Record count in file (%s)",
         start, limit, metadata.getRecordCount());
 
-    openFile();
-
     final VectorAccessibleSerializable vectorAccessibleSerializable = new VectorAccessibleSerializable(allocator);
     final List<RecordBatchHolder> batches = Lists.newArrayList();
     final ArrowFileFooter footer = metadata.getFooter();
@@ -161,10 +175,7 @@ public class ArrowFileReader implements AutoCloseable {
 
       final long currentBatchCount = batchSummary.getRecordCount();
 
-      // Seek to the place where the batch starts and read
-      inputStream.setPosition(batchSummary.getOffset());
-      vectorAccessibleSerializable.readFromStream(inputStream);
-      final VectorContainer vectorContainer = vectorAccessibleSerializable.get();
+      final VectorContainer vectorContainer = readBatch(vectorAccessibleSerializable, batchSummary.getOffset());
 
       // Find the start and end indices within the batch.
       final int batchStart = Math.max(0, (int) (start - (runningCount - currentBatchCount)));
@@ -192,6 +203,30 @@ public class ArrowFileReader implements AutoCloseable {
     return batches;
   }
 
+  /**
+   * Read the batch starting at the given offset, from the batch cache if available.
+   */
+  private VectorContainer readBatch(VectorAccessibleSerializable vectorAccessibleSerializable, long offset)
+      throws IOException {
+    final byte[] serializedBatch = batchCache == null ? null : batchCache.get(path, offset);
+    if (serializedBatch != null) {
+      vectorAccessibleSerializable.readFromStream(new ByteArrayInputStream(serializedBatch));
+      return vectorAccessibleSerializable.get();
+    }
+
+    // Seek to the place where the batch starts and read
+    openFile();
+    inputStream.setPosition(offset);
+    if (batchCache == null) {
+      vectorAccessibleSerializable.readFromStream(inputStream);
+    } else {
+      final CopyingInputStream copyingStream = new CopyingInputStream(inputStream);
+      vectorAccessibleSerializable.readFromStream(copyingStream);
+      batchCache.put(path, offset, copyingStream.toByteArray());
+    }
+    return vectorAccessibleSerializable.get();
+  }
+
   @Override
   public void close() throws IOException {
     if (inputStream != null) {
@@ -206,6 +241,7 @@ public class ArrowFileReader implements AutoCloseable {
    * @throws IOException
    */
   private RecordBatchHolder getEmptyBatch() throws IOException {
+    openFile();
     final FileAttributes fileAttributes = dfs.getFileAttributes(path);
     final long size = fileAttributes.size();
     inputStream.setPosition(size - (MAGIC_STRING_LENGTH + FOOTER_OFFSET_SIZE));
@@ -515,4 +551,49 @@ public class ArrowFileReader implements AutoCloseable {
 
     return Longs.fromByteArray(buffer);
   }
+
+  /**
+   * Input stream keeping a copy of the bytes read from the underlying stream.
+   */
+  private static final class CopyingInputStream extends FilterInputStream {
+    private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+    private CopyingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      final int b = in.read();
+      if (b != -1) {
+        copy.write(b);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      final int read = in.read(b, off, len);
+      if (read > 0) {
+        copy.write(b, off, read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      // skipped bytes must be copied as well
+      final byte[] buffer = new byte[(int) Math.min(n, 8192)];
+      return Math.max(0, read(buffer, 0, buffer.length));
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    private byte[] toByteArray() {
+      return copy.toByteArray();
+    }
+  }
 }
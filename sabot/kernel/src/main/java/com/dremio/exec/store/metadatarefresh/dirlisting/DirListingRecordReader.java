@@ -21,10 +21,12 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.IntStream;
 
 import org.apache.arrow.memory.OutOfMemoryException;
@@ -40,6 +42,7 @@ import com.dremio.common.exceptions.UserException;
 import com.dremio.common.expression.CompleteType;
 import com.dremio.common.util.Retryer;
 import com.dremio.common.utils.PathUtils;
+import com.dremio.exec.catalog.CatalogOptions;
 import com.dremio.exec.record.BatchSchema;
 import com.dremio.exec.store.RecordReader;
 import com.dremio.exec.store.iceberg.IcebergPartitionData;
@@ -62,7 +65,8 @@ import com.google.common.annotations.VisibleForTesting;
  *
  * Input Parameters
  *
- * isRecursive - controls whether the listing is recursive or only top level
+ * isRecursive - controls whether the listing is recursive or only top level. Recursive listings list the
+ * subdirectories in parallel, up to store.plugin.dir_listing_parallelism at a time.
  *
  * lastReadSignatureMtime - ignore the files which are modified after the provided lastReadSignatureMtime
  *
@@ -100,6 +104,9 @@ public class DirListingRecordReader implements RecordReader {
   private int batchesProcessed = 0;
   private final int maxBatchSize;
   private final int footerReaderWidth;
+  private final int listingParallelism;
+  private final ExecutorService listingExecutor;
+  private ParallelDirectoryLister parallelLister;
   protected int batchSize = 32; // start with a small batch size
   private boolean isFile;
 
@@ -130,6 +137,8 @@ public class DirListingRecordReader implements RecordReader {
     this.discoverPartitions = discoverPartitions;
     this.maxBatchSize = context.getTargetBatchSize();
     this.footerReaderWidth = context.getMinorFragmentEndpoints().size();
+    this.listingParallelism = (int) context.getOptions().getOption(CatalogOptions.DIR_LISTING_PARALLELISM);
+    this.listingExecutor = context.getExecutor();
     if(!discoverPartitions) {
       currPartitionInfo = IcebergSerDe.partitionValueToIcebergPartition(partitionValues, tableSchema);
     }
@@ -167,7 +176,8 @@ public class DirListingRecordReader implements RecordReader {
     } catch (RuntimeException | IOException e) {
       boolean hasExceptionHandled = true;
       String errorMessage = "Failed to list files of directory " + operatingPath.toString();
-      if (isRateLimitingException(e)) {
+      // the parallel listing already retries each directory
+      if (parallelLister == null && isRateLimitingException(e)) {
         try {
           generatedRecords = (int) retryer.call(() -> iterateDirectory());
         } catch (Retryer.OperationFailedAfterRetriesException retriesException) {
@@ -197,6 +207,9 @@ public class DirListingRecordReader implements RecordReader {
 
   @Override
   public void close() throws Exception {
+    if (parallelLister != null) {
+      parallelLister.close();
+    }
   }
 
   @Override
@@ -207,6 +220,7 @@ public class DirListingRecordReader implements RecordReader {
       ", startTime=" + startTime +
       ", isRecursive=" + isRecursive +
       ", discoverPartitions=" + discoverPartitions +
+      ", listingParallelism=" + listingParallelism +
       '}';
   }
 
@@ -233,6 +247,13 @@ public class DirListingRecordReader implements RecordReader {
     try {
       if(isFile) {
         dirIterator = Collections.singletonList(fs.getFileAttributes(operatingPath)).iterator();
+      } else if (isRecursive && listingParallelism > 1) {
+        // fails here, as the sequential listing does, if the directory doesn't exist
+        fs.getFileAttributes(operatingPath);
+        // hidden directories are skipped rather than listed and filtered out file by file
+        parallelLister = new ParallelDirectoryLister(this::listDirectory, operatingPath, this::isValidPath,
+          listingExecutor, listingParallelism, maxBatchSize);
+        dirIterator = parallelLister;
       } else {
         dirIterator = fs.listFiles(operatingPath, isRecursive).iterator();
       }
@@ -255,6 +276,21 @@ public class DirListingRecordReader implements RecordReader {
     }
   }
 
+  private DirectoryStream<FileAttributes> listDirectory(Path directory) throws IOException {
+    try {
+      return fs.list(directory);
+    } catch (IOException e) {
+      if (!isRateLimitingException(e)) {
+        throw e;
+      }
+      try {
+        return (DirectoryStream<FileAttributes>) retryer.call(() -> fs.list(directory));
+      } catch (Retryer.OperationFailedAfterRetriesException retriesException) {
+        throw new IOException("With retry attempt failed to list directory " + directory, e);
+      }
+    }
+  }
+
   private boolean isRateLimitingException(Exception e) {
     boolean shouldRateLimit = true;
     if (e instanceof FileNotFoundException || e instanceof  AccessDeniedException) {
@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.metadatarefresh.dirlisting;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+import com.dremio.io.file.FileAttributes;
+import com.dremio.io.file.Path;
+import com.google.common.base.Preconditions;
+
+/**
+ * Recursively lists a directory by listing its subdirectories concurrently, in tasks of a shared executor.
+ *
+ * At most the given number of tasks run at the same time, each listing pending directories until there are none left.
+ * Files are returned as soon as their directory has been listed, in no particular order. Listing pauses when the
+ * consumer falls behind by more than the given number of files.
+ */
+class ParallelDirectoryLister implements Iterator<FileAttributes>, AutoCloseable {
+
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ParallelDirectoryLister.class);
+
+  private static final long OFFER_WAIT_MILLIS = 100;
+
+  /**
+   * Lists the direct children of a directory.
+   */
+  @FunctionalInterface
+  interface DirectoryListing {
+    DirectoryStream<FileAttributes> list(Path directory) throws IOException;
+  }
+
+  private final DirectoryListing listing;
+  private final Predicate<Path> directoryFilter;
+  private final ExecutorService executor;
+  private final int parallelism;
+  private final ClassLoader classLoader;
+  // directories to list, the last found first so that the listing goes depth first
+  private final Deque<Path> directories = new ConcurrentLinkedDeque<>();
+  // listed files, followed by this instance once the listing is over
+  private final BlockingQueue<Object> queue;
+  private final AtomicInteger pendingDirectories = new AtomicInteger();
+  private final AtomicInteger workers = new AtomicInteger();
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  private volatile boolean closed;
+  private Object next;
+  private boolean done;
+
+  /**
+   * @param listing lists one directory, any retry is up to it
+   * @param root directory to list
+   * @param directoryFilter subdirectories not matching the filter are not listed
+   * @param executor runs the listing tasks, shared with other users and not shut down by the lister
+   * @param parallelism maximum number of directories listed at the same time
+   * @param maxPendingFiles maximum number of files listed but not consumed yet
+   */
+  ParallelDirectoryLister(DirectoryListing listing, Path root, Predicate<Path> directoryFilter,
+                          ExecutorService executor, int parallelism, int maxPendingFiles) {
+    Preconditions.checkArgument(parallelism > 0, "parallelism must be positive");
+    this.listing = listing;
+    this.directoryFilter = directoryFilter;
+    this.executor = executor;
+    this.parallelism = parallelism;
+    this.queue = new LinkedBlockingQueue<>(Math.max(1, maxPendingFiles));
+    // tasks load the file system classes with the caller's class loader (e.g. for plugins loaded through pf4j)
+    this.classLoader = Thread.currentThread().getContextClassLoader();
+    submit(root);
+  }
+
+  private void submit(Path directory) {
+    pendingDirectories.incrementAndGet();
+    directories.push(directory);
+    startWorker();
+  }
+
+  /**
+   * Starts a task listing the pending directories, unless there are already as many as allowed.
+   */
+  private void startWorker() {
+    int current;
+    while ((current = workers.get()) < parallelism) {
+      if (workers.compareAndSet(current, current + 1)) {
+        try {
+          executor.execute(this::listDirectories);
+        } catch (RejectedExecutionException e) {
+          workers.decrementAndGet();
+          failure.compareAndSet(null, e);
+          signalEnd();
+        }
+        return;
+      }
+    }
+  }
+
+  private void listDirectories() {
+    final Thread thread = Thread.currentThread();
+    final ClassLoader originalClassLoader = thread.getContextClassLoader();
+    thread.setContextClassLoader(classLoader);
+    try {
+      Path directory;
+      while ((directory = directories.poll()) != null) {
+        listDirectory(directory);
+      }
+    } finally {
+      thread.setContextClassLoader(originalClassLoader);
+      workers.decrementAndGet();
+    }
+    // a directory pushed after the last poll, while all the other tasks were running, would be left behind
+    if (!directories.isEmpty()) {
+      startWorker();
+    }
+  }
+
+  private void listDirectory(Path directory) {
+    try {
+      if (closed || failure.get() != null) {
+        return;
+      }
+      try (DirectoryStream<FileAttributes> stream = listing.list(directory)) {
+        for (FileAttributes attributes : stream) {
+          if (attributes.isDirectory()) {
+            if (directoryFilter.test(attributes.getPath())) {
+              submit(attributes.getPath());
+            }
+          } else if (!offer(attributes)) {
+            return;
+          }
+          if (closed) {
+            return;
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failure.compareAndSet(null, e);
+    } catch (Throwable t) {
+      failure.compareAndSet(null, t);
+    } finally {
+      if (pendingDirectories.decrementAndGet() == 0 || failure.get() != null) {
+        signalEnd();
+      }
+    }
+  }
+
+  /**
+   * Waits for room in the queue, unless the lister is closed.
+   *
+   * @return false if the lister was closed
+   */
+  private boolean offer(Object element) throws InterruptedException {
+    while (!queue.offer(element, OFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+      if (closed) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void signalEnd() {
+    try {
+      offer(this);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null && !done) {
+      try {
+        next = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while listing directories", e);
+      }
+      if (next == this) {
+        next = null;
+        done = true;
+      }
+    }
+    if (done) {
+      rethrowFailure();
+    }
+    return next != null;
+  }
+
+  @Override
+  public FileAttributes next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final FileAttributes attributes = (FileAttributes) next;
+    next = null;
+    return attributes;
+  }
+
+  private void rethrowFailure() {
+    final Throwable t = failure.get();
+    if (t == null) {
+      return;
+    }
+    if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    }
+    if (t instanceof Error) {
+      throw (Error) t;
+    }
+    if (t instanceof IOException) {
+      throw new UncheckedIOException((IOException) t);
+    }
+    throw new IllegalStateException(t);
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    // running tasks stop at their next file, pending directories are dropped
+    directories.clear();
+    queue.clear();
+    logger.debug("Closed parallel listing with {} directories left to list", pendingDirectories.get());
+  }
+}
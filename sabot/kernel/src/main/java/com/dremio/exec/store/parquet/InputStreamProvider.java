@@ -52,6 +52,13 @@ public interface InputStreamProvider extends AutoCloseable {
    */
   boolean isSingleStream();
 
+  /**
+   * Hints that the streams of the given columns, all from the same row group, are about to be obtained.
+   * The provider may read them ahead of time.
+   */
+  default void prefetch(List<ColumnChunkMetaData> columns) throws IOException {
+  }
+
   /**
    * Returns the AsyncByteReader associated with this object
    */
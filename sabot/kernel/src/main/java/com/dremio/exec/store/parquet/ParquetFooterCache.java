@@ -0,0 +1,292 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.parquet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.internal.column.columnindex.ColumnIndex;
+import org.apache.parquet.internal.column.columnindex.OffsetIndex;
+import org.apache.parquet.internal.hadoop.metadata.IndexReference;
+
+import com.dremio.exec.ExecConstants;
+import com.dremio.io.file.Path;
+import com.dremio.sabot.exec.context.OperatorContext;
+import com.dremio.sabot.exec.context.OperatorStats;
+import com.dremio.sabot.op.scan.ScanOperator.Metric;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Executor wide, size bounded cache of parsed parquet footers and page indexes (column and offset indexes).
+ *
+ * Entries are keyed by file path, modification time and length, so a rewritten file is never served from the cache.
+ * Footers handed out are shallow copies, since readers trim row groups and columns from their copy of the footer.
+ */
+public final class ParquetFooterCache {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ParquetFooterCache.class);
+
+  // rough heap cost of the parsed objects, used to weigh entries
+  private static final int FOOTER_BASE_WEIGHT = 1024;
+  private static final int COLUMN_CHUNK_WEIGHT = 512;
+  private static final int PAGE_INDEX_ENTRY_WEIGHT = 64;
+
+  private static volatile ParquetFooterCache instance;
+
+  private final long maxSizeBytes;
+  private final Cache<FileKey, ParquetMetadata> footers;
+  private final Cache<IndexKey, ColumnIndex> columnIndexes;
+  private final Cache<IndexKey, OffsetIndex> offsetIndexes;
+
+  @VisibleForTesting
+  ParquetFooterCache(long maxSizeBytes) {
+    this.maxSizeBytes = maxSizeBytes;
+    // half of the budget for footers, the rest is shared by the two page index caches
+    this.footers = CacheBuilder.newBuilder()
+      .maximumWeight(maxSizeBytes / 2)
+      .weigher((FileKey key, ParquetMetadata footer) -> weight(footer))
+      .recordStats()
+      .build();
+    this.columnIndexes = CacheBuilder.newBuilder()
+      .maximumWeight(maxSizeBytes / 4)
+      .weigher((IndexKey key, ColumnIndex index) -> weight(index))
+      .recordStats()
+      .build();
+    this.offsetIndexes = CacheBuilder.newBuilder()
+      .maximumWeight(maxSizeBytes / 4)
+      .weigher((IndexKey key, OffsetIndex index) -> PAGE_INDEX_ENTRY_WEIGHT * (1 + index.getPageCount()))
+      .recordStats()
+      .build();
+  }
+
+  /**
+   * Returns the executor wide cache, or null if caching is disabled or the file can't be identified reliably.
+   * The cache is rebuilt, empty, when the maximum size option changes.
+   * @param context operator context of the reader, may be null
+   * @param mTime modification time of the file, non positive if not known
+   */
+  public static ParquetFooterCache getInstance(OperatorContext context, long mTime) {
+    if (context == null || context.getOptions() == null || mTime <= 0
+      || !context.getOptions().getOption(ExecConstants.PARQUET_FOOTER_CACHE_ENABLED)) {
+      return null;
+    }
+    final long maxSize = context.getOptions().getOption(ExecConstants.PARQUET_FOOTER_CACHE_MAX_SIZE);
+    ParquetFooterCache cache = instance;
+    if (cache == null || cache.maxSizeBytes != maxSize) {
+      synchronized (ParquetFooterCache.class) {
+        cache = instance;
+        if (cache == null || cache.maxSizeBytes != maxSize) {
+          logger.info("Initializing parquet footer cache with a maximum size of {} bytes", maxSize);
+          cache = new ParquetFooterCache(maxSize);
+          instance = cache;
+        }
+      }
+    }
+    return cache;
+  }
+
+  /**
+   * Returns the footer of the file, loading and caching it if necessary.
+   */
+  public ParquetMetadata getFooter(Path path, long mTime, long length, Callable<ParquetMetadata> loader,
+                                   OperatorStats stats) throws IOException {
+    final FileKey key = new FileKey(path, mTime, length);
+    ParquetMetadata footer = footers.getIfPresent(key);
+    if (footer != null) {
+      addStat(stats, Metric.FOOTER_CACHE_HITS);
+    } else {
+      addStat(stats, Metric.FOOTER_CACHE_MISSES);
+      try {
+        footer = loader.call();
+      } catch (IOException | RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new IOException(e);
+      }
+      footers.put(key, footer);
+    }
+    return new ParquetMetadata(footer.getFileMetaData(), new ArrayList<>(footer.getBlocks()));
+  }
+
+  /**
+   * @return a provider built from cached column indexes, or null if any of the columns' indexes isn't cached
+   */
+  public ColumnIndexProvider getColumnIndexProvider(Path path, long mTime, long length,
+                                                    List<ColumnChunkMetaData> columns, OperatorStats stats) {
+    final FileKey fileKey = new FileKey(path, mTime, length);
+    final Map<Long, ColumnIndex> indexes = new HashMap<>();
+    for (ColumnChunkMetaData column : columns) {
+      final IndexReference ref = column.getColumnIndexReference();
+      if (ref == null) {
+        continue;
+      }
+      final ColumnIndex index = columnIndexes.getIfPresent(new IndexKey(fileKey, ref.getOffset()));
+      if (index == null) {
+        addStat(stats, Metric.PAGE_INDEX_CACHE_MISSES);
+        return null;
+      }
+      indexes.put(ref.getOffset(), index);
+    }
+    addStat(stats, Metric.PAGE_INDEX_CACHE_HITS);
+    return new ColumnIndexProvider(indexes);
+  }
+
+  public void putColumnIndexes(Path path, long mTime, long length, List<ColumnChunkMetaData> columns,
+                               ColumnIndexProvider provider) {
+    final FileKey fileKey = new FileKey(path, mTime, length);
+    for (ColumnChunkMetaData column : columns) {
+      final ColumnIndex index = provider.getColumnIndex(column);
+      if (index != null) {
+        columnIndexes.put(new IndexKey(fileKey, column.getColumnIndexReference().getOffset()), index);
+      }
+    }
+  }
+
+  /**
+   * @return a provider built from cached offset indexes, or null if any of the columns' indexes isn't cached
+   */
+  public OffsetIndexProvider getOffsetIndexProvider(Path path, long mTime, long length,
+                                                    List<ColumnChunkMetaData> columns, OperatorStats stats) {
+    final FileKey fileKey = new FileKey(path, mTime, length);
+    final Map<Long, OffsetIndex> indexes = new HashMap<>();
+    for (ColumnChunkMetaData column : columns) {
+      final IndexReference ref = column.getOffsetIndexReference();
+      if (ref == null) {
+        continue;
+      }
+      final OffsetIndex index = offsetIndexes.getIfPresent(new IndexKey(fileKey, ref.getOffset()));
+      if (index == null) {
+        addStat(stats, Metric.PAGE_INDEX_CACHE_MISSES);
+        return null;
+      }
+      indexes.put(ref.getOffset(), index);
+    }
+    addStat(stats, Metric.PAGE_INDEX_CACHE_HITS);
+    return new OffsetIndexProvider(indexes);
+  }
+
+  public void putOffsetIndexes(Path path, long mTime, long length, List<ColumnChunkMetaData> columns,
+                               OffsetIndexProvider provider) {
+    final FileKey fileKey = new FileKey(path, mTime, length);
+    for (ColumnChunkMetaData column : columns) {
+      final OffsetIndex index = provider.getOffsetIndex(column);
+      if (index != null) {
+        offsetIndexes.put(new IndexKey(fileKey, column.getOffsetIndexReference().getOffset()), index);
+      }
+    }
+  }
+
+  @VisibleForTesting
+  long getFooterHitCount() {
+    return footers.stats().hitCount();
+  }
+
+  @VisibleForTesting
+  long getFooterMissCount() {
+    return footers.stats().missCount();
+  }
+
+  private static void addStat(OperatorStats stats, Metric metric) {
+    if (stats != null) {
+      stats.addLongStat(metric, 1);
+    }
+  }
+
+  private static int weight(ParquetMetadata footer) {
+    long weight = FOOTER_BASE_WEIGHT;
+    for (BlockMetaData block : footer.getBlocks()) {
+      weight += (long) COLUMN_CHUNK_WEIGHT * block.getColumns().size();
+    }
+    return (int) Math.min(weight, Integer.MAX_VALUE);
+  }
+
+  private static int weight(ColumnIndex index) {
+    long weight = PAGE_INDEX_ENTRY_WEIGHT * (1L + index.getNullPages().size());
+    for (ByteBuffer value : index.getMinValues()) {
+      weight += value.remaining();
+    }
+    for (ByteBuffer value : index.getMaxValues()) {
+      weight += value.remaining();
+    }
+    return (int) Math.min(weight, Integer.MAX_VALUE);
+  }
+
+  private static final class FileKey {
+    private final String path;
+    private final long mTime;
+    private final long length;
+
+    private FileKey(Path path, long mTime, long length) {
+      this.path = path.toString();
+      this.mTime = mTime;
+      this.length = length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final FileKey that = (FileKey) o;
+      return mTime == that.mTime && length == that.length && path.equals(that.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, mTime, length);
+    }
+  }
+
+  private static final class IndexKey {
+    private final FileKey file;
+    private final long offset;
+
+    private IndexKey(FileKey file, long offset) {
+      this.file = file;
+      this.offset = offset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final IndexKey that = (IndexKey) o;
+      return offset == that.offset && file.equals(that.file);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(file, offset);
+    }
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.parquet;
+
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.arrow.vector.types.pojo.Field;
+
+import com.dremio.exec.ExecConstants;
+import com.dremio.io.file.Path;
+import com.dremio.sabot.exec.context.OperatorContext;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Executor wide, size bounded cache of the decoded batches read from small parquet files, shared across queries.
+ *
+ * Entries are keyed by the split identity (file path, modification time and length, row group) and by everything
+ * affecting the decoded batches (projected columns, pushed down filters and batch size), so a rewritten file is never
+ * served from the cache. Batches are kept serialized on heap: serving them only costs a copy into the reading
+ * operator's buffers, which keeps the direct memory accounted to the query reading them.
+ */
+public final class ParquetScanResultCache {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ParquetScanResultCache.class);
+
+  // a single split can take at most this fraction of the cache
+  private static final int MAX_ENTRY_FRACTION = 16;
+
+  private static volatile ParquetScanResultCache instance;
+
+  private final Cache<SplitKey, CachedSplit> splits;
+  private final long maxEntrySize;
+
+  @VisibleForTesting
+  ParquetScanResultCache(long maxSizeBytes) {
+    this.splits = CacheBuilder.newBuilder()
+      .maximumWeight(maxSizeBytes)
+      .weigher((SplitKey key, CachedSplit split) -> (int) Math.min(split.getSize(), Integer.MAX_VALUE))
+      .recordStats()
+      .build();
+    this.maxEntrySize = maxSizeBytes / MAX_ENTRY_FRACTION;
+  }
+
+  /**
+   * Returns the executor wide cache, or null if caching is disabled or the file is too large or can't be identified
+   * reliably.
+   * @param context operator context of the reader, may be null
+   * @param mTime modification time of the file, non positive if not known
+   * @param fileLength length of the file
+   */
+  public static ParquetScanResultCache getInstance(OperatorContext context, long mTime, long fileLength) {
+    if (context == null || context.getOptions() == null || mTime <= 0
+      || !context.getOptions().getOption(ExecConstants.PARQUET_SCAN_RESULT_CACHE_ENABLED)
+      || fileLength > context.getOptions().getOption(ExecConstants.PARQUET_SCAN_RESULT_CACHE_MAX_FILE_SIZE)) {
+      return null;
+    }
+    if (instance == null) {
+      synchronized (ParquetScanResultCache.class) {
+        if (instance == null) {
+          final long maxSize = context.getOptions().getOption(ExecConstants.PARQUET_SCAN_RESULT_CACHE_MAX_SIZE);
+          logger.info("Initializing parquet scan result cache with a maximum size of {} bytes", maxSize);
+          instance = new ParquetScanResultCache(maxSize);
+        }
+      }
+    }
+    return instance;
+  }
+
+  /**
+   * @return the batches of the split, or null if they aren't cached
+   */
+  public CachedSplit get(SplitKey key) {
+    return splits.getIfPresent(key);
+  }
+
+  /**
+   * Caches the batches of the split, unless they would take too large a share of the cache.
+   */
+  public void put(SplitKey key, CachedSplit split) {
+    if (split.getSize() <= maxEntrySize) {
+      splits.put(key, split);
+    }
+  }
+
+  public long getMaxEntrySize() {
+    return maxEntrySize;
+  }
+
+  @VisibleForTesting
+  long getHitCount() {
+    return splits.stats().hitCount();
+  }
+
+  @VisibleForTesting
+  long getMissCount() {
+    return splits.stats().missCount();
+  }
+
+  /**
+   * Identity of the decoded batches of a split.
+   */
+  public static final class SplitKey {
+    private final String path;
+    private final long mTime;
+    private final long length;
+    private final int rowGroupIndex;
+    private final List<String> columns;
+    private final String filters;
+    private final int batchSize;
+
+    public SplitKey(Path path, long mTime, long length, int rowGroupIndex, List<String> columns, String filters,
+                    int batchSize) {
+      this.path = path.toString();
+      this.mTime = mTime;
+      this.length = length;
+      this.rowGroupIndex = rowGroupIndex;
+      this.columns = ImmutableList.copyOf(columns);
+      this.filters = filters;
+      this.batchSize = batchSize;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final SplitKey that = (SplitKey) o;
+      return mTime == that.mTime
+        && length == that.length
+        && rowGroupIndex == that.rowGroupIndex
+        && batchSize == that.batchSize
+        && path.equals(that.path)
+        && columns.equals(that.columns)
+        && filters.equals(that.filters);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, mTime, length, rowGroupIndex, columns, filters, batchSize);
+    }
+  }
+
+  /**
+   * Serialized batches of a split, along with the fields they contain.
+   */
+  public static final class CachedSplit {
+    private final List<Field> fields;
+    private final List<byte[]> batches;
+    private final long size;
+
+    public CachedSplit(List<Field> fields, List<byte[]> batches) {
+      this.fields = ImmutableList.copyOf(fields);
+      this.batches = ImmutableList.copyOf(batches);
+      long size = 0;
+      for (byte[] batch : batches) {
+        size += batch.length;
+      }
+      this.size = size;
+    }
+
+    public List<Field> getFields() {
+      return fields;
+    }
+
+    public List<byte[]> getBatches() {
+      return batches;
+    }
+
+    public long getSize() {
+      return size;
+    }
+  }
+}
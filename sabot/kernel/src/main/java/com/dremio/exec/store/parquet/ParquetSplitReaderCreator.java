@@ -38,6 +38,7 @@ import com.dremio.exec.store.RecordReader;
 import com.dremio.exec.store.SplitAndPartitionInfo;
 import com.dremio.exec.store.dfs.SplitReaderCreator;
 import com.dremio.exec.store.dfs.implicit.CompositeReaderConfig;
+import com.dremio.exec.util.ColumnUtils;
 import com.dremio.io.file.FileAttributes;
 import com.dremio.io.file.FileSystem;
 import com.dremio.io.file.Path;
@@ -83,6 +84,9 @@ public class ParquetSplitReaderCreator extends SplitReaderCreator implements Aut
   private final ParquetSplitReaderCreatorIterator parquetSplitReaderCreatorIterator;
   private final boolean ignoreSchemaLearning;
   private final boolean isConvertedIcebergDataset;
+  // length and modification time of the file, set along with the input stream provider
+  private long fileLength;
+  private long lastModificationTime;
 
   private final BiConsumer<InputStreamProvider, MutableParquetMetadata> depletionListener = (inputStreamProvider, footer) -> {
     if (!prefetchReader || !fs.supportsAsync()) {
@@ -201,6 +205,8 @@ public class ParquetSplitReaderCreator extends SplitReaderCreator implements Aut
         length = fileAttributes.size();
         mTime = fileAttributes.lastModifiedTime().toMillis();
       }
+      fileLength = length;
+      lastModificationTime = mTime;
       inputStreamProvider = parquetSplitReaderCreatorIterator.createInputStreamProvider(lastInputStreamProvider, lastFooter, Path.of(splitXAttr.getPath()), datasetSplit, (f) -> splitXAttr.getRowGroupIndex(), length, mTime);
       return null;
     });
@@ -329,7 +335,7 @@ public class ParquetSplitReaderCreator extends SplitReaderCreator implements Aut
                   inputStreamProvider,
                   new ArrayList<>());
           innerParquetReader.setIgnoreSchemaLearning(ignoreSchemaLearning);
-          inner = readerConfig.wrapIfNecessary(context.getAllocator(), innerParquetReader, datasetSplit);
+          inner = readerConfig.wrapIfNecessary(context.getAllocator(), wrapWithScanResultCache(innerParquetReader), datasetSplit);
         }
         return inner;
       }finally {
@@ -338,6 +344,29 @@ public class ParquetSplitReaderCreator extends SplitReaderCreator implements Aut
     });
   }
 
+  /**
+   * Serves the batches of small files from the executor wide scan result cache, when enabled.
+   */
+  private RecordReader wrapWithScanResultCache(RecordReader reader) {
+    final ParquetScanResultCache cache = ParquetScanResultCache.getInstance(context, lastModificationTime, fileLength);
+    // global dictionary encoded columns only hold ids into the dictionaries of the current query
+    if (cache == null || realFields == null || ColumnUtils.isStarQuery(realFields)
+      || (globalDictionaryEncodedColumns != null && !globalDictionaryEncodedColumns.isEmpty())) {
+      return reader;
+    }
+
+    final List<String> columnNames = new ArrayList<>();
+    for (SchemaPath field : realFields) {
+      final String name = field.getRootSegment().getPath().toLowerCase();
+      if (!columnNames.contains(name)) {
+        columnNames.add(name);
+      }
+    }
+    final ParquetScanResultCache.SplitKey key = new ParquetScanResultCache.SplitKey(path, lastModificationTime,
+      fileLength, splitXAttr.getRowGroupIndex(), columnNames, String.valueOf(conditions), context.getTargetBatchSize());
+    return new ScanResultCachingReader(context, cache, key, columnNames, reader);
+  }
+
   @Override
   public void setIcebergSchemaFields(List<IcebergProtobuf.IcebergSchemaField> icebergSchemaFields) {
     this.icebergSchemaFields = icebergSchemaFields;
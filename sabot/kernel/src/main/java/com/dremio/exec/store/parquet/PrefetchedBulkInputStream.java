@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.parquet;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.parquet.io.SeekableInputStream;
+
+import com.google.common.base.Preconditions;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * A BulkInputStream over a column chunk read ahead of time. Positions are file offsets; the stream owns the
+ * buffer, a slice of the buffer of a coalesced read, and releases it once the whole chunk is consumed, or on close.
+ */
+class PrefetchedBulkInputStream extends SeekableInputStream implements BulkInputStream {
+
+  private final long start;
+  private final long end;
+  private ByteBuf data;
+  private long pos;
+
+  PrefetchedBulkInputStream(ByteBuf data, long start, int length) {
+    this.data = data;
+    this.start = start;
+    this.end = start + length;
+    this.pos = start;
+  }
+
+  @Override
+  public void seek(long offset) throws IOException {
+    if (offset < start || offset > end) {
+      throw new EOFException(String.format("Seek to %d outside of the prefetched range [%d, %d)", offset, start, end));
+    }
+    pos = offset;
+  }
+
+  @Override
+  public long getPos() {
+    return pos;
+  }
+
+  @Override
+  public void readFully(ByteBuf buf, int length) throws IOException {
+    if (length == 0) {
+      return;
+    }
+    checkRemaining(length);
+    buf.writeBytes(data, index(), length);
+    advance(length);
+  }
+
+  @Override
+  public void readFully(byte[] dst, int dstOffset, int dstLen) throws IOException {
+    if (dstLen == 0) {
+      return;
+    }
+    checkRemaining(dstLen);
+    data.getBytes(index(), dst, dstOffset, dstLen);
+    advance(dstLen);
+  }
+
+  @Override
+  public void readFully(byte[] bytes) throws IOException {
+    readFully(bytes, 0, bytes.length);
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (pos >= end) {
+      return -1;
+    }
+    final int value = data.getByte(index()) & 0xff;
+    advance(1);
+    return value;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (pos >= end) {
+      return -1;
+    }
+    final int n = (int) Math.min(len, end - pos);
+    readFully(b, off, n);
+    return n;
+  }
+
+  @Override
+  public int read(ByteBuffer buf) throws IOException {
+    if (!buf.hasRemaining()) {
+      return 0;
+    }
+    if (pos >= end) {
+      return -1;
+    }
+    final int n = (int) Math.min(buf.remaining(), end - pos);
+    readFully(buf, n);
+    return n;
+  }
+
+  @Override
+  public void readFully(ByteBuffer buf) throws IOException {
+    final int length = buf.remaining();
+    if (length == 0) {
+      return;
+    }
+    checkRemaining(length);
+    readFully(buf, length);
+  }
+
+  private void readFully(ByteBuffer buf, int length) {
+    final int limit = buf.limit();
+    buf.limit(buf.position() + length);
+    data.getBytes(index(), buf);
+    buf.limit(limit);
+    advance(length);
+  }
+
+  @Override
+  public SeekableInputStream asSeekableInputStream() {
+    return this;
+  }
+
+  @Override
+  public void close() {
+    release();
+  }
+
+  private int index() {
+    return (int) (pos - start);
+  }
+
+  private void checkRemaining(int length) throws IOException {
+    Preconditions.checkState(data != null || pos == end, "Prefetched column chunk already released");
+    if (pos + length > end) {
+      throw new EOFException(String.format("Read of %d bytes at %d past the end of the prefetched range [%d, %d)", length, pos, start, end));
+    }
+  }
+
+  private void advance(int length) {
+    pos += length;
+    if (pos == end) {
+      // the page readers copy the pages out of the stream, the chunk is no longer needed once read through
+      release();
+    }
+  }
+
+  private void release() {
+    if (data != null) {
+      data.release();
+      data = null;
+    }
+  }
+}
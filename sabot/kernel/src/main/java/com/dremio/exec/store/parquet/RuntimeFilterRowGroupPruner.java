@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.parquet;
+
+import java.util.List;
+import java.util.function.Function;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.types.Types;
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.PrimitiveType;
+
+import com.dremio.exec.store.CompositeColumnFilter;
+import com.dremio.exec.store.RuntimeFilter;
+import com.dremio.exec.util.ValueListFilter;
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * Checks the non partition column runtime filters against the column chunk statistics of a row group. A row group
+ * can be skipped, before any of its pages are read, if for at least one filtered column none of the values in the
+ * join key value list lies within the [min, max] range of the column chunk.
+ *
+ * Only the types for which the value list layout and the parquet statistics ordering are known to agree are
+ * evaluated. Filters on all other columns are ignored, which keeps the row group.
+ */
+public final class RuntimeFilterRowGroupPruner {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(RuntimeFilterRowGroupPruner.class);
+
+  private RuntimeFilterRowGroupPruner() {
+  }
+
+  /**
+   * @param block row group metadata from the footer
+   * @param runtimeFilters runtime filters received by the scan
+   * @param toParquetColumnName resolves a table column name to the column name in the parquet schema
+   * @return true if no row of the row group can satisfy the runtime filters
+   */
+  public static boolean canSkip(BlockMetaData block, List<RuntimeFilter> runtimeFilters,
+                                Function<String, String> toParquetColumnName) {
+    if (block == null || runtimeFilters == null) {
+      return false;
+    }
+    for (RuntimeFilter runtimeFilter : runtimeFilters) {
+      for (CompositeColumnFilter columnFilter : runtimeFilter.getNonPartitionColumnFilters()) {
+        final ValueListFilter valueList = columnFilter.getValueList();
+        if (valueList == null || columnFilter.getColumnsList().size() != 1) {
+          continue;
+        }
+        final String parquetColumn = toParquetColumnName.apply(columnFilter.getColumnsList().get(0));
+        final ColumnChunkMetaData column = findColumn(block, parquetColumn);
+        if (column != null && isDisjoint(column, block.getRowCount(), valueList)) {
+          logger.debug("Skipping row group starting at {} using runtime filter on {}", block.getStartingPos(), parquetColumn);
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static ColumnChunkMetaData findColumn(BlockMetaData block, String parquetColumn) {
+    if (parquetColumn == null) {
+      return null;
+    }
+    for (ColumnChunkMetaData column : block.getColumns()) {
+      if (column.getPath().size() == 1 && column.getPath().toDotString().equalsIgnoreCase(parquetColumn)) {
+        return column;
+      }
+    }
+    return null;
+  }
+
+  static boolean isDisjoint(ColumnChunkMetaData column, long rowCount, ValueListFilter valueList) {
+    final Statistics<?> stats = column.getStatistics();
+    if (stats == null || stats.isEmpty()) {
+      return false;
+    }
+    if (valueList.isContainsNull() && stats.getNumNulls() > 0) {
+      return false;
+    }
+    if (!stats.hasNonNullValue()) {
+      // all values are nulls, and the value list doesn't carry a null
+      return stats.getNumNulls() == rowCount;
+    }
+
+    final PrimitiveType type = column.getPrimitiveType();
+    final LogicalTypeAnnotation annotation = type.getLogicalTypeAnnotation();
+    final Types.MinorType fieldType = valueList.getFieldType();
+    switch (type.getPrimitiveTypeName()) {
+      case BOOLEAN:
+        if (!valueList.isBoolField() || annotation != null) {
+          return false;
+        }
+        return !intersects(valueList, (Boolean) stats.genericGetMin(), (Boolean) stats.genericGetMax());
+      case INT32:
+        if (fieldType != Types.MinorType.INT || !isSignedInt(annotation, 32) || valueList.getBlockSize() != 4) {
+          return false;
+        }
+        return !intersects(valueList, (Integer) stats.genericGetMin(), (Integer) stats.genericGetMax());
+      case INT64:
+        if (fieldType != Types.MinorType.BIGINT || !isSignedInt(annotation, 64) || valueList.getBlockSize() != 8) {
+          return false;
+        }
+        return !intersects(valueList, (Long) stats.genericGetMin(), (Long) stats.genericGetMax());
+      case BINARY:
+        if (fieldType != Types.MinorType.VARCHAR || valueList.isFixedWidth()
+          || !(annotation instanceof LogicalTypeAnnotation.StringLogicalTypeAnnotation)) {
+          return false;
+        }
+        return !intersects(valueList, ((Binary) stats.genericGetMin()).getBytes(), ((Binary) stats.genericGetMax()).getBytes());
+      default:
+        return false;
+    }
+  }
+
+  private static boolean isSignedInt(LogicalTypeAnnotation annotation, int bitWidth) {
+    if (annotation == null) {
+      return true;
+    }
+    if (!(annotation instanceof LogicalTypeAnnotation.IntLogicalTypeAnnotation)) {
+      return false;
+    }
+    final LogicalTypeAnnotation.IntLogicalTypeAnnotation intAnnotation = (LogicalTypeAnnotation.IntLogicalTypeAnnotation) annotation;
+    return intAnnotation.isSigned() && intAnnotation.getBitWidth() == bitWidth;
+  }
+
+  private static boolean intersects(ValueListFilter valueList, boolean min, boolean max) {
+    return (valueList.isContainsFalse() && !min) || (valueList.isContainsTrue() && max);
+  }
+
+  // The value lists are sorted, hence a lower bound search tells whether any value falls in [min, max].
+
+  private static boolean intersects(ValueListFilter valueList, int min, int max) {
+    final ArrowBuf values = valueList.valOnlyBuf();
+    int low = 0;
+    int high = valueList.getValueCount();
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (values.getInt(mid * 4L) < min) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low < valueList.getValueCount() && values.getInt(low * 4L) <= max;
+  }
+
+  private static boolean intersects(ValueListFilter valueList, long min, long max) {
+    final ArrowBuf values = valueList.valOnlyBuf();
+    int low = 0;
+    int high = valueList.getValueCount();
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (values.getLong(mid * 8L) < min) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low < valueList.getValueCount() && values.getLong(low * 8L) <= max;
+  }
+
+  private static boolean intersects(ValueListFilter valueList, byte[] min, byte[] max) {
+    int low = 0;
+    int high = valueList.getValueCount();
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (UnsignedBytes.lexicographicalComparator().compare(readVarValue(valueList, mid), min) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low < valueList.getValueCount()
+      && UnsignedBytes.lexicographicalComparator().compare(readVarValue(valueList, low), max) <= 0;
+  }
+
+  private static byte[] readVarValue(ValueListFilter valueList, int idx) {
+    // First byte in the block is the length; the value is right aligned in the block.
+    final int blockSize = valueList.getBlockSize();
+    final long blockStart = (long) idx * blockSize;
+    final byte[] value = new byte[valueList.valOnlyBuf().getByte(blockStart)];
+    valueList.valOnlyBuf().getBytes(blockStart + blockSize - value.length, value);
+    return value;
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.parquet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.arrow.memory.OutOfMemoryException;
+import org.apache.arrow.vector.ValueVector;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.util.TransferPair;
+
+import com.dremio.common.exceptions.ExecutionSetupException;
+import com.dremio.common.exceptions.UserException;
+import com.dremio.common.expression.SchemaPath;
+import com.dremio.exec.cache.VectorAccessibleSerializable;
+import com.dremio.exec.record.VectorContainer;
+import com.dremio.exec.record.VectorWrapper;
+import com.dremio.exec.record.WritableBatch;
+import com.dremio.exec.store.RecordReader;
+import com.dremio.exec.store.RuntimeFilter;
+import com.dremio.sabot.exec.context.OperatorContext;
+import com.dremio.sabot.op.scan.OutputMutator;
+import com.dremio.sabot.op.scan.ScanOperator.Metric;
+
+/**
+ * Serves the batches of a split from the {@link ParquetScanResultCache} when they are cached, or reads them with the
+ * inner reader and caches them once the whole split has been read.
+ */
+class ScanResultCachingReader implements RecordReader {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ScanResultCachingReader.class);
+
+  private final OperatorContext context;
+  private final ParquetScanResultCache cache;
+  private final ParquetScanResultCache.SplitKey key;
+  private final List<String> columns;
+  private final RecordReader inner;
+
+  private OutputMutator output;
+  private Map<String, ValueVector> vectorMap;
+
+  // set when the split is served from the cache
+  private ParquetScanResultCache.CachedSplit cachedSplit;
+  private int nextBatch;
+
+  // batches read by the inner reader so far, null once the split can't be cached
+  private List<byte[]> readBatches = new ArrayList<>();
+  private List<Field> readFields;
+  private long readBytes;
+
+  /**
+   * @param columns names of the output columns written by the inner reader
+   */
+  ScanResultCachingReader(OperatorContext context, ParquetScanResultCache cache, ParquetScanResultCache.SplitKey key,
+                          List<String> columns, RecordReader inner) {
+    this.context = context;
+    this.cache = cache;
+    this.key = key;
+    this.columns = columns;
+    this.inner = inner;
+  }
+
+  @Override
+  public void setup(OutputMutator output) throws ExecutionSetupException {
+    this.output = output;
+    final ParquetScanResultCache.CachedSplit split = cache.get(key);
+    if (split != null && matchesOutput(split)) {
+      cachedSplit = split;
+      readBatches = null;
+      context.getStats().addLongStat(Metric.SCAN_RESULT_CACHE_HITS, 1);
+      context.getStats().addLongStat(Metric.SCAN_RESULT_CACHE_HIT_BYTES, split.getSize());
+      return;
+    }
+    context.getStats().addLongStat(Metric.SCAN_RESULT_CACHE_MISSES, 1);
+    inner.setup(output);
+  }
+
+  /**
+   * The cached batches can only be served if the output vectors still have the same types.
+   */
+  private boolean matchesOutput(ParquetScanResultCache.CachedSplit split) {
+    for (Field field : split.getFields()) {
+      final ValueVector vector = output.getVector(field.getName());
+      if (vector == null || !vector.getField().equals(field)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void allocate(Map<String, ValueVector> vectorMap) throws OutOfMemoryException {
+    this.vectorMap = vectorMap;
+    if (cachedSplit == null) {
+      inner.allocate(vectorMap);
+    }
+  }
+
+  @Override
+  public int next() {
+    if (cachedSplit != null) {
+      if (nextBatch == cachedSplit.getBatches().size()) {
+        return 0;
+      }
+      return load(cachedSplit.getBatches().get(nextBatch++));
+    }
+
+    final int count = inner.next();
+    if (readBatches != null) {
+      if (count == 0) {
+        final List<Field> fields = readFields == null ? Collections.emptyList() : readFields;
+        cache.put(key, new ParquetScanResultCache.CachedSplit(fields, readBatches));
+        readBatches = null;
+      } else {
+        save(count);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Transfers a cached batch into the output vectors.
+   */
+  private int load(byte[] batch) {
+    final VectorAccessibleSerializable serializable = new VectorAccessibleSerializable(context.getAllocator());
+    try {
+      serializable.readFromStream(new ByteArrayInputStream(batch));
+    } catch (IOException e) {
+      throw UserException.dataReadError(e)
+        .message("Failed to read cached scan results")
+        .build(logger);
+    }
+    try (VectorContainer container = serializable.get()) {
+      for (VectorWrapper<?> wrapper : container) {
+        final ValueVector source = wrapper.getValueVector();
+        source.makeTransferPair(output.getVector(source.getField().getName())).transfer();
+      }
+      return container.getRecordCount();
+    }
+  }
+
+  /**
+   * Serializes a copy of the batch the inner reader just wrote into the output vectors.
+   */
+  private void save(int count) {
+    final List<ValueVector> copies = new ArrayList<>();
+    try {
+      final List<Field> fields = new ArrayList<>();
+      for (String column : columns) {
+        final ValueVector vector = vectorMap.get(column);
+        if (vector == null) {
+          continue;
+        }
+        fields.add(vector.getField());
+        // shares the buffers of the output vector, leaving it untouched
+        final TransferPair transferPair = vector.getTransferPair(context.getAllocator());
+        transferPair.splitAndTransfer(0, count);
+        copies.add(transferPair.getTo());
+      }
+      if (readFields == null) {
+        readFields = fields;
+      } else if (!readFields.equals(fields)) {
+        // schema changed while reading the split
+        readBatches = null;
+        return;
+      }
+
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      final WritableBatch batch = WritableBatch.getBatchNoHV(count, copies, false);
+      new VectorAccessibleSerializable(batch, context.getAllocator()).writeToStream(out);
+      readBytes += out.size();
+      if (readBytes > cache.getMaxEntrySize()) {
+        readBatches = null;
+        return;
+      }
+      readBatches.add(out.toByteArray());
+    } catch (IOException | RuntimeException e) {
+      logger.debug("Not caching the batches of {}, failed to copy them", inner.getFilePath(), e);
+      readBatches = null;
+    } finally {
+      for (ValueVector copy : copies) {
+        copy.close();
+      }
+    }
+  }
+
+  @Override
+  public void addRuntimeFilter(RuntimeFilter runtimeFilter) {
+    if (cachedSplit != null) {
+      // runtime filters only prune rows, serving the whole split is still correct
+      return;
+    }
+    // the inner reader may skip rows, which must not be cached for other queries
+    readBatches = null;
+    inner.addRuntimeFilter(runtimeFilter);
+  }
+
+  @Override
+  public List<SchemaPath> getColumnsToBoost() {
+    return inner.getColumnsToBoost();
+  }
+
+  @Override
+  public String getFilePath() {
+    return inner.getFilePath();
+  }
+
+  @Override
+  public void close() throws Exception {
+    inner.close();
+  }
+}
@@ -24,6 +24,7 @@ import org.apache.arrow.memory.BufferAllocator;
 import org.apache.arrow.memory.OutOfMemoryException;
 import org.apache.arrow.util.AutoCloseables;
 import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
 import org.apache.parquet.io.SeekableInputStream;
 
 import com.dremio.io.ArrowBufFSInputStream;
@@ -41,6 +42,7 @@ public class SingleStreamProvider implements InputStreamProvider {
   private final BufferAllocator allocator;
   private final long fileLength;
   private final long maxFooterLen;
+  private final long mTime;
   private final boolean readFullFile;
   private BulkInputStream stream;
   private OperatorContext context;
@@ -49,9 +51,14 @@ public class SingleStreamProvider implements InputStreamProvider {
   private boolean readColumnOffsetIndices;
 
   public SingleStreamProvider(FileSystem fs, Path path, long fileLength, long maxFooterLen, boolean readFullFile, MutableParquetMetadata footer, OperatorContext context, boolean readColumnOffsetIndices) {
+    this(fs, path, fileLength, 0, maxFooterLen, readFullFile, footer, context, readColumnOffsetIndices);
+  }
+
+  public SingleStreamProvider(FileSystem fs, Path path, long fileLength, long mTime, long maxFooterLen, boolean readFullFile, MutableParquetMetadata footer, OperatorContext context, boolean readColumnOffsetIndices) {
     this.fs = fs;
     this.path = path;
     this.fileLength = fileLength;
+    this.mTime = mTime;
     this.maxFooterLen = maxFooterLen;
     this.readFullFile = readFullFile;
     this.footer = footer;
@@ -111,12 +118,22 @@ public class SingleStreamProvider implements InputStreamProvider {
       if ((columns.size() == 0) || (columns.get(0).getOffsetIndexReference() == null)) {
         return null;
       }
+      final ParquetFooterCache cache = ParquetFooterCache.getInstance(context, mTime);
+      if (cache != null) {
+        final OffsetIndexProvider cached = cache.getOffsetIndexProvider(path, mTime, fileLength, columns, context.getStats());
+        if (cached != null) {
+          return cached;
+        }
+      }
       try (BulkInputStream inputStream = BulkInputStream.wrap(Streams.wrap(fs.open(path)))) {
         OffsetIndexProvider offsetIndexProvider;
         offsetIndexProvider = new OffsetIndexProvider(inputStream, allocator, columns);
         if ((context != null) && (context.getStats() != null)) {
           context.getStats().addLongStat(com.dremio.sabot.op.scan.ScanOperator.Metric.OFFSET_INDEX_READ, 1);
         }
+        if (cache != null) {
+          cache.putOffsetIndexes(path, mTime, fileLength, columns, offsetIndexProvider);
+        }
         return offsetIndexProvider;
       } catch (IOException ex) {
         //Ignore error and return null;
@@ -131,12 +148,22 @@ public class SingleStreamProvider implements InputStreamProvider {
       if ((columns.size() == 0) || (columns.get(0).getColumnIndexReference() == null)) {
         return null;
       }
+      final ParquetFooterCache cache = ParquetFooterCache.getInstance(context, mTime);
+      if (cache != null) {
+        final ColumnIndexProvider cached = cache.getColumnIndexProvider(path, mTime, fileLength, columns, context.getStats());
+        if (cached != null) {
+          return cached;
+        }
+      }
       try (BulkInputStream inputStream = BulkInputStream.wrap(Streams.wrap(fs.open(path)))) {
         ColumnIndexProvider columnIndexProvider;
         columnIndexProvider = new ColumnIndexProvider(inputStream, allocator, columns);
         if ((context != null) && (context.getStats() != null)) {
           context.getStats().addLongStat(com.dremio.sabot.op.scan.ScanOperator.Metric.COLUMN_INDEX_READ, 1);
         }
+        if (cache != null) {
+          cache.putColumnIndexes(path, mTime, fileLength, columns, columnIndexProvider);
+        }
         return columnIndexProvider;
       } catch (IOException ex) {
         //Ignore error and return null;
@@ -148,12 +175,21 @@ public class SingleStreamProvider implements InputStreamProvider {
   @Override
   public MutableParquetMetadata getFooter() throws IOException {
     if(footer == null) {
-      SingletonParquetFooterCache footerCache = new SingletonParquetFooterCache();
-      footer = new MutableParquetMetadata(footerCache.getFooter(getStream(null), path.toString(), fileLength, fs, maxFooterLen));
+      final ParquetFooterCache cache = ParquetFooterCache.getInstance(context, mTime);
+      if (cache != null) {
+        footer = new MutableParquetMetadata(cache.getFooter(path, mTime, fileLength, this::readFooter, context.getStats()));
+      } else {
+        footer = new MutableParquetMetadata(readFooter());
+      }
     }
     return footer;
   }
 
+  private ParquetMetadata readFooter() throws IOException {
+    SingletonParquetFooterCache footerCache = new SingletonParquetFooterCache();
+    return footerCache.getFooter(getStream(null), path.toString(), fileLength, fs, maxFooterLen);
+  }
+
   @Override
   public boolean isSingleStream() {
     return true;
@@ -17,26 +17,41 @@ package com.dremio.exec.store.parquet;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.apache.arrow.memory.BufferAllocator;
 import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
 
 import com.dremio.common.AutoCloseables;
+import com.dremio.exec.ExecConstants;
+import com.dremio.io.AsyncByteReader;
 import com.dremio.io.FSInputStream;
+import com.dremio.io.ReadRange;
 import com.dremio.io.file.FileSystem;
 import com.dremio.io.file.Path;
+import com.dremio.options.OptionManager;
 import com.dremio.sabot.exec.context.OperatorContext;
+import com.dremio.sabot.op.scan.ScanOperator;
 import com.google.common.base.Preconditions;
 
+import io.netty.buffer.NettyArrowBuf;
+
 /**
  * An InputStreamProvider that opens a separate stream for each column.
  */
 
 public class StreamPerColumnProvider implements InputStreamProvider {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(StreamPerColumnProvider.class);
+
   private final FileSystem fs;
   private final Path path;
   private final long length;
+  private final long mTime;
   private MutableParquetMetadata footer;
   private final long maxFooterLen;
   private boolean readColumnOffsetIndexes;
@@ -44,11 +59,18 @@ public class StreamPerColumnProvider implements InputStreamProvider {
   private final OperatorContext context;
 
   private final List<BulkInputStream> streams = new ArrayList<>();
+  // column chunks read ahead of time, by starting position, until their stream is obtained
+  private final Map<Long, PrefetchedBulkInputStream> prefetched = new HashMap<>();
 
   public StreamPerColumnProvider(FileSystem fs, Path path, long length, long maxFooterLen, MutableParquetMetadata footer, OperatorContext context, boolean readColumnOffsetIndexes) {
+    this(fs, path, length, 0, maxFooterLen, footer, context, readColumnOffsetIndexes);
+  }
+
+  public StreamPerColumnProvider(FileSystem fs, Path path, long length, long mTime, long maxFooterLen, MutableParquetMetadata footer, OperatorContext context, boolean readColumnOffsetIndexes) {
     this.fs = fs;
     this.path = path;
     this.length = length;
+    this.mTime = mTime;
     this.maxFooterLen = maxFooterLen;
     this.footer = footer;
     this.readColumnOffsetIndexes = readColumnOffsetIndexes;
@@ -67,12 +89,113 @@ public class StreamPerColumnProvider implements InputStreamProvider {
 
   @Override
   public BulkInputStream getStream(ColumnChunkMetaData column) throws IOException {
+    if (column != null) {
+      final PrefetchedBulkInputStream prefetchedStream = prefetched.remove(column.getStartingPos());
+      if (prefetchedStream != null) {
+        streams.add(prefetchedStream);
+        return prefetchedStream;
+      }
+    }
     FSInputStream is = fs.open(path);
     BulkInputStream stream = BulkInputStream.wrap(Streams.wrap(is));
     streams.add(stream);
     return stream;
   }
 
+  /**
+   * Reads the given column chunks with a single vectored read, nearby chunks being coalesced into one request,
+   * instead of one ranged read per column stream. Only done when the file system supports async reads and the
+   * chunks fit in the prefetch limit; on failure, the columns are read with streams as usual.
+   */
+  @Override
+  public void prefetch(List<ColumnChunkMetaData> columns) throws IOException {
+    if (allocator == null || !fs.supportsAsync()) {
+      return;
+    }
+    final OptionManager options = context.getOptions();
+    if (!options.getOption(ExecConstants.PARQUET_COALESCED_READ_ENABLE)) {
+      return;
+    }
+
+    final Map<Long, Integer> chunks = new HashMap<>();
+    long totalSize = 0;
+    for (ColumnChunkMetaData column : columns) {
+      if (column == null || prefetched.containsKey(column.getStartingPos()) || chunks.containsKey(column.getStartingPos())) {
+        continue;
+      }
+      totalSize += column.getTotalSize();
+      if (totalSize > options.getOption(ExecConstants.PARQUET_COALESCED_READ_MAX_PREFETCH_SIZE)) {
+        return;
+      }
+      chunks.put(column.getStartingPos(), (int) column.getTotalSize());
+    }
+    if (chunks.size() < 2) {
+      // a single chunk is read as efficiently by its stream
+      return;
+    }
+
+    final List<ReadRange> ranges = new ArrayList<>(chunks.size());
+    for (Map.Entry<Long, Integer> chunk : chunks.entrySet()) {
+      ranges.add(new ReadRange(chunk.getKey(), chunk.getValue()));
+    }
+
+    final AsyncByteReader reader;
+    try {
+      reader = fs.getAsyncByteReader(
+        AsyncByteReader.FileKey.of(path, Long.toString(mTime), AsyncByteReader.FileKey.FileType.PARQUET), Collections.emptyMap());
+    } catch (IOException | RuntimeException e) {
+      logger.debug("Failed to prefetch {} column chunks of {}, reading them with streams", chunks.size(), path, e);
+      return;
+    }
+
+    CompletableFuture<Void> future = null;
+    try {
+      // a single buffer, accounted for in the operator's allocator, is read per coalesced request
+      future = reader.readFully(ranges,
+        length -> NettyArrowBuf.unwrapBuffer(allocator.buffer(length)),
+        options.getOption(ExecConstants.PARQUET_COALESCED_READ_MAX_GAP),
+        options.getOption(ExecConstants.PARQUET_COALESCED_READ_MAX_MERGED_SIZE),
+        (int) options.getOption(ExecConstants.PARQUET_COALESCED_READ_MAX_CONCURRENT_READS));
+      future.get();
+    } catch (Exception e) {
+      if (e instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      logger.debug("Failed to prefetch {} column chunks of {}, reading them with streams", chunks.size(), path, e);
+      if (future == null) {
+        releaseAll(reader, ranges);
+      } else {
+        // reads may still be in flight when interrupted, the reader and the data are released once they are done
+        future.whenComplete((v, t) -> releaseAll(reader, ranges));
+      }
+      return;
+    }
+    closeReader(reader);
+
+    for (ReadRange range : ranges) {
+      prefetched.put(range.getOffset(), new PrefetchedBulkInputStream(range.getData(), range.getOffset(), range.getLength()));
+    }
+    if (context.getStats() != null) {
+      context.getStats().addLongStat(ScanOperator.Metric.NUM_PARQUET_COLUMNS_PREFETCHED, chunks.size());
+      context.getStats().addLongStat(ScanOperator.Metric.PARQUET_PREFETCHED_BYTES, totalSize);
+    }
+  }
+
+  private void releaseAll(AsyncByteReader reader, List<ReadRange> ranges) {
+    for (ReadRange range : ranges) {
+      range.release();
+    }
+    closeReader(reader);
+  }
+
+  private void closeReader(AsyncByteReader reader) {
+    try {
+      reader.close();
+    } catch (Exception e) {
+      logger.debug("Failed to close the async reader of {}", path, e);
+    }
+  }
+
   @Override
   public boolean isSingleStream() {
     return false;
@@ -91,11 +214,21 @@ public class StreamPerColumnProvider implements InputStreamProvider {
       }
       OffsetIndexProvider offsetIndexProvider;
       Preconditions.checkState(allocator != null, "Allocator null when trying to getOffsetIndexProvider");
+      final ParquetFooterCache cache = ParquetFooterCache.getInstance(context, mTime);
+      if (cache != null) {
+        offsetIndexProvider = cache.getOffsetIndexProvider(path, mTime, length, columns, context.getStats());
+        if (offsetIndexProvider != null) {
+          return offsetIndexProvider;
+        }
+      }
       try (BulkInputStream inputStream = BulkInputStream.wrap(Streams.wrap(fs.open(path)))) {
         offsetIndexProvider = new OffsetIndexProvider(inputStream, allocator, columns);
         if ((context != null) && (context.getStats() != null)) {
           context.getStats().addLongStat(com.dremio.sabot.op.scan.ScanOperator.Metric.OFFSET_INDEX_READ, 1);
         }
+        if (cache != null) {
+          cache.putOffsetIndexes(path, mTime, length, columns, offsetIndexProvider);
+        }
         return offsetIndexProvider;
       } catch (IOException ex) {
         //Ignore IOException.
@@ -111,12 +244,22 @@ public class StreamPerColumnProvider implements InputStreamProvider {
         return null;
       }
       Preconditions.checkState(allocator != null, "Allocator null when trying to getColumnIndexProvider");
+      final ParquetFooterCache cache = ParquetFooterCache.getInstance(context, mTime);
+      if (cache != null) {
+        final ColumnIndexProvider cached = cache.getColumnIndexProvider(path, mTime, length, columns, context.getStats());
+        if (cached != null) {
+          return cached;
+        }
+      }
       try (BulkInputStream inputStream = BulkInputStream.wrap(Streams.wrap(fs.open(path)))) {
         ColumnIndexProvider columnIndexProvider;
         columnIndexProvider = new ColumnIndexProvider(inputStream, allocator, columns);
         if ((context != null) && (context.getStats() != null)) {
           context.getStats().addLongStat(com.dremio.sabot.op.scan.ScanOperator.Metric.COLUMN_INDEX_READ, 1);
         }
+        if (cache != null) {
+          cache.putColumnIndexes(path, mTime, length, columns, columnIndexProvider);
+        }
         return columnIndexProvider;
       } catch (IOException ex) {
         //Ignore IOException.
@@ -128,16 +271,25 @@ public class StreamPerColumnProvider implements InputStreamProvider {
   @Override
   public MutableParquetMetadata getFooter() throws IOException {
     if(footer == null) {
-      SingletonParquetFooterCache footerCache = new SingletonParquetFooterCache();
-      footer = new MutableParquetMetadata(footerCache.getFooter(getStream(null), path.toString(), length, fs, maxFooterLen));
+      final ParquetFooterCache cache = ParquetFooterCache.getInstance(context, mTime);
+      if (cache != null) {
+        footer = new MutableParquetMetadata(cache.getFooter(path, mTime, length, this::readFooter, context.getStats()));
+      } else {
+        footer = new MutableParquetMetadata(readFooter());
+      }
     }
     return footer;
   }
 
+  private ParquetMetadata readFooter() throws IOException {
+    SingletonParquetFooterCache footerCache = new SingletonParquetFooterCache();
+    return footerCache.getFooter(getStream(null), path.toString(), length, fs, maxFooterLen);
+  }
+
   @Override
   public void close() throws IOException {
     try {
-      AutoCloseables.close(streams);
+      AutoCloseables.close(streams, prefetched.values());
     } catch (IOException | RuntimeException e) {
       throw e;
     } catch (Exception e) {
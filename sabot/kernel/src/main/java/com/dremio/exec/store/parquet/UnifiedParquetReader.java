@@ -229,7 +229,7 @@ public class UnifiedParquetReader implements RecordReader {
       this.validityBuf = context.getAllocator().buffer(maxValidityBufSize);
     }
 
-    final ExecutionPath execPath = getExecutionPath();
+    final ExecutionPath execPath = canPruneWithRuntimeFilters() ? ExecutionPath.SKIP_ALL : getExecutionPath();
     delegates = execPath.getReaders(this);
 
     Preconditions.checkArgument(!delegates.isEmpty(), "There should be at least one delegated RecordReader");
@@ -786,6 +786,18 @@ public class UnifiedParquetReader implements RecordReader {
     return this.runtimeFilters.stream().flatMap(f -> f.getNonPartitionColumnFilters().stream()).findAny().isPresent();
   }
 
+  private boolean canPruneWithRuntimeFilters() {
+    if (!isNonPartitionColFilterPresent() || !context.getOptions().getOption(ExecConstants.RUNTIME_FILTER_ROW_GROUP_PRUNING)) {
+      return false;
+    }
+    final BlockMetaData block = footer.getBlocks().get(readEntry.getRowGroupIndex());
+    if (RuntimeFilterRowGroupPruner.canSkip(block, runtimeFilters, columnResolver::getParquetColumnName)) {
+      context.getStats().addLongStat(Metric.ROW_GROUPS_PRUNED_WITH_RUNTIME_FILTER, 1);
+      return true;
+    }
+    return false;
+  }
+
   private ExecutionPath getExecutionPath() {
     if ((globalDictionaryFieldInfoMap != null && !globalDictionaryFieldInfoMap.isEmpty())) {
       return ExecutionPath.DEPRECATED_VECTORIZED;
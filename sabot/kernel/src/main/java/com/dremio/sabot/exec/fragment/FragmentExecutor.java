@@ -777,6 +777,12 @@ public class FragmentExecutor {
       stats.addBlockedOnSharedResourceDuration(resource, duration);
     }
 
+    @Override
+    public void fail(Throwable t) {
+      deferredException.addThrowable(t);
+      taskState = State.RUNNABLE;
+    }
+
     @Override
     public SharedResourceType getFirstBlockedResource() {
       return FragmentExecutor.this.sharedResources.getFirstBlockedResource("pipeline");
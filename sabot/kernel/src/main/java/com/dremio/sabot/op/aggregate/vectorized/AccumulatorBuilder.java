@@ -95,7 +95,7 @@ public class AccumulatorBuilder {
         continue;
       }
 
-      /* SUM, MIN, MAX, $SUM0, COUNT */
+      /* SUM, MIN, MAX, $SUM0, COUNT, HLL, HLL_MERGE, TDIGEST, TDIGEST_MERGE */
       final ValueVectorReadExpression vvread = (ValueVectorReadExpression) exprs.get(0);
       inputVector = incoming.getValueAccessorById(FieldVector.class, vvread.getFieldId().getFieldIds()).getValueVector();
       accumulatorTypes[i] = getAccumulatorTypeFromName(func.getName());
@@ -134,6 +134,7 @@ public class AccumulatorBuilder {
    * @param decimalV2Enabled
    * @param varLenAccumulatorCapacity
    * @param tempAccumulatorHolder needed for varlen accumulation vectors
+   * @param tdigestCompression compression of the digests kept by TDIGEST accumulators
    * @return A Nested accumulator that holds individual sub-accumulators.
    *
    * With partitioning in VectorizedHashAgg operator, accumulators are handled on a
@@ -152,7 +153,8 @@ public class AccumulatorBuilder {
                                               final long jointAllocationLimit,
                                               boolean decimalV2Enabled,
                                               int varLenAccumulatorCapacity,
-                                              BaseVariableWidthVector[] tempAccumulatorHolder) {
+                                              BaseVariableWidthVector[] tempAccumulatorHolder,
+                                              int tdigestCompression) {
     final byte[] accumulatorTypes = materializedAggExpressions.accumulatorTypes;
     final List<FieldVector> inputVectors = materializedAggExpressions.inputVectors;
     final List<Field> outputVectorFields = materializedAggExpressions.outputVectorFields;
@@ -181,7 +183,7 @@ public class AccumulatorBuilder {
 
       accums[i] = getAccumulator(accumulatorType, inputVector, outputVector,
                                  transferVector, maxValuesPerBatch, computationVectorAllocator,
-                                 decimalV2Enabled, varLenAccumulatorCapacity, tempVector);
+                                 decimalV2Enabled, varLenAccumulatorCapacity, tempVector, tdigestCompression);
       if (accums[i] == null) {
         throw new IllegalStateException("ERROR: invalid accumulator state");
       }
@@ -196,7 +198,8 @@ public class AccumulatorBuilder {
                                             final BufferAllocator computationVectorAllocator,
                                             boolean decimalCompleteEnabled,
                                             int varLenAccumulatorCapacity,
-                                            BaseVariableWidthVector tempAccumulatorHolder) {
+                                            BaseVariableWidthVector tempAccumulatorHolder,
+                                            int tdigestCompression) {
     if (accumulatorType == AccumulatorType.COUNT1.ordinal()) {
       return new CountOneAccumulator(incomingValues, outputVector, transferVector, maxValuesPerBatch,
                                      computationVectorAllocator);
@@ -374,6 +377,71 @@ public class AccumulatorBuilder {
                                           computationVectorAllocator);
       }
 
+      case 6: {
+        switch(type){
+          case INT:
+            return new NdvAccumulators.IntNdvAccumulator(incomingValues, outputVector, transferVector, maxValuesPerBatch);
+          case FLOAT4:
+            return new NdvAccumulators.FloatNdvAccumulator(incomingValues, outputVector, transferVector, maxValuesPerBatch);
+          case BIGINT:
+            return new NdvAccumulators.BigIntNdvAccumulator(incomingValues, outputVector, transferVector, maxValuesPerBatch);
+          case FLOAT8:
+            return new NdvAccumulators.DoubleNdvAccumulator(incomingValues, outputVector, transferVector, maxValuesPerBatch);
+          case DECIMAL:
+            if (decimalCompleteEnabled) {
+              return new NdvAccumulators.DecimalNdvAccumulatorV2(incomingValues, outputVector, transferVector, maxValuesPerBatch);
+            } else {
+              return new NdvAccumulators.DecimalNdvAccumulator(incomingValues, outputVector, transferVector, maxValuesPerBatch);
+            }
+          case BIT:
+            return new NdvAccumulators.BitNdvAccumulator(incomingValues, outputVector, transferVector, maxValuesPerBatch);
+          case DATE:
+          case TIMESTAMP:
+            // dates and timestamps are 8-byte values, their ndv is the ndv of the underlying long values
+            return new NdvAccumulators.BigIntNdvAccumulator(incomingValues, outputVector, transferVector, maxValuesPerBatch);
+          case TIME:
+          case INTERVALYEAR:
+            // time and interval-year are 4-byte values, their ndv is the ndv of the underlying int values
+            return new NdvAccumulators.IntNdvAccumulator(incomingValues, outputVector, transferVector, maxValuesPerBatch);
+          case INTERVALDAY:
+            return new NdvAccumulators.IntervalDayNdvAccumulator(incomingValues, outputVector, transferVector, maxValuesPerBatch);
+          case VARCHAR:
+          case VARBINARY:
+            return new NdvAccumulators.VarLenNdvAccumulator(incomingValues, outputVector, transferVector, maxValuesPerBatch);
+        }
+        break;
+      }
+
+      case 7: {
+        return new NdvAccumulators.NdvUnionAccumulator(incomingValues, outputVector, transferVector, maxValuesPerBatch);
+      }
+
+      case 8: {
+        switch(type){
+          case FLOAT8:
+            return new TDigestAccumulators.DoubleTDigestAccumulator(incomingValues, outputVector, transferVector,
+              maxValuesPerBatch, tdigestCompression, computationVectorAllocator);
+          case DATE:
+          case TIMESTAMP:
+            // dates and timestamps are 8-byte values, digested as the underlying long values
+            return new TDigestAccumulators.BigIntTDigestAccumulator(incomingValues, outputVector, transferVector,
+              maxValuesPerBatch, tdigestCompression, computationVectorAllocator);
+          case TIME:
+            // time is a 4-byte value, digested as the underlying int value
+            return new TDigestAccumulators.IntTDigestAccumulator(incomingValues, outputVector, transferVector,
+              maxValuesPerBatch, tdigestCompression, computationVectorAllocator);
+          case BIT:
+            return new TDigestAccumulators.BitTDigestAccumulator(incomingValues, outputVector, transferVector,
+              maxValuesPerBatch, tdigestCompression, computationVectorAllocator);
+        }
+        break;
+      }
+
+      case 9: {
+        return new TDigestAccumulators.TDigestMergeAccumulator(incomingValues, outputVector, transferVector,
+          maxValuesPerBatch, tdigestCompression, computationVectorAllocator);
+      }
+
     }
 
     return null;
@@ -404,6 +472,10 @@ public class AccumulatorBuilder {
     public List<FieldVector> getInputVectors() {
       return inputVectors;
     }
+
+    public byte[] getAccumulatorTypes() {
+      return accumulatorTypes;
+    }
   }
 
   public enum AccumulatorType {
@@ -412,10 +484,20 @@ public class AccumulatorBuilder {
     MAX,
     SUM0,
     COUNT,
-    COUNT1
+    COUNT1,
+    HLL,
+    HLL_MERGE,
+    TDIGEST,
+    TDIGEST_MERGE
   }
 
   private static byte getAccumulatorTypeFromName(String name) {
+    if ("hll_merge".equals(name)) {
+      return (byte)AccumulatorType.HLL_MERGE.ordinal();
+    }
+    if ("tdigest_merge".equals(name)) {
+      return (byte)AccumulatorType.TDIGEST_MERGE.ordinal();
+    }
     // Strip _complete if present.
     String functionName  = name.split("_")[0];
     switch (functionName) {
@@ -431,6 +513,10 @@ public class AccumulatorBuilder {
         return (byte)AccumulatorType.COUNT.ordinal();
       case "count1":
         return (byte)AccumulatorType.COUNT1.ordinal();
+      case "hll":
+        return (byte)AccumulatorType.HLL.ordinal();
+      case "tdigest":
+        return (byte)AccumulatorType.TDIGEST.ordinal();
       default:
         throw UserException.unsupportedError().message("Unable to handle accumulator function %s", name).build(logger);
     }
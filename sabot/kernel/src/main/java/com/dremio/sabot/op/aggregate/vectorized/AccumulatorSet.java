@@ -50,6 +50,8 @@ public class AccumulatorSet implements ResizeListener, AutoCloseable {
   private final List<Integer> singleAccumulators;
   private List<Accumulator> varLenAccums;
   private List<Accumulator> fixedLenAccums;
+  private List<BaseNdvAccumulator> ndvAccums;
+  private List<BaseTDigestAccumulator> tdigestAccums;
 
   public AccumulatorSet(final long jointAllocationMin, final long jointAllocationLimit,
                         final BufferAllocator allocator, final Accumulator... children) {
@@ -77,7 +79,19 @@ public class AccumulatorSet implements ResizeListener, AutoCloseable {
   public void updateVarlenAndFixedAccumusLst() {
     varLenAccums = new ArrayList<Accumulator>();
     fixedLenAccums = new ArrayList<Accumulator>();
+    ndvAccums = new ArrayList<BaseNdvAccumulator>();
+    tdigestAccums = new ArrayList<BaseTDigestAccumulator>();
     for (Accumulator a : children) {
+      if (a instanceof BaseNdvAccumulator) {
+        /* sketches are neither held in a varlen nor in a fixed width accumulator vector */
+        ndvAccums.add((BaseNdvAccumulator) a);
+        continue;
+      }
+      if (a instanceof BaseTDigestAccumulator) {
+        /* digests are held on heap */
+        tdigestAccums.add((BaseTDigestAccumulator) a);
+        continue;
+      }
       FieldVector output = a.getOutput();
       final TypeProtos.MinorType type = CompleteType.fromField(output.getField()).toMinorType();
       if (type == TypeProtos.MinorType.VARCHAR || type == TypeProtos.MinorType.VARBINARY) {
@@ -257,6 +271,71 @@ public class AccumulatorSet implements ResizeListener, AutoCloseable {
     return fixedLenAccumulator;
   }
 
+  /**
+   * Move the sketches of NDV and TDIGEST accumulators from one batch to another, freeing the source slots.
+   */
+  public void moveSketchValuesAndFreeSpace(final int srcBatchIndex, final int dstBatchIndex,
+                                           final int srcStartIndex, final int dstStartIndex,
+                                           final int numRecords) {
+    for (BaseNdvAccumulator a : ndvAccums) {
+      a.moveValuesAndFreeSpace(srcBatchIndex, dstBatchIndex, srcStartIndex, dstStartIndex, numRecords);
+    }
+    for (BaseTDigestAccumulator a : tdigestAccums) {
+      a.moveValuesAndFreeSpace(srcBatchIndex, dstBatchIndex, srcStartIndex, dstStartIndex, numRecords);
+    }
+  }
+
+  /**
+   * @return size (in bytes) of the memory holding the sketches of NDV accumulators.
+   */
+  public long getNdvSketchSizeInBytes() {
+    long size = 0;
+    for (BaseNdvAccumulator a : ndvAccums) {
+      size += a.getSizeInBytes();
+    }
+    return size;
+  }
+
+  /**
+   * @return number of sketches serialized into spilled batches by NDV accumulators.
+   */
+  public long getNdvSketchesSpilled() {
+    long count = 0;
+    for (BaseNdvAccumulator a : ndvAccums) {
+      count += a.getSketchesSpilled();
+    }
+    return count;
+  }
+
+  /**
+   * @return true if any of the accumulators is a TDIGEST accumulator.
+   */
+  public boolean hasTDigestAccumulators() {
+    return !tdigestAccums.isEmpty();
+  }
+
+  /**
+   * @return estimated size (in bytes) of the heap memory held by the digests of TDIGEST accumulators.
+   */
+  public long getTDigestSizeInBytes() {
+    long size = 0;
+    for (BaseTDigestAccumulator a : tdigestAccums) {
+      size += a.getDigestsSizeInBytes();
+    }
+    return size;
+  }
+
+  /**
+   * @return number of digests serialized into spilled batches by TDIGEST accumulators.
+   */
+  public long getTDigestsSpilled() {
+    long count = 0;
+    for (BaseTDigestAccumulator a : tdigestAccums) {
+      count += a.getDigestsSpilled();
+    }
+    return count;
+  }
+
   /**
    * Get accumulator vector size (in bytes).
    * {@link VectorizedHashAggOperator} works with a NestedAccumulator
@@ -0,0 +1,481 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.aggregate.vectorized;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.util.MemoryUtil;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.BitVectorHelper;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.datasketches.hll.HllSketch;
+import org.apache.datasketches.hll.TgtHllType;
+import org.apache.datasketches.hll.Union;
+import org.apache.datasketches.memory.WritableMemory;
+
+import com.dremio.common.types.TypeProtos.MinorType;
+import com.dremio.common.types.Types;
+import com.dremio.common.util.MajorTypeHelper;
+import com.dremio.exec.expr.fn.hll.StatisticsAggrFunctions;
+import com.dremio.exec.proto.UserBitShared.NamePart;
+import com.dremio.exec.proto.UserBitShared.SerializedField;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * A base accumulator for HLL/NDV that keeps one updatable sketch per group, so that
+ * it can be used by the spilling {@link VectorizedHashAggOperator}.
+ *
+ * Each batch of the accumulator is backed by the validity and data buffers handed out
+ * by {@link AccumulatorSet}: the data buffer holds a fixed size slot for the sketch of
+ * each group of the batch followed by the offsets used when spilling the batch, and
+ * the validity buffer tracks the slots whose sketch has been initialized. Sketches are
+ * initialized lazily on the first value of their group.
+ *
+ * A spilled batch is written as a VARBINARY vector of compact sketches, which are
+ * merged into the sketches of their group when the spilled partition is read back.
+ */
+abstract class BaseNdvAccumulator implements Accumulator {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(BaseNdvAccumulator.class);
+
+  /* size of the slot holding the updatable sketch (or union) of a single group */
+  static final int SKETCH_SIZE = HllSketch.getMaxUpdatableSerializationBytes(StatisticsAggrFunctions.HLL_ACCURACY, TgtHllType.HLL_8);
+  private static final byte[] EMPTY_SKETCH = new HllSketch(StatisticsAggrFunctions.HLL_ACCURACY, TgtHllType.HLL_8).toCompactByteArray();
+  private static final int OFFSET_WIDTH = BaseVariableWidthVector.OFFSET_WIDTH;
+
+  private FieldVector input;
+  private final FieldVector output;
+  private final FieldVector transferVector;
+  private final AccumulatorBuilder.AccumulatorType type;
+  final int maxValuesPerBatch;
+
+  private final int validityBufferSize;
+  private final int sketchesSize;
+  private final int dataBufferSize;
+
+  private ArrowBuf[] validityBuffers;
+  private ArrowBuf[] dataBuffers;
+  private ByteBuffer[] sketchBuffers;
+  private int batches;
+  private boolean resizeAttempted;
+  private long sketchesSpilled;
+
+  BaseNdvAccumulator(final FieldVector input, final FieldVector output,
+                     final FieldVector transferVector, final AccumulatorBuilder.AccumulatorType type,
+                     final int maxValuesPerBatch) {
+    this.input = input;
+    this.output = output;
+    this.transferVector = transferVector;
+    this.type = type;
+    this.maxValuesPerBatch = maxValuesPerBatch;
+    this.validityBufferSize = BitVectorHelper.getValidityBufferSize(maxValuesPerBatch);
+    this.sketchesSize = maxValuesPerBatch * SKETCH_SIZE;
+    this.dataBufferSize = sketchesSize + (maxValuesPerBatch + 1) * OFFSET_WIDTH;
+    initArrs(0);
+    this.batches = 0;
+  }
+
+  /**
+   * Used to recreate the accumulator for post-spill processing, the batches of the
+   * pre-spill accumulator are taken over. They only hold empty slots at this point.
+   *
+   * @param other pre-spill accumulator
+   * @param input vector of compact sketches read from the spilled batch
+   * @param type accumulator type
+   */
+  BaseNdvAccumulator(final BaseNdvAccumulator other, final FieldVector input,
+                     final AccumulatorBuilder.AccumulatorType type) {
+    this(input, other.output, other.transferVector, type, other.maxValuesPerBatch);
+    Preconditions.checkArgument(other.batches == 1, "Error: incorrect number of batches in accumulator");
+    this.validityBuffers = other.validityBuffers;
+    this.dataBuffers = other.dataBuffers;
+    this.sketchBuffers = other.sketchBuffers;
+    this.batches = other.batches;
+    this.sketchesSpilled = other.sketchesSpilled;
+    resetFirstBatch();
+  }
+
+  AccumulatorBuilder.AccumulatorType getType() {
+    return type;
+  }
+
+  private void initArrs(int size) {
+    this.validityBuffers = new ArrowBuf[size];
+    this.dataBuffers = new ArrowBuf[size];
+    this.sketchBuffers = new ByteBuffer[size];
+  }
+
+  @Override
+  public void verifyBatchCount(final int batches) {
+    Preconditions.checkArgument(this.batches == batches, "Error: Detected incorrect batch count in accumulator");
+  }
+
+  @Override
+  public FieldVector getInput() {
+    return input;
+  }
+
+  @Override
+  public void setInput(final FieldVector inputVector) {
+    this.input = inputVector;
+  }
+
+  @Override
+  public FieldVector getOutput() {
+    return transferVector;
+  }
+
+  public int getBatchCount() {
+    return batches;
+  }
+
+  @Override
+  public int getValidityBufferSize() {
+    return validityBufferSize;
+  }
+
+  @Override
+  public int getDataBufferSize() {
+    return dataBufferSize;
+  }
+
+  @Override
+  public void addBatch(final ArrowBuf dataBuffer, final ArrowBuf validityBuffer) {
+    if (batches == validityBuffers.length) {
+      final ArrowBuf[] oldValidityBuffers = this.validityBuffers;
+      final ArrowBuf[] oldDataBuffers = this.dataBuffers;
+      final ByteBuffer[] oldSketchBuffers = this.sketchBuffers;
+      /* provision more to avoid copy in the next call to addBatch */
+      initArrs((batches == 0) ? 1 : batches * 2);
+      System.arraycopy(oldValidityBuffers, 0, this.validityBuffers, 0, batches);
+      System.arraycopy(oldDataBuffers, 0, this.dataBuffers, 0, batches);
+      System.arraycopy(oldSketchBuffers, 0, this.sketchBuffers, 0, batches);
+    }
+
+    /* the buffers are sliced by AccumulatorSet from a joint allocation that it releases */
+    validityBuffer.getReferenceManager().retain(1);
+    dataBuffer.getReferenceManager().retain(1);
+    validityBuffers[batches] = validityBuffer;
+    dataBuffers[batches] = dataBuffer;
+    sketchBuffers[batches] = MemoryUtil.directBuffer(dataBuffer.memoryAddress(), sketchesSize);
+    batches++;
+    resizeAttempted = true;
+
+    /* all slots start empty, the sketches are initialized on the first value of their group */
+    validityBuffer.setZero(0, validityBufferSize);
+  }
+
+  @Override
+  public void revertResize() {
+    if (!resizeAttempted) {
+      return;
+    }
+
+    releaseBuffers(batches - 1);
+    batches--;
+    resizeAttempted = false;
+  }
+
+  @Override
+  public void commitResize() {
+    this.resizeAttempted = false;
+  }
+
+  /**
+   * @return size (in bytes) of the memory holding the sketches
+   */
+  @Override
+  public long getSizeInBytes() {
+    long size = 0;
+    for (int i = 0; i < batches; i++) {
+      if (dataBuffers[i] != null) {
+        size += validityBufferSize + dataBufferSize;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * @return number of sketches serialized into spilled batches
+   */
+  public long getSketchesSpilled() {
+    return sketchesSpilled;
+  }
+
+  @Override
+  public void resetToMinimumSize() throws Exception {
+    Preconditions.checkArgument(batches > 0);
+    for (int i = 1; i < batches; i++) {
+      releaseBuffers(i);
+    }
+    validityBuffers = Arrays.copyOfRange(validityBuffers, 0, 1);
+    dataBuffers = Arrays.copyOfRange(dataBuffers, 0, 1);
+    sketchBuffers = Arrays.copyOfRange(sketchBuffers, 0, 1);
+    batches = 1;
+    resetFirstBatch();
+  }
+
+  private void resetFirstBatch() {
+    Preconditions.checkArgument(validityBuffers[0] != null, "Error: expecting a valid accumulator");
+    validityBuffers[0].setZero(0, validityBufferSize);
+  }
+
+  @Override
+  public void releaseBatch(final int batchIdx) {
+    Preconditions.checkArgument(batchIdx < batches, "Error: incorrect batch index to release");
+    if (batchIdx == 0) {
+      // 0th batch memory is never released, only reset.
+      resetFirstBatch();
+    } else {
+      releaseBuffers(batchIdx);
+    }
+  }
+
+  private void releaseBuffers(final int batchIdx) {
+    if (validityBuffers[batchIdx] != null) {
+      validityBuffers[batchIdx].close();
+      dataBuffers[batchIdx].close();
+    }
+    validityBuffers[batchIdx] = null;
+    dataBuffers[batchIdx] = null;
+    sketchBuffers[batchIdx] = null;
+  }
+
+  /**
+   * Get the memory backing the sketch of a group.
+   *
+   * @param batchIndex hash table batch of the group
+   * @param offset index of the group in the batch
+   * @return memory of the slot
+   */
+  final WritableMemory getSketchMemory(final int batchIndex, final int offset) {
+    final ByteBuffer buffer = sketchBuffers[batchIndex];
+    final int position = offset * SKETCH_SIZE;
+    buffer.limit(position + SKETCH_SIZE);
+    buffer.position(position);
+    final ByteBuffer slot = buffer.slice();
+    slot.order(ByteOrder.nativeOrder());
+    return WritableMemory.wrap(slot);
+  }
+
+  /**
+   * Marks the sketch of a group as initialized.
+   *
+   * @return true if the sketch was already initialized
+   */
+  final boolean markInitialized(final int batchIndex, final int offset) {
+    final long bitAddr = validityBuffers[batchIndex].memoryAddress() + (offset >>> 3);
+    final byte bits = PlatformDependent.getByte(bitAddr);
+    final byte mask = (byte) (1 << (offset & 7));
+    if ((bits & mask) != 0) {
+      return true;
+    }
+    PlatformDependent.putByte(bitAddr, (byte) (bits | mask));
+    return false;
+  }
+
+  final boolean isInitialized(final int batchIndex, final int offset) {
+    return BitVectorHelper.get(validityBuffers[batchIndex], offset) == 1;
+  }
+
+  /**
+   * Get the sketch of a group, initializing it on first use.
+   */
+  final HllSketch getSketch(final int batchIndex, final int offset) {
+    final WritableMemory memory = getSketchMemory(batchIndex, offset);
+    if (markInitialized(batchIndex, offset)) {
+      return HllSketch.writableWrap(memory);
+    }
+    return new HllSketch(StatisticsAggrFunctions.HLL_ACCURACY, TgtHllType.HLL_8, memory);
+  }
+
+  /**
+   * Get the union of a group, initializing it on first use.
+   */
+  final Union getUnion(final int batchIndex, final int offset) {
+    final WritableMemory memory = getSketchMemory(batchIndex, offset);
+    if (markInitialized(batchIndex, offset)) {
+      return Union.writableWrap(memory);
+    }
+    return new Union(StatisticsAggrFunctions.HLL_ACCURACY, memory);
+  }
+
+  private byte[] getCompactSketch(final int batchIndex, final int offset) {
+    if (!isInitialized(batchIndex, offset)) {
+      /* no value was accumulated for the group */
+      return EMPTY_SKETCH;
+    }
+    final WritableMemory memory = getSketchMemory(batchIndex, offset);
+    if (type == AccumulatorBuilder.AccumulatorType.HLL_MERGE) {
+      return Union.writableWrap(memory).toCompactByteArray();
+    }
+    return HllSketch.writableWrap(memory).toCompactByteArray();
+  }
+
+  /**
+   * Output the sketches of a batch as compact sketches into the vector
+   * in outgoing container. The batch is released once its sketches have
+   * been serialized.
+   *
+   * @param batchIndex batch to output
+   * @param numRecords number of groups in the batch
+   */
+  @Override
+  public void output(final int batchIndex, final int numRecords) {
+    final byte[][] sketches = new byte[numRecords][];
+    long totalSize = 0;
+    for (int i = 0; i < numRecords; i++) {
+      sketches[i] = getCompactSketch(batchIndex, i);
+      totalSize += sketches[i].length;
+    }
+
+    final VarBinaryVector outVector = (VarBinaryVector) transferVector;
+    outVector.clear();
+    outVector.allocateNew(totalSize, numRecords);
+    for (int i = 0; i < numRecords; i++) {
+      outVector.set(i, sketches[i]);
+    }
+    outVector.setValueCount(numRecords);
+
+    releaseBatch(batchIndex);
+  }
+
+  /**
+   * Serialize the sketches of a batch for spilling. The compact sketches are written in place,
+   * from the start of the data buffer: a compact sketch is never larger than its slot, so writing
+   * the sketch of a group never overwrites the slots of the groups that haven't been serialized
+   * yet. The batch can therefore no longer be accumulated into, it is released by the caller
+   * once spilled.
+   *
+   * @param batchIndex batch to spill
+   * @param numRecordsInChunk number of groups in the batch
+   * @return validity, offset and data buffers of a VARBINARY vector holding the compact sketches
+   */
+  public List<ArrowBuf> getBuffers(final int batchIndex, final int numRecordsInChunk) {
+    final ArrowBuf validityBuffer = validityBuffers[batchIndex];
+    final ArrowBuf dataBuffer = dataBuffers[batchIndex];
+    final int offsetsStart = sketchesSize;
+
+    int dataLength = 0;
+    dataBuffer.setInt(offsetsStart, 0);
+    for (int i = 0; i < numRecordsInChunk; i++) {
+      final byte[] sketch = getCompactSketch(batchIndex, i);
+      dataBuffer.setBytes(dataLength, sketch);
+      dataLength += sketch.length;
+      dataBuffer.setInt(offsetsStart + (i + 1) * OFFSET_WIDTH, dataLength);
+    }
+    sketchesSpilled += numRecordsInChunk;
+
+    /* every group gets a sketch, empty ones included */
+    for (int i = 0; i < numRecordsInChunk; i++) {
+      BitVectorHelper.setBit(validityBuffer, i);
+    }
+
+    final int validityLength = BitVectorHelper.getValidityBufferSize(numRecordsInChunk);
+    final int offsetsLength = (numRecordsInChunk + 1) * OFFSET_WIDTH;
+    return ImmutableList.of(
+      slice(validityBuffer, 0, validityLength),
+      slice(dataBuffer, offsetsStart, offsetsLength),
+      slice(dataBuffer, 0, dataLength));
+  }
+
+  private static ArrowBuf slice(final ArrowBuf buffer, final int index, final int length) {
+    final ArrowBuf slice = buffer.slice(index, length);
+    slice.readerIndex(0);
+    slice.writerIndex(length);
+    return slice;
+  }
+
+  /**
+   * Metadata of the VARBINARY vector written by {@link #getBuffers(int, int)}.
+   */
+  public SerializedField getSerializedField(final int batchIndex, final int numRecordsInChunk) {
+    final int validityLength = BitVectorHelper.getValidityBufferSize(numRecordsInChunk);
+    final int offsetsLength = (numRecordsInChunk + 1) * OFFSET_WIDTH;
+    final int dataLength = dataBuffers[batchIndex].getInt(sketchesSize + numRecordsInChunk * OFFSET_WIDTH);
+
+    final SerializedField validityField = SerializedField.newBuilder()
+      .setNamePart(NamePart.newBuilder().setName("$bits$").build())
+      .setValueCount(numRecordsInChunk)
+      .setBufferLength(validityLength)
+      .setMajorType(Types.required(MinorType.BIT))
+      .build();
+    final SerializedField offsetField = SerializedField.newBuilder()
+      .setNamePart(NamePart.newBuilder().setName("$offsets$").build())
+      .setValueCount(numRecordsInChunk + 1)
+      .setBufferLength(offsetsLength)
+      .setMajorType(Types.required(MinorType.UINT4))
+      .build();
+    final SerializedField valuesField = SerializedField.newBuilder()
+      .setNamePart(NamePart.newBuilder().setName("$values$").build())
+      .setValueCount(numRecordsInChunk)
+      .setBufferLength(offsetsLength + dataLength)
+      .addChild(offsetField)
+      .setMajorType(Types.required(MinorType.VARBINARY))
+      .build();
+
+    return SerializedField.newBuilder()
+      .setNamePart(NamePart.newBuilder().setName(output.getField().getName()).build())
+      .setValueCount(numRecordsInChunk)
+      .setBufferLength(validityLength + offsetsLength + dataLength)
+      .addChild(validityField)
+      .addChild(valuesField)
+      .setMajorType(MajorTypeHelper.getMajorTypeForField(output.getField()))
+      .build();
+  }
+
+  /**
+   * Move the sketches of a range of groups to another batch and free their slots.
+   * Used by {@link com.dremio.sabot.op.common.ht2.LBlockHashTable} when splicing a batch.
+   */
+  public void moveValuesAndFreeSpace(final int srcBatchIndex, final int dstBatchIndex,
+                                     final int srcStartIndex, final int dstStartIndex,
+                                     final int numRecords) {
+    final ArrowBuf srcValidity = validityBuffers[srcBatchIndex];
+    final ArrowBuf dstValidity = validityBuffers[dstBatchIndex];
+    final long srcAddr = dataBuffers[srcBatchIndex].memoryAddress();
+    final long dstAddr = dataBuffers[dstBatchIndex].memoryAddress();
+    for (int i = 0; i < numRecords; i++) {
+      final int srcIndex = srcStartIndex + i;
+      final int dstIndex = dstStartIndex + i;
+      if (BitVectorHelper.get(srcValidity, srcIndex) == 1) {
+        /* the sketch only holds offsets relative to its slot, so it can be copied as is */
+        PlatformDependent.copyMemory(srcAddr + (long) srcIndex * SKETCH_SIZE,
+          dstAddr + (long) dstIndex * SKETCH_SIZE, SKETCH_SIZE);
+        BitVectorHelper.setBit(dstValidity, dstIndex);
+        BitVectorHelper.unsetBit(srcValidity, srcIndex);
+      } else {
+        BitVectorHelper.unsetBit(dstValidity, dstIndex);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws Exception {
+    for (int i = 0; i < batches; i++) {
+      releaseBuffers(i);
+    }
+    batches = 0;
+    logger.debug("Closed NDV accumulator, {} sketches spilled", sketchesSpilled);
+  }
+}
@@ -0,0 +1,416 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.aggregate.vectorized;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BitVectorHelper;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VarBinaryVector;
+
+import com.dremio.exec.expr.TypeHelper;
+import com.dremio.exec.proto.UserBitShared.SerializedField;
+import com.google.common.base.Preconditions;
+import com.tdunning.math.stats.MergingDigest;
+import com.tdunning.math.stats.TDigest;
+
+/**
+ * A base accumulator for TDIGEST that keeps one t-digest per group, so that
+ * it can be used by the spilling {@link VectorizedHashAggOperator}.
+ *
+ * The digests are kept on heap, as they are by the generated hash aggregation. Each
+ * batch of the accumulator is backed by the validity buffer handed out by
+ * {@link AccumulatorSet}, which tracks the groups whose digest has been created.
+ * Digests are created lazily on the first value of their group. As the digests are
+ * not allocated by the operator allocator, the accumulator keeps an estimate of
+ * their footprint, see {@link #getDigestsSizeInBytes()}, which the operator counts
+ * against its heap budget for digests when deciding to spill.
+ *
+ * A spilled batch is written as a VARBINARY vector of serialized digests, which are
+ * merged into the digests of their group when the spilled partition is read back.
+ */
+abstract class BaseTDigestAccumulator implements Accumulator {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(BaseTDigestAccumulator.class);
+
+  private FieldVector input;
+  private final FieldVector output;
+  private final FieldVector transferVector;
+  private final AccumulatorBuilder.AccumulatorType type;
+  final int maxValuesPerBatch;
+  private final int compression;
+  private final BufferAllocator computationVectorAllocator;
+  private final int validityBufferSize;
+  private final long digestSize;
+
+  private ArrowBuf[] validityBuffers;
+  private TDigest[][] digests;
+  private int batches;
+  private boolean resizeAttempted;
+  /* holds the serialized digests of the batch being spilled */
+  private VarBinaryVector spillVector;
+  private long digestsSpilled;
+  /* number of digests created and not yet released */
+  private long liveDigests;
+
+  BaseTDigestAccumulator(final FieldVector input, final FieldVector output,
+                         final FieldVector transferVector, final AccumulatorBuilder.AccumulatorType type,
+                         final int maxValuesPerBatch, final int compression,
+                         final BufferAllocator computationVectorAllocator) {
+    this.input = input;
+    this.output = output;
+    this.transferVector = transferVector;
+    this.type = type;
+    this.maxValuesPerBatch = maxValuesPerBatch;
+    this.compression = compression;
+    this.computationVectorAllocator = computationVectorAllocator;
+    this.validityBufferSize = BitVectorHelper.getValidityBufferSize(maxValuesPerBatch);
+    this.digestSize = estimateDigestSize(compression);
+    initArrs(0);
+    this.batches = 0;
+  }
+
+  /**
+   * Used to recreate the accumulator for post-spill processing, the batches of the
+   * pre-spill accumulator are taken over. They only hold empty groups at this point.
+   *
+   * @param other pre-spill accumulator
+   * @param input vector of serialized digests read from the spilled batch
+   * @param type accumulator type
+   */
+  BaseTDigestAccumulator(final BaseTDigestAccumulator other, final FieldVector input,
+                         final AccumulatorBuilder.AccumulatorType type) {
+    this(input, other.output, other.transferVector, type, other.maxValuesPerBatch, other.compression,
+      other.computationVectorAllocator);
+    Preconditions.checkArgument(other.batches == 1, "Error: incorrect number of batches in accumulator");
+    this.validityBuffers = other.validityBuffers;
+    this.digests = other.digests;
+    this.batches = other.batches;
+    this.spillVector = other.spillVector;
+    this.digestsSpilled = other.digestsSpilled;
+    this.liveDigests = other.liveDigests;
+    resetFirstBatch();
+  }
+
+  /**
+   * Estimate the heap footprint of a digest. A {@link MergingDigest} allocates its arrays
+   * when it is created: the mean and weight of about 2 * compression centroids, plus the
+   * mean, weight and order of a buffer of 5 times as many incoming values.
+   *
+   * @param compression compression of the digest
+   * @return estimated size (in bytes) of a digest
+   */
+  static long estimateDigestSize(final int compression) {
+    final long centroids = 2L * compression;
+    final long buffered = 5 * centroids;
+    return centroids * 2 * Double.BYTES + buffered * (2 * Double.BYTES + Integer.BYTES);
+  }
+
+  AccumulatorBuilder.AccumulatorType getType() {
+    return type;
+  }
+
+  private void initArrs(int size) {
+    this.validityBuffers = new ArrowBuf[size];
+    this.digests = new TDigest[size][];
+  }
+
+  @Override
+  public void verifyBatchCount(final int batches) {
+    Preconditions.checkArgument(this.batches == batches, "Error: Detected incorrect batch count in accumulator");
+  }
+
+  @Override
+  public FieldVector getInput() {
+    return input;
+  }
+
+  @Override
+  public void setInput(final FieldVector inputVector) {
+    this.input = inputVector;
+  }
+
+  @Override
+  public FieldVector getOutput() {
+    return transferVector;
+  }
+
+  public int getBatchCount() {
+    return batches;
+  }
+
+  @Override
+  public int getValidityBufferSize() {
+    return validityBufferSize;
+  }
+
+  @Override
+  public int getDataBufferSize() {
+    /* the digests are on heap */
+    return 0;
+  }
+
+  @Override
+  public void addBatch(final ArrowBuf dataBuffer, final ArrowBuf validityBuffer) {
+    if (batches == validityBuffers.length) {
+      final ArrowBuf[] oldValidityBuffers = this.validityBuffers;
+      final TDigest[][] oldDigests = this.digests;
+      /* provision more to avoid copy in the next call to addBatch */
+      initArrs((batches == 0) ? 1 : batches * 2);
+      System.arraycopy(oldValidityBuffers, 0, this.validityBuffers, 0, batches);
+      System.arraycopy(oldDigests, 0, this.digests, 0, batches);
+    }
+
+    /* the buffer is sliced by AccumulatorSet from a joint allocation that it releases */
+    validityBuffer.getReferenceManager().retain(1);
+    validityBuffers[batches] = validityBuffer;
+    digests[batches] = new TDigest[maxValuesPerBatch];
+    batches++;
+    resizeAttempted = true;
+
+    validityBuffer.setZero(0, validityBufferSize);
+  }
+
+  @Override
+  public void revertResize() {
+    if (!resizeAttempted) {
+      return;
+    }
+
+    releaseBuffers(batches - 1);
+    batches--;
+    resizeAttempted = false;
+  }
+
+  @Override
+  public void commitResize() {
+    this.resizeAttempted = false;
+  }
+
+  /**
+   * @return size (in bytes) of the direct memory of the accumulator, the digests are on heap
+   */
+  @Override
+  public long getSizeInBytes() {
+    long size = 0;
+    for (int i = 0; i < batches; i++) {
+      if (validityBuffers[i] != null) {
+        size += validityBufferSize;
+      }
+    }
+    if (spillVector != null) {
+      size += spillVector.getBufferSize();
+    }
+    return size;
+  }
+
+  /**
+   * @return estimated size (in bytes) of the heap memory held by the digests of the accumulator
+   */
+  public long getDigestsSizeInBytes() {
+    return liveDigests * digestSize;
+  }
+
+  /**
+   * @return number of digests serialized into spilled batches
+   */
+  public long getDigestsSpilled() {
+    return digestsSpilled;
+  }
+
+  @Override
+  public void resetToMinimumSize() throws Exception {
+    Preconditions.checkArgument(batches > 0);
+    for (int i = 1; i < batches; i++) {
+      releaseBuffers(i);
+    }
+    validityBuffers = Arrays.copyOfRange(validityBuffers, 0, 1);
+    digests = Arrays.copyOfRange(digests, 0, 1);
+    batches = 1;
+    resetFirstBatch();
+    if (spillVector != null) {
+      spillVector.clear();
+    }
+  }
+
+  private void resetFirstBatch() {
+    Preconditions.checkArgument(validityBuffers[0] != null, "Error: expecting a valid accumulator");
+    validityBuffers[0].setZero(0, validityBufferSize);
+    liveDigests -= countDigests(digests[0]);
+    Arrays.fill(digests[0], null);
+  }
+
+  private static int countDigests(final TDigest[] batch) {
+    int count = 0;
+    for (TDigest digest : batch) {
+      if (digest != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Override
+  public void releaseBatch(final int batchIdx) {
+    Preconditions.checkArgument(batchIdx < batches, "Error: incorrect batch index to release");
+    if (batchIdx == 0) {
+      // 0th batch memory is never released, only reset.
+      resetFirstBatch();
+    } else {
+      releaseBuffers(batchIdx);
+    }
+  }
+
+  private void releaseBuffers(final int batchIdx) {
+    if (validityBuffers[batchIdx] != null) {
+      validityBuffers[batchIdx].close();
+    }
+    validityBuffers[batchIdx] = null;
+    if (digests[batchIdx] != null) {
+      liveDigests -= countDigests(digests[batchIdx]);
+    }
+    digests[batchIdx] = null;
+  }
+
+  /**
+   * Get the digest of a group, creating it on first use.
+   *
+   * @param batchIndex hash table batch of the group
+   * @param offset index of the group in the batch
+   * @return digest of the group
+   */
+  final TDigest getDigest(final int batchIndex, final int offset) {
+    final ArrowBuf validityBuffer = validityBuffers[batchIndex];
+    if (BitVectorHelper.get(validityBuffer, offset) == 1) {
+      return digests[batchIndex][offset];
+    }
+    final TDigest digest = new MergingDigest(compression);
+    digests[batchIndex][offset] = digest;
+    BitVectorHelper.setBit(validityBuffer, offset);
+    liveDigests++;
+    return digest;
+  }
+
+  private ByteBuffer getSerializedDigest(final int batchIndex, final int offset) {
+    /* a group with no value gets an empty digest, as it does with the generated aggregation */
+    final TDigest digest = BitVectorHelper.get(validityBuffers[batchIndex], offset) == 1
+      ? digests[batchIndex][offset] : new MergingDigest(compression);
+    final ByteBuffer buffer = ByteBuffer.allocate(digest.smallByteSize());
+    digest.asSmallBytes(buffer);
+    buffer.flip();
+    return buffer;
+  }
+
+  private static void serializeBatch(final BaseTDigestAccumulator accumulator, final int batchIndex,
+                                     final int numRecords, final VarBinaryVector vector) {
+    final ByteBuffer[] serialized = new ByteBuffer[numRecords];
+    long totalSize = 0;
+    for (int i = 0; i < numRecords; i++) {
+      serialized[i] = accumulator.getSerializedDigest(batchIndex, i);
+      totalSize += serialized[i].remaining();
+    }
+
+    vector.clear();
+    vector.allocateNew(totalSize, numRecords);
+    for (int i = 0; i < numRecords; i++) {
+      final ByteBuffer buffer = serialized[i];
+      vector.set(i, buffer, buffer.position(), buffer.remaining());
+    }
+    vector.setValueCount(numRecords);
+  }
+
+  /**
+   * Output the digests of a batch, serialized into the vector in outgoing
+   * container. The batch is released once its digests have been serialized.
+   *
+   * @param batchIndex batch to output
+   * @param numRecords number of groups in the batch
+   */
+  @Override
+  public void output(final int batchIndex, final int numRecords) {
+    serializeBatch(this, batchIndex, numRecords, (VarBinaryVector) transferVector);
+    releaseBatch(batchIndex);
+  }
+
+  /**
+   * Serialize the digests of a batch for spilling. The serialized digests are held until
+   * the next batch is spilled or the accumulator is reset.
+   *
+   * @param batchIndex batch to spill
+   * @param numRecordsInChunk number of groups in the batch
+   * @return validity, offset and data buffers of a VARBINARY vector holding the serialized digests
+   */
+  public List<ArrowBuf> getBuffers(final int batchIndex, final int numRecordsInChunk) {
+    if (spillVector == null) {
+      spillVector = new VarBinaryVector(output.getField().getName(), computationVectorAllocator);
+    }
+    serializeBatch(this, batchIndex, numRecordsInChunk, spillVector);
+    digestsSpilled += numRecordsInChunk;
+    return spillVector.getFieldBuffers();
+  }
+
+  /**
+   * Metadata of the VARBINARY vector written by {@link #getBuffers(int, int)}.
+   */
+  public SerializedField getSerializedField(final int batchIndex, final int numRecordsInChunk) {
+    Preconditions.checkArgument(spillVector != null && spillVector.getValueCount() == numRecordsInChunk,
+      "Error: batch %s has not been serialized", batchIndex);
+    return TypeHelper.getMetadata(spillVector);
+  }
+
+  /**
+   * Move the digests of a range of groups to another batch and free their space.
+   * Used by {@link com.dremio.sabot.op.common.ht2.LBlockHashTable} when splicing a batch.
+   */
+  public void moveValuesAndFreeSpace(final int srcBatchIndex, final int dstBatchIndex,
+                                     final int srcStartIndex, final int dstStartIndex,
+                                     final int numRecords) {
+    final ArrowBuf srcValidity = validityBuffers[srcBatchIndex];
+    final ArrowBuf dstValidity = validityBuffers[dstBatchIndex];
+    for (int i = 0; i < numRecords; i++) {
+      final int srcIndex = srcStartIndex + i;
+      final int dstIndex = dstStartIndex + i;
+      if (digests[dstBatchIndex][dstIndex] != null) {
+        liveDigests--;
+      }
+      if (BitVectorHelper.get(srcValidity, srcIndex) == 1) {
+        digests[dstBatchIndex][dstIndex] = digests[srcBatchIndex][srcIndex];
+        BitVectorHelper.setBit(dstValidity, dstIndex);
+        BitVectorHelper.unsetBit(srcValidity, srcIndex);
+      } else {
+        digests[dstBatchIndex][dstIndex] = null;
+        BitVectorHelper.unsetBit(dstValidity, dstIndex);
+      }
+      digests[srcBatchIndex][srcIndex] = null;
+    }
+  }
+
+  @Override
+  public void close() throws Exception {
+    for (int i = 0; i < batches; i++) {
+      releaseBuffers(i);
+    }
+    batches = 0;
+    if (spillVector != null) {
+      spillVector.close();
+      spillVector = null;
+    }
+    logger.debug("Closed TDIGEST accumulator, {} digests spilled", digestsSpilled);
+  }
+}
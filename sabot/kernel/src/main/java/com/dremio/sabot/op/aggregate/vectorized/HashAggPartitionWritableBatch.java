@@ -115,19 +115,25 @@ public class HashAggPartitionWritableBatch {
   /**
    * Verify the following:
    *
-   * 1. Each accumulator in the top level NestedAccumulator is of type BaseSingleAccumulator
-   *     or BaseVarBinaryAccumulator.
+   * 1. Each accumulator in the top level NestedAccumulator is of type BaseSingleAccumulator,
+   *     BaseVarBinaryAccumulator, BaseNdvAccumulator or BaseTDigestAccumulator.
    * 2. The number of batches in each BaseSingleAccumulator/BaseVarBinaryAccumulator is equal
    *    to the number of batches in the hash table.
    */
   private void checkAccumulators(int batchCount) {
     for (int i = 0; i < accumulators.length; i++) {
       Preconditions.checkArgument((accumulators[i] instanceof BaseSingleAccumulator) ||
-                                  (accumulators[i] instanceof BaseVarBinaryAccumulator), "ERROR: invalid accumulator type");
+                                  (accumulators[i] instanceof BaseVarBinaryAccumulator) ||
+                                  (accumulators[i] instanceof BaseNdvAccumulator) ||
+                                  (accumulators[i] instanceof BaseTDigestAccumulator), "ERROR: invalid accumulator type");
 
       int batchCnt = -1;
       if (accumulators[i] instanceof BaseSingleAccumulator) {
         batchCnt = ((BaseSingleAccumulator)accumulators[i]).getBatchCount();
+      } else if (accumulators[i] instanceof BaseNdvAccumulator) {
+        batchCnt = ((BaseNdvAccumulator)accumulators[i]).getBatchCount();
+      } else if (accumulators[i] instanceof BaseTDigestAccumulator) {
+        batchCnt = ((BaseTDigestAccumulator)accumulators[i]).getBatchCount();
       } else {
         batchCnt = ((BaseVarBinaryAccumulator)accumulators[i]).getBatchCount();
       }
@@ -175,7 +181,8 @@ public class HashAggPartitionWritableBatch {
    * We can have 1 or more accumulators and they are all encapsulated under NestedAccumulator.
    * Each accumulator with a fixed width vector (INT, BIGINT, FLOAT, FLOAT4, DECIMAL etc) will
    * have 2 buffers -- validity buffer and data buffer. min/max on a varlen accumulator, there
-   * are 3 buffers -- validity buffer, offset buffer and data buffer.
+   * are 3 buffers -- validity buffer, offset buffer and data buffer. NDV accumulators
+   * are spilled as compact sketches in a VARBINARY vector, so they also have 3 buffers.
    * Secondly, each type of accumulator will internally have as many accumulators as there
    * are batches of data inserted into the hash table.
    *
@@ -228,7 +235,21 @@ public class HashAggPartitionWritableBatch {
       final Types.MinorType type = accumulator.getOutput().getMinorType();
       List<ArrowBuf> accumulatorBuffers = null;
 
-      if (type == Types.MinorType.VARCHAR || type == Types.MinorType.VARBINARY) {
+      if (accumulator instanceof BaseNdvAccumulator) {
+        /* sketches are spilled as a VARBINARY vector of compact sketches */
+        final BaseNdvAccumulator accum = (BaseNdvAccumulator)accumulator;
+        accumulatorBuffers = accum.getBuffers(currentBatchIndex, numRecordsInChunk);
+        Preconditions.checkArgument(accumulatorBuffers.size() == 3, "ERROR: incorrect number of buffers in accumulator vector");
+        metadata.add(accum.getSerializedField(currentBatchIndex, numRecordsInChunk));
+        accumulatorTypes[i] = (byte)accum.getType().ordinal();
+      } else if (accumulator instanceof BaseTDigestAccumulator) {
+        /* digests are spilled as a VARBINARY vector of serialized digests */
+        final BaseTDigestAccumulator accum = (BaseTDigestAccumulator)accumulator;
+        accumulatorBuffers = accum.getBuffers(currentBatchIndex, numRecordsInChunk);
+        Preconditions.checkArgument(accumulatorBuffers.size() == 3, "ERROR: incorrect number of buffers in accumulator vector");
+        metadata.add(accum.getSerializedField(currentBatchIndex, numRecordsInChunk));
+        accumulatorTypes[i] = (byte)accum.getType().ordinal();
+      } else if (type == Types.MinorType.VARCHAR || type == Types.MinorType.VARBINARY) {
         final BaseVarBinaryAccumulator accum = (BaseVarBinaryAccumulator)accumulator;
         accumulatorBuffers = accum.getBuffers(currentBatchIndex, numRecordsInChunk);
         Preconditions.checkArgument(accumulatorBuffers.size() == 3, "ERROR: incorrect number of buffers in accumulator vector");
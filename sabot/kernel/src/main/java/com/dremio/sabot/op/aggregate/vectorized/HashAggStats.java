@@ -82,7 +82,18 @@ public class HashAggStats {
     OOB_DROP_UNDER_THRESHOLD, // Number of times OOB dropped spilling notification as it was under the threshold.
     OOB_DROP_NO_VICTIM, // Number of times OOB dropped spilling notification as all allocations were minimal.
     OOB_SPILL, // Spill was done due to oob.
-    OOB_DROP_ALREADY_SPILLING // Number of times operator dropped spilling notification as it was already spilling
+    OOB_DROP_ALREADY_SPILLING, // Number of times operator dropped spilling notification as it was already spilling
+
+    // Adaptive pre-aggregation bypass related metrics
+    PREAGG_SAMPLED_RECORDS, // Number of records consumed before deciding whether to bypass the pre-aggregation
+    PREAGG_SAMPLED_GROUPS, // Number of groups found in the sampled records
+    PREAGG_REDUCTION_PERCENT, // Percentage of the sampled records folded into existing groups
+    PREAGG_BYPASSED, // 1 if the pre-aggregation switched to streaming records through, 0 otherwise
+    PREAGG_BYPASSED_RECORDS, // Number of records streamed through without being aggregated
+    NDV_SKETCH_MEMORY, // Max memory (in bytes) held by the sketches of NDV accumulators across all partitions
+    NDV_SKETCHES_SPILLED, // Number of NDV sketches serialized into spilled batches
+    TDIGESTS_SPILLED, // Number of t-digests serialized into spilled batches by TDIGEST accumulators
+    TDIGEST_MEMORY // Max heap memory (in bytes) estimated for the digests of TDIGEST accumulators across all partitions
 
     ;
 
@@ -0,0 +1,385 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.aggregate.vectorized;
+
+import static com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggOperator.HTORDINAL_OFFSET;
+import static com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggOperator.KEYINDEX_OFFSET;
+import static com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggOperator.PARTITIONINDEX_HTORDINAL_WIDTH;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.datasketches.hll.HllSketch;
+
+import com.dremio.exec.util.DecimalUtils;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * HLL/NDV accumulators for the spilling {@link VectorizedHashAggOperator}. The pre-spill
+ * accumulators update the sketch of each group with the incoming values. Spilled sketches
+ * are merged back with {@link NdvUnionAccumulator}, which is also used for hll_merge.
+ */
+public class NdvAccumulators {
+
+  /**
+   * Size (in bytes) of the memory needed to hold the sketch of a single group.
+   */
+  public static final int SKETCH_SIZE = BaseNdvAccumulator.SKETCH_SIZE;
+
+  private NdvAccumulators(){};
+
+  public static class IntNdvAccumulator extends BaseNdvAccumulator {
+    private static final int WIDTH_INPUT = 4;       // int inputs
+
+    public IntNdvAccumulator(FieldVector input, FieldVector output,
+                             FieldVector transferVector, int maxValuesPerBatch) {
+      super(input, output, transferVector, AccumulatorBuilder.AccumulatorType.HLL, maxValuesPerBatch);
+    }
+
+    @Override
+    public void accumulate(final long memoryAddr, final int count,
+                           final int bitsInChunk, final int chunkOffsetMask) {
+      final long maxAddr = memoryAddr + count * PARTITIONINDEX_HTORDINAL_WIDTH;
+      final FieldVector inputVector = getInput();
+      final long incomingBit = inputVector.getValidityBufferAddress();
+      final long incomingValue = inputVector.getDataBufferAddress();
+
+      for (long partitionAndOrdinalAddr = memoryAddr; partitionAndOrdinalAddr < maxAddr; partitionAndOrdinalAddr += PARTITIONINDEX_HTORDINAL_WIDTH) {
+        /* get the index of data in input vector */
+        final int incomingIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + KEYINDEX_OFFSET);
+        final int bitVal = (PlatformDependent.getByte(incomingBit + ((incomingIndex >>> 3))) >>> (incomingIndex & 7)) & 1;
+        /* incoming record is null, skip it */
+        if (bitVal == 0) {
+          continue;
+        }
+        final int newVal = PlatformDependent.getInt(incomingValue + (incomingIndex * WIDTH_INPUT));
+        /* get the hash table ordinal */
+        final int tableIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + HTORDINAL_OFFSET);
+        /* get the hash table batch index */
+        final int chunkIndex = tableIndex >>> bitsInChunk;
+        final int chunkOffset = tableIndex & chunkOffsetMask;
+        getSketch(chunkIndex, chunkOffset).update(newVal);
+      }
+    }
+  }
+
+  public static class FloatNdvAccumulator extends BaseNdvAccumulator {
+    private static final int WIDTH_INPUT = 4;       // float inputs
+
+    public FloatNdvAccumulator(FieldVector input, FieldVector output,
+                               FieldVector transferVector, int maxValuesPerBatch) {
+      super(input, output, transferVector, AccumulatorBuilder.AccumulatorType.HLL, maxValuesPerBatch);
+    }
+
+    @Override
+    public void accumulate(final long memoryAddr, final int count,
+                           final int bitsInChunk, final int chunkOffsetMask) {
+      final long maxAddr = memoryAddr + count * PARTITIONINDEX_HTORDINAL_WIDTH;
+      final FieldVector inputVector = getInput();
+      final long incomingBit = inputVector.getValidityBufferAddress();
+      final long incomingValue = inputVector.getDataBufferAddress();
+
+      for (long partitionAndOrdinalAddr = memoryAddr; partitionAndOrdinalAddr < maxAddr; partitionAndOrdinalAddr += PARTITIONINDEX_HTORDINAL_WIDTH) {
+        final int incomingIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + KEYINDEX_OFFSET);
+        final int bitVal = (PlatformDependent.getByte(incomingBit + ((incomingIndex >>> 3))) >>> (incomingIndex & 7)) & 1;
+        if (bitVal == 0) {
+          continue;
+        }
+        final float newVal = Float.intBitsToFloat(PlatformDependent.getInt(incomingValue + (incomingIndex * WIDTH_INPUT)));
+        final int tableIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + HTORDINAL_OFFSET);
+        final int chunkIndex = tableIndex >>> bitsInChunk;
+        final int chunkOffset = tableIndex & chunkOffsetMask;
+        getSketch(chunkIndex, chunkOffset).update(newVal);
+      }
+    }
+  }
+
+  public static class BigIntNdvAccumulator extends BaseNdvAccumulator {
+    private static final int WIDTH_INPUT = 8;       // long inputs
+
+    public BigIntNdvAccumulator(FieldVector input, FieldVector output,
+                                FieldVector transferVector, int maxValuesPerBatch) {
+      super(input, output, transferVector, AccumulatorBuilder.AccumulatorType.HLL, maxValuesPerBatch);
+    }
+
+    @Override
+    public void accumulate(final long memoryAddr, final int count,
+                           final int bitsInChunk, final int chunkOffsetMask) {
+      final long maxAddr = memoryAddr + count * PARTITIONINDEX_HTORDINAL_WIDTH;
+      final FieldVector inputVector = getInput();
+      final long incomingBit = inputVector.getValidityBufferAddress();
+      final long incomingValue = inputVector.getDataBufferAddress();
+
+      for (long partitionAndOrdinalAddr = memoryAddr; partitionAndOrdinalAddr < maxAddr; partitionAndOrdinalAddr += PARTITIONINDEX_HTORDINAL_WIDTH) {
+        final int incomingIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + KEYINDEX_OFFSET);
+        final int bitVal = (PlatformDependent.getByte(incomingBit + ((incomingIndex >>> 3))) >>> (incomingIndex & 7)) & 1;
+        if (bitVal == 0) {
+          continue;
+        }
+        final long newVal = PlatformDependent.getLong(incomingValue + (incomingIndex * WIDTH_INPUT));
+        final int tableIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + HTORDINAL_OFFSET);
+        final int chunkIndex = tableIndex >>> bitsInChunk;
+        final int chunkOffset = tableIndex & chunkOffsetMask;
+        getSketch(chunkIndex, chunkOffset).update(newVal);
+      }
+    }
+  }
+
+  public static class DoubleNdvAccumulator extends BaseNdvAccumulator {
+    private static final int WIDTH_INPUT = 8;       // double inputs
+
+    public DoubleNdvAccumulator(FieldVector input, FieldVector output,
+                                FieldVector transferVector, int maxValuesPerBatch) {
+      super(input, output, transferVector, AccumulatorBuilder.AccumulatorType.HLL, maxValuesPerBatch);
+    }
+
+    @Override
+    public void accumulate(final long memoryAddr, final int count,
+                           final int bitsInChunk, final int chunkOffsetMask) {
+      final long maxAddr = memoryAddr + count * PARTITIONINDEX_HTORDINAL_WIDTH;
+      final FieldVector inputVector = getInput();
+      final long incomingBit = inputVector.getValidityBufferAddress();
+      final long incomingValue = inputVector.getDataBufferAddress();
+
+      for (long partitionAndOrdinalAddr = memoryAddr; partitionAndOrdinalAddr < maxAddr; partitionAndOrdinalAddr += PARTITIONINDEX_HTORDINAL_WIDTH) {
+        final int incomingIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + KEYINDEX_OFFSET);
+        final int bitVal = (PlatformDependent.getByte(incomingBit + ((incomingIndex >>> 3))) >>> (incomingIndex & 7)) & 1;
+        if (bitVal == 0) {
+          continue;
+        }
+        final double newVal = Double.longBitsToDouble(PlatformDependent.getLong(incomingValue + (incomingIndex * WIDTH_INPUT)));
+        final int tableIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + HTORDINAL_OFFSET);
+        final int chunkIndex = tableIndex >>> bitsInChunk;
+        final int chunkOffset = tableIndex & chunkOffsetMask;
+        getSketch(chunkIndex, chunkOffset).update(newVal);
+      }
+    }
+  }
+
+  public static class DecimalNdvAccumulator extends BaseNdvAccumulator {
+    private static final int WIDTH_INPUT = 16;      // decimal inputs
+    private final byte[] valBuf = new byte[WIDTH_INPUT];
+
+    public DecimalNdvAccumulator(FieldVector input, FieldVector output,
+                                 FieldVector transferVector, int maxValuesPerBatch) {
+      super(input, output, transferVector, AccumulatorBuilder.AccumulatorType.HLL, maxValuesPerBatch);
+    }
+
+    @Override
+    public void accumulate(final long memoryAddr, final int count,
+                           final int bitsInChunk, final int chunkOffsetMask) {
+      final long maxAddr = memoryAddr + count * PARTITIONINDEX_HTORDINAL_WIDTH;
+      final FieldVector inputVector = getInput();
+      final long incomingBit = inputVector.getValidityBufferAddress();
+      final long incomingValue = inputVector.getDataBufferAddress();
+      final int scale = ((DecimalVector) inputVector).getScale();
+
+      for (long partitionAndOrdinalAddr = memoryAddr; partitionAndOrdinalAddr < maxAddr; partitionAndOrdinalAddr += PARTITIONINDEX_HTORDINAL_WIDTH) {
+        final int incomingIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + KEYINDEX_OFFSET);
+        final int bitVal = (PlatformDependent.getByte(incomingBit + ((incomingIndex >>> 3))) >>> (incomingIndex & 7)) & 1;
+        if (bitVal == 0) {
+          continue;
+        }
+        final java.math.BigDecimal newVal = DecimalUtils.getBigDecimalFromLEBytes(incomingValue + (incomingIndex * WIDTH_INPUT), valBuf, scale);
+        final int tableIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + HTORDINAL_OFFSET);
+        final int chunkIndex = tableIndex >>> bitsInChunk;
+        final int chunkOffset = tableIndex & chunkOffsetMask;
+        getSketch(chunkIndex, chunkOffset).update(newVal.doubleValue());
+      }
+    }
+  }
+
+  public static class DecimalNdvAccumulatorV2 extends BaseNdvAccumulator {
+    private static final int WIDTH_INPUT = 16;      // decimal inputs
+
+    public DecimalNdvAccumulatorV2(FieldVector input, FieldVector output,
+                                   FieldVector transferVector, int maxValuesPerBatch) {
+      super(input, output, transferVector, AccumulatorBuilder.AccumulatorType.HLL, maxValuesPerBatch);
+    }
+
+    @Override
+    public void accumulate(final long memoryAddr, final int count,
+                           final int bitsInChunk, final int chunkOffsetMask) {
+      final long maxAddr = memoryAddr + count * PARTITIONINDEX_HTORDINAL_WIDTH;
+      final FieldVector inputVector = getInput();
+      final long incomingBit = inputVector.getValidityBufferAddress();
+      final ArrowBuf inputBuf = inputVector.getDataBuffer();
+
+      for (long partitionAndOrdinalAddr = memoryAddr; partitionAndOrdinalAddr < maxAddr; partitionAndOrdinalAddr += PARTITIONINDEX_HTORDINAL_WIDTH) {
+        final int incomingIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + KEYINDEX_OFFSET);
+        final int bitVal = (PlatformDependent.getByte(incomingBit + ((incomingIndex >>> 3))) >>> (incomingIndex & 7)) & 1;
+        if (bitVal == 0) {
+          continue;
+        }
+        final byte[] bytes = new byte[WIDTH_INPUT];
+        inputBuf.getBytes(incomingIndex * WIDTH_INPUT, bytes);
+        final int tableIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + HTORDINAL_OFFSET);
+        final int chunkIndex = tableIndex >>> bitsInChunk;
+        final int chunkOffset = tableIndex & chunkOffsetMask;
+        getSketch(chunkIndex, chunkOffset).update(bytes);
+      }
+    }
+  }
+
+  public static class BitNdvAccumulator extends BaseNdvAccumulator {
+
+    public BitNdvAccumulator(FieldVector input, FieldVector output,
+                             FieldVector transferVector, int maxValuesPerBatch) {
+      super(input, output, transferVector, AccumulatorBuilder.AccumulatorType.HLL, maxValuesPerBatch);
+    }
+
+    @Override
+    public void accumulate(final long memoryAddr, final int count,
+                           final int bitsInChunk, final int chunkOffsetMask) {
+      final long maxAddr = memoryAddr + count * PARTITIONINDEX_HTORDINAL_WIDTH;
+      final FieldVector inputVector = getInput();
+      final long incomingBit = inputVector.getValidityBufferAddress();
+      final long incomingValue = inputVector.getDataBufferAddress();
+
+      for (long partitionAndOrdinalAddr = memoryAddr; partitionAndOrdinalAddr < maxAddr; partitionAndOrdinalAddr += PARTITIONINDEX_HTORDINAL_WIDTH) {
+        final int incomingIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + KEYINDEX_OFFSET);
+        final int bitVal = (PlatformDependent.getByte(incomingBit + ((incomingIndex >>> 3))) >>> (incomingIndex & 7)) & 1;
+        if (bitVal == 0) {
+          continue;
+        }
+        final int newVal = (PlatformDependent.getByte(incomingValue + ((incomingIndex >>> 3))) >>> (incomingIndex & 7)) & 1;
+        final int tableIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + HTORDINAL_OFFSET);
+        final int chunkIndex = tableIndex >>> bitsInChunk;
+        final int chunkOffset = tableIndex & chunkOffsetMask;
+        getSketch(chunkIndex, chunkOffset).update(newVal);
+      }
+    }
+  }
+
+  public static class IntervalDayNdvAccumulator extends BaseNdvAccumulator {
+    private static final int WIDTH_INPUT = 8;       // pair-of-ints inputs
+
+    public IntervalDayNdvAccumulator(FieldVector input, FieldVector output,
+                                     FieldVector transferVector, int maxValuesPerBatch) {
+      super(input, output, transferVector, AccumulatorBuilder.AccumulatorType.HLL, maxValuesPerBatch);
+    }
+
+    @Override
+    public void accumulate(final long memoryAddr, final int count,
+                           final int bitsInChunk, final int chunkOffsetMask) {
+      final long maxAddr = memoryAddr + count * PARTITIONINDEX_HTORDINAL_WIDTH;
+      final FieldVector inputVector = getInput();
+      final long incomingBit = inputVector.getValidityBufferAddress();
+      final long incomingValue = inputVector.getDataBufferAddress();
+
+      for (long partitionAndOrdinalAddr = memoryAddr; partitionAndOrdinalAddr < maxAddr; partitionAndOrdinalAddr += PARTITIONINDEX_HTORDINAL_WIDTH) {
+        final int incomingIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + KEYINDEX_OFFSET);
+        final int bitVal = (PlatformDependent.getByte(incomingBit + ((incomingIndex >>> 3))) >>> (incomingIndex & 7)) & 1;
+        if (bitVal == 0) {
+          continue;
+        }
+        final long newVal = PlatformDependent.getLong(incomingValue + (incomingIndex * WIDTH_INPUT));
+        final int tableIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + HTORDINAL_OFFSET);
+        final int chunkIndex = tableIndex >>> bitsInChunk;
+        final int chunkOffset = tableIndex & chunkOffsetMask;
+        getSketch(chunkIndex, chunkOffset).update(newVal);
+      }
+    }
+  }
+
+  public static class VarLenNdvAccumulator extends BaseNdvAccumulator {
+
+    public VarLenNdvAccumulator(FieldVector input, FieldVector output,
+                                FieldVector transferVector, int maxValuesPerBatch) {
+      super(input, output, transferVector, AccumulatorBuilder.AccumulatorType.HLL, maxValuesPerBatch);
+    }
+
+    @Override
+    public void accumulate(final long memoryAddr, final int count,
+                           final int bitsInChunk, final int chunkOffsetMask) {
+      final long maxAddr = memoryAddr + count * PARTITIONINDEX_HTORDINAL_WIDTH;
+      final FieldVector inputVector = getInput();
+      final long incomingBit = inputVector.getValidityBufferAddress();
+      final ArrowBuf inputOffsetBuf = inputVector.getOffsetBuffer();
+      final ArrowBuf inputBuf = inputVector.getDataBuffer();
+
+      for (long partitionAndOrdinalAddr = memoryAddr; partitionAndOrdinalAddr < maxAddr; partitionAndOrdinalAddr += PARTITIONINDEX_HTORDINAL_WIDTH) {
+        final int incomingIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + KEYINDEX_OFFSET);
+        final int bitVal = (PlatformDependent.getByte(incomingBit + ((incomingIndex >>> 3))) >>> (incomingIndex & 7)) & 1;
+        if (bitVal == 0) {
+          continue;
+        }
+        final int tableIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + HTORDINAL_OFFSET);
+        final int chunkIndex = tableIndex >>> bitsInChunk;
+        final int chunkOffset = tableIndex & chunkOffsetMask;
+
+        /* get the offset of incoming record */
+        final int startOffset = inputOffsetBuf.getInt(incomingIndex * BaseVariableWidthVector.OFFSET_WIDTH);
+        final int endOffset = inputOffsetBuf.getInt((incomingIndex + 1) * BaseVariableWidthVector.OFFSET_WIDTH);
+        final byte[] bytes = new byte[endOffset - startOffset];
+        inputBuf.getBytes(startOffset, bytes);
+        getSketch(chunkIndex, chunkOffset).update(bytes);
+      }
+    }
+  }
+
+  /**
+   * Merges incoming compact sketches into the union of each group. Used for hll_merge
+   * and to merge the sketches of spilled batches of a pre-spill HLL accumulator.
+   */
+  public static class NdvUnionAccumulator extends BaseNdvAccumulator {
+
+    public NdvUnionAccumulator(FieldVector input, FieldVector output,
+                               FieldVector transferVector, int maxValuesPerBatch) {
+      super(input, output, transferVector, AccumulatorBuilder.AccumulatorType.HLL_MERGE, maxValuesPerBatch);
+    }
+
+    /**
+     * Used during post-spill processing to convert an HLL accumulator into one that
+     * merges the spilled sketches.
+     *
+     * @param other pre-spill HLL accumulator
+     * @param input vector of compact sketches read from a spilled batch
+     */
+    NdvUnionAccumulator(final BaseNdvAccumulator other, final FieldVector input) {
+      super(other, input, AccumulatorBuilder.AccumulatorType.HLL_MERGE);
+    }
+
+    @Override
+    public void accumulate(final long memoryAddr, final int count,
+                           final int bitsInChunk, final int chunkOffsetMask) {
+      final long maxAddr = memoryAddr + count * PARTITIONINDEX_HTORDINAL_WIDTH;
+      final FieldVector inputVector = getInput();
+      final long incomingBit = inputVector.getValidityBufferAddress();
+      final ArrowBuf inputOffsetBuf = inputVector.getOffsetBuffer();
+      final ArrowBuf inputBuf = inputVector.getDataBuffer();
+
+      for (long partitionAndOrdinalAddr = memoryAddr; partitionAndOrdinalAddr < maxAddr; partitionAndOrdinalAddr += PARTITIONINDEX_HTORDINAL_WIDTH) {
+        final int incomingIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + KEYINDEX_OFFSET);
+        final int bitVal = (PlatformDependent.getByte(incomingBit + ((incomingIndex >>> 3))) >>> (incomingIndex & 7)) & 1;
+        if (bitVal == 0) {
+          continue;
+        }
+        final int tableIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + HTORDINAL_OFFSET);
+        final int chunkIndex = tableIndex >>> bitsInChunk;
+        final int chunkOffset = tableIndex & chunkOffsetMask;
+
+        final int startOffset = inputOffsetBuf.getInt(incomingIndex * BaseVariableWidthVector.OFFSET_WIDTH);
+        final int endOffset = inputOffsetBuf.getInt((incomingIndex + 1) * BaseVariableWidthVector.OFFSET_WIDTH);
+        final byte[] bytes = new byte[endOffset - startOffset];
+        inputBuf.getBytes(startOffset, bytes);
+        getUnion(chunkIndex, chunkOffset).update(HllSketch.heapify(bytes));
+      }
+    }
+  }
+}
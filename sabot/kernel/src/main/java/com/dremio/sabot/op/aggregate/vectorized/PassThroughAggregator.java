@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.aggregate.vectorized;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.types.pojo.ArrowType.Decimal;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.common.expression.CompleteType;
+import com.dremio.common.types.TypeProtos.MinorType;
+import com.dremio.sabot.op.aggregate.vectorized.AccumulatorBuilder.AccumulatorType;
+import com.dremio.sabot.op.common.ht2.PivotDef;
+import com.dremio.sabot.op.common.ht2.VectorPivotDef;
+import com.dremio.sabot.op.copier.FieldBufferCopier;
+import com.google.common.base.Preconditions;
+
+/**
+ * Streams incoming records through the first phase of a two phase aggregation, each record
+ * being output as a group of its own. The second phase aggregates these single record groups
+ * like any other partial result, so this is used when the grouping keys are close to unique
+ * and aggregating them before the exchange would only cost memory and spills.
+ *
+ * Keys and MIN/MAX values are copied as is, SUM and $SUM0 values are widened to the type of
+ * the partial sum and COUNT values are computed from the validity of the input.
+ */
+class PassThroughAggregator implements AutoCloseable {
+
+  private final BufferAllocator allocator;
+  private final List<FieldBufferCopier> copiers;
+  private final List<ColumnOutput> computedOutputs;
+  private ArrowBuf offsets;
+  private int offsetsCapacity;
+
+  private PassThroughAggregator(BufferAllocator allocator, List<FieldBufferCopier> copiers,
+                                List<ColumnOutput> computedOutputs) {
+    this.allocator = allocator;
+    this.copiers = copiers;
+    this.computedOutputs = computedOutputs;
+  }
+
+  /**
+   * @param pivot pivot definition of the GROUP BY keys, pairing incoming and outgoing key vectors
+   * @param accumulatorTypes type of each accumulator, see {@link AccumulatorType}
+   * @param inputs incoming vector of each accumulator, null for COUNT(1)
+   * @param outputs outgoing vector of each accumulator
+   * @return the pass-through aggregator, or null if one of the accumulators can't produce
+   * its partial result from a single record
+   */
+  static PassThroughAggregator create(BufferAllocator allocator, PivotDef pivot, byte[] accumulatorTypes,
+                                      List<FieldVector> inputs, List<FieldVector> outputs) {
+    final List<FieldVector> copyInputs = new ArrayList<>();
+    final List<FieldVector> copyOutputs = new ArrayList<>();
+    final List<ColumnOutput> computedOutputs = new ArrayList<>();
+
+    for (VectorPivotDef def : pivot.getVectorPivots()) {
+      copyInputs.add(def.getIncomingVector());
+      copyOutputs.add(def.getOutgoingVector());
+    }
+
+    for (int i = 0; i < accumulatorTypes.length; i++) {
+      final AccumulatorType type = AccumulatorType.values()[accumulatorTypes[i]];
+      final FieldVector input = inputs.get(i);
+      final FieldVector output = outputs.get(i);
+
+      if (type == AccumulatorType.COUNT1 || type == AccumulatorType.COUNT) {
+        if (!(output instanceof BigIntVector)) {
+          return null;
+        }
+        computedOutputs.add(count((BigIntVector) output, type == AccumulatorType.COUNT ? input : null));
+        continue;
+      }
+
+      if (type == AccumulatorType.HLL || type == AccumulatorType.TDIGEST) {
+        // the partial result is a sketch, even when the input is itself varbinary
+        return null;
+      }
+
+      final boolean sumZero = type == AccumulatorType.SUM0;
+      if (isSameType(input, output)) {
+        if (sumZero && !(output instanceof BigIntVector || output instanceof Float8Vector)) {
+          return null;
+        }
+        copyInputs.add(input);
+        copyOutputs.add(output);
+        if (sumZero) {
+          // runs after the copy
+          computedOutputs.add(zeroNulls(output));
+        }
+      } else if ((type == AccumulatorType.SUM || sumZero) && input instanceof IntVector && output instanceof BigIntVector) {
+        computedOutputs.add(widen((IntVector) input, (BigIntVector) output, sumZero));
+      } else if ((type == AccumulatorType.SUM || sumZero) && input instanceof Float4Vector && output instanceof Float8Vector) {
+        computedOutputs.add(widen((Float4Vector) input, (Float8Vector) output, sumZero));
+      } else {
+        return null;
+      }
+    }
+
+    final List<FieldBufferCopier> copiers;
+    try {
+      copiers = FieldBufferCopier.getCopiers(copyInputs, copyOutputs);
+    } catch (UnsupportedOperationException e) {
+      return null;
+    }
+    return new PassThroughAggregator(allocator, copiers, computedOutputs);
+  }
+
+  /**
+   * Writes the incoming records into the outgoing vectors.
+   *
+   * @param records number of incoming records
+   */
+  void output(int records) {
+    if (records > offsetsCapacity) {
+      allocateOffsets(records);
+    }
+
+    final long offsetAddr = offsets.memoryAddress();
+    for (FieldBufferCopier copier : copiers) {
+      copier.copy(offsetAddr, records);
+    }
+    for (ColumnOutput output : computedOutputs) {
+      output.output(records);
+    }
+  }
+
+  private void allocateOffsets(int records) {
+    Preconditions.checkArgument(records <= Character.MAX_VALUE + 1, "Too many records in batch: %s", records);
+    final ArrowBuf newOffsets = allocator.buffer(records * 2L);
+    for (int i = 0; i < records; i++) {
+      newOffsets.setShort(i * 2L, i);
+    }
+    if (offsets != null) {
+      offsets.close();
+    }
+    offsets = newOffsets;
+    offsetsCapacity = records;
+  }
+
+  @Override
+  public void close() throws Exception {
+    AutoCloseables.close(offsets);
+    offsets = null;
+    offsetsCapacity = 0;
+  }
+
+  private static boolean isSameType(FieldVector input, FieldVector output) {
+    final CompleteType inputType = CompleteType.fromField(input.getField());
+    final CompleteType outputType = CompleteType.fromField(output.getField());
+    if (inputType.toMinorType() != outputType.toMinorType()) {
+      return false;
+    }
+    if (inputType.toMinorType() == MinorType.DECIMAL) {
+      // the partial sum of a decimal has a larger precision, but the same scale and width
+      return ((Decimal) inputType.getType()).getScale() == ((Decimal) outputType.getType()).getScale();
+    }
+    return true;
+  }
+
+  private static ColumnOutput count(BigIntVector output, FieldVector input) {
+    return records -> {
+      output.allocateNew(records);
+      for (int i = 0; i < records; i++) {
+        output.set(i, input == null || !input.isNull(i) ? 1 : 0);
+      }
+    };
+  }
+
+  private static ColumnOutput zeroNulls(FieldVector output) {
+    if (output instanceof BigIntVector) {
+      final BigIntVector vector = (BigIntVector) output;
+      return records -> {
+        for (int i = 0; i < records; i++) {
+          if (vector.isNull(i)) {
+            vector.set(i, 0L);
+          }
+        }
+      };
+    }
+    final Float8Vector vector = (Float8Vector) output;
+    return records -> {
+      for (int i = 0; i < records; i++) {
+        if (vector.isNull(i)) {
+          vector.set(i, 0d);
+        }
+      }
+    };
+  }
+
+  private static ColumnOutput widen(IntVector input, BigIntVector output, boolean sumZero) {
+    return records -> {
+      output.allocateNew(records);
+      for (int i = 0; i < records; i++) {
+        if (!input.isNull(i)) {
+          output.set(i, input.get(i));
+        } else if (sumZero) {
+          output.set(i, 0L);
+        }
+      }
+    };
+  }
+
+  private static ColumnOutput widen(Float4Vector input, Float8Vector output, boolean sumZero) {
+    return records -> {
+      output.allocateNew(records);
+      for (int i = 0; i < records; i++) {
+        if (!input.isNull(i)) {
+          output.set(i, input.get(i));
+        } else if (sumZero) {
+          output.set(i, 0d);
+        }
+      }
+    };
+  }
+
+  /**
+   * Output of an accumulator that can't simply be copied from its input
+   */
+  private interface ColumnOutput {
+    void output(int records);
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.aggregate.vectorized;
+
+import static com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggOperator.HTORDINAL_OFFSET;
+import static com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggOperator.KEYINDEX_OFFSET;
+import static com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggOperator.PARTITIONINDEX_HTORDINAL_WIDTH;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.FieldVector;
+
+import com.tdunning.math.stats.MergingDigest;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * TDIGEST accumulators for the spilling {@link VectorizedHashAggOperator}. The pre-spill
+ * accumulators add the incoming values to the digest of each group. Spilled digests
+ * are merged back with {@link TDigestMergeAccumulator}, which is also used for tdigest_merge.
+ */
+public class TDigestAccumulators {
+
+  private TDigestAccumulators(){};
+
+  public static class DoubleTDigestAccumulator extends BaseTDigestAccumulator {
+    private static final int WIDTH_INPUT = 8;       // double inputs
+
+    public DoubleTDigestAccumulator(FieldVector input, FieldVector output, FieldVector transferVector,
+                                    int maxValuesPerBatch, int compression,
+                                    BufferAllocator computationVectorAllocator) {
+      super(input, output, transferVector, AccumulatorBuilder.AccumulatorType.TDIGEST, maxValuesPerBatch,
+        compression, computationVectorAllocator);
+    }
+
+    @Override
+    public void accumulate(final long memoryAddr, final int count,
+                           final int bitsInChunk, final int chunkOffsetMask) {
+      final long maxAddr = memoryAddr + count * PARTITIONINDEX_HTORDINAL_WIDTH;
+      final FieldVector inputVector = getInput();
+      final long incomingBit = inputVector.getValidityBufferAddress();
+      final long incomingValue = inputVector.getDataBufferAddress();
+
+      for (long partitionAndOrdinalAddr = memoryAddr; partitionAndOrdinalAddr < maxAddr; partitionAndOrdinalAddr += PARTITIONINDEX_HTORDINAL_WIDTH) {
+        /* get the index of data in input vector */
+        final int incomingIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + KEYINDEX_OFFSET);
+        final int bitVal = (PlatformDependent.getByte(incomingBit + ((incomingIndex >>> 3))) >>> (incomingIndex & 7)) & 1;
+        /* incoming record is null, skip it */
+        if (bitVal == 0) {
+          continue;
+        }
+        final double newVal = Double.longBitsToDouble(PlatformDependent.getLong(incomingValue + (incomingIndex * WIDTH_INPUT)));
+        /* get the hash table ordinal */
+        final int tableIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + HTORDINAL_OFFSET);
+        /* get the hash table batch index */
+        final int chunkIndex = tableIndex >>> bitsInChunk;
+        final int chunkOffset = tableIndex & chunkOffsetMask;
+        getDigest(chunkIndex, chunkOffset).add(newVal);
+      }
+    }
+  }
+
+  /**
+   * Accumulator for DATE and TIMESTAMP inputs, which are held as longs.
+   */
+  public static class BigIntTDigestAccumulator extends BaseTDigestAccumulator {
+    private static final int WIDTH_INPUT = 8;       // long inputs
+
+    public BigIntTDigestAccumulator(FieldVector input, FieldVector output, FieldVector transferVector,
+                                    int maxValuesPerBatch, int compression,
+                                    BufferAllocator computationVectorAllocator) {
+      super(input, output, transferVector, AccumulatorBuilder.AccumulatorType.TDIGEST, maxValuesPerBatch,
+        compression, computationVectorAllocator);
+    }
+
+    @Override
+    public void accumulate(final long memoryAddr, final int count,
+                           final int bitsInChunk, final int chunkOffsetMask) {
+      final long maxAddr = memoryAddr + count * PARTITIONINDEX_HTORDINAL_WIDTH;
+      final FieldVector inputVector = getInput();
+      final long incomingBit = inputVector.getValidityBufferAddress();
+      final long incomingValue = inputVector.getDataBufferAddress();
+
+      for (long partitionAndOrdinalAddr = memoryAddr; partitionAndOrdinalAddr < maxAddr; partitionAndOrdinalAddr += PARTITIONINDEX_HTORDINAL_WIDTH) {
+        final int incomingIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + KEYINDEX_OFFSET);
+        final int bitVal = (PlatformDependent.getByte(incomingBit + ((incomingIndex >>> 3))) >>> (incomingIndex & 7)) & 1;
+        if (bitVal == 0) {
+          continue;
+        }
+        final long newVal = PlatformDependent.getLong(incomingValue + (incomingIndex * WIDTH_INPUT));
+        final int tableIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + HTORDINAL_OFFSET);
+        final int chunkIndex = tableIndex >>> bitsInChunk;
+        final int chunkOffset = tableIndex & chunkOffsetMask;
+        getDigest(chunkIndex, chunkOffset).add(newVal);
+      }
+    }
+  }
+
+  /**
+   * Accumulator for TIME inputs, which are held as ints.
+   */
+  public static class IntTDigestAccumulator extends BaseTDigestAccumulator {
+    private static final int WIDTH_INPUT = 4;       // int inputs
+
+    public IntTDigestAccumulator(FieldVector input, FieldVector output, FieldVector transferVector,
+                                 int maxValuesPerBatch, int compression,
+                                 BufferAllocator computationVectorAllocator) {
+      super(input, output, transferVector, AccumulatorBuilder.AccumulatorType.TDIGEST, maxValuesPerBatch,
+        compression, computationVectorAllocator);
+    }
+
+    @Override
+    public void accumulate(final long memoryAddr, final int count,
+                           final int bitsInChunk, final int chunkOffsetMask) {
+      final long maxAddr = memoryAddr + count * PARTITIONINDEX_HTORDINAL_WIDTH;
+      final FieldVector inputVector = getInput();
+      final long incomingBit = inputVector.getValidityBufferAddress();
+      final long incomingValue = inputVector.getDataBufferAddress();
+
+      for (long partitionAndOrdinalAddr = memoryAddr; partitionAndOrdinalAddr < maxAddr; partitionAndOrdinalAddr += PARTITIONINDEX_HTORDINAL_WIDTH) {
+        final int incomingIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + KEYINDEX_OFFSET);
+        final int bitVal = (PlatformDependent.getByte(incomingBit + ((incomingIndex >>> 3))) >>> (incomingIndex & 7)) & 1;
+        if (bitVal == 0) {
+          continue;
+        }
+        final int newVal = PlatformDependent.getInt(incomingValue + (incomingIndex * WIDTH_INPUT));
+        final int tableIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + HTORDINAL_OFFSET);
+        final int chunkIndex = tableIndex >>> bitsInChunk;
+        final int chunkOffset = tableIndex & chunkOffsetMask;
+        getDigest(chunkIndex, chunkOffset).add(newVal);
+      }
+    }
+  }
+
+  public static class BitTDigestAccumulator extends BaseTDigestAccumulator {
+
+    public BitTDigestAccumulator(FieldVector input, FieldVector output, FieldVector transferVector,
+                                 int maxValuesPerBatch, int compression,
+                                 BufferAllocator computationVectorAllocator) {
+      super(input, output, transferVector, AccumulatorBuilder.AccumulatorType.TDIGEST, maxValuesPerBatch,
+        compression, computationVectorAllocator);
+    }
+
+    @Override
+    public void accumulate(final long memoryAddr, final int count,
+                           final int bitsInChunk, final int chunkOffsetMask) {
+      final long maxAddr = memoryAddr + count * PARTITIONINDEX_HTORDINAL_WIDTH;
+      final FieldVector inputVector = getInput();
+      final long incomingBit = inputVector.getValidityBufferAddress();
+      final long incomingValue = inputVector.getDataBufferAddress();
+
+      for (long partitionAndOrdinalAddr = memoryAddr; partitionAndOrdinalAddr < maxAddr; partitionAndOrdinalAddr += PARTITIONINDEX_HTORDINAL_WIDTH) {
+        final int incomingIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + KEYINDEX_OFFSET);
+        final int bitVal = (PlatformDependent.getByte(incomingBit + ((incomingIndex >>> 3))) >>> (incomingIndex & 7)) & 1;
+        if (bitVal == 0) {
+          continue;
+        }
+        final int newVal = (PlatformDependent.getByte(incomingValue + ((incomingIndex >>> 3))) >>> (incomingIndex & 7)) & 1;
+        final int tableIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + HTORDINAL_OFFSET);
+        final int chunkIndex = tableIndex >>> bitsInChunk;
+        final int chunkOffset = tableIndex & chunkOffsetMask;
+        getDigest(chunkIndex, chunkOffset).add(newVal);
+      }
+    }
+  }
+
+  /**
+   * Merges serialized digests into the digest of each group. Used for tdigest_merge and
+   * to merge the digests of spilled TDIGEST accumulators.
+   */
+  public static class TDigestMergeAccumulator extends BaseTDigestAccumulator {
+
+    public TDigestMergeAccumulator(FieldVector input, FieldVector output, FieldVector transferVector,
+                                   int maxValuesPerBatch, int compression,
+                                   BufferAllocator computationVectorAllocator) {
+      super(input, output, transferVector, AccumulatorBuilder.AccumulatorType.TDIGEST_MERGE, maxValuesPerBatch,
+        compression, computationVectorAllocator);
+    }
+
+    /**
+     * Used to merge the digests of a spilled TDIGEST accumulator.
+     *
+     * @param other pre-spill accumulator
+     * @param input vector of serialized digests read from the spilled batch
+     */
+    public TDigestMergeAccumulator(BaseTDigestAccumulator other, FieldVector input) {
+      super(other, input, AccumulatorBuilder.AccumulatorType.TDIGEST_MERGE);
+    }
+
+    @Override
+    public void accumulate(final long memoryAddr, final int count,
+                           final int bitsInChunk, final int chunkOffsetMask) {
+      final long maxAddr = memoryAddr + count * PARTITIONINDEX_HTORDINAL_WIDTH;
+      final BaseVariableWidthVector inputVector = (BaseVariableWidthVector) getInput();
+      final long incomingBit = inputVector.getValidityBufferAddress();
+      final ArrowBuf offsets = inputVector.getOffsetBuffer();
+      final ArrowBuf data = inputVector.getDataBuffer();
+
+      for (long partitionAndOrdinalAddr = memoryAddr; partitionAndOrdinalAddr < maxAddr; partitionAndOrdinalAddr += PARTITIONINDEX_HTORDINAL_WIDTH) {
+        final int incomingIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + KEYINDEX_OFFSET);
+        final int bitVal = (PlatformDependent.getByte(incomingBit + ((incomingIndex >>> 3))) >>> (incomingIndex & 7)) & 1;
+        if (bitVal == 0) {
+          continue;
+        }
+        final int start = offsets.getInt((long) incomingIndex * BaseVariableWidthVector.OFFSET_WIDTH);
+        final int end = offsets.getInt((long) (incomingIndex + 1) * BaseVariableWidthVector.OFFSET_WIDTH);
+        final MergingDigest other = MergingDigest.fromBytes(data.nioBuffer(start, end - start));
+        final int tableIndex = PlatformDependent.getInt(partitionAndOrdinalAddr + HTORDINAL_OFFSET);
+        final int chunkIndex = tableIndex >>> bitsInChunk;
+        final int chunkOffset = tableIndex & chunkOffsetMask;
+        getDigest(chunkIndex, chunkOffset).add(other);
+      }
+    }
+  }
+}
@@ -20,6 +20,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import org.apache.arrow.memory.ArrowBuf;
 import org.apache.arrow.memory.BufferAllocator;
@@ -65,6 +66,7 @@ import com.dremio.sabot.op.aggregate.vectorized.HashAggStats.Metric;
 import com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggDebug.HashAggErrorType;
 import com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggPartitionSpillHandler.SpilledPartitionIterator;
 import com.dremio.sabot.op.common.ht2.BoundedPivots;
+import com.dremio.sabot.op.common.ht2.ComplexKeySerializer;
 import com.dremio.sabot.op.common.ht2.FieldVectorPair;
 import com.dremio.sabot.op.common.ht2.FixedBlockVector;
 import com.dremio.sabot.op.common.ht2.LBlockHashTable;
@@ -329,8 +331,20 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
   public static final DoubleValidator OOB_SPILL_TRIGGER_HEADROOM_FACTOR = new RangeDoubleValidator("exec.operator.aggregate.vectorize.oob_trigger_headroom_factor", 0.0d, 10.0d, .2d);
   public static final BooleanValidator OOB_SPILL_TRIGGER_ENABLED = new BooleanValidator("exec.operator.aggregate.vectorize.oob_trigger_enabled", true);
   public static final BooleanValidator VECTORIZED_HASHAGG_ENABLE_MICRO_SPILLS = new BooleanValidator("exec.operator.aggregate.vectorize.enable_micro_spills", true);
+  // heap available to the digests of TDIGEST accumulators in each operator, which are not allocated by the operator allocator
+  public static final PositiveLongValidator VECTORIZED_HASHAGG_TDIGEST_MAX_HEAP_BYTES = new PositiveLongValidator("exec.operator.aggregate.vectorize.tdigest.max_heap_bytes", Long.MAX_VALUE, 64 * 1024 * 1024);
+
+  /* In the first phase of a two phase aggregation, once the number of records below have been consumed,
+   * the operator stops aggregating and streams the records through to the exchange if the fraction of records
+   * folded into existing groups is lower than the minimum reduction.
+   */
+  public static final BooleanValidator VECTORIZED_HASHAGG_ADAPTIVE_BYPASS = new BooleanValidator("exec.operator.aggregate.vectorize.adaptive_bypass.enabled", true);
+  public static final PositiveLongValidator VECTORIZED_HASHAGG_ADAPTIVE_BYPASS_SAMPLE_RECORDS = new PositiveLongValidator("exec.operator.aggregate.vectorize.adaptive_bypass.sample_records", Integer.MAX_VALUE, 100_000);
+  public static final DoubleValidator VECTORIZED_HASHAGG_ADAPTIVE_BYPASS_MIN_REDUCTION = new RangeDoubleValidator("exec.operator.aggregate.vectorize.adaptive_bypass.min_reduction", 0.0d, 1.0d, .1d);
 
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(VectorizedHashAggOperator.class);
+  /* the footprint of the TDIGEST digests is checked once every 16 inserted records */
+  private static final int TDIGEST_CHECK_INTERVAL_MASK = 15;
 
   private final OperatorContext context;
   private VectorContainer outgoing;
@@ -345,6 +359,7 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
   private final Stopwatch spliceWatch = Stopwatch.createUnstarted();
 
   private ImmutableList<FieldVector> vectorsToValidate;
+  private ImmutableList<ComplexKeySerializer> complexKeySerializers;
   private PivotDef pivot;
   private VectorAccessible incoming;
   private State state = State.NEEDS_SETUP;
@@ -376,6 +391,10 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
   private int oobDropNoVictim;
   private int oobSpills;
   private int oobDropSpill;
+  /* digests of TDIGEST accumulators are on heap, their footprint is counted against a separate heap budget */
+  private boolean hasTDigestAccumulators;
+  private final long tdigestMaxHeapBytes;
+  private long maxTDigestMemory;
   private final BufferAllocator allocator;
   private final VectorizedHashAggDebug debug;
   private boolean closed;
@@ -423,6 +442,20 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
   private int bitsInChunk;
   private int chunkOffsetMask;
 
+  /* adaptive pre-aggregation bypass */
+  private final boolean adaptiveBypass;
+  private final long bypassSampleRecords;
+  private final double bypassMinReduction;
+  private boolean bypassDecided;
+  private long sampledRecords;
+  private long sampledGroups;
+  private long bypassedRecords;
+  private int passThroughRecords;
+  private PassThroughAggregator passThroughAggregator;
+  private byte[] accumulatorTypes;
+  private List<FieldVector> accumulatorInputs;
+  private final List<FieldVector> accumulatorOutputs = new ArrayList<>();
+
   public static final String OUT_OF_MEMORY_MSG = "Vectorized Hash Agg ran out of memory";
 
   public static final String PREALLOC_FAILURE_PARTITIONS = "Error: Failed to preallocate minimum memory in vectorized hashagg for single batch in all partitions";
@@ -474,9 +507,14 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
     this.decimalV2Enabled = options.getOption(PlannerSettings.ENABLE_DECIMAL_V2);
     this.ongoingVictimPartition = null;
     this.enableSmallSpills = options.getOption(VECTORIZED_HASHAGG_ENABLE_MICRO_SPILLS);
+    this.tdigestMaxHeapBytes = options.getOption(VECTORIZED_HASHAGG_TDIGEST_MAX_HEAP_BYTES);
     this.resumableInsertState = null;
     this.operatorStateBeforeOOB = null;
     this.forceSpillState = null;
+    this.adaptiveBypass = popConfig.isPartialAggregation() && options.getOption(VECTORIZED_HASHAGG_ADAPTIVE_BYPASS);
+    this.bypassSampleRecords = options.getOption(VECTORIZED_HASHAGG_ADAPTIVE_BYPASS_SAMPLE_RECORDS);
+    this.bypassMinReduction = options.getOption(VECTORIZED_HASHAGG_ADAPTIVE_BYPASS_MIN_REDUCTION);
+    this.bypassDecided = !adaptiveBypass;
     logger.debug("partitions:{}, min-hashtable-size:{}, max-hashtable-batch-size:{} variable-width-key-size:{}",
       numPartitions, minHashTableSize, maxHashTableBatchSize, estimatedVariableWidthKeySize);
   }
@@ -586,11 +624,15 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
     for (int i = 0; i < materializeAggExpressionsResult.accumulatorTypes.length; ++i) {
       final FieldVector outputVector = TypeHelper.getNewVector(outputVectorFields.get(i), outputAllocator);
       outgoing.add(outputVector);
+      accumulatorOutputs.add(outputVector);
     }
     outgoing.buildSchema();
+    this.accumulatorTypes = materializeAggExpressionsResult.accumulatorTypes;
+    this.accumulatorInputs = materializeAggExpressionsResult.inputVectors;
 
     final HashAggMemoryEstimator estimator = HashAggMemoryEstimator.create(
       new PivotInfo(pivot.getBlockWidth(), pivot.getVariableCount()),
+      complexKeySerializers.stream().map(ComplexKeySerializer::getField).collect(Collectors.toList()),
       materializeAggExpressionsResult,
       maxHashTableBatchSize,
       context.getOptions()
@@ -624,7 +666,8 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
                                                                           jointAllocationLimit,
                                                                           decimalV2Enabled,
                                                                           varLenAccumulatorCapacity,
-                                                                          tempAccumulatorHolder);
+                                                                          tempAccumulatorHolder,
+                                                                          (int) context.getOptions().getOption(ExecConstants.TDIGEST_COMPRESSION));
         /* this step allocates memory for control structure in hashtable and reverts itself if
          * allocation fails so we don't have to rely on rollback closeable
          */
@@ -658,6 +701,7 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
 
     /* STEP 3: grab commonly used hashtable info */
     setLocalInfoForHashTable();
+    hasTDigestAccumulators = hashAggPartitions[0].accumulator.hasTDigestAccumulators();
 
     /* STEP 4: Build extra partition (aka loading or read partition) */
     final List<Field> postSpillAccumulatorVectorFields = materializeAggExpressionsResult.outputVectorFields;
@@ -767,6 +811,7 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
   private PivotDef createPivot(){
     final List<NamedExpression> groupByExpressions = popConfig.getGroupByExprs();
     final ImmutableList.Builder<FieldVector> validationVectors = ImmutableList.builder();
+    final ImmutableList.Builder<ComplexKeySerializer> serializers = ImmutableList.builder();
 
     final List<FieldVectorPair> fvps = new ArrayList<>();
     for (int i = 0; i < groupByExpressions.size(); i++) {
@@ -787,10 +832,22 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
       }
       final FieldVector outputVector = TypeHelper.getNewVector(expr.getCompleteType().toField(ne.getRef()), outputAllocator);
       outgoing.add(outputVector);
-      fvps.add(new FieldVectorPair(inputVector, outputVector));
+      if (expr.getCompleteType().isComplex()) {
+        /* struct and list keys are pivoted in their serialized form */
+        if (!ComplexKeySerializer.isSupported(inputVector.getField())) {
+          throw unsup("Group by expression has an unsupported complex type: " + ne.getExpr().toString());
+        }
+        final ComplexKeySerializer serializer = new ComplexKeySerializer(inputVector, outputVector,
+          context.getAllocator(), outputAllocator);
+        serializers.add(serializer);
+        fvps.add(serializer.getSerializedPair());
+      } else {
+        fvps.add(new FieldVectorPair(inputVector, outputVector));
+      }
     }
 
     this.vectorsToValidate = validationVectors.build();
+    this.complexKeySerializers = serializers.build();
     return PivotBuilder.getBlockDefinition(fvps);
   }
 
@@ -818,11 +875,73 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
     state.is(State.CAN_CONSUME);
     Preconditions.checkState(resumableInsertState == null, "Error: not expecting resumable insert state");
 
+    for (ComplexKeySerializer serializer : complexKeySerializers) {
+      serializer.serialize(records);
+    }
+
     // ensure that none of the variable length vectors are corrupt so we can avoid doing bounds checking later.
     for(FieldVector v : vectorsToValidate){
       VariableLengthValidator.validateVariable(v, records);
     }
+
+    if (passThroughAggregator != null) {
+      consumePassThrough(records);
+      return;
+    }
+
     consumeDataHelper(records);
+
+    if (!bypassDecided) {
+      sampledRecords += records;
+      /* only decide once the records have been entirely inserted, not while resuming after a spill */
+      if (state == State.CAN_CONSUME && sampledRecords >= bypassSampleRecords) {
+        decideBypass();
+      }
+    }
+  }
+
+  /**
+   * Decides whether the first phase of a two phase aggregation should keep aggregating
+   * or stream the remaining records through. The records consumed so far stay in the
+   * hash tables and are output as usual once the input is over.
+   */
+  private void decideBypass() {
+    bypassDecided = true;
+    /* records spilled are groups, though a group spilled before may have been inserted again since,
+     * which overestimates the number of groups when the operator spilled (and the memory is short).
+     */
+    sampledGroups = getHashTableSize() + partitionSpillHandler.getTotalRecordsSpilled();
+    final double reduction = 1.0d - Math.min(1.0d, (double) sampledGroups / sampledRecords);
+    if (reduction >= bypassMinReduction) {
+      logger.debug("Keep aggregating, {} groups in {} records", sampledGroups, sampledRecords);
+    } else {
+      passThroughAggregator = PassThroughAggregator.create(context.getAllocator(), pivot, accumulatorTypes,
+        accumulatorInputs, accumulatorOutputs);
+      if (passThroughAggregator == null) {
+        logger.debug("Unable to stream records through, {} groups in {} records", sampledGroups, sampledRecords);
+      } else {
+        logger.debug("Streaming records through, {} groups in {} records", sampledGroups, sampledRecords);
+      }
+    }
+    updateStats();
+  }
+
+  /**
+   * Outputs each incoming record as a group of its own.
+   *
+   * @param records number of records to consume
+   */
+  private void consumePassThrough(final int records) {
+    unpivotWatch.start();
+    passThroughAggregator.output(records);
+    for (ComplexKeySerializer serializer : complexKeySerializers) {
+      serializer.deserialize(records);
+    }
+    unpivotWatch.stop();
+    passThroughRecords = records;
+    bypassedRecords += records;
+    internalStateMachine = InternalState.OUTPUT_PASSTHROUGH;
+    state = State.CAN_PRODUCE;
   }
 
   /**
@@ -1058,6 +1177,15 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
           }
         }
 
+        if (hasTDigestAccumulators && ((keyIndex - insertStartIndex) & TDIGEST_CHECK_INTERVAL_MASK) == 0) {
+          final int tdigestVictimIndex = checkTDigestMemory();
+          if (tdigestVictimIndex >= 0 && !spillVictimPartition(hashAggPartitions[tdigestVictimIndex])) {
+            /* same as below, resume insertion once all batches of the victim partition are spilled */
+            buildResumableInsertState(records, recordsPivoted, recordsConsumed, keyIndex, partitionsUsed, processingSpilledData);
+            break insertAllRecords;
+          }
+        }
+
         boolean insertSuccessful = false;
         while (!insertSuccessful) {
           try {
@@ -1104,6 +1232,36 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
     return partitionsUsed;
   }
 
+  /**
+   * The digests of TDIGEST accumulators grow on heap, out of the operator allocator, as the
+   * inserted records are accumulated. Their estimated footprint is counted against the heap
+   * budget of the operator, see {@link #VECTORIZED_HASHAGG_TDIGEST_MAX_HEAP_BYTES}. Once it is
+   * exceeded, the partition holding the largest digests is spilled, releasing them.
+   *
+   * @return index of the partition holding the largest digests if the digests exceed the
+   *         heap budget, -1 otherwise
+   */
+  private int checkTDigestMemory() {
+    long tdigestMemory = 0;
+    long largestPartitionMemory = 0;
+    int largestPartitionIndex = -1;
+    for (int i = 0; i < numPartitions; i++) {
+      final long partitionMemory = hashAggPartitions[i].accumulator.getTDigestSizeInBytes();
+      tdigestMemory += partitionMemory;
+      if (partitionMemory > largestPartitionMemory) {
+        largestPartitionMemory = partitionMemory;
+        largestPartitionIndex = i;
+      }
+    }
+    maxTDigestMemory = Math.max(maxTDigestMemory, tdigestMemory);
+    if (tdigestMemory <= tdigestMaxHeapBytes) {
+      return -1;
+    }
+    logger.debug("Digests of TDIGEST accumulators ({} bytes) exceed the heap budget ({} bytes)",
+      tdigestMemory, tdigestMaxHeapBytes);
+    return largestPartitionIndex;
+  }
+
   /**
    * When operator detects (proactively) it will run out of memory or it has
    * already run of memory, we use this function to handle OOM by spilling a
@@ -1139,7 +1297,6 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
    *         false if OOM not handled completely
    */
   private boolean handleOutOfMemory(final int failedPartitionIndex) {
-    final long allocatedMemoryBeforeSpilling = allocator.getAllocatedMemory();
     VectorizedHashAggPartition victimPartition = partitionSpillHandler.chooseVictimPartition();
     if (victimPartition == null) {
       /* Just spill the current partition that we failed to insert data into.
@@ -1148,6 +1305,18 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
        */
       victimPartition = hashAggPartitions[failedPartitionIndex];
     }
+    return spillVictimPartition(victimPartition);
+  }
+
+  /**
+   * Spill the chosen victim partition, see {@link #handleOutOfMemory(int)}.
+   *
+   * @param victimPartition partition to spill
+   * @return true if all batches of the victim partition have been spilled,
+   *         false if spilling has to be resumed later
+   */
+  private boolean spillVictimPartition(final VectorizedHashAggPartition victimPartition) {
+    final long allocatedMemoryBeforeSpilling = allocator.getAllocatedMemory();
     this.ongoingVictimPartition = victimPartition;
     accumulateBeforeSpill(victimPartition);
     boolean done = spill(victimPartition, true);
@@ -1793,9 +1962,15 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
     int maxTableSize = Integer.MIN_VALUE;
     int minRehashCount = Integer.MAX_VALUE;
     int maxRehashCount = Integer.MIN_VALUE;
+    long ndvSketchMemory = 0;
+    long ndvSketchesSpilled = 0;
+    long tdigestsSpilled = 0;
 
     for (int i = 0; i < numPartitions; i++) {
       final LBlockHashTable hashTable = hashAggPartitions[i].hashTable;
+      ndvSketchMemory += hashAggPartitions[i].accumulator.getNdvSketchSizeInBytes();
+      ndvSketchesSpilled += hashAggPartitions[i].accumulator.getNdvSketchesSpilled();
+      tdigestsSpilled += hashAggPartitions[i].accumulator.getTDigestsSpilled();
       final int size = hashAggPartitions[i].hashTable.size();
       final int rehashCount = hashAggPartitions[i].hashTable.getRehashCount();
       tableCapacity += hashAggPartitions[i].hashTable.capacity();
@@ -1837,6 +2012,9 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
     statsHolder.maxHashTableSize = maxTableSize;
     statsHolder.minHashTableRehashCount = minRehashCount;
     statsHolder.maxHashTableRehashCount = maxRehashCount;
+    statsHolder.maxNdvSketchMemory = Math.max(statsHolder.maxNdvSketchMemory, ndvSketchMemory);
+    statsHolder.ndvSketchesSpilled = ndvSketchesSpilled;
+    statsHolder.tdigestsSpilled = tdigestsSpilled;
 
     if (iterations == 1) {
       statsHolder.maxHashTableBatchSize = maxHashTableBatchSize;
@@ -1903,6 +2081,10 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
     /* XXX: Get the spliceWatch time and count */
     stats.setLongStat(Metric.SPLICE_TIME, spliceWatch.elapsed(TimeUnit.NANOSECONDS));
     stats.setLongStat(Metric.SPLICE_COUNT, spliceCount);
+    stats.setLongStat(Metric.NDV_SKETCH_MEMORY, statsHolder.maxNdvSketchMemory);
+    stats.setLongStat(Metric.NDV_SKETCHES_SPILLED, statsHolder.ndvSketchesSpilled);
+    stats.setLongStat(Metric.TDIGESTS_SPILLED, statsHolder.tdigestsSpilled);
+    stats.setLongStat(Metric.TDIGEST_MEMORY, maxTDigestMemory);
 
     stats.setLongStat(Metric.OOB_SENDS, oobSends);
     stats.setLongStat(Metric.OOB_RECEIVES, oobReceives);
@@ -1913,6 +2095,15 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
     stats.setLongStat(Metric.OOB_SPILL, oobSpills);
     stats.setLongStat(Metric.OOB_DROP_ALREADY_SPILLING, oobDropSpill);
 
+    if (adaptiveBypass && bypassDecided) {
+      stats.setLongStat(Metric.PREAGG_SAMPLED_RECORDS, sampledRecords);
+      stats.setLongStat(Metric.PREAGG_SAMPLED_GROUPS, sampledGroups);
+      stats.setLongStat(Metric.PREAGG_REDUCTION_PERCENT, sampledRecords == 0 ? 0 :
+        Math.max(0, 100 * (sampledRecords - sampledGroups) / sampledRecords));
+      stats.setLongStat(Metric.PREAGG_BYPASSED, passThroughAggregator != null ? 1 : 0);
+      stats.setLongStat(Metric.PREAGG_BYPASSED_RECORDS, bypassedRecords);
+    }
+
     if (iterations == 1) {
       stats.setLongStat(Metric.ALLOCATED_FOR_FIXED_KEYS, statsHolder.allocatedForFixedBlocks);
       stats.setLongStat(Metric.UNUSED_FOR_FIXED_KEYS, statsHolder.unusedForFixedBlocks);
@@ -1938,6 +2129,9 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
     private long unusedForFixedBlocks;
     private long allocatedForVarBlocks;
     private long unusedForVarBlocks;
+    private long maxNdvSketchMemory = 0;
+    private long ndvSketchesSpilled;
+    private long tdigestsSpilled;
 
     HashTableStatsHolder() { }
   }
@@ -2270,6 +2464,12 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
       case OUTPUT_INMEMORY_PARTITIONS:
         records = outputPartitions();
         break;
+      case OUTPUT_PASSTHROUGH:
+        records = outgoing.setAllCount(passThroughRecords);
+        passThroughRecords = 0;
+        internalStateMachine = InternalState.NONE;
+        state = State.CAN_CONSUME;
+        break;
       case TRANSITION_PARTITION_SPILL_STATE:
         transitionPartitionSpillState();
         consumeSpilledData();
@@ -2333,6 +2533,9 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
     /* unpivot GROUP BY key columns into corresponding vectors in outgoing container */
     unpivotWatch.start();
     partitionToOutput.hashTable.unpivot(outputBatchCount, recordsInBatch);
+    for (ComplexKeySerializer serializer : complexKeySerializers) {
+      serializer.deserialize(recordsInBatch);
+    }
     unpivotWatch.stop();
 
     /* transfer accumulation vectors to the target vector in transferPair -- output vector in outgoing container */
@@ -2538,6 +2741,7 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
 
   private enum InternalState {
     NONE,
+    OUTPUT_PASSTHROUGH,
     OUTPUT_INMEMORY_PARTITIONS,
     PROCESS_SPILLED_PARTITION,
     TRANSITION_PARTITION_SPILL_STATE,
@@ -2570,12 +2774,15 @@ public class VectorizedHashAggOperator implements SingleInputOperator {
           fixedBlockVector != null ? Collections.singletonList(fixedBlockVector) : new ArrayList<>(0),
           variableBlockVector != null ? Collections.singletonList(variableBlockVector) : new ArrayList<>(0),
           hashAggPartitions != null ? Arrays.asList(hashAggPartitions) : new ArrayList<>(0),
+          passThroughAggregator != null ? Collections.singletonList(passThroughAggregator) : new ArrayList<>(0),
+          complexKeySerializers != null ? complexKeySerializers : new ArrayList<>(0),
           outgoing));
       } finally {
         partitionToLoadSpilledData = null;
         partitionSpillHandler = null;
         fixedBlockVector = null;
         variableBlockVector = null;
+        passThroughAggregator = null;
         closed = true;
       }
     }
@@ -124,7 +124,9 @@ public class VectorizedHashAggPartition implements AutoCloseable {
   /**
    * Get the size (in bytes) of the data structures inside
    * the partition. This is used by {@link VectorizedHashAggPartitionSpillHandler}
-   * when deciding the victim partition to be spilled.
+   * when deciding the victim partition to be spilled. The digests of TDIGEST
+   * accumulators are on heap and are not counted, see
+   * {@link VectorizedHashAggOperator#VECTORIZED_HASHAGG_TDIGEST_MAX_HEAP_BYTES}.
    *
    * @return total size (in bytes) of all the partition structures
    */
@@ -260,6 +262,22 @@ public class VectorizedHashAggPartition implements AutoCloseable {
         /* handle $SUM0 */
         updateSumZeroAccumulator(deserializedAccumulator, partitionAccumulators,
                                  i, computationVectorAllocator);
+      } else if (accumulatorType == AccumulatorBuilder.AccumulatorType.HLL.ordinal()) {
+        /* handle NDV, the spilled sketches are merged into the sketch of each group */
+        partitionAccumulators[i] =
+          new NdvAccumulators.NdvUnionAccumulator((BaseNdvAccumulator)partitionAccumulator,
+                                                  deserializedAccumulator);
+      } else if (accumulatorType == AccumulatorBuilder.AccumulatorType.HLL_MERGE.ordinal()) {
+        /* handle HLL_MERGE, the spilled sketches are merged as any other incoming sketches */
+        partitionAccumulator.setInput(deserializedAccumulator);
+      } else if (accumulatorType == AccumulatorBuilder.AccumulatorType.TDIGEST.ordinal()) {
+        /* handle TDIGEST, the spilled digests are merged into the digest of each group */
+        partitionAccumulators[i] =
+          new TDigestAccumulators.TDigestMergeAccumulator((BaseTDigestAccumulator)partitionAccumulator,
+                                                          deserializedAccumulator);
+      } else if (accumulatorType == AccumulatorBuilder.AccumulatorType.TDIGEST_MERGE.ordinal()) {
+        /* handle TDIGEST_MERGE, the spilled digests are merged as any other incoming digests */
+        partitionAccumulator.setInput(deserializedAccumulator);
       } else {
         /* handle MIN, MAX */
         Preconditions.checkArgument(
@@ -232,7 +232,7 @@ public class VectorizedHashAggPartitionSerializable extends AbstractStreamSerial
       final UserBitShared.SerializedField bitsField = metaData.getChild(0);
       final UserBitShared.SerializedField valuesField = metaData.getChild(1);
       final ArrowBuf validityBuffer = vector.getValidityBuffer();
-      final ArrowBuf dataBuffer = vector.getDataBuffer();
+      ArrowBuf dataBuffer = vector.getDataBuffer();
 
       readIntoArrowBuf(validityBuffer, bitsField.getBufferLength(), input);
 
@@ -240,8 +240,14 @@ public class VectorizedHashAggPartitionSerializable extends AbstractStreamSerial
       if (type == Types.MinorType.VARCHAR || type == Types.MinorType.VARBINARY) {
         final ArrowBuf offsetBuffer = vector.getOffsetBuffer();
         final UserBitShared.SerializedField offsetField = valuesField.getChild(0);
+        final int dataLength = valuesField.getBufferLength() - offsetField.getBufferLength();
         readIntoArrowBuf(offsetBuffer, offsetField.getBufferLength(), input);
-        readIntoArrowBuf(dataBuffer, (valuesField.getBufferLength() - offsetField.getBufferLength()), input);
+        /* spilled NDV sketches and t-digests can be larger than the capacity reserved for varlen accumulators */
+        while (dataBuffer.capacity() < dataLength) {
+          ((BaseVariableWidthVector)vector).reallocDataBuffer();
+          dataBuffer = vector.getDataBuffer();
+        }
+        readIntoArrowBuf(dataBuffer, dataLength, input);
         /* TODO: Seems hacky however needed. Fina a better way. */
         ((BaseVariableWidthVector)vector).setLastSet(metaData.getValueCount() - 1);
       } else {
@@ -115,6 +115,11 @@ public class VectorizedHashAggOperatorNoSpill implements SingleInputOperator {
         throw unsup("Group by expression is non-trivial: " + ne.getExpr().toString());
       }
 
+      if (expr.getCompleteType().isComplex()) {
+        /* complex keys are only pivoted by the spilling operator */
+        throw unsup("Group by expression has a complex type: " + ne.getExpr().toString());
+      }
+
       final ValueVectorReadExpression vvread = (ValueVectorReadExpression) expr;
       final FieldVector inputVector = incoming.getValueAccessorById(FieldVector.class, vvread.getFieldId().getFieldIds()).getValueVector();
       if(inputVector instanceof VarCharVector || inputVector instanceof VarBinaryVector){
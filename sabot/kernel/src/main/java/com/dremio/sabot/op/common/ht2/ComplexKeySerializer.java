@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.common.ht2;
+
+import java.util.Arrays;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BaseFixedWidthVector;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.BitVectorHelper;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.complex.ListVector;
+import org.apache.arrow.vector.complex.StructVector;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.IntervalUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+
+import com.dremio.common.AutoCloseables;
+import com.google.common.base.Preconditions;
+
+/**
+ * Pivots a struct or list GROUP BY key through its serialized form.
+ *
+ * Each incoming value is serialized into a varbinary vector, which is pivoted as a variable width key:
+ * equal values serialize to the same bytes. Unpivoted keys are deserialized back into the outgoing
+ * vector of the complex type.
+ *
+ * The serialized form of a value is:
+ * - struct: for each child, a byte that is 1 if the child is set (and then the child value) or 0 if it is null
+ * - list: the number of elements as an int, then for each element the same set byte and element value
+ * - bit: the value as a byte
+ * - variable width: the length as an int, then the bytes
+ * - fixed width: the bytes of the value
+ */
+public class ComplexKeySerializer implements AutoCloseable {
+  private static final int INITIAL_SCRATCH_SIZE = 256;
+
+  private final FieldVector incoming;
+  private final FieldVector outgoing;
+  private final VarBinaryVector serializedIncoming;
+  private final VarBinaryVector serializedOutgoing;
+
+  private byte[] scratch = new byte[INITIAL_SCRATCH_SIZE];
+  private int position;
+
+  /**
+   * @param incoming incoming complex key vector
+   * @param outgoing outgoing complex key vector
+   * @param incomingAllocator allocator of the serialized incoming keys
+   * @param outgoingAllocator allocator of the serialized (unpivoted) outgoing keys
+   */
+  public ComplexKeySerializer(FieldVector incoming, FieldVector outgoing, BufferAllocator incomingAllocator,
+                              BufferAllocator outgoingAllocator) {
+    Preconditions.checkArgument(isSupported(incoming.getField()), "Unsupported complex key %s", incoming.getField());
+    this.incoming = incoming;
+    this.outgoing = outgoing;
+    this.serializedIncoming = new VarBinaryVector(incoming.getField().getName(), incomingAllocator);
+    this.serializedOutgoing = new VarBinaryVector(outgoing.getField().getName(), outgoingAllocator);
+  }
+
+  /**
+   * @return the serialized vectors to pivot and unpivot, in place of the complex ones
+   */
+  public FieldVectorPair getSerializedPair() {
+    return new FieldVectorPair(serializedIncoming, serializedOutgoing);
+  }
+
+  /**
+   * @return the field of the incoming complex key
+   */
+  public Field getField() {
+    return incoming.getField();
+  }
+
+  /**
+   * Whether the values of the given complex field can be serialized.
+   *
+   * @param field struct or list field
+   * @return true if the field and all its children are supported
+   */
+  public static boolean isSupported(Field field) {
+    switch (field.getType().getTypeID()) {
+      case Struct:
+      case List:
+        for (Field child : field.getChildren()) {
+          if (!isSupportedChild(child)) {
+            return false;
+          }
+        }
+        return !field.getChildren().isEmpty();
+      default:
+        return false;
+    }
+  }
+
+  private static boolean isSupportedChild(Field field) {
+    switch (field.getType().getTypeID()) {
+      case Struct:
+      case List:
+        return isSupported(field);
+      case Bool:
+      case Int:
+      case FloatingPoint:
+      case Decimal:
+      case Date:
+      case Time:
+      case Timestamp:
+      case Interval:
+      case Utf8:
+      case Binary:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Estimates the size of a serialized value of the given complex field, used to size the variable block of the keys.
+   *
+   * @param field struct or list field
+   * @param listSizeEstimate estimated number of elements of a list
+   * @param variableWidthEstimate estimated size of a variable width value
+   * @return estimated number of bytes of a serialized value
+   */
+  public static int estimateSerializedSize(Field field, int listSizeEstimate, int variableWidthEstimate) {
+    switch (field.getType().getTypeID()) {
+      case Struct: {
+        int size = 0;
+        for (Field child : field.getChildren()) {
+          size += 1 + estimateSerializedSize(child, listSizeEstimate, variableWidthEstimate);
+        }
+        return size;
+      }
+      case List:
+        return 4 + listSizeEstimate * (1 + estimateSerializedSize(field.getChildren().get(0), listSizeEstimate,
+          variableWidthEstimate));
+      case Bool:
+        return 1;
+      case Utf8:
+      case Binary:
+        return 4 + variableWidthEstimate;
+      case Int:
+        return ((ArrowType.Int) field.getType()).getBitWidth() / 8;
+      case Time:
+        return ((ArrowType.Time) field.getType()).getBitWidth() / 8;
+      case FloatingPoint:
+        return ((ArrowType.FloatingPoint) field.getType()).getPrecision() == FloatingPointPrecision.SINGLE ? 4 : 8;
+      case Date:
+        return ((ArrowType.Date) field.getType()).getUnit() == DateUnit.DAY ? 4 : 8;
+      case Interval:
+        return ((ArrowType.Interval) field.getType()).getUnit() == IntervalUnit.YEAR_MONTH ? 4 : 8;
+      case Decimal:
+        return 16;
+      default:
+        return 8;
+    }
+  }
+
+  /**
+   * Serializes the incoming keys.
+   *
+   * @param records number of incoming records
+   */
+  public void serialize(int records) {
+    serializedIncoming.reset();
+    for (int i = 0; i < records; i++) {
+      if (incoming.isNull(i)) {
+        serializedIncoming.setNull(i);
+        continue;
+      }
+      position = 0;
+      writeValue(incoming, i);
+      serializedIncoming.setSafe(i, scratch, 0, position);
+    }
+    serializedIncoming.setValueCount(records);
+  }
+
+  /**
+   * Deserializes the unpivoted keys into the outgoing vector. The caller sets the value count of the outgoing vector.
+   *
+   * @param records number of unpivoted records
+   */
+  public void deserialize(int records) {
+    outgoing.allocateNew();
+    final ArrowBuf offsets = serializedOutgoing.getOffsetBuffer();
+    final ArrowBuf data = serializedOutgoing.getDataBuffer();
+    for (int i = 0; i < records; i++) {
+      if (serializedOutgoing.isNull(i)) {
+        setNull(outgoing, i);
+        continue;
+      }
+      final int start = offsets.getInt((long) i * BaseVariableWidthVector.OFFSET_WIDTH);
+      final int length = offsets.getInt((long) (i + 1) * BaseVariableWidthVector.OFFSET_WIDTH) - start;
+      ensureScratch(length);
+      data.getBytes(start, scratch, 0, length);
+      position = 0;
+      readValue(outgoing, i);
+    }
+  }
+
+  private void writeValue(FieldVector vector, int index) {
+    if (vector instanceof StructVector) {
+      for (FieldVector child : ((StructVector) vector).getChildrenFromFields()) {
+        writeElement(child, index);
+      }
+    } else if (vector instanceof ListVector) {
+      final ListVector list = (ListVector) vector;
+      final ArrowBuf offsets = list.getOffsetBuffer();
+      final int start = offsets.getInt((long) index * ListVector.OFFSET_WIDTH);
+      final int end = offsets.getInt((long) (index + 1) * ListVector.OFFSET_WIDTH);
+      writeInt(end - start);
+      final FieldVector elements = list.getDataVector();
+      for (int i = start; i < end; i++) {
+        writeElement(elements, i);
+      }
+    } else if (vector instanceof BitVector) {
+      ensureScratch(position + 1);
+      scratch[position++] = (byte) ((BitVector) vector).get(index);
+    } else if (vector instanceof BaseVariableWidthVector) {
+      final BaseVariableWidthVector variable = (BaseVariableWidthVector) vector;
+      final ArrowBuf offsets = variable.getOffsetBuffer();
+      final int start = offsets.getInt((long) index * BaseVariableWidthVector.OFFSET_WIDTH);
+      final int length = offsets.getInt((long) (index + 1) * BaseVariableWidthVector.OFFSET_WIDTH) - start;
+      writeInt(length);
+      writeBytes(variable.getDataBuffer(), start, length);
+    } else {
+      final int width = ((BaseFixedWidthVector) vector).getTypeWidth();
+      writeBytes(vector.getDataBuffer(), (long) index * width, width);
+    }
+  }
+
+  private void writeElement(FieldVector vector, int index) {
+    ensureScratch(position + 1);
+    if (vector.isNull(index)) {
+      scratch[position++] = 0;
+    } else {
+      scratch[position++] = 1;
+      writeValue(vector, index);
+    }
+  }
+
+  private void readValue(FieldVector vector, int index) {
+    if (vector instanceof StructVector) {
+      final StructVector struct = (StructVector) vector;
+      struct.setIndexDefined(index);
+      for (FieldVector child : struct.getChildrenFromFields()) {
+        readElement(child, index);
+      }
+    } else if (vector instanceof ListVector) {
+      final ListVector list = (ListVector) vector;
+      final int count = readInt();
+      final int start = list.startNewValue(index);
+      final FieldVector elements = list.getDataVector();
+      for (int i = 0; i < count; i++) {
+        readElement(elements, start + i);
+      }
+      list.endValue(index, count);
+    } else if (vector instanceof BitVector) {
+      ((BitVector) vector).setSafe(index, scratch[position++]);
+    } else if (vector instanceof BaseVariableWidthVector) {
+      final int length = readInt();
+      ((BaseVariableWidthVector) vector).setSafe(index, scratch, position, length);
+      position += length;
+    } else {
+      final BaseFixedWidthVector fixed = (BaseFixedWidthVector) vector;
+      final int width = fixed.getTypeWidth();
+      while (index >= fixed.getValueCapacity()) {
+        fixed.reAlloc();
+      }
+      fixed.getDataBuffer().setBytes((long) index * width, scratch, position, width);
+      BitVectorHelper.setBit(fixed.getValidityBuffer(), index);
+      position += width;
+    }
+  }
+
+  private void readElement(FieldVector vector, int index) {
+    if (scratch[position++] == 0) {
+      setNull(vector, index);
+    } else {
+      readValue(vector, index);
+    }
+  }
+
+  private static void setNull(FieldVector vector, int index) {
+    if (vector instanceof StructVector) {
+      ((StructVector) vector).setNull(index);
+    } else if (vector instanceof ListVector) {
+      // an empty value keeps the offsets of the following values right
+      final ListVector list = (ListVector) vector;
+      list.startNewValue(index);
+      list.endValue(index, 0);
+      BitVectorHelper.unsetBit(list.getValidityBuffer(), index);
+    } else if (vector instanceof BaseVariableWidthVector) {
+      ((BaseVariableWidthVector) vector).setNull(index);
+    } else {
+      ((BaseFixedWidthVector) vector).setNull(index);
+    }
+  }
+
+  private void writeInt(int value) {
+    ensureScratch(position + 4);
+    scratch[position++] = (byte) value;
+    scratch[position++] = (byte) (value >>> 8);
+    scratch[position++] = (byte) (value >>> 16);
+    scratch[position++] = (byte) (value >>> 24);
+  }
+
+  private int readInt() {
+    final int value = (scratch[position] & 0xFF)
+      | (scratch[position + 1] & 0xFF) << 8
+      | (scratch[position + 2] & 0xFF) << 16
+      | (scratch[position + 3] & 0xFF) << 24;
+    position += 4;
+    return value;
+  }
+
+  private void writeBytes(ArrowBuf buf, long index, int length) {
+    ensureScratch(position + length);
+    buf.getBytes(index, scratch, position, length);
+    position += length;
+  }
+
+  private void ensureScratch(int size) {
+    if (size > scratch.length) {
+      scratch = Arrays.copyOf(scratch, Math.max(size, scratch.length * 2));
+    }
+  }
+
+  @Override
+  public void close() throws Exception {
+    AutoCloseables.close(serializedIncoming, serializedOutgoing);
+  }
+}
@@ -82,6 +82,8 @@ public final class LBlockHashTable implements AutoCloseable {
 
   private static final int RETRY_RETURN_CODE = -2;
   public static final int ORDINAL_SIZE = 4;
+  // number of keys whose first control slot is read ahead of resolving them in batch probes
+  public static final int PROBE_GROUP_SIZE = 16;
 
   private final HashConfigWrapper config;
   private final ResizeListener listener;
@@ -134,6 +136,8 @@ public final class LBlockHashTable implements AutoCloseable {
   private final boolean enforceVarWidthBufferLimit;
   private int maxOrdinalBeforeExpand;
 
+  private final long[] probeGroupControls = new long[PROBE_GROUP_SIZE];
+
   public LBlockHashTable(HashConfig config,
                          PivotDef pivot,
                          BufferAllocator allocator,
@@ -303,6 +307,80 @@ public final class LBlockHashTable implements AutoCloseable {
     return returnValue;
   }
 
+  /**
+   * Find a batch of keys.
+   *
+   * Keys are resolved in groups of {@link #PROBE_GROUP_SIZE}: the first control slot of every key of the group is
+   * read before any of them is resolved, so that the cache misses of the group overlap instead of stalling each
+   * probe in turn. Keys not resolved by their first slot fall back to a regular probe.
+   *
+   * @param keyFixedVectorAddr starting address of fixed vector block
+   * @param keyVarVectorAddr starting address of variable vector block
+   * @param hashValueAddr starting address of the 64 bit hash of each key, as computed by {@link HashComputation}
+   * @param records number of keys
+   * @param ordinalAddr starting address of the output, the 4 byte ordinal of each key or -1 if it doesn't exist
+   */
+  public void findBatch(final long keyFixedVectorAddr, final long keyVarVectorAddr, final long hashValueAddr,
+                        final int records, final long ordinalAddr) {
+    final boolean fixedOnly = this.fixedOnly;
+    final int blockWidth = pivot.getBlockWidth();
+    final int dataWidth = fixedOnly ? blockWidth : blockWidth - VAR_OFFSET_SIZE;
+    final int capacityMask = capacity - 1;
+    final long[] controls = this.probeGroupControls;
+
+    for (int groupStart = 0; groupStart < records; groupStart += PROBE_GROUP_SIZE) {
+      final int groupEnd = Math.min(records, groupStart + PROBE_GROUP_SIZE);
+
+      // STEP 1: independent loads of the first control slot of each key
+      for (int keyIndex = groupStart; keyIndex < groupEnd; keyIndex++) {
+        final int keyHash = (int) PlatformDependent.getLong(hashValueAddr + ((long) keyIndex << 3));
+        controls[keyIndex - groupStart] = PlatformDependent.getLong(getControlAddress(keyHash & capacityMask));
+      }
+
+      // STEP 2: resolve each key
+      for (int keyIndex = groupStart; keyIndex < groupEnd; keyIndex++) {
+        final long control = controls[keyIndex - groupStart];
+        int ordinal = -1;
+        if (control != LFREE) {
+          final int keyHash = (int) PlatformDependent.getLong(hashValueAddr + ((long) keyIndex << 3));
+          final long keyFixedAddr = keyFixedVectorAddr + ((long) blockWidth * keyIndex);
+          final long keyVarAddr;
+          final int keyVarLen;
+          if (fixedOnly) {
+            keyVarAddr = -1;
+            keyVarLen = 0;
+          } else {
+            keyVarAddr = keyVarVectorAddr + PlatformDependent.getInt(keyFixedAddr + dataWidth);
+            keyVarLen = PlatformDependent.getInt(keyVarAddr);
+          }
+          if (keyHash == (int) (control >>> 32) &&
+            keyEquals((int) control, keyFixedAddr, keyVarAddr, keyVarLen, blockWidth, dataWidth)) {
+            ordinal = (int) control;
+          } else {
+            ordinal = probeOrInsert(keyFixedAddr, keyVarAddr, keyVarLen, keyHash, dataWidth, false,
+              0, null, 0, 0, 0);
+          }
+        }
+        PlatformDependent.putInt(ordinalAddr + ((long) keyIndex << 2), ordinal);
+      }
+    }
+  }
+
+  private long getControlAddress(final int controlIndex) {
+    return tableControlAddresses[getBatchIndexForOrdinal(controlIndex)] +
+      ((controlIndex & CHUNK_OFFSET_MASK) * CONTROL_WIDTH);
+  }
+
+  private boolean keyEquals(final int ordinal, final long keyFixedAddr, final long keyVarAddr, final int keyVarLen,
+                            final int blockWidth, final int dataWidth) {
+    final int dataChunkIndex = getBatchIndexForOrdinal(ordinal);
+    final long tableDataAddr = tableFixedAddresses[dataChunkIndex] + ((ordinal & CHUNK_OFFSET_MASK) * blockWidth);
+    return fixedKeyEquals(keyFixedAddr, tableDataAddr, dataWidth) &&
+      (fixedOnly ||
+        variableKeyEquals(keyVarAddr, initVariableAddresses[dataChunkIndex] +
+          PlatformDependent.getInt(tableDataAddr + dataWidth), keyVarLen));
+  }
+
   /**
    * Helper method for inserting/searching the hash table.
    * For a given key, it first searches (linear probing) the hash table
@@ -1595,6 +1673,9 @@ public final class LBlockHashTable implements AutoCloseable {
 
     //2. copy fixed width accumulators
     moveFixedLenAccumulatedRecords(srcBatchIndex, dstBatchIndex, sourceStartIndex, dstStartIndex, numRecords);
+
+    //3. copy the sketches of ndv and tdigest accumulators
+    ((AccumulatorSet)listener).moveSketchValuesAndFreeSpace(srcBatchIndex, dstBatchIndex, sourceStartIndex, dstStartIndex, numRecords);
     return bytesCopied;
   }
 
@@ -171,9 +171,11 @@ public class PivotBuilder {
           fixedOffset += 16;
           break;
 
-        /* variable */
+        /* variable, complex keys are pivoted in their serialized form */
         case VARBINARY:
         case VARCHAR:
+        case STRUCT:
+        case LIST:
           bitOffset++;
           variableOffset++;
           break;
@@ -200,15 +200,14 @@ public class BlockJoinTable implements JoinTable {
       HashComputation.computeHash(blockChunk);
       probeHashComputationWatch.stop();
 
-      // STEP 3: then we probe hash table.
+      // STEP 3: then we probe hash table, for all the keys at once.
       probeFindWatch.start();
+      table.findBatch(keyFixedVectorAddr, keyVarVectorAddr, hashValues.getBufferAddress(), records, offsetAddr);
+
+      // STEP 4: keys with nulls that are not comparable don't match, whatever the probe found.
       final NullComparator compare = nullMask;
       switch(compare.getMode()){
       case NONE:
-        for(int keyIndex = 0; keyIndex < records; keyIndex++, offsetAddr += 4) {
-          final int keyHash = (int)hashValues.get(keyIndex);
-          PlatformDependent.putInt(offsetAddr, table.find(keyFixedVectorAddr, keyVarVectorAddr, keyIndex, keyHash));
-        }
         break;
 
       // 32 bits to consider.
@@ -216,11 +215,7 @@ public class BlockJoinTable implements JoinTable {
         long bitsAddr = keyFixedVectorAddr;
         final int nullMask = compare.getFour();
         for(int keyIndex = 0; keyIndex < records; keyIndex++, offsetAddr += 4, bitsAddr += blockWidth){
-          if((PlatformDependent.getInt(bitsAddr) & nullMask) == nullMask){
-            // the nulls are not comparable. as such, this doesn't match.
-            final int keyHash = (int)hashValues.get(keyIndex);
-            PlatformDependent.putInt(offsetAddr, table.find(keyFixedVectorAddr, keyVarVectorAddr, keyIndex, keyHash));
-          } else {
+          if((PlatformDependent.getInt(bitsAddr) & nullMask) != nullMask){
             PlatformDependent.putInt(offsetAddr, SKIP);
           }
         }
@@ -232,11 +227,7 @@ public class BlockJoinTable implements JoinTable {
         long bitsAddr = keyFixedVectorAddr;
         final long nullMask = compare.getEight();
         for(int keyIndex = 0; keyIndex < records; keyIndex++, offsetAddr += 4, bitsAddr += blockWidth){
-          if((PlatformDependent.getLong(bitsAddr) & nullMask) == nullMask){
-            final int keyHash = (int)hashValues.get(keyIndex);
-            PlatformDependent.putInt(offsetAddr, table.find(keyFixedVectorAddr, keyVarVectorAddr, keyIndex, keyHash));
-          } else {
-            // the nulls are not comparable. as such, this doesn't match.
+          if((PlatformDependent.getLong(bitsAddr) & nullMask) != nullMask){
             PlatformDependent.putInt(offsetAddr, SKIP);
           }
         }
@@ -247,18 +238,13 @@ public class BlockJoinTable implements JoinTable {
       case BIG: {
         long bitsAddr = keyFixedVectorAddr;
         for(int keyIndex = 0; keyIndex < records; keyIndex++, offsetAddr += 4, bitsAddr += blockWidth){
-          if(compare.isComparableBigBits(bitsAddr)){
-            final int keyHash = (int)hashValues.get(keyIndex);
-            PlatformDependent.putInt(offsetAddr, table.find(keyFixedVectorAddr, keyVarVectorAddr, keyIndex, keyHash));
-          } else {
-            // the nulls are not comparable. as such, this doesn't match.
+          if(!compare.isComparableBigBits(bitsAddr)){
             PlatformDependent.putInt(offsetAddr, SKIP);
           }
         }
         break;
       }
 
-
       default:
         throw new IllegalStateException();
       }
@@ -58,7 +58,13 @@ public class HashJoinStats {
     DUPLICATE_BUILD_RECORD_COUNT,
     EXTRA_CONDITION_EVALUATION_COUNT,
     EXTRA_CONDITION_EVALUATION_MATCHED,
-    EXTRA_CONDITION_SETUP_NANOS;
+    EXTRA_CONDITION_SETUP_NANOS,
+    SPILL_COUNT,           /* number of times the build side was spilled, including when joining spilled partitions */
+    SPILL_MAX_LEVEL,       /* deepest level of recursive repartitioning */
+    SPILLED_BUILD_RECORDS,
+    SPILLED_PROBE_RECORDS,
+    SPILL_WRITE_BYTES,
+    SPILL_READ_BYTES;
 
     @Override
     public int metricId() {
@@ -660,7 +660,8 @@ public class VectorizedHashJoinOperator implements DualInputOperator {
     /*
      * Prepare runtime filters, one each for probe scan targets.
      * a. For partitioned columns, a consolidated bloomfilter made on composite build keys.
-     * b. For non-partitioned columns, an individual value filter is used per column. // TODO
+     * b. For non-partitioned columns, an individual value filter is used per column. The scan uses these to skip
+     *    row groups whose column statistics don't overlap with the values (see RuntimeFilterRowGroupPruner).
      *
      * Only minor fragments [0,1,2] are allowed to send the filter to the scan operator.
      *
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.join.vhash.spill;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.ValueVector;
+import org.apache.arrow.vector.util.TransferPair;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.common.AutoCloseables.RollbackCloseable;
+import com.dremio.exec.physical.config.HashJoinPOP;
+import com.dremio.exec.record.BatchSchema;
+import com.dremio.exec.record.VectorAccessible;
+import com.dremio.exec.record.VectorContainer;
+import com.dremio.exec.record.VectorWrapper;
+import com.dremio.sabot.exec.context.OperatorContext;
+import com.dremio.sabot.op.join.vhash.spill.partition.SpilledPartition;
+
+/**
+ * Joins a single spilled partition by replaying its build and probe batches through a nested
+ * {@link VectorizedSpillingHashJoinOperator}. The nested operator spills again, with a different partitioning hash,
+ * if the partition doesn't fit in memory either.
+ */
+final class SpilledPartitionJoiner implements AutoCloseable {
+
+  private final SpilledPartition partition;
+  private final BufferAllocator allocator;
+  private final VectorContainer left;
+  private final VectorContainer right;
+  private final VectorizedSpillingHashJoinOperator join;
+  private final List<TransferPair> transfers = new ArrayList<>();
+
+  SpilledPartitionJoiner(OperatorContext context, HashJoinPOP config, SpilledPartition partition,
+                         BatchSchema leftSchema, BatchSchema rightSchema, VectorContainer outgoing,
+                         int spillLevel, String spillId) throws Exception {
+    this.partition = partition;
+    this.allocator = context.getAllocator();
+    try (RollbackCloseable rollback = new RollbackCloseable()) {
+      this.left = rollback.add(VectorContainer.create(allocator, leftSchema));
+      this.right = rollback.add(VectorContainer.create(allocator, rightSchema));
+      this.join = rollback.add(new VectorizedSpillingHashJoinOperator(context, config, spillLevel, spillId));
+
+      final VectorAccessible joinOutput = join.setup(left, right);
+      final List<ValueVector> targets = new ArrayList<>();
+      for (VectorWrapper<?> w : outgoing) {
+        targets.add(w.getValueVector());
+      }
+      int i = 0;
+      for (VectorWrapper<?> w : joinOutput) {
+        transfers.add(w.getValueVector().makeTransferPair(targets.get(i++)));
+      }
+      rollback.commit();
+    }
+  }
+
+  /**
+   * Drives the nested join until it produces a batch, which is transferred to the outgoing container.
+   *
+   * @return number of records produced, or -1 once the partition is fully joined
+   */
+  int next() throws Exception {
+    while (true) {
+      switch (join.getState()) {
+        case CAN_CONSUME_R:
+          if (partition.getBuild().hasNext()) {
+            join.consumeDataRight(partition.getBuild().next(right, allocator));
+          } else {
+            join.noMoreToConsumeRight();
+          }
+          break;
+
+        case CAN_CONSUME_L:
+          if (partition.getProbe().hasNext()) {
+            join.consumeDataLeft(partition.getProbe().next(left, allocator));
+          } else {
+            join.noMoreToConsumeLeft();
+          }
+          break;
+
+        case CAN_PRODUCE:
+          final int records = join.outputData();
+          if (records == 0) {
+            continue;
+          }
+          for (TransferPair transfer : transfers) {
+            transfer.transfer();
+          }
+          return records;
+
+        case DONE:
+          return -1;
+
+        default:
+          throw new IllegalStateException("Unexpected state " + join.getState() + " while joining " + partition);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws Exception {
+    AutoCloseables.close(join, left, right, partition);
+  }
+}
@@ -20,9 +20,11 @@ import static com.dremio.exec.ExecConstants.RUNTIME_FILTER_KEY_MAX_SIZE;
 import static org.apache.arrow.util.Preconditions.checkArgument;
 import static org.apache.arrow.util.Preconditions.checkState;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -36,6 +38,8 @@ import org.apache.arrow.vector.VarBinaryVector;
 import org.apache.arrow.vector.VarCharVector;
 import org.apache.calcite.rel.core.JoinRelType;
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
 
 import com.dremio.common.AutoCloseables;
 import com.dremio.common.AutoCloseables.RollbackCloseable;
@@ -43,6 +47,7 @@ import com.dremio.common.exceptions.UserException;
 import com.dremio.common.expression.CompleteType;
 import com.dremio.common.expression.LogicalExpression;
 import com.dremio.common.logical.data.JoinCondition;
+import com.dremio.common.utils.protos.QueryIdHelper;
 import com.dremio.exec.ExecConstants;
 import com.dremio.exec.expr.ValueVectorReadExpression;
 import com.dremio.exec.physical.config.HashJoinPOP;
@@ -52,17 +57,24 @@ import com.dremio.exec.proto.CoordExecRPC.MajorFragmentAssignment;
 import com.dremio.exec.proto.CoordinationProtos.NodeEndpoint;
 import com.dremio.exec.proto.ExecProtos;
 import com.dremio.exec.proto.ExecProtos.CompositeColumnFilter;
+import com.dremio.exec.proto.ExecProtos.FragmentHandle;
 import com.dremio.exec.proto.ExecProtos.RuntimeFilter;
 import com.dremio.exec.record.BatchSchema.SelectionVectorMode;
 import com.dremio.exec.record.ExpandableHyperContainer;
 import com.dremio.exec.record.VectorAccessible;
 import com.dremio.exec.record.VectorContainer;
 import com.dremio.exec.record.VectorWrapper;
+import com.dremio.exec.store.LocalSyncableFileSystem;
+import com.dremio.exec.store.dfs.FileSystemPlugin;
 import com.dremio.exec.util.BloomFilter;
 import com.dremio.exec.util.RuntimeFilterManager;
 import com.dremio.exec.util.RuntimeFilterProbeTarget;
 import com.dremio.exec.util.ValueListFilter;
 import com.dremio.exec.util.ValueListFilterBuilder;
+import com.dremio.options.Options;
+import com.dremio.options.TypeValidators.PositiveLongValidator;
+import com.dremio.options.TypeValidators.PowerOfTwoLongValidator;
+import com.dremio.options.TypeValidators.RangeLongValidator;
 import com.dremio.sabot.exec.context.OperatorContext;
 import com.dremio.sabot.exec.context.OperatorStats;
 import com.dremio.sabot.exec.fragment.OutOfBandMessage;
@@ -75,6 +87,10 @@ import com.dremio.sabot.op.common.ht2.PivotDef;
 import com.dremio.sabot.op.join.JoinUtils;
 import com.dremio.sabot.op.join.hash.BuildInfo;
 import com.dremio.sabot.op.join.vhash.HashJoinStats.Metric;
+import com.dremio.sabot.op.join.vhash.spill.partition.SpillPartitionWriter;
+import com.dremio.sabot.op.join.vhash.spill.partition.SpilledPartition;
+import com.dremio.sabot.op.join.vhash.spill.partition.SpilledPartitionSide;
+import com.dremio.sabot.op.sort.external.SpillManager;
 import com.dremio.sabot.op.spi.DualInputOperator;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
@@ -82,10 +98,18 @@ import com.google.common.base.Stopwatch;
 
 import io.netty.util.internal.PlatformDependent;
 
+@Options
 public class VectorizedSpillingHashJoinOperator implements DualInputOperator {
 
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(VectorizedSpillingHashJoinOperator.class);
 
+  // number of partitions the build and probe sides are split into when the build side doesn't fit in memory
+  public static final PowerOfTwoLongValidator NUM_SPILL_PARTITIONS = new PowerOfTwoLongValidator("exec.op.join.spill.num_partitions", 256, 16);
+  // maximum number of times a partition that still doesn't fit in memory is repartitioned
+  public static final RangeLongValidator MAX_SPILL_LEVEL = new RangeLongValidator("exec.op.join.spill.max_level", 0, 8, 3);
+  // testing only: spill as soon as the in-memory build side holds this many batches
+  public static final PositiveLongValidator SPILL_AFTER_BUILD_BATCHES = new PositiveLongValidator("exec.op.join.spill.test.after_build_batches", Integer.MAX_VALUE, Integer.MAX_VALUE);
+
   public static enum Mode {
     UNKNOWN,
     VECTORIZED_GENERIC,
@@ -102,6 +126,12 @@ public class VectorizedSpillingHashJoinOperator implements DualInputOperator {
   // nodes to shift while obtaining batch index from SV4
   private static final int SHIFT_SIZE = 16;
 
+  /* Memory needed to add a build batch to the hash table, as a multiple of the batch size (transfer clone,
+   * pivoted keys and hash values) plus a per record overhead for links, ordinals and start indices.
+   */
+  private static final int SPILL_BATCH_SIZE_FACTOR = 3;
+  private static final int SPILL_PER_RECORD_OVERHEAD = 64;
+
   // Join type, INNER, LEFT, RIGHT or OUTER
   private final JoinRelType joinType;
   private final OperatorContext context;
@@ -163,9 +193,44 @@ public class VectorizedSpillingHashJoinOperator implements DualInputOperator {
   private long outputRecords = 0;
   private int runtimeValFilterCap;
 
+  // key vectors of the incoming build and probe batches, used to partition them on spill
+  private final List<FieldVector> buildKeys = new ArrayList<>();
+  private final List<FieldVector> probeKeys = new ArrayList<>();
+
+  /* Spilling state. Once the build side doesn't fit in memory, both sides are partitioned to disk and each partition
+   * is then joined by a nested operator at the next spill level.
+   */
+  private final int spillLevel;
+  private final String spillId;
+  private final int maxSpillLevel;
+  private final int numSpillPartitions;
+  private final long spillAfterBuildBatches;
+  private boolean spilled = false;
+  private SpillManager spillManager;
+  private SpillPartitionWriter buildWriter;
+  private SpillPartitionWriter.Source buildSource;
+  private SpillPartitionWriter probeWriter;
+  private SpillPartitionWriter.Source probeSource;
+  private final Deque<SpilledPartition> spilledPartitions = new ArrayDeque<>();
+  private SpilledPartitionJoiner partitionJoiner;
+
   public VectorizedSpillingHashJoinOperator(OperatorContext context, HashJoinPOP popConfig) throws OutOfMemoryException {
+    this(context, popConfig, 0, "0");
+  }
+
+  /**
+   * @param spillLevel 0 for the operator reading the actual join inputs, n + 1 for the operators joining the
+   *                   partitions spilled by an operator at level n
+   * @param spillId unique identifier of this operator among the nested operators, used to name its spill directory
+   */
+  VectorizedSpillingHashJoinOperator(OperatorContext context, HashJoinPOP popConfig, int spillLevel, String spillId) throws OutOfMemoryException {
     this.context = context;
     this.config = popConfig;
+    this.spillLevel = spillLevel;
+    this.spillId = spillId;
+    this.maxSpillLevel = (int) context.getOptions().getOption(MAX_SPILL_LEVEL);
+    this.numSpillPartitions = (int) context.getOptions().getOption(NUM_SPILL_PARTITIONS);
+    this.spillAfterBuildBatches = context.getOptions().getOption(SPILL_AFTER_BUILD_BATCHES);
     this.joinType = popConfig.getJoinType();
     this.outgoing = new VectorContainer(context.getAllocator());
     final Set<Integer> allMinorFragments = context.getAssignments().stream().flatMap(a -> a.getMinorFragmentIdList().stream())
@@ -223,8 +288,10 @@ public class VectorizedSpillingHashJoinOperator implements DualInputOperator {
     for(JoinCondition c : config.getConditions()){
       final FieldVector build = getField(right, c.getRight());
       buildFields.add(new FieldVectorPair(build, build));
+      buildKeys.add(build);
       final FieldVector probe = getField(left, c.getLeft());
       probeFields.add(new FieldVectorPair(probe, probe));
+      probeKeys.add(probe);
 
       /* Collect the corresponding probe side field vectors for build side keys
        * Only for VECTORIZED_GENERIC, we should do it because we don't know the final mode
@@ -374,6 +441,16 @@ public class VectorizedSpillingHashJoinOperator implements DualInputOperator {
       VariableLengthValidator.validateVariable(v, records);
     }
 
+    if (!spilled && shouldSpill(records)) {
+      spillBuildSide();
+    }
+
+    if (spilled) {
+      buildWriter.write(buildSource, records);
+      context.getStats().addLongStat(Metric.SPILLED_BUILD_RECORDS, records);
+      return;
+    }
+
     final List<ArrowBuf> startIndices = this.startIndices;
     final List<BuildInfo> buildInfoList = this.buildInfoList;
 
@@ -496,7 +573,185 @@ public class VectorizedSpillingHashJoinOperator implements DualInputOperator {
     }
   }
 
+  /**
+   * Decides whether the next build batch can still be added to the in-memory hash table.
+   */
+  private boolean shouldSpill(int records) {
+    if (spillLevel >= maxSpillLevel) {
+      // the partitions are not getting any smaller, keep trying in memory
+      return false;
+    }
+
+    if (buildBatchIndex >= spillAfterBuildBatches || buildBatchIndex == Integer.MAX_VALUE) {
+      return true;
+    }
+
+    long batchSize = 0;
+    for (VectorWrapper<?> w : right) {
+      batchSize += ((FieldVector) w.getValueVector()).getBufferSize();
+    }
+    final long required = SPILL_BATCH_SIZE_FACTOR * batchSize + (long) records * SPILL_PER_RECORD_OVERHEAD;
+    return context.getAllocator().getHeadroom() < required;
+  }
+
+  /**
+   * Switches to partitioned (grace) hash join: the records already in the hash table are moved to the build
+   * partitions on disk and the in-memory structures are released. All subsequent build and probe records are
+   * partitioned directly to disk.
+   */
+  private void spillBuildSide() throws Exception {
+    logger.debug("Spilling build side of hash join at level {} after {} batches, allocated memory {}",
+      spillLevel, buildBatchIndex, context.getAllocator().getAllocatedMemory());
+    final OperatorStats stats = context.getStats();
+    stats.addLongStat(Metric.SPILL_COUNT, 1);
+    stats.setLongStat(Metric.SPILL_MAX_LEVEL, Math.max(stats.getLongStat(Metric.SPILL_MAX_LEVEL), spillLevel + 1));
+    // record the in-memory table stats before releasing it
+    updateStats();
+
+    spilled = true;
+    spillManager = newSpillManager();
+    // each level uses its own seed so that a spilled partition gets split differently when spilled again
+    final long seed = spillLevel + 1;
+    buildWriter = new SpillPartitionWriter(context.getAllocator(), spillManager, "build", right.getSchema(),
+      numSpillPartitions, seed, context.getTargetBatchSize());
+    buildSource = buildWriter.newSource(VectorContainer.getFieldVectors(right), buildKeys);
+    probeWriter = new SpillPartitionWriter(context.getAllocator(), spillManager, "probe", left.getSchema(),
+      numSpillPartitions, seed, context.getTargetBatchSize());
+    probeSource = probeWriter.newSource(VectorContainer.getFieldVectors(left), probeKeys);
+
+    if (table.size() > 0) {
+      evictHashTable();
+    }
+
+    AutoCloseables.close(hyperContainer, table);
+    AutoCloseables.close(buildInfoList);
+    AutoCloseables.close(startIndices);
+    AutoCloseables.close(keyMatchBitVectors);
+    hyperContainer = null;
+    table = null;
+    buildInfoList.clear();
+    startIndices.clear();
+    keyMatchBitVectors.clear();
+    maxHashTableIndex = -1;
+  }
+
+  /**
+   * Writes all the records of the in-memory hash table to the build partitions. The records are projected to the
+   * build side of the outgoing container, which restores the keys held by the hash table only, as it is done for
+   * the non matched records of a right join.
+   */
+  private void evictHashTable() throws Exception {
+    final int buildFieldCount = right.getSchema().getFieldCount();
+    final List<FieldVector> outgoingBuild = VectorContainer.getFieldVectors(outgoing).subList(0, buildFieldCount);
+    final List<FieldVector> outgoingBuildKeys = new ArrayList<>();
+    for (JoinCondition c : config.getConditions()) {
+      outgoingBuildKeys.add(outgoing.getValueAccessorById(FieldVector.class, getFieldId(outgoing, c.getRight())).getValueVector());
+    }
+    final SpillPartitionWriter.Source evicted = buildWriter.newSource(outgoingBuild, outgoingBuildKeys);
+
+    try (VectorizedProbe eviction = new VectorizedProbe()) {
+      eviction.setup(
+        context.getAllocator(),
+        hyperContainer,
+        left,
+        probeOutputs,
+        buildOutputs,
+        probeIncomingKeys,
+        buildOutputKeys,
+        mode,
+        JoinRelType.RIGHT,
+        buildInfoList,
+        startIndices,
+        keyMatchBitVectors,
+        maxHashTableIndex,
+        table,
+        probePivot,
+        buildUnpivot,
+        context.getTargetBatchSize(),
+        comparator);
+
+      int projected;
+      do {
+        projected = eviction.projectBuildNonMatches();
+        final int records = Math.abs(projected);
+        outgoing.setAllCount(records);
+        buildWriter.write(evicted, records);
+        context.getStats().addLongStat(Metric.SPILLED_BUILD_RECORDS, records);
+      } while (projected < 0);
+    } finally {
+      outgoing.zeroVectors();
+    }
+  }
+
+  private SpillManager newSpillManager() {
+    final Configuration conf = FileSystemPlugin.getNewFsConf();
+    conf.set(SpillManager.DREMIO_LOCAL_IMPL_STRING, LocalSyncableFileSystem.class.getName());
+    // If the location URI doesn't contain any schema, fall back to local.
+    conf.set(FileSystem.FS_DEFAULT_NAME_KEY, FileSystem.DEFAULT_FS);
+
+    final FragmentHandle handle = context.getFragmentHandle();
+    final String id = String.format("hashjoin-%s.%s.%s.%s.%s", QueryIdHelper.getQueryId(handle.getQueryId()),
+      handle.getMajorFragmentId(), handle.getMinorFragmentId(), config.getProps().getLocalOperatorId(), spillId);
+    return new SpillManager(context.getConfig(), context.getOptions(), id, conf, context.getSpillService(),
+      "hash join spilling", context.getStats());
+  }
+
+  /**
+   * Once both sides are spilled, lines up the build and probe files of each partition, dropping the partitions
+   * that cannot produce any record for this join type.
+   */
+  private void finishSpilling() throws Exception {
+    final List<SpilledPartitionSide> builds = buildWriter.finish();
+    final List<SpilledPartitionSide> probes = probeWriter.finish();
+    context.getStats().addLongStat(Metric.SPILL_WRITE_BYTES, spillManager.getIOWriteBytes());
+
+    // a partition without build records only produces records for joins keeping the non matched probe records
+    // (LEFT, FULL), and one without probe records for joins keeping the non matched build records (RIGHT, FULL)
+    final boolean needsBuild = joinType == JoinRelType.INNER || joinType == JoinRelType.RIGHT;
+    final boolean needsProbe = joinType == JoinRelType.INNER || joinType == JoinRelType.LEFT;
+    for (int i = 0; i < builds.size(); i++) {
+      final SpilledPartition partition = new SpilledPartition(i, builds.get(i), probes.get(i));
+      final boolean noBuild = partition.getBuild().getRecordCount() == 0;
+      final boolean noProbe = partition.getProbe().getRecordCount() == 0;
+      if (partition.isEmpty() || (needsBuild && noBuild) || (needsProbe && noProbe)) {
+        partition.close();
+      } else {
+        spilledPartitions.add(partition);
+      }
+    }
+  }
+
+  /**
+   * Joins the spilled partitions one after the other.
+   */
+  private int outputSpilledPartitions() throws Exception {
+    while (true) {
+      if (partitionJoiner == null) {
+        final SpilledPartition partition = spilledPartitions.poll();
+        if (partition == null) {
+          state = State.DONE;
+          return outgoing.setAllCount(0);
+        }
+        logger.debug("Joining spilled {} at level {}", partition, spillLevel + 1);
+        partitionJoiner = new SpilledPartitionJoiner(context, config, partition, left.getSchema(), right.getSchema(),
+          outgoing, spillLevel + 1, spillId + "." + partition.getIndex());
+      }
+
+      final int records = partitionJoiner.next();
+      if (records >= 0) {
+        outputRecords += records;
+        return outgoing.setAllCount(records);
+      }
+      partitionJoiner.close();
+      partitionJoiner = null;
+    }
+  }
+
   private void updateStats(){
+    if (spillLevel > 0) {
+      // the operators joining spilled partitions share the stats of the top level operator
+      return;
+    }
     final TimeUnit ns = TimeUnit.NANOSECONDS;
     final OperatorStats stats = context.getStats();
 
@@ -535,13 +790,21 @@ public class VectorizedSpillingHashJoinOperator implements DualInputOperator {
   public void noMoreToConsumeRight() throws Exception {
     state.is(State.CAN_CONSUME_R);
 
+    if (spilled) {
+      // the probe side gets partitioned the same way as the build side
+      state = State.CAN_CONSUME_L;
+      return;
+    }
+
     if ((table.size() == 0) && !(joinType == JoinRelType.LEFT || joinType == JoinRelType.FULL)) {
       // nothing needs to be read on the left side as right side is empty
       state = State.DONE;
       return;
     }
 
-    tryPushRuntimeFilter();
+    if (spillLevel == 0) {
+      tryPushRuntimeFilter();
+    }
     this.probe = new VectorizedProbe();
     this.probe.setup(
         context.getAllocator(),
@@ -574,6 +837,12 @@ public class VectorizedSpillingHashJoinOperator implements DualInputOperator {
       VariableLengthValidator.validateVariable(v, records);
     }
 
+    if (spilled) {
+      probeWriter.write(probeSource, records);
+      context.getStats().addLongStat(Metric.SPILLED_PROBE_RECORDS, records);
+      return;
+    }
+
     state = State.CAN_PRODUCE;
   }
 
@@ -583,6 +852,10 @@ public class VectorizedSpillingHashJoinOperator implements DualInputOperator {
 
     updateStats();
 
+    if (spilled) {
+      return outputSpilledPartitions();
+    }
+
     if(!finishedProbe){
       final int probedRecords = probe.probeBatch(left.getRecordCount());
       outputRecords += Math.abs(probedRecords);
@@ -612,6 +885,11 @@ public class VectorizedSpillingHashJoinOperator implements DualInputOperator {
     state.is(State.CAN_CONSUME_L);
 
     finishedProbe = true;
+    if (spilled) {
+      finishSpilling();
+      state = spilledPartitions.isEmpty() ? State.DONE : State.CAN_PRODUCE;
+      return;
+    }
     if(joinType == JoinRelType.FULL || joinType == JoinRelType.RIGHT){
       // if we need to project build records that didn't match, make sure we do so.
       state = State.CAN_PRODUCE;
@@ -646,7 +924,8 @@ public class VectorizedSpillingHashJoinOperator implements DualInputOperator {
     /*
      * Prepare runtime filters, one each for probe scan targets.
      * a. For partitioned columns, a consolidated bloomfilter made on composite build keys.
-     * b. For non-partitioned columns, an individual value filter is used per column. // TODO
+     * b. For non-partitioned columns, an individual value filter is used per column. The scan uses these to skip
+     *    row groups whose column statistics don't overlap with the values (see RuntimeFilterRowGroupPruner).
      *
      * Only minor fragments [0,1,2] are allowed to send the filter to the scan operator.
      *
@@ -953,7 +1232,14 @@ public class VectorizedSpillingHashJoinOperator implements DualInputOperator {
   @Override
   public void close() throws Exception {
     updateStats();
+    if (spillManager != null) {
+      context.getStats().addLongStat(Metric.SPILL_READ_BYTES, spillManager.getIOReadBytes());
+    }
     List<AutoCloseable> autoCloseables = new ArrayList<>();
+    autoCloseables.add(partitionJoiner);
+    autoCloseables.addAll(spilledPartitions);
+    autoCloseables.add(buildWriter);
+    autoCloseables.add(probeWriter);
     autoCloseables.add(filterManager);
     autoCloseables.add(hyperContainer);
     autoCloseables.add(table);
@@ -964,6 +1250,8 @@ public class VectorizedSpillingHashJoinOperator implements DualInputOperator {
     autoCloseables.addAll(buildOutputKeys);
     autoCloseables.addAll(startIndices);
     autoCloseables.addAll(keyMatchBitVectors);
+    // deletes the spill directory, so it goes last
+    autoCloseables.add(spillManager);
     AutoCloseables.close(autoCloseables);
   }
 }
@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.join.vhash.spill.partition;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.FieldVector;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.exec.record.BatchSchema;
+import com.dremio.exec.record.VectorContainer;
+import com.dremio.sabot.op.common.ht2.BlockChunk;
+import com.dremio.sabot.op.common.ht2.FieldVectorPair;
+import com.dremio.sabot.op.common.ht2.FixedBlockVector;
+import com.dremio.sabot.op.common.ht2.HashComputation;
+import com.dremio.sabot.op.common.ht2.PivotBuilder;
+import com.dremio.sabot.op.common.ht2.PivotDef;
+import com.dremio.sabot.op.common.ht2.Pivots;
+import com.dremio.sabot.op.common.ht2.VariableBlockVector;
+import com.dremio.sabot.op.copier.FieldBufferCopier;
+import com.dremio.sabot.op.sort.external.SpillManager;
+import com.dremio.sabot.op.sort.external.SpillManager.SpillFile;
+import com.dremio.sabot.op.sort.external.SpillManager.SpillOutputStream;
+import com.google.common.base.Preconditions;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Distributes the records of one side of a hash join into a fixed number of partitions on disk, based on the hash
+ * of their join keys.<br>
+ * Records of each partition are accumulated in a staging container and written out as a single batch whenever the
+ * container reaches the target batch size, so the spill files contain full sized batches. Staging containers are
+ * only created for the partitions receiving records.
+ */
+public class SpillPartitionWriter implements AutoCloseable {
+
+  private final BufferAllocator allocator;
+  private final SpillManager spillManager;
+  private final String prefix;
+  private final BatchSchema schema;
+  private final long seed;
+  private final int partitionMask;
+  private final int targetBatchSize;
+
+  private final VectorContainer[] staging;
+  private final FieldBufferCopier.Cursor[][] cursors;
+  private final int[] stagedRecords;
+  private final SpillFile[] files;
+  private final SpillOutputStream[] streams;
+  private final int[] batchCounts;
+  private final long[] recordCounts;
+  private long spilledRecords;
+
+  /**
+   * @param allocator allocator for the staging containers and temporary buffers
+   * @param spillManager spill manager used to create the partition files
+   * @param prefix prefix of the partition file names
+   * @param schema schema of the records to partition
+   * @param numPartitions number of partitions, must be a power of two
+   * @param seed seed of the partitioning hash. Recursive repartitioning must use a different seed at each level.
+   * @param targetBatchSize number of records per spilled batch
+   */
+  public SpillPartitionWriter(BufferAllocator allocator, SpillManager spillManager, String prefix, BatchSchema schema,
+                              int numPartitions, long seed, int targetBatchSize) {
+    Preconditions.checkArgument(Integer.bitCount(numPartitions) == 1, "Number of partitions must be a power of two");
+    this.allocator = allocator;
+    this.spillManager = spillManager;
+    this.prefix = prefix;
+    this.schema = schema;
+    this.seed = seed;
+    this.partitionMask = numPartitions - 1;
+    this.targetBatchSize = targetBatchSize;
+
+    this.staging = new VectorContainer[numPartitions];
+    this.cursors = new FieldBufferCopier.Cursor[numPartitions][];
+    this.stagedRecords = new int[numPartitions];
+    this.files = new SpillFile[numPartitions];
+    this.streams = new SpillOutputStream[numPartitions];
+    this.batchCounts = new int[numPartitions];
+    this.recordCounts = new long[numPartitions];
+  }
+
+  /**
+   * Creates a source of records for this writer.
+   *
+   * @param incoming vectors holding the records, in the order of the writer schema
+   * @param keys key vectors of the incoming records. The pivot of the keys must have the same layout for all the
+   *             sources of both sides of the join so that matching keys land in the same partition.
+   */
+  public Source newSource(List<FieldVector> incoming, List<FieldVector> keys) {
+    return new Source(incoming, keys);
+  }
+
+  /**
+   * Partitions and stages the first {@code records} records of the source.
+   */
+  public void write(Source source, int records) throws IOException {
+    if (records == 0) {
+      return;
+    }
+
+    final int numPartitions = staging.length;
+    try (FixedBlockVector fbv = new FixedBlockVector(allocator, source.keyPivot.getBlockWidth());
+         VariableBlockVector var = new VariableBlockVector(allocator, source.keyPivot.getVariableCount());
+         ArrowBuf hashValues = allocator.buffer(records * 8L);
+         ArrowBuf sv2 = allocator.buffer(records * 2L)) {
+      Pivots.pivot(source.keyPivot, records, fbv, var);
+      final BlockChunk blockChunk = new BlockChunk(fbv.getMemoryAddress(), var.getMemoryAddress(),
+        source.keyPivot.getVariableCount() == 0, source.keyPivot.getBlockWidth(), records, hashValues.memoryAddress(), seed);
+      HashComputation.computeHash(blockChunk);
+
+      // counting sort of the record indices by partition
+      final long hashAddr = hashValues.memoryAddress();
+      final int[] starts = new int[numPartitions + 1];
+      for (int i = 0; i < records; i++) {
+        starts[partitionOf(PlatformDependent.getLong(hashAddr + i * 8L)) + 1]++;
+      }
+      for (int p = 0; p < numPartitions; p++) {
+        starts[p + 1] += starts[p];
+      }
+      final int[] positions = new int[numPartitions];
+      System.arraycopy(starts, 0, positions, 0, numPartitions);
+      final long sv2Addr = sv2.memoryAddress();
+      for (int i = 0; i < records; i++) {
+        final int partition = partitionOf(PlatformDependent.getLong(hashAddr + i * 8L));
+        PlatformDependent.putShort(sv2Addr + positions[partition]++ * 2L, (short) i);
+      }
+
+      for (int p = 0; p < numPartitions; p++) {
+        final int count = starts[p + 1] - starts[p];
+        if (count > 0) {
+          append(source, p, sv2Addr + starts[p] * 2L, count);
+        }
+      }
+    }
+    spilledRecords += records;
+  }
+
+  private int partitionOf(long hash) {
+    return (int) (hash & partitionMask);
+  }
+
+  private VectorContainer getStaging(int partition) {
+    if (staging[partition] == null) {
+      staging[partition] = VectorContainer.create(allocator, schema);
+      cursors[partition] = new FieldBufferCopier.Cursor[schema.getFieldCount()];
+    }
+    return staging[partition];
+  }
+
+  private void append(Source source, int partition, long sv2Addr, int count) throws IOException {
+    final List<FieldBufferCopier> copiers = source.getCopiers(partition);
+    final FieldBufferCopier.Cursor[] partitionCursors = cursors[partition];
+    while (count > 0) {
+      if (stagedRecords[partition] == 0) {
+        for (FieldBufferCopier copier : copiers) {
+          copier.allocate(targetBatchSize);
+        }
+      }
+
+      final int toCopy = Math.min(count, targetBatchSize - stagedRecords[partition]);
+      for (int i = 0; i < copiers.size(); i++) {
+        partitionCursors[i] = copiers.get(i).copy(sv2Addr, toCopy, partitionCursors[i]);
+      }
+      stagedRecords[partition] += toCopy;
+      sv2Addr += toCopy * 2L;
+      count -= toCopy;
+
+      if (stagedRecords[partition] == targetBatchSize) {
+        flush(partition);
+      }
+    }
+  }
+
+  private void flush(int partition) throws IOException {
+    final int records = stagedRecords[partition];
+    if (records == 0) {
+      return;
+    }
+
+    if (streams[partition] == null) {
+      files[partition] = spillManager.getSpillFile(String.format("%s%03d", prefix, partition));
+      streams[partition] = files[partition].create(false);
+    }
+    staging[partition].setAllCount(records);
+    streams[partition].writeBatch(staging[partition]);
+    staging[partition].zeroVectors();
+
+    batchCounts[partition]++;
+    recordCounts[partition] += records;
+    stagedRecords[partition] = 0;
+    final FieldBufferCopier.Cursor[] partitionCursors = cursors[partition];
+    for (int i = 0; i < partitionCursors.length; i++) {
+      partitionCursors[i] = null;
+    }
+  }
+
+  /**
+   * Writes out all the staged records and closes the partition files.
+   *
+   * @return the spilled partitions, in partition order. Partitions without records have no file.
+   */
+  public List<SpilledPartitionSide> finish() throws Exception {
+    final List<SpilledPartitionSide> sides = new ArrayList<>(staging.length);
+    for (int p = 0; p < staging.length; p++) {
+      flush(p);
+      if (streams[p] != null) {
+        streams[p].close();
+        streams[p] = null;
+      }
+      sides.add(new SpilledPartitionSide(files[p], batchCounts[p], recordCounts[p]));
+      files[p] = null;
+    }
+    return sides;
+  }
+
+  public long getSpilledRecords() {
+    return spilledRecords;
+  }
+
+  @Override
+  public void close() throws Exception {
+    final List<AutoCloseable> closeables = new ArrayList<>();
+    for (int p = 0; p < staging.length; p++) {
+      closeables.add(streams[p]);
+      // files not handed over by finish() are deleted
+      closeables.add(files[p]);
+      closeables.add(staging[p]);
+    }
+    AutoCloseables.close(closeables);
+  }
+
+  /**
+   * Set of vectors the writer can partition records from.
+   */
+  public final class Source {
+    private final List<FieldVector> incoming;
+    private final PivotDef keyPivot;
+    // copiers to the staging container of each partition, created along with the container
+    private final List<List<FieldBufferCopier>> copiers;
+
+    private Source(List<FieldVector> incoming, List<FieldVector> keys) {
+      final List<FieldVectorPair> keyPairs = new ArrayList<>(keys.size());
+      for (FieldVector key : keys) {
+        keyPairs.add(new FieldVectorPair(key, key));
+      }
+      this.incoming = incoming;
+      this.keyPivot = PivotBuilder.getBlockDefinition(keyPairs);
+      this.copiers = new ArrayList<>(Collections.nCopies(staging.length, null));
+    }
+
+    private List<FieldBufferCopier> getCopiers(int partition) {
+      List<FieldBufferCopier> partitionCopiers = copiers.get(partition);
+      if (partitionCopiers == null) {
+        partitionCopiers = FieldBufferCopier.getCopiers(incoming, VectorContainer.getFieldVectors(getStaging(partition)));
+        copiers.set(partition, partitionCopiers);
+      }
+      return partitionCopiers;
+    }
+  }
+}
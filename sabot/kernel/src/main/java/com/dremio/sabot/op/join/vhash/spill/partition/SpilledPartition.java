@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.join.vhash.spill.partition;
+
+import com.dremio.common.AutoCloseables;
+
+/**
+ * A partition of a spilled hash join: the build and probe records whose join keys hash to the same partition.
+ * Since matching keys always land in the same partition, each partition can be joined independently.
+ */
+public class SpilledPartition implements AutoCloseable {
+
+  private final int index;
+  private final SpilledPartitionSide build;
+  private final SpilledPartitionSide probe;
+
+  public SpilledPartition(int index, SpilledPartitionSide build, SpilledPartitionSide probe) {
+    this.index = index;
+    this.build = build;
+    this.probe = probe;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public SpilledPartitionSide getBuild() {
+    return build;
+  }
+
+  public SpilledPartitionSide getProbe() {
+    return probe;
+  }
+
+  public boolean isEmpty() {
+    return build.getRecordCount() == 0 && probe.getRecordCount() == 0;
+  }
+
+  @Override
+  public void close() throws Exception {
+    AutoCloseables.close(build, probe);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("partition %d (build records %d, probe records %d)", index, build.getRecordCount(),
+      probe.getRecordCount());
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.join.vhash.spill.partition;
+
+import java.io.IOException;
+
+import org.apache.arrow.memory.BufferAllocator;
+
+import com.dremio.exec.record.VectorContainer;
+import com.dremio.sabot.op.sort.external.SpillManager.SpillFile;
+import com.dremio.sabot.op.sort.external.SpillManager.SpillInputStream;
+import com.google.common.base.Preconditions;
+
+/**
+ * Build or probe records of a single spilled partition. Owns the spill file, which is deleted on close.
+ */
+public class SpilledPartitionSide implements AutoCloseable {
+
+  private final SpillFile file;
+  private final int batchCount;
+  private final long recordCount;
+
+  private SpillInputStream input;
+  private int batchesRead;
+
+  SpilledPartitionSide(SpillFile file, int batchCount, long recordCount) {
+    this.file = file;
+    this.batchCount = batchCount;
+    this.recordCount = recordCount;
+  }
+
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+  public boolean hasNext() {
+    return batchesRead < batchCount;
+  }
+
+  /**
+   * Loads the next spilled batch into the container.
+   *
+   * @return number of records loaded
+   */
+  public int next(VectorContainer container, BufferAllocator allocator) throws IOException {
+    Preconditions.checkState(hasNext(), "No more spilled batches");
+    if (input == null) {
+      input = file.open(false);
+    }
+    input.load(container, allocator);
+    batchesRead++;
+    if (!hasNext()) {
+      input.close();
+      input = null;
+    }
+    return container.getRecordCount();
+  }
+
+  @Override
+  public void close() throws Exception {
+    try {
+      if (input != null) {
+        input.close();
+        input = null;
+      }
+    } finally {
+      if (file != null) {
+        file.close();
+      }
+    }
+  }
+}
@@ -37,6 +37,7 @@ import com.dremio.exec.planner.fragment.PlanFragmentsIndex;
 import com.dremio.exec.proto.CoordExecRPC.Collector;
 import com.dremio.exec.proto.ExecProtos.FragmentHandle;
 import com.dremio.exec.proto.ExecRPC.FragmentStreamComplete;
+import com.dremio.exec.record.ExchangeBatchCompressor;
 import com.dremio.exec.testing.ControlsInjector;
 import com.dremio.exec.testing.ControlsInjectorFactory;
 import com.dremio.exec.testing.ExecutionControls;
@@ -164,14 +165,29 @@ public class IncomingBuffers implements BatchStreamProvider, AutoCloseable {
       final DataCollector collector = collector(incomingBatch.getHeader().getSendingMajorFragmentId());
 
       synchronized (collector) {
-        try(final RawFragmentBatch newRawFragmentBatch = incomingBatch.newRawFragmentBatch(allocator)){
+        try(final RawFragmentBatch newRawFragmentBatch = newRawFragmentBatch(incomingBatch)){
           collector.batchArrived(incomingBatch.getHeader().getSendingMinorFragmentId(), newRawFragmentBatch);
+        } catch (OutOfMemoryException e) {
+          deferredException.addException(UserException.memoryError()
+              .message("Out of memory while decompressing incoming message. Message size: %d", incomingBatch.size())
+              .addContext(MemoryDebugInfo.getDetailsOnAllocationFailure(e, allocator))
+              .build(logger));
         }
       }
     }
 
   }
 
+  private RawFragmentBatch newRawFragmentBatch(final IncomingDataBatch incomingBatch) {
+    final RawFragmentBatch rawFragmentBatch = incomingBatch.newRawFragmentBatch(allocator);
+    if (!incomingBatch.getHeader().getLz4Compressed()) {
+      return rawFragmentBatch;
+    }
+    try (final RawFragmentBatch compressedBatch = rawFragmentBatch) {
+      return ExchangeBatchCompressor.decompress(compressedBatch, allocator);
+    }
+  }
+
 
   @Override
   public boolean isPotentiallyBlocked() {
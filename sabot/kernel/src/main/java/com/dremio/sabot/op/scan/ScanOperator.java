@@ -165,7 +165,20 @@ public class ScanOperator implements ProducerOperator {
     AVG_METADATA_IO_READ_TIME_NS,  // Average IO read time for metadata operations
     NUM_METADATA_IO_READ,
     HIVE_FILE_FORMATS,// File Formats in hive sub scan represented as bitmap. Indices correspond to HiveFilFormat enum
-    NUM_ZERO_SIZED_COLUMN // Number of zero sized column
+    NUM_ZERO_SIZED_COLUMN, // Number of zero sized column
+    ROW_GROUPS_PRUNED_WITH_RUNTIME_FILTER, // Number of rowgroups skipped using column statistics and runtime filter
+    FOOTER_CACHE_HITS, // Number of parquet footers served from the executor footer cache
+    FOOTER_CACHE_MISSES, // Number of parquet footers read from the file
+    PAGE_INDEX_CACHE_HITS, // Number of column/offset index lookups served from the executor footer cache
+    PAGE_INDEX_CACHE_MISSES, // Number of column/offset index lookups read from the file
+    SCAN_RESULT_CACHE_HITS, // Number of splits served from the executor scan result cache
+    SCAN_RESULT_CACHE_MISSES, // Number of cacheable splits read from the file
+    SCAN_RESULT_CACHE_HIT_BYTES, // Size of the batches served from the executor scan result cache
+    NUM_ELASTIC_SLICES_READ, // Number of Elasticsearch shards or shard slices read
+    ELASTIC_SLICE_READ_TIME_NS, // Total time spent waiting on Elasticsearch for the pages of the slices
+    MAX_ELASTIC_SLICE_READ_TIME_NS, // Max time spent waiting on Elasticsearch for the pages of a slice
+    NUM_PARQUET_COLUMNS_PREFETCHED, // Number of parquet column chunks prefetched with coalesced reads
+    PARQUET_PREFETCHED_BYTES // Size of the parquet column chunks prefetched with coalesced reads
     ;
 
     @Override
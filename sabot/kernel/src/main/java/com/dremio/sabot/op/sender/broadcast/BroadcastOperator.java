@@ -31,6 +31,7 @@ import com.dremio.exec.proto.CoordinationProtos.NodeEndpoint;
 import com.dremio.exec.proto.ExecProtos;
 import com.dremio.exec.proto.ExecProtos.FragmentHandle;
 import com.dremio.exec.proto.ExecRPC.FragmentStreamComplete;
+import com.dremio.exec.record.ExchangeBatchCompressor;
 import com.dremio.exec.record.FragmentWritableBatch;
 import com.dremio.exec.record.VectorAccessible;
 import com.dremio.sabot.exec.context.MetricDef;
@@ -62,11 +63,15 @@ public class BroadcastOperator extends BaseSender {
   private final OperatorStats stats;
   private final OperatorContext context;
 
+  private final ExchangeBatchCompressor compressor;
+
   private VectorAccessible incoming;
 
   public enum Metric implements MetricDef {
     N_RECEIVERS,
-    BYTES_SENT;
+    BYTES_SENT,
+    UNCOMPRESSED_BYTES, // bytes of the compressed batches before compression
+    COMPRESSED_BYTES; // bytes of the compressed batches after compression
     @Override
     public int metricId() {
       return ordinal();
@@ -79,6 +84,8 @@ public class BroadcastOperator extends BaseSender {
     this.context = context;
     this.handle = context.getFragmentHandle();
     this.stats = context.getStats();
+    this.compressor = ExchangeBatchCompressor.create(context.getAllocator(), context.getOptions(), stats,
+      Metric.UNCOMPRESSED_BYTES, Metric.COMPRESSED_BYTES);
 
     final List<MinorFragmentEndpoint> destinations = config.getDestinations(context.getEndpointsIndex());
     final ArrayListMultimap<NodeEndpoint, Integer> dests = ArrayListMultimap.create();
@@ -173,6 +180,11 @@ public class BroadcastOperator extends BaseSender {
         }
       }).toList();
 
+    final boolean compressed = compressor.isEnabled();
+    if (compressed) {
+      buffers = compressor.compress(buffers);
+    }
+
     if (tunnels.length > 1) {
       for (ArrowBuf buf : buffers) {
         buf.retain(tunnels.length - 1);
@@ -186,6 +198,7 @@ public class BroadcastOperator extends BaseSender {
           handle.getMinorFragmentId(),
           config.getReceiverMajorFragmentId(),
           new ArrowRecordBatch(arrowRecordBatch.getLength(), arrowRecordBatch.getNodes(), buffers, NoCompressionCodec.DEFAULT_BODY_COMPRESSION, false),
+          compressed,
           receivingMinorFragments[i]);
       updateStats(batch);
       tunnels[i].sendRecordBatch(batch);
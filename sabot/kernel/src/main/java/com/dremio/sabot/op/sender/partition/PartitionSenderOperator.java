@@ -92,7 +92,9 @@ public class PartitionSenderOperator extends BaseSender {
     PRECOPY_NS,
     FLUSH_NS,
     NUM_FLUSHES,
-    BUCKET_SIZE;
+    BUCKET_SIZE,
+    UNCOMPRESSED_BYTES, // bytes of the compressed batches before compression
+    COMPRESSED_BYTES; // bytes of the compressed batches after compression
 
     @Override
     public int metricId() {
@@ -26,6 +26,7 @@ import org.apache.arrow.vector.VarCharVector;
 import com.dremio.exec.expr.TypeHelper;
 import com.dremio.exec.physical.config.HashPartitionSender;
 import com.dremio.exec.proto.ExecProtos;
+import com.dremio.exec.record.ExchangeBatchCompressor;
 import com.dremio.exec.record.FragmentWritableBatch;
 import com.dremio.exec.record.VectorAccessible;
 import com.dremio.exec.record.VectorContainer;
@@ -50,6 +51,7 @@ public class OutgoingBatch extends VectorContainer {
   private final int oppositeMinorFragmentId;
 
   private final OperatorStats stats;
+  private final ExchangeBatchCompressor compressor;
 
   // we need these to set the lastSet value for variable length vectors
   private final List<VarCharVector> varchars = Lists.newArrayList();
@@ -66,7 +68,8 @@ public class OutgoingBatch extends VectorContainer {
 
   OutgoingBatch(int batchIdx, int nextBatchIdx, int maxRecords, final VectorAccessible incoming,
                 BufferAllocator allocator, AccountingExecTunnel tunnel, HashPartitionSender config,
-                OperatorContext context, int oppositeMinorFragmentId, OperatorStats stats) {
+                OperatorContext context, int oppositeMinorFragmentId, OperatorStats stats,
+                ExchangeBatchCompressor compressor) {
     Preconditions.checkArgument(maxRecords <= Character.MAX_VALUE, "maxRecords cannot exceed " + Character.MAX_VALUE);
     this.batchIdx = batchIdx;
     this.nextBatchIdx = nextBatchIdx;
@@ -78,6 +81,7 @@ public class OutgoingBatch extends VectorContainer {
     this.oppositeMinorFragmentId = oppositeMinorFragmentId;
 
     this.stats = stats;
+    this.compressor = compressor;
 
     for (VectorWrapper<?> v : incoming) {
       ValueVector outgoingVector = TypeHelper.getNewVector(v.getField(), allocator);
@@ -166,7 +170,8 @@ public class OutgoingBatch extends VectorContainer {
       handle.getMinorFragmentId(),
       config.getReceiverMajorFragmentId(),
       this,
-      oppositeMinorFragmentId);
+      oppositeMinorFragmentId,
+      compressor);
 
     updateStats(writableBatch);
 
@@ -37,6 +37,7 @@ import com.dremio.exec.physical.config.MinorFragmentEndpoint;
 import com.dremio.exec.proto.ExecProtos;
 import com.dremio.exec.proto.ExecRPC;
 import com.dremio.exec.record.BatchSchema;
+import com.dremio.exec.record.ExchangeBatchCompressor;
 import com.dremio.exec.record.TypedFieldId;
 import com.dremio.exec.record.VectorAccessible;
 import com.dremio.exec.record.VectorContainer;
@@ -209,14 +210,18 @@ public class VectorizedPartitionSenderOperator extends BaseSender {
   private void initBatchesAndLookup(VectorAccessible incoming) {
     final BufferAllocator allocator = context.getAllocator();
     final List<MinorFragmentEndpoint> destinations = config.getDestinations(context.getEndpointsIndex());
+    final ExchangeBatchCompressor compressor = ExchangeBatchCompressor.create(allocator, context.getOptions(), stats,
+      Metric.UNCOMPRESSED_BYTES, Metric.COMPRESSED_BYTES);
     for (int p = 0; p < numReceivers; p++) {
       final int batchB = numReceivers + p;
 
       final MinorFragmentEndpoint destination = destinations.get(p);
       final AccountingExecTunnel tunnel = tunnelProvider.getExecTunnel(destination.getEndpoint());
 
-      batches[p] = new OutgoingBatch(p, batchB, numRecordsBeforeFlush, incoming, allocator, tunnel, config, context, destination.getMinorFragmentId(), stats);
-      batches[batchB] = new OutgoingBatch(batchB, p, numRecordsBeforeFlush, incoming, allocator, tunnel, config, context, destination.getMinorFragmentId(), stats);
+      batches[p] = new OutgoingBatch(p, batchB, numRecordsBeforeFlush, incoming, allocator, tunnel, config, context,
+        destination.getMinorFragmentId(), stats, compressor);
+      batches[batchB] = new OutgoingBatch(batchB, p, numRecordsBeforeFlush, incoming, allocator, tunnel, config, context,
+        destination.getMinorFragmentId(), stats, compressor);
 
       // Only allocate the primary batch. Backup batch is allocated when it is needed.
       batches[p].allocateNew();
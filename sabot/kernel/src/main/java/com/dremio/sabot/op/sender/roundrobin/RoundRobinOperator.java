@@ -34,6 +34,7 @@ import com.dremio.exec.proto.CoordinationProtos.NodeEndpoint;
 import com.dremio.exec.proto.ExecProtos;
 import com.dremio.exec.proto.ExecProtos.FragmentHandle;
 import com.dremio.exec.proto.ExecRPC.FragmentStreamComplete;
+import com.dremio.exec.record.ExchangeBatchCompressor;
 import com.dremio.exec.record.FragmentWritableBatch;
 import com.dremio.exec.record.VectorAccessible;
 import com.dremio.sabot.exec.context.MetricDef;
@@ -65,11 +66,15 @@ public class RoundRobinOperator extends BaseSender {
   private int currentTunnelsIndex;
   private int currentMinorFragmentsIndex;
 
+  private final ExchangeBatchCompressor compressor;
+
   private VectorAccessible incoming;
 
   public enum Metric implements MetricDef {
     N_RECEIVERS,
-    BYTES_SENT;
+    BYTES_SENT,
+    UNCOMPRESSED_BYTES, // bytes of the compressed batches before compression
+    COMPRESSED_BYTES; // bytes of the compressed batches after compression
     @Override
     public int metricId() {
       return ordinal();
@@ -82,6 +87,8 @@ public class RoundRobinOperator extends BaseSender {
     this.allocator = context.getAllocator();
     this.handle = context.getFragmentHandle();
     this.stats = context.getStats();
+    this.compressor = ExchangeBatchCompressor.create(context.getAllocator(), context.getOptions(), stats,
+      Metric.UNCOMPRESSED_BYTES, Metric.COMPRESSED_BYTES);
 
     List<MinorFragmentEndpoint> destinations = config.getDestinations(context.getEndpointsIndex());
     final ArrayListMultimap<NodeEndpoint, Integer> dests = ArrayListMultimap.create();
@@ -168,12 +175,18 @@ public class RoundRobinOperator extends BaseSender {
         }
       }).toList();
 
+    final boolean compressed = compressor.isEnabled();
+    if (compressed) {
+      buffers = compressor.compress(buffers);
+    }
+
     FragmentWritableBatch batch = new FragmentWritableBatch(
       handle.getQueryId(),
       handle.getMajorFragmentId(),
       handle.getMinorFragmentId(),
       config.getReceiverMajorFragmentId(),
       new ArrowRecordBatch(arrowRecordBatch.getLength(), arrowRecordBatch.getNodes(), buffers, NoCompressionCodec.DEFAULT_BODY_COMPRESSION, false),
+      compressed,
       minorFragments.get(currentTunnelsIndex).get(currentMinorFragmentsIndex)
     );
     updateStats(batch);
@@ -87,6 +87,7 @@ public class DiskRunManager implements AutoCloseable {
   @VisibleForTesting
   public static final String INJECTOR_OOM_SPILL = "injectOOMOnSpill";
   private static final ControlsInjector injector = ControlsInjectorFactory.getInjector(DiskRunManager.class);
+  private static final int MIN_READ_BUFFER_SIZE = 8 * 1024;
 
   private final List<Ordering> orderings;
   private final List<DiskRun> diskRuns = new CopyOnWriteArrayList<>();
@@ -121,6 +122,10 @@ public class DiskRunManager implements AutoCloseable {
   private long oomAllocate;
   private long oomCopy;
   private final double allocationDensity;
+  private final int maxMergeFanIn;
+  private final long readBufferBudget;
+  // read-ahead buffer size of each of the disk runs read at once
+  private int readBufferSize;
   private long compressionNanos;
   private long uncompressionNanos;
 
@@ -170,6 +175,8 @@ public class DiskRunManager implements AutoCloseable {
       this.useArrowEncoding = optionManager.getOption(ExecConstants.EXTERNAL_SORT_ARROW_ENCODING);
       this.useVectorCopier = optionManager.getOption(ExecConstants.EXTERNAL_SORT_VECTOR_COPIER);
       this.allocationDensity = optionManager.getOption(ExecConstants.EXTERNAL_SORT_SPILL_ALLOCATION_DENSITY);
+      this.maxMergeFanIn = (int) optionManager.getOption(ExecConstants.EXTERNAL_SORT_MAX_MERGE_FAN_IN);
+      this.readBufferBudget = optionManager.getOption(ExecConstants.EXTERNAL_SORT_SPILL_READ_BUFFER_BUDGET);
 
       if (compressSpilledBatch) {
         long reserve = VectorAccessibleSerializable.RAW_CHUNK_SIZE_TO_COMPRESS * 2;
@@ -215,6 +222,9 @@ public class DiskRunManager implements AutoCloseable {
    *
    * After all of the disk runs in the DiskRunMerger have been merged, the newly created diskrun is added to the list,
    * and the process repeats
+   *
+   * When there are more disk runs than the maximum merge fan-in, runs are merged in groups of at most that many before
+   * the final copy, irrespective of memory, so that the number of spill files open at once stays bounded.
    * @return true if we successfully reserved enough memory to handle all disk runs
    */
   public boolean consolidateAsNecessary() {
@@ -233,6 +243,11 @@ public class DiskRunManager implements AutoCloseable {
           .build(logger);
       }
     }
+    if (diskRuns.size() > maxMergeFanIn) {
+      // too many runs to read at once, merge a group of them first
+      mergeState = MergeState.MERGE;
+      return startMerge(maxMergeFanIn);
+    }
     try {
       getCopierAllocator(diskRuns);
       mergeState = MergeState.COPY;
@@ -260,7 +275,15 @@ public class DiskRunManager implements AutoCloseable {
 
     int runsToMerge = (diskRuns.size() + 1) / 2;
     logger.debug("Failed to reserve enough memory to merge {} diskruns. Try with {} runs", diskRuns.size(), runsToMerge);
+    return startMerge(runsToMerge);
+  }
 
+  /**
+   * Sets up a DiskRunMerger for the first runsToMerge disk runs, halving the number of runs until the copier memory
+   * can be reserved.
+   * @return always false, the runs still need to be consolidated
+   */
+  private boolean startMerge(int runsToMerge) {
     List<DiskRun> runList = null;
     while (true) {
       try {
@@ -706,11 +729,24 @@ public class DiskRunManager implements AutoCloseable {
     // add the required space for the copy output. We use * 3 to manage against a really large vector.
     totalSizeNeeded += targetBatchSizeInBytes * 3;
 
+    // the read-ahead buffers are on heap, but count them so that they stay within the memory of the sort.
+    readBufferSize = getReadBufferSize(diskRuns.size());
+    totalSizeNeeded += (long) readBufferSize * diskRuns.size();
+
     // because we can't know for sure how much memory will be needed for variable length vectors we don't put a limit
     // on the copy allocator. But this will still be capped by the sort allocator limit.
     copierAllocator = this.parentAllocator.newChildAllocator("spill_copier", totalSizeNeeded, Long.MAX_VALUE);
   }
 
+  private int getReadBufferSize(int numRuns) {
+    if (numRuns == 0) {
+      return 0;
+    }
+    final long size = readBufferBudget / numRuns;
+    // below this, a buffer doesn't save much over reading batch by batch
+    return size < MIN_READ_BUFFER_SIZE ? 0 : (int) size;
+  }
+
   public PriorityQueueCopier createCopier() throws Exception {
     Preconditions.checkState(tempContainer == null);
     Preconditions.checkState(mergeState == MergeState.COPY);
@@ -874,7 +910,7 @@ public class DiskRunManager implements AutoCloseable {
       try (RollbackCloseable rollback = new RollbackCloseable()){
         this.allocator = rollback.add(parentAllocator.newChildAllocator("diskrun", 0, memCapacity));
         this.container = rollback.add(VectorContainer.create(allocator, dataSchema));
-        this.inputStream = rollback.add(spillFile.open(useArrowEncoding && compressSpilledBatch));
+        this.inputStream = rollback.add(spillFile.open(useArrowEncoding && compressSpilledBatch, readBufferSize));
         this.batchIndexMax = batchCount;
         loadNextBatch(true);
         hyperContainer.addBatch(this.container);
@@ -176,6 +176,8 @@ public class ExternalSortOperator implements SingleInputOperator {
 
     OOM_ALLOCATE_COUNT,
     OOM_COPY_COUNT,
+
+    SPILL_COMPRESSION_RATIO, // uncompressed bytes written per byte written to disk, multiplied by 100
     ;
 
     @Override
@@ -421,6 +423,9 @@ public class ExternalSortOperator implements SingleInputOperator {
       stats.setLongStat(Metric.OOM_ALLOCATE_COUNT, diskRuns.getOOMAllocateCount());
       stats.setLongStat(Metric.OOM_COPY_COUNT, diskRuns.getOOMCopyCount());
       stats.setLongStat(Metric.SPILL_COPY_NANOS, diskRuns.getSpillCopyNanos());
+      if (diskRuns.getIOWriteBytes() > 0) {
+        stats.setLongStat(Metric.SPILL_COMPRESSION_RATIO, diskRuns.getAppWriteBytes() * 100 / diskRuns.getIOWriteBytes());
+      }
     }
 
   }
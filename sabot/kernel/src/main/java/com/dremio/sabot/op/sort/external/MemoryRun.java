@@ -281,6 +281,10 @@ class MemoryRun implements AutoCloseable {
     injector.injectChecked(executionControls, INJECTOR_OOM_ON_SORT, OutOfMemoryException.class);
 
     SelectionVector4 sv4 = sorter.getFinalSort(copyTargetAllocator, targetBatchSize);
+    if (sortConfig.getLimit() > 0) {
+      // records past the limit of this run can't be part of the first records of the merged output
+      sv4.truncate(sortConfig.getLimit());
+    }
     for (VectorWrapper<?> w : sorter.getHyperBatch()) {
       container.add(w.getValueVectors());
     }
@@ -15,6 +15,7 @@
  */
 package com.dremio.sabot.op.sort.external;
 
+import java.io.BufferedInputStream;
 import java.io.FilterInputStream;
 import java.io.FilterOutputStream;
 import java.io.IOException;
@@ -48,6 +49,8 @@ import com.dremio.service.spill.SpillService;
 
 import net.jpountz.lz4.LZ4BlockInputStream;
 import net.jpountz.lz4.LZ4BlockOutputStream;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
 
 /**
  * Distribute spills across given list of directories.
@@ -57,13 +60,15 @@ import net.jpountz.lz4.LZ4BlockOutputStream;
 public class SpillManager implements AutoCloseable {
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SpillManager.class);
 
-  static final String DREMIO_LOCAL_IMPL_STRING = "fs.dremio-local.impl";
+  public static final String DREMIO_LOCAL_IMPL_STRING = "fs.dremio-local.impl";
+  private static final int COMPRESSION_BLOCK_SIZE = 64 * 1024;
 
   private final String id;
   private final SpillService spillService;
   private final String caller;
   private final OperatorStats stats;
   private final boolean useDirectWritePathIfPossible;
+  private final boolean useHighCompression;
   private long appWriteBytes;
   private long appReadBytes;
   private long ioReadBytes;
@@ -87,8 +92,10 @@ public class SpillManager implements AutoCloseable {
     // load options
     if (optionManager != null) {
       this.useDirectWritePathIfPossible = optionManager.getOption(ExecConstants.EXTERNAL_SORT_DIRECT_WRITE);
+      this.useHighCompression = "lz4_hc".equalsIgnoreCase(optionManager.getOption(ExecConstants.EXTERNAL_SORT_SPILL_COMPRESSION_CODEC));
     } else {
       this.useDirectWritePathIfPossible = ExecConstants.EXTERNAL_SORT_DIRECT_WRITE.getDefault().getBoolVal();
+      this.useHighCompression = false;
     }
 
     try {
@@ -131,7 +138,14 @@ public class SpillManager implements AutoCloseable {
     }
 
     public SpillInputStream open(boolean compressed) throws IOException {
-      return createSpillInputStream(this, compressed);
+      return createSpillInputStream(this, compressed, 0);
+    }
+
+    /**
+     * Opens the file with a heap read-ahead buffer of the given size, for files read front to back.
+     */
+    public SpillInputStream open(boolean compressed, int readBufferSize) throws IOException {
+      return createSpillInputStream(this, compressed, readBufferSize);
     }
 
     public FSDataOutputStream create() throws IOException {
@@ -194,11 +208,16 @@ public class SpillManager implements AutoCloseable {
       logger.debug("Failed to get inner wrapped stream, using fallback.", ex);
     }
     ABOutputStreamWithStats base = new ABOutputStreamWithStats(actualOutput);
-    ABOutputStreamWithStats top = compressed ? new ABOutputStreamWithStats(new LZ4BlockOutputStream(base)) : base;
+    ABOutputStreamWithStats top = compressed ? new ABOutputStreamWithStats(new LZ4BlockOutputStream(base, COMPRESSION_BLOCK_SIZE, getCompressor())) : base;
     boolean useDirectWrite = useDirectWritePathIfPossible && !compressed && actualOutput instanceof WritesArrowBuf;
     return new SpillOutputStream(top, base, file, compressed, useDirectWrite);
   }
 
+  private LZ4Compressor getCompressor() {
+    // both compressors produce the same block format, so the reader doesn't need to know which one was used.
+    return useHighCompression ? LZ4Factory.fastestInstance().highCompressor() : LZ4Factory.fastestInstance().fastCompressor();
+  }
+
   public class SpillOutputStream extends FilterOutputStream {
 
     private final byte[] heapMoveBuffer = new byte[64*1024];
@@ -271,8 +290,12 @@ public class SpillManager implements AutoCloseable {
 
   }
 
-  private SpillInputStream createSpillInputStream(SpillFile file, boolean compressed) throws IOException {
+  private SpillInputStream createSpillInputStream(SpillFile file, boolean compressed, int readBufferSize) throws IOException {
     InputStream output = file.fs.open(file.path);
+    if (readBufferSize > 0) {
+      // runs are always read front to back, so read ahead in large chunks instead of one batch at a time.
+      output = new BufferedInputStream(output, readBufferSize);
+    }
     InputStreamWithStats base = new InputStreamWithStats(output);
     InputStreamWithStats top = compressed ? new InputStreamWithStats(new LZ4BlockInputStream(base)) : base;
     return new SpillInputStream(top, base, file, compressed);
@@ -45,7 +45,9 @@ import com.dremio.exec.record.VectorAccessible;
 import com.dremio.exec.record.VectorContainer;
 import com.dremio.exec.record.VectorWrapper;
 import com.dremio.exec.record.selection.SelectionVector4;
+import com.dremio.sabot.exec.context.MetricDef;
 import com.dremio.sabot.exec.context.OperatorContext;
+import com.dremio.sabot.exec.context.OperatorStats;
 import com.dremio.sabot.op.copier.Copier;
 import com.dremio.sabot.op.copier.CopierOperator;
 import com.dremio.sabot.op.sort.SortRecordBatchBuilder;
@@ -59,6 +61,7 @@ public class TopNOperator implements SingleInputOperator {
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(TopNOperator.class);
 
   private final int batchPurgeThreshold;
+  private final long purgeMemoryThreshold;
   private final TopN config;
   private final OperatorContext context;
 
@@ -70,6 +73,11 @@ public class TopNOperator implements SingleInputOperator {
   // used to determine whether we should purge.
   private long countSincePurge;
   private int batchCount;
+  private int peakBatchCount;
+
+  private int purgeCount;
+  private long purgeTimeNanos;
+  private long peakMemory;
 
   // used once operator has consumed all data.
   private SelectionVector4 finalOrder;
@@ -82,6 +90,22 @@ public class TopNOperator implements SingleInputOperator {
     this.config = popConfig;
     this.context = context;
     this.batchPurgeThreshold = context.getConfig().getInt(ExecConstants.BATCH_PURGE_THRESHOLD);
+    final double purgeMemoryRatio = context.getOptions().getOption(ExecConstants.TOPN_PURGE_MEMORY_RATIO);
+    final long memoryLimit = context.getAllocator().getLimit();
+    this.purgeMemoryThreshold = purgeMemoryRatio > 0 && memoryLimit < Long.MAX_VALUE ?
+      (long) (memoryLimit * purgeMemoryRatio) : Long.MAX_VALUE;
+  }
+
+  public enum Metric implements MetricDef {
+    PURGE_COUNT,          // number of times the heap was compacted
+    PURGE_TIME_NANOS,     // time spent compacting the heap
+    PEAK_BATCHES_IN_HEAP, // maximum number of batches referenced by the heap
+    PEAK_MEMORY;          // maximum memory used between two compactions
+
+    @Override
+    public int metricId() {
+      return ordinal();
+    }
   }
 
   @Override
@@ -112,8 +136,14 @@ public class TopNOperator implements SingleInputOperator {
     batchCount++;
 
     priorityQueue.add(new RecordBatchData(incoming, context.getAllocator()));
-
-    if (countSincePurge > config.getLimit() && batchCount > batchPurgeThreshold) {
+    peakBatchCount = Math.max(peakBatchCount, batchCount);
+    final long allocatedMemory = context.getAllocator().getAllocatedMemory();
+    peakMemory = Math.max(peakMemory, allocatedMemory);
+
+    // the heap keeps every batch holding one of its records: compact it every few batches, or sooner when it gets
+    // close to the memory limit, as long as it doesn't reference only the records it keeps
+    if (countSincePurge > config.getLimit() &&
+      (batchCount > batchPurgeThreshold || allocatedMemory > purgeMemoryThreshold)) {
       purge();
       countSincePurge = 0;
       batchCount = 0;
@@ -133,6 +163,7 @@ public class TopNOperator implements SingleInputOperator {
     source.setSelectionVector4(finalOrder);
 
     copier.setupRemover(context.getFunctionContext(), source, outgoing);
+    updateStats();
 
     state = State.CAN_PRODUCE;
   }
@@ -202,9 +233,19 @@ public class TopNOperator implements SingleInputOperator {
     } finally {
       builder.close();
     }
+    purgeCount++;
+    purgeTimeNanos += watch.elapsed(TimeUnit.NANOSECONDS);
     logger.debug("Took {} us to purge", watch.elapsed(TimeUnit.MICROSECONDS));
   }
 
+  private void updateStats() {
+    final OperatorStats stats = context.getStats();
+    stats.setLongStat(Metric.PURGE_COUNT, purgeCount);
+    stats.setLongStat(Metric.PURGE_TIME_NANOS, purgeTimeNanos);
+    stats.setLongStat(Metric.PEAK_BATCHES_IN_HEAP, peakBatchCount);
+    stats.setLongStat(Metric.PEAK_MEMORY, peakMemory);
+  }
+
   private PriorityQueue createNewPriorityQueue(ClassProducer producer, List<Ordering> orderings) throws ClassTransformationException, IOException, SchemaChangeException {
 
     final MappingSet leftMapping = new MappingSet("leftIndex", null, ClassGenerator.DEFAULT_SCALAR_MAP, ClassGenerator.DEFAULT_SCALAR_MAP);
@@ -257,6 +298,7 @@ public class TopNOperator implements SingleInputOperator {
 
   @Override
   public void close() throws Exception {
+    updateStats();
     AutoCloseables.close(outgoing, finalOrder, priorityQueue, copier);
   }
 
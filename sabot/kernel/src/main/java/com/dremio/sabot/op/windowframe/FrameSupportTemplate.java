@@ -20,6 +20,7 @@ import java.util.List;
 import javax.inject.Named;
 
 import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
 import org.apache.arrow.vector.BaseValueVector;
 import org.apache.arrow.vector.ValueVector;
 
@@ -43,6 +44,9 @@ public abstract class FrameSupportTemplate implements WindowFramer {
   protected FunctionContext context;
   private VectorAccessible container;
   private VectorContainer internal;
+  // copy of the last row of a frame that ends after the current batch, which may have been read back from disk
+  private VectorContainer lastValue;
+  private BufferAllocator allocator;
   private List<VectorContainer> batches;
   private int outputCount; // number of rows in currently/last processed batch
 
@@ -67,6 +71,7 @@ public abstract class FrameSupportTemplate implements WindowFramer {
     this.batches = batches;
     this.context = context;
     internal = new VectorContainer(oContext.getAllocator());
+    allocator = oContext.getAllocator();
     allocateInternal();
 
     outputCount = 0;
@@ -257,37 +262,66 @@ public abstract class FrameSupportTemplate implements WindowFramer {
 
     final boolean unboundedFollowing = popConfig.getEnd().isUnbounded();
     VectorAccessible last = current;
+    int lastRow = start;
     long length = 0;
 
     // a single frame can include rows from multiple batches
-    // start processing first batch and, if necessary, move to next batches
+    // start processing first batch and, if necessary, move to next batches, until the end of the frame
     for (VectorAccessible batch : batches) {
       setupEvaluatePeer(batch, container);
       final int recordCount = batch.getRecordCount();
+      boolean frameEnded = false;
 
       // for every remaining row in the partition, count it if it's a peer row
       for (int row = (batch == current) ? start : 0; row < recordCount; row++, length++) {
         if (unboundedFollowing) {
-          if (length >= remainingRows) {
-            break;
-          }
+          frameEnded = length >= remainingRows;
         } else {
-          if (!isPeer(start, current, row, batch)) {
-            break;
-          }
+          frameEnded = !isPeer(start, current, row, batch);
+        }
+        if (frameEnded) {
+          break;
         }
 
         evaluatePeer(row);
         last = batch;
-        frameLastRow = row;
+        lastRow = row;
+      }
+
+      if (last == batch && batch != current) {
+        // batches after the first one may have been spilled, and are only valid until the next one is read
+        copyLastValue(batch, lastRow);
+      }
+      if (frameEnded) {
+        // don't read the following batches
+        break;
       }
     }
 
-    setupReadLastValue(last, container);
+    if (last == current) {
+      frameLastRow = lastRow;
+      setupReadLastValue(current, container);
+    } else {
+      frameLastRow = 0;
+      setupReadLastValue(lastValue, container);
+    }
 
     return length;
   }
 
+  private void copyLastValue(VectorAccessible batch, int row) {
+    if (lastValue == null) {
+      lastValue = VectorContainer.create(allocator, batch.getSchema());
+    }
+    int i = 0;
+    for (VectorWrapper<?> w : batch) {
+      final ValueVector to = lastValue.getValueAccessorById(ValueVector.class, i++).getValueVector();
+      to.reset();
+      to.copyFromSafe(row, 0, w.getValueVector());
+    }
+    lastValue.setAllCount(1);
+  }
+
   @Override
   public int getOutputCount() {
     return outputCount;
@@ -298,6 +332,9 @@ public abstract class FrameSupportTemplate implements WindowFramer {
   public void close() {
     logger.trace("clearing internal");
     internal.clear();
+    if (lastValue != null) {
+      lastValue.close();
+    }
   }
 
   /**
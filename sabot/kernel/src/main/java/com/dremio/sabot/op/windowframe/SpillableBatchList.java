@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.windowframe;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.function.Supplier;
+
+import org.apache.arrow.memory.BufferAllocator;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.common.exceptions.UserException;
+import com.dremio.exec.record.BatchSchema;
+import com.dremio.exec.record.VectorContainer;
+import com.dremio.sabot.op.sort.external.SpillManager;
+import com.dremio.sabot.op.sort.external.SpillManager.SpillFile;
+import com.dremio.sabot.op.sort.external.SpillManager.SpillInputStream;
+import com.dremio.sabot.op.sort.external.SpillManager.SpillOutputStream;
+import com.google.common.base.Preconditions;
+
+/**
+ * Batches buffered by {@link WindowFrameOperator} until the window functions can process them.
+ * <p>
+ * The first two and the last two batches are always kept in memory: the framers process the first batch and peek
+ * at the second one, while the operator compares the first and last batches to detect the end of the current
+ * partition or frame, which is therefore always found in one of the last two batches. Once more than
+ * {@code maxInMemory} batches are buffered, the batches in between are spilled to disk. Iterating over the list
+ * streams them back one at a time, and they are loaded back in memory as they reach the front of the list.
+ */
+class SpillableBatchList extends AbstractList<VectorContainer> implements AutoCloseable {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SpillableBatchList.class);
+
+  private static final int PINNED_HEAD = 2;
+  private static final int PINNED_TAIL = 2;
+  static final int MIN_IN_MEMORY = PINNED_HEAD + PINNED_TAIL;
+
+  private final BufferAllocator allocator;
+  private final Supplier<SpillManager> spillManager;
+  private final int maxInMemory;
+  private final LinkedList<Entry> entries = new LinkedList<>();
+
+  private BatchSchema schema;
+  private int numInMemory;
+  private int spillSequence;
+  private long spilledBatches;
+  // last spilled batch streamed back by an iterator, valid until the next one is read
+  private VectorContainer streamed;
+
+  /**
+   * @param allocator allocator for the batches read back from disk
+   * @param spillManager called the first time a batch needs to be spilled
+   * @param maxInMemory maximum number of batches kept in memory, at least {@link #MIN_IN_MEMORY}
+   */
+  SpillableBatchList(BufferAllocator allocator, Supplier<SpillManager> spillManager, int maxInMemory) {
+    Preconditions.checkArgument(maxInMemory >= MIN_IN_MEMORY, "at least %s batches must fit in memory", MIN_IN_MEMORY);
+    this.allocator = allocator;
+    this.spillManager = spillManager;
+    this.maxInMemory = maxInMemory;
+  }
+
+  @Override
+  public int size() {
+    return entries.size();
+  }
+
+  @Override
+  public VectorContainer get(int index) {
+    return read(entries.get(index));
+  }
+
+  public VectorContainer getFirst() {
+    return read(entries.getFirst());
+  }
+
+  public VectorContainer getLast() {
+    return read(entries.getLast());
+  }
+
+  /**
+   * Adds a batch at the end of the list, taking ownership of it. May spill one of the batches in the middle of the
+   * list to stay within the in memory limit.
+   */
+  @Override
+  public boolean add(VectorContainer batch) {
+    if (schema == null) {
+      schema = batch.getSchema();
+    }
+    entries.addLast(new Entry(batch));
+    numInMemory++;
+
+    while (numInMemory > maxInMemory && spillOne()) {
+      // keep spilling until we are back under the limit
+    }
+    return true;
+  }
+
+  /**
+   * Removes and closes the first batch, loading back the spilled batches that are now at the front of the list.
+   */
+  public void removeFirst() throws Exception {
+    final Entry first = entries.removeFirst();
+    if (first.batch != null) {
+      numInMemory--;
+    }
+    first.close();
+
+    int index = 0;
+    for (Entry entry : entries) {
+      if (index++ == PINNED_HEAD) {
+        break;
+      }
+      if (entry.batch == null) {
+        entry.batch = load(entry.file);
+        entry.file.close();
+        entry.file = null;
+        numInMemory++;
+      }
+    }
+  }
+
+  @Override
+  public Iterator<VectorContainer> iterator() {
+    final Iterator<Entry> iterator = entries.iterator();
+    return new Iterator<VectorContainer>() {
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public VectorContainer next() {
+        return read(iterator.next());
+      }
+    };
+  }
+
+  /**
+   * @return total number of batches written to disk so far
+   */
+  public long getSpilledBatches() {
+    return spilledBatches;
+  }
+
+  /**
+   * spills the in memory batch closest to the end of the list that isn't pinned in memory
+   * @return false if there was no batch to spill
+   */
+  private boolean spillOne() {
+    final int lastSpillable = entries.size() - 1 - PINNED_TAIL;
+    final ListIterator<Entry> iterator = entries.listIterator(lastSpillable + 1);
+    while (iterator.hasPrevious() && iterator.previousIndex() >= PINNED_HEAD) {
+      final Entry entry = iterator.previous();
+      if (entry.batch != null) {
+        spill(entry);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void spill(Entry entry) {
+    final SpillFile file = spillManager.get().getSpillFile(String.format("window-%d", spillSequence++));
+    try (SpillOutputStream output = file.create(false)) {
+      output.writeBatch(entry.batch);
+    } catch (IOException e) {
+      throw UserException.dataWriteError(e)
+        .message("Failure while attempting to spill window batch")
+        .build(logger);
+    }
+
+    entry.batch.close();
+    entry.batch = null;
+    entry.file = file;
+    numInMemory--;
+    spilledBatches++;
+    logger.debug("spilled window batch of {} records to {}", entry.recordCount, file.getPath());
+  }
+
+  private VectorContainer read(Entry entry) {
+    if (entry.batch != null) {
+      return entry.batch;
+    }
+
+    if (streamed != null) {
+      streamed.close();
+      streamed = null;
+    }
+    streamed = load(entry.file);
+    return streamed;
+  }
+
+  private VectorContainer load(SpillFile file) {
+    final VectorContainer batch = VectorContainer.create(allocator, schema);
+    try (SpillInputStream input = file.open(false)) {
+      input.load(batch, allocator);
+      return batch;
+    } catch (IOException e) {
+      batch.close();
+      throw UserException.dataReadError(e)
+        .message("Failure while attempting to read spilled window batch")
+        .build(logger);
+    }
+  }
+
+  @Override
+  public void close() throws Exception {
+    final List<AutoCloseable> closeables = new ArrayList<>(entries);
+    closeables.add(streamed);
+    entries.clear();
+    streamed = null;
+    numInMemory = 0;
+    AutoCloseables.close(closeables);
+  }
+
+  private static final class Entry implements AutoCloseable {
+    private final int recordCount;
+    private VectorContainer batch; // null while spilled
+    private SpillFile file;        // non null while spilled
+
+    private Entry(VectorContainer batch) {
+      this.batch = batch;
+      this.recordCount = batch.getRecordCount();
+    }
+
+    @Override
+    public void close() throws Exception {
+      AutoCloseables.close(batch, file);
+    }
+  }
+}
@@ -18,18 +18,20 @@ package com.dremio.sabot.op.windowframe;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.arrow.memory.OutOfMemoryException;
 import org.apache.arrow.vector.ValueVector;
 import org.apache.arrow.vector.util.TransferPair;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
 
 import com.dremio.common.AutoCloseables;
 import com.dremio.common.exceptions.ExecutionSetupException;
 import com.dremio.common.expression.LogicalExpression;
 import com.dremio.common.logical.data.NamedExpression;
 import com.dremio.common.logical.data.Order;
+import com.dremio.common.utils.protos.QueryIdHelper;
 import com.dremio.exec.compile.TemplateClassDefinition;
 import com.dremio.exec.compile.sig.GeneratorMapping;
 import com.dremio.exec.compile.sig.MappingSet;
@@ -39,10 +41,16 @@ import com.dremio.exec.expr.ClassGenerator;
 import com.dremio.exec.expr.ClassProducer;
 import com.dremio.exec.expr.fn.FunctionGenerationHelper;
 import com.dremio.exec.physical.config.WindowPOP;
+import com.dremio.exec.proto.ExecProtos.FragmentHandle;
 import com.dremio.exec.record.VectorAccessible;
 import com.dremio.exec.record.VectorContainer;
 import com.dremio.exec.record.VectorWrapper;
+import com.dremio.exec.store.LocalSyncableFileSystem;
+import com.dremio.exec.store.dfs.FileSystemPlugin;
+import com.dremio.options.Options;
+import com.dremio.options.TypeValidators.RangeLongValidator;
 import com.dremio.sabot.exec.context.OperatorContext;
+import com.dremio.sabot.op.sort.external.SpillManager;
 import com.dremio.sabot.op.spi.SingleInputOperator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
@@ -53,13 +61,20 @@ import com.sun.codemodel.JExpr;
  * support for OVER(PARTITION BY expression1,expression2,... [ORDER BY expressionA, expressionB,...])
  *
  */
+@Options
 public class WindowFrameOperator implements SingleInputOperator {
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(WindowFrameOperator.class);
 
+  // once more batches than this are waiting for the end of their partition or frame, they are spilled to disk
+  public static final RangeLongValidator MAX_BATCHES_IN_MEMORY = new RangeLongValidator(
+    "exec.op.window.spill.max_batches_in_memory", SpillableBatchList.MIN_IN_MEMORY, Integer.MAX_VALUE, 32);
+
   private final OperatorContext context;
   private final List<WindowFunction> functions = Lists.newArrayList();
   private final WindowPOP config;
-  private final LinkedList<VectorContainer> batches = new LinkedList<>();
+  private final SpillableBatchList batches;
+
+  private SpillManager spillManager;
 
   private VectorAccessible incoming;
   private VectorContainer outgoing;
@@ -73,6 +88,8 @@ public class WindowFrameOperator implements SingleInputOperator {
   public WindowFrameOperator(OperatorContext context, WindowPOP config) throws OutOfMemoryException {
     this.context = context;
     this.config = config;
+    this.batches = new SpillableBatchList(context.getAllocator(), this::getSpillManager,
+      (int) context.getOptions().getOption(MAX_BATCHES_IN_MEMORY));
   }
 
   @Override
@@ -157,8 +174,7 @@ public class WindowFrameOperator implements SingleInputOperator {
     }
 
     // we can safely free the current batch
-    current.close();
-    batches.remove(0);
+    batches.removeFirst();
 
     logger.trace("doWork() END");
     return recordCount;
@@ -328,6 +344,23 @@ public class WindowFrameOperator implements SingleInputOperator {
     cg.getEvalBlock()._return(JExpr.TRUE);
   }
 
+  private SpillManager getSpillManager() {
+    if (spillManager == null) {
+      final Configuration conf = FileSystemPlugin.getNewFsConf();
+      conf.set(SpillManager.DREMIO_LOCAL_IMPL_STRING, LocalSyncableFileSystem.class.getName());
+      // If the location URI doesn't contain any schema, fall back to local.
+      conf.set(FileSystem.FS_DEFAULT_NAME_KEY, FileSystem.DEFAULT_FS);
+
+      final FragmentHandle handle = context.getFragmentHandle();
+      final String id = String.format("window-%s.%s.%s.%s", QueryIdHelper.getQueryId(handle.getQueryId()),
+        handle.getMajorFragmentId(), handle.getMinorFragmentId(), config.getProps().getLocalOperatorId());
+      spillManager = new SpillManager(context.getConfig(), context.getOptions(), id, conf, context.getSpillService(),
+        "window spilling", context.getStats());
+      logger.debug("window operator {} started spilling", id);
+    }
+    return spillManager;
+  }
+
   @Override
   public <OUT, IN, EXCEP extends Throwable> OUT accept(OperatorVisitor<OUT, IN, EXCEP> visitor, IN value) throws EXCEP {
     return visitor.visitSingleInput(this, value);
@@ -340,7 +373,9 @@ public class WindowFrameOperator implements SingleInputOperator {
     if (framers != null) {
       closeables.addAll(Arrays.asList(framers));
     }
-    closeables.addAll(batches);
+    closeables.add(batches);
+    // removes the spill directory, so it must be closed after the batches
+    closeables.add(spillManager);
     AutoCloseables.close(closeables);
   }
 
@@ -182,7 +182,8 @@ public abstract class WindowFunction {
 
     @Override
     public boolean canDoWork(int numBatchesAvailable, WindowPOP pop, boolean frameEndReached, boolean partitionEndReached) {
-      return partitionEndReached || (!requiresFullPartition(pop) && frameEndReached);
+      // a ROWS frame ends on the current row, so it can be computed without waiting for the last peer row
+      return partitionEndReached || (!requiresFullPartition(pop) && (frameEndReached || pop.isFrameUnitsRows()));
     }
 
     @Override
@@ -509,7 +510,8 @@ public abstract class WindowFunction {
 
     @Override
     public boolean canDoWork(int numBatchesAvailable, WindowPOP pop, boolean frameEndReached, boolean partitionEndReached) {
-      return partitionEndReached || (!requiresFullPartition(pop) && frameEndReached);
+      // a ROWS frame ends on the current row, so it can be computed without waiting for the last peer row
+      return partitionEndReached || (!requiresFullPartition(pop) && (frameEndReached || pop.isFrameUnitsRows()));
     }
 
     @Override
@@ -29,4 +29,5 @@ public interface AsyncTask extends Runnable {
   void addBlockedOnSharedResourceDuration(SharedResourceType resource, long duration);
   void setWakeupCallback(AvailabilityCallback callback);
   void setTaskDescriptor(TaskDescriptor descriptor);
+  void fail(Throwable t);
 }
@@ -117,6 +117,14 @@ public class AsyncTaskWrapper implements Task {
     }
   }
 
+  /**
+   * Fails the task after an exception escaped from {@link #run()}. The task reports the failure and moves to
+   * {@link State#DONE} the next time it runs.
+   */
+  public void fail(Throwable t) {
+    asyncTask.fail(t);
+  }
+
   public AutoCloseable getCleaner() {
     return cleaner;
   }
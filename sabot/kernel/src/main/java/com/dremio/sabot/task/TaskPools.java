@@ -23,6 +23,10 @@ import com.dremio.sabot.task.single.DedicatedTaskPool;
  */
 public final class TaskPools {
 
+  /**
+   * Class name of the {@code TaskPoolFactory} to use, e.g. {@code com.dremio.sabot.task.slicing.SlicingTaskPool$Factory}.
+   * Defaults to {@code DedicatedTaskPool.Factory}.
+   */
   public static final String DREMIO_TASK_POOL_FACTORY_CLASS = "dremio.task.pool.factory.class";
 
   private TaskPools() {}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.task.slicing;
+
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dremio.sabot.task.TaskManager;
+import com.google.common.base.Preconditions;
+
+/**
+ * A node of the weighted scheduling tree: either a group or a task.<br>
+ * Every entity accumulates a virtual runtime, the time it spent running scaled by the inverse of its weight. Among
+ * the runnable children of a group the one with the smallest virtual runtime runs next, which gives each child a
+ * share of its parent proportional to its weight.<br>
+ * All the methods of this class must be called while holding the {@link WeightedScheduler} lock.
+ */
+abstract class SchedulingEntity {
+  private static final AtomicLong ID_GENERATOR = new AtomicLong();
+
+  static final Comparator<SchedulingEntity> VRUNTIME_ORDER =
+    Comparator.<SchedulingEntity>comparingLong(e -> e.vRuntime).thenComparingLong(e -> e.id);
+
+  private final long id = ID_GENERATOR.incrementAndGet();
+  private final long weight;
+  private final WeightedSchedulingGroup parent;
+
+  // virtual runtime in weighted microseconds
+  private long vRuntime;
+  // true if the entity is currently in its parent's runnable set
+  private boolean queued;
+
+  SchedulingEntity(WeightedSchedulingGroup parent, long weight) {
+    Preconditions.checkArgument(weight > 0 && weight <= TaskManager.MAX_WEIGHT,
+      "weight must be in the range [1, %s], was %s", TaskManager.MAX_WEIGHT, weight);
+    this.parent = parent;
+    this.weight = weight;
+  }
+
+  public long getWeight() {
+    return weight;
+  }
+
+  WeightedSchedulingGroup getParent() {
+    return parent;
+  }
+
+  long getVRuntime() {
+    return vRuntime;
+  }
+
+  boolean isQueued() {
+    return queued;
+  }
+
+  /**
+   * Adds this entity, and all its idle ancestors, to the runnable sets of their parents.<br>
+   * An entity that was idle for a while doesn't get to catch up on the time it didn't use: its virtual runtime is
+   * raised to the minimum virtual runtime of its parent.
+   */
+  void activate() {
+    if (queued || parent == null) {
+      return;
+    }
+    vRuntime = Math.max(vRuntime, parent.getMinVRuntime());
+    parent.getRunnable().add(this);
+    queued = true;
+    parent.activate();
+  }
+
+  /**
+   * Removes this entity from its parent's runnable set, deactivating any ancestor left without runnable children.
+   */
+  void deactivate() {
+    if (!queued) {
+      return;
+    }
+    parent.getRunnable().remove(this);
+    queued = false;
+    if (parent.getRunnable().isEmpty()) {
+      parent.deactivate();
+    }
+  }
+
+  /**
+   * Charges this entity and all its ancestors for time spent running.
+   *
+   * @param nanos time spent running, in nanoseconds
+   */
+  void charge(long nanos) {
+    for (SchedulingEntity e = this; e != null; e = e.parent) {
+      e.account(nanos);
+    }
+  }
+
+  private void account(long nanos) {
+    // the runnable set is ordered by vRuntime, so the entity must be re-inserted after its key changes
+    if (queued) {
+      parent.getRunnable().remove(this);
+    }
+    vRuntime += Math.max(1, nanos * TaskManager.MAX_WEIGHT / weight / 1_000);
+    if (queued) {
+      parent.getRunnable().add(this);
+    }
+    onCharged(nanos);
+  }
+
+  /**
+   * Called whenever this entity has been charged for some running time
+   */
+  protected void onCharged(long nanos) {
+  }
+}
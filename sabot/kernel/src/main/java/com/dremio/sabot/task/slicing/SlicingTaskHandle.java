@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.task.slicing;
+
+import com.dremio.sabot.task.AsyncTaskWrapper;
+import com.dremio.sabot.task.TaskManager.TaskHandle;
+
+/**
+ * Leaf of the weighted scheduling tree, wrapping a single {@link AsyncTaskWrapper}
+ */
+final class SlicingTaskHandle extends SchedulingEntity implements TaskHandle<AsyncTaskWrapper> {
+
+  private final WeightedScheduler scheduler;
+  private final AsyncTaskWrapper task;
+  private volatile int thread = -1;
+  private boolean failed;
+
+  SlicingTaskHandle(WeightedScheduler scheduler, WeightedSchedulingGroup group, AsyncTaskWrapper task, long weight) {
+    super(group, weight);
+    this.scheduler = scheduler;
+    this.task = task;
+  }
+
+  @Override
+  public AsyncTaskWrapper getTask() {
+    return task;
+  }
+
+  @Override
+  public void reEnqueue() {
+    scheduler.enqueue(this);
+  }
+
+  @Override
+  public int getThread() {
+    return thread;
+  }
+
+  void setThread(int thread) {
+    this.thread = thread;
+  }
+
+  /**
+   * Marks the task as failed, only accessed by the thread running the task.
+   *
+   * @return false if the task was already failed
+   */
+  boolean markFailed() {
+    if (failed) {
+      return false;
+    }
+    failed = true;
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s, thread e%d", task.getState(), thread);
+  }
+}
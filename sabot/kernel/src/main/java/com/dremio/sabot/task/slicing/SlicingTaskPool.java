@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.task.slicing;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.dremio.config.DremioConfig;
+import com.dremio.exec.ExecConstants;
+import com.dremio.options.OptionManager;
+import com.dremio.sabot.task.AsyncTaskWrapper;
+import com.dremio.sabot.task.GroupManager;
+import com.dremio.sabot.task.TaskManager;
+import com.dremio.sabot.task.TaskPool;
+import com.dremio.sabot.task.TaskPoolFactory;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A task pool that multiplexes all tasks over a fixed number of threads.<br>
+ * Tasks cooperatively yield after each run; the next task to run is chosen so that every {@link
+ * WeightedSchedulingGroup} receives a share of the threads proportional to its weight.
+ */
+public class SlicingTaskPool implements TaskPool {
+
+  /**
+   * Factory for {@code SlicingTaskPool}.<br>
+   * Select it by setting {@code dremio.task.pool.factory.class} to {@link #FACTORY_CLASS}.
+   */
+  public static final class Factory implements TaskPoolFactory {
+    @Override
+    public TaskPool newInstance(OptionManager options, DremioConfig config) {
+      int numThreads = (int) options.getOption(ExecConstants.SLICING_NUM_THREADS);
+      if (numThreads == 0) {
+        numThreads = Runtime.getRuntime().availableProcessors();
+      }
+      return new SlicingTaskPool(numThreads);
+    }
+  }
+
+  public static final String FACTORY_CLASS = Factory.class.getName();
+
+  /**
+   * All tasks of a group share its running time equally
+   */
+  static final long TASK_WEIGHT = TaskManager.MAX_WEIGHT;
+
+  private final WeightedScheduler scheduler = new WeightedScheduler();
+  private final List<SlicingThread> threads;
+
+  public SlicingTaskPool(int numThreads) {
+    final ImmutableList.Builder<SlicingThread> builder = ImmutableList.builder();
+    for (int i = 0; i < numThreads; i++) {
+      builder.add(new SlicingThread(i, scheduler));
+    }
+    this.threads = builder.build();
+    threads.forEach(Thread::start);
+  }
+
+  @Override
+  public void execute(AsyncTaskWrapper task) {
+    task.getSchedulingGroup().addTask(task, TASK_WEIGHT);
+  }
+
+  @Override
+  public Iterable<ThreadInfo> getSlicingThreads() {
+    return threads.stream()
+      .map(SlicingThread::getThreadInfo)
+      .collect(Collectors.toList());
+  }
+
+  @Override
+  public boolean areAllThreadsAlive() {
+    return threads.stream().allMatch(Thread::isAlive);
+  }
+
+  @Override
+  public GroupManager<AsyncTaskWrapper> getGroupManager() {
+    return scheduler;
+  }
+
+  @Override
+  public void close() throws Exception {
+    scheduler.close();
+    threads.forEach(Thread::interrupt);
+  }
+}
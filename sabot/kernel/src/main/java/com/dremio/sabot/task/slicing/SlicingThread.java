@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.task.slicing;
+
+import com.dremio.common.perf.StatsCollectionEligibilityRegistrar;
+import com.dremio.sabot.task.AsyncTaskWrapper;
+import com.dremio.sabot.task.BlockRun;
+import com.dremio.sabot.task.Task;
+import com.dremio.sabot.task.TaskPool;
+
+/**
+ * Executing thread of the {@link SlicingTaskPool}. Runs one quantum of the next scheduled task at a time and hands the
+ * task back to the scheduler, or parks it until it is unblocked.
+ */
+final class SlicingThread extends Thread {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SlicingThread.class);
+
+  private static final long IDLE_WAIT_MILLIS = 1000;
+
+  private final int slicingThreadId;
+  private final WeightedScheduler scheduler;
+
+  private volatile boolean running;
+
+  SlicingThread(int slicingThreadId, WeightedScheduler scheduler) {
+    super("e" + slicingThreadId + " - slicing");
+    this.slicingThreadId = slicingThreadId;
+    this.scheduler = scheduler;
+    setDaemon(true);
+  }
+
+  @Override
+  public void run() {
+    StatsCollectionEligibilityRegistrar.addSelf();
+    while (!isInterrupted()) {
+      final SlicingTaskHandle handle;
+      try {
+        handle = scheduler.take(IDLE_WAIT_MILLIS);
+      } catch (InterruptedException e) {
+        logger.info("Thread interrupted, exiting.");
+        return;
+      }
+
+      if (handle != null) {
+        runQuantum(handle);
+      }
+    }
+  }
+
+  private void runQuantum(SlicingTaskHandle handle) {
+    final AsyncTaskWrapper task = handle.getTask();
+    handle.setThread(slicingThreadId);
+    running = true;
+    final long start = System.nanoTime();
+    Throwable failure = null;
+    try {
+      task.run();
+    } catch (Throwable t) {
+      failure = t;
+    } finally {
+      scheduler.charge(handle, System.nanoTime() - start);
+      running = false;
+    }
+
+    if (failure != null) {
+      fail(handle, failure);
+      return;
+    }
+
+    switch (task.getState()) {
+      case BLOCKED_ON_DOWNSTREAM:
+      case BLOCKED_ON_UPSTREAM:
+      case BLOCKED_ON_SHARED_RESOURCE:
+        task.setAvailabilityCallback(new BlockRun(handle));
+        break;
+      case DONE:
+        cleanup(task);
+        break;
+      case RUNNABLE:
+      default:
+        scheduler.enqueue(handle);
+        break;
+    }
+  }
+
+  /**
+   * Tasks handle their own failures, an exception escaping a task leaves it in an unknown state. The task is failed
+   * and run once more so that it reports the failure and finishes. If it is already done, or fails again, it is only
+   * cleaned up.
+   */
+  private void fail(SlicingTaskHandle handle, Throwable t) {
+    final AsyncTaskWrapper task = handle.getTask();
+    if (task.getState() != Task.State.DONE && handle.markFailed()) {
+      logger.error("Unhandled exception while running task {}, failing it.", task, t);
+      task.fail(t);
+      scheduler.enqueue(handle);
+      return;
+    }
+    logger.error("Unhandled exception while running task {}, dropping it.", task, t);
+    cleanup(task);
+  }
+
+  private void cleanup(AsyncTaskWrapper task) {
+    try {
+      task.getCleaner().close();
+    } catch (Exception e) {
+      logger.warn("Failure while cleaning up task {}.", task, e);
+    }
+  }
+
+  TaskPool.ThreadInfo getThreadInfo() {
+    // slicing threads are not pinned to a core, and the OS thread id is not available from the JVM
+    return new TaskPool.ThreadInfo(getName(), slicingThreadId, -1, -1, running ? 1 : 0,
+      scheduler.getNumRunnable(), 0, getId());
+  }
+}
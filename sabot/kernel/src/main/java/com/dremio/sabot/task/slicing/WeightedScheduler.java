@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.task.slicing;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.dremio.sabot.task.AsyncTaskWrapper;
+import com.dremio.sabot.task.GroupManager;
+import com.dremio.sabot.task.SchedulingGroup;
+import com.dremio.sabot.task.TaskManager;
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Shared run queue of the {@link SlicingTaskPool}.<br>
+ * Runnable tasks are organized in a tree of {@link WeightedSchedulingGroup}s; slicing threads repeatedly pick the
+ * task with the smallest virtual runtime, run one quantum of it and charge the elapsed time back to the task and all
+ * its enclosing groups.
+ */
+final class WeightedScheduler implements GroupManager<AsyncTaskWrapper> {
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition hasRunnable = lock.newCondition();
+  private final WeightedSchedulingGroup root = new WeightedSchedulingGroup(this, null, TaskManager.MAX_WEIGHT);
+
+  private int numRunnable;
+  private boolean closed;
+
+  @Override
+  public SchedulingGroup<AsyncTaskWrapper> newGroup(long weight) {
+    return root.addGroup(weight);
+  }
+
+  /**
+   * Makes the task available to the slicing threads
+   */
+  void enqueue(SlicingTaskHandle handle) {
+    lock.lock();
+    try {
+      if (handle.isQueued()) {
+        return;
+      }
+      handle.activate();
+      numRunnable++;
+      hasRunnable.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits until a task is runnable, and removes it from the run queue.
+   *
+   * @param timeout maximum time to wait, in milliseconds
+   * @return next task to run, or null if the timeout elapsed or the scheduler was closed
+   */
+  SlicingTaskHandle take(long timeout) throws InterruptedException {
+    long remaining = TimeUnit.MILLISECONDS.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (!closed && root.isIdle()) {
+        if (remaining <= 0) {
+          return null;
+        }
+        remaining = hasRunnable.awaitNanos(remaining);
+      }
+      if (closed) {
+        return null;
+      }
+      final SlicingTaskHandle handle = root.pick();
+      numRunnable--;
+      return handle;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Charges a task, and all its groups, for the time it spent running
+   */
+  void charge(SlicingTaskHandle handle, long nanos) {
+    lock.lock();
+    try {
+      handle.charge(nanos);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  int getNumRunnable() {
+    lock.lock();
+    try {
+      return numRunnable;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void close() {
+    lock.lock();
+    try {
+      closed = true;
+      hasRunnable.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @VisibleForTesting
+  WeightedSchedulingGroup getRoot() {
+    return root;
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.task.slicing;
+
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dremio.sabot.task.AsyncTaskWrapper;
+import com.dremio.sabot.task.SchedulingGroup;
+import com.dremio.sabot.task.TaskManager.TaskHandle;
+
+/**
+ * {@link SchedulingGroup} of the {@link SlicingTaskPool}. Child groups and tasks share the running time given to the
+ * group proportionally to their weights.
+ */
+public final class WeightedSchedulingGroup extends SchedulingEntity implements SchedulingGroup<AsyncTaskWrapper> {
+
+  private final WeightedScheduler scheduler;
+  private final TreeSet<SchedulingEntity> runnable = new TreeSet<>(VRUNTIME_ORDER);
+  private final AtomicLong cpuTimeNanos = new AtomicLong();
+  private long minVRuntime;
+
+  WeightedSchedulingGroup(WeightedScheduler scheduler, WeightedSchedulingGroup parent, long weight) {
+    super(parent, weight);
+    this.scheduler = scheduler;
+  }
+
+  @Override
+  public SchedulingGroup<AsyncTaskWrapper> addGroup(long weight) {
+    return new WeightedSchedulingGroup(scheduler, this, weight);
+  }
+
+  @Override
+  public TaskHandle<AsyncTaskWrapper> addTask(AsyncTaskWrapper task, long weight) {
+    final SlicingTaskHandle handle = new SlicingTaskHandle(scheduler, this, task, weight);
+    // the descriptor must be set before the task can be picked up by a slicing thread
+    task.setTaskHandle(handle);
+    scheduler.enqueue(handle);
+    return handle;
+  }
+
+  /**
+   * @return total time, in nanoseconds, the tasks of this group and of all its sub-groups spent running on the
+   * slicing threads
+   */
+  public long getCpuTimeNanos() {
+    return cpuTimeNanos.get();
+  }
+
+  TreeSet<SchedulingEntity> getRunnable() {
+    return runnable;
+  }
+
+  long getMinVRuntime() {
+    return minVRuntime;
+  }
+
+  boolean isIdle() {
+    return runnable.isEmpty();
+  }
+
+  /**
+   * Walks down the tree, always following the runnable child with the smallest virtual runtime, and removes the
+   * selected task from the runnable sets.
+   *
+   * @return next task to run, or null if nothing is runnable
+   */
+  SlicingTaskHandle pick() {
+    SchedulingEntity entity = this;
+    while (entity instanceof WeightedSchedulingGroup) {
+      final WeightedSchedulingGroup group = (WeightedSchedulingGroup) entity;
+      if (group.runnable.isEmpty()) {
+        return null;
+      }
+      final SchedulingEntity next = group.runnable.first();
+      group.minVRuntime = Math.max(group.minVRuntime, next.getVRuntime());
+      entity = next;
+    }
+
+    final SlicingTaskHandle handle = (SlicingTaskHandle) entity;
+    handle.deactivate();
+    return handle;
+  }
+
+  @Override
+  protected void onCharged(long nanos) {
+    cpuTimeNanos.addAndGet(nanos);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("group[weight=%d, cpuTime=%dns, runnable=%d]", getWeight(), getCpuTimeNanos(),
+      runnable.size());
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.dremio.exec.ExecConstants;
+import com.dremio.exec.planner.physical.PlannerSettings;
+import com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggOperator;
+
+/**
+ * Tests hash aggregation on struct and list grouping keys, with the spilling and non spilling vectorized
+ * operators, against the results of the non vectorized hash aggregation.
+ */
+public class TestVectorizedHashAggComplexKeys extends BaseTestQuery {
+  private static final String VECTORIZED = "alter session set \"exec.operator.aggregate.vectorize\" = true";
+  private static final String NOT_VECTORIZED = "alter session set \"exec.operator.aggregate.vectorize\" = false";
+
+  private static final String GROUP_BY_STRUCT = "select favorites, count(*) as cnt, sum(gpa) as total " +
+    "from cp.\"complex_student.json\" group by favorites";
+  private static final String GROUP_BY_LIST = "select interests, count(*) as cnt, min(age) as youngest " +
+    "from cp.\"complex_student.json\" group by interests";
+  private static final String GROUP_BY_STRUCT_AND_LIST = "select favorites, interests, max(name) as last_name " +
+    "from cp.\"complex_student.json\" group by favorites, interests";
+
+  @BeforeClass
+  public static void setUp() throws Exception {
+    setSessionOption(PlannerSettings.STREAMAGG, "false");
+  }
+
+  @AfterClass
+  public static void tearDown() throws Exception {
+    resetSessionOption(PlannerSettings.STREAMAGG);
+    resetSessionOption(ExecConstants.ENABLE_VECTORIZED_HASHAGG);
+  }
+
+  @Test
+  public void testSpillingOperator() throws Exception {
+    compareWithNotVectorized(GROUP_BY_STRUCT);
+    compareWithNotVectorized(GROUP_BY_LIST);
+    try (AutoCloseable ignored = withOption(ExecConstants.ENABLE_VECTORIZED_SPILL_VARCHAR_ACCUMULATOR, true)) {
+      compareWithNotVectorized(GROUP_BY_STRUCT_AND_LIST);
+    }
+  }
+
+  @Test
+  public void testNoSpillOperator() throws Exception {
+    try (AutoCloseable ignored = withOption(VectorizedHashAggOperator.VECTORIZED_HASHAGG_USE_SPILLING_OPERATOR, false)) {
+      compareWithNotVectorized(GROUP_BY_STRUCT);
+      compareWithNotVectorized(GROUP_BY_LIST);
+      compareWithNotVectorized(GROUP_BY_STRUCT_AND_LIST);
+    }
+  }
+
+  @Test
+  public void testVarcharAccumulatorWithoutSpill() throws Exception {
+    // max(varchar) is not spillable with this option off, which selects the non spilling operator
+    try (AutoCloseable ignored = withOption(ExecConstants.ENABLE_VECTORIZED_SPILL_VARCHAR_ACCUMULATOR, false)) {
+      compareWithNotVectorized(GROUP_BY_STRUCT_AND_LIST);
+    }
+  }
+
+  @Test
+  public void testComplexKeysDisabled() throws Exception {
+    try (AutoCloseable ignored = withOption(ExecConstants.ENABLE_VECTORIZED_HASHAGG_COMPLEX_KEYS, false)) {
+      compareWithNotVectorized(GROUP_BY_STRUCT);
+      compareWithNotVectorized(GROUP_BY_LIST);
+    }
+  }
+
+  private static void compareWithNotVectorized(String query) throws Exception {
+    testBuilder()
+      .sqlQuery(query)
+      .optionSettingQueriesForTestQuery(VECTORIZED)
+      .unOrdered()
+      .sqlBaselineQuery(query)
+      .optionSettingQueriesForBaseline(NOT_VECTORIZED)
+      .go();
+  }
+}
@@ -23,7 +23,9 @@ import java.io.IOException;
 import org.codehaus.commons.compiler.CompileException;
 import org.junit.Assert;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.dremio.BaseTestQuery;
 import com.dremio.exec.compile.ClassTransformer.ClassSet;
@@ -47,6 +49,9 @@ public class TestClassTransformation extends BaseTestQuery {
 
   private static OptionManager sessionOptions;
 
+  @Rule
+  public final TemporaryFolder tempFolder = new TemporaryFolder();
+
   @BeforeClass
   public static void beforeTestClassTransformation() throws Exception {
     final UserSession userSession = UserSession.Builder.newBuilder()
@@ -113,6 +118,41 @@ public class TestClassTransformation extends BaseTestQuery {
     logger.debug("Optimized code is {}% smaller than debug code.", (int)((sizeWithDebug - sizeWithoutDebug)/(double)sizeWithDebug*100));
   }
 
+  @Test
+  public void testPersistentCache() throws Exception {
+    final PersistentClassCache cache = new PersistentClassCache(tempFolder.getRoot().toPath(), "test");
+    final ClassTransformer ct = new ClassTransformer(sessionOptions, cache);
+    final ClassCompilerSelector classCompilerSelector = new ClassCompilerSelector(DEFAULT_SABOT_CONFIG, sessionOptions);
+
+    final CodeGenerator<ExampleInner> cg1 = newCodeGenerator(ExampleInner.class, ExampleTemplateWithInner.class);
+    cg1.generate();
+    final Class<?> compiled;
+    try (QueryClassLoader loader = new QueryClassLoader(classCompilerSelector)) {
+      compiled = ct.getImplementationClass(loader, cg1.getDefinition(), cg1.getGeneratedCode(),
+        cg1.getMaterializedClassName(), cg1.getGenerifiedCode());
+    }
+    Assert.assertNotNull(cache.get(cache.getKey(cg1.getDefinition(), cg1.getGenerifiedCode())));
+
+    // same code materialized under a different name, the class compiled the first time is reused
+    final CodeGenerator<ExampleInner> cg2 = newCodeGenerator(ExampleInner.class, ExampleTemplateWithInner.class);
+    cg2.generate();
+    Assert.assertNotEquals(cg1.getMaterializedClassName(), cg2.getMaterializedClassName());
+    try (QueryClassLoader loader = new QueryClassLoader(classCompilerSelector)) {
+      final Class<?> loaded = ct.getImplementationClass(loader, cg2.getDefinition(), cg2.getGeneratedCode(),
+        cg2.getMaterializedClassName(), cg2.getGenerifiedCode());
+      Assert.assertEquals(compiled.getName(), loaded.getName());
+      Assert.assertNotSame(compiled, loaded);
+
+      final ExampleInner t = (ExampleInner) loaded.newInstance();
+      t.doOutside();
+      t.doInsideOutside();
+    }
+
+    // a different environment (e.g. after an upgrade) doesn't reuse the cached classes
+    final PersistentClassCache upgraded = new PersistentClassCache(tempFolder.getRoot().toPath(), "upgraded");
+    Assert.assertNull(upgraded.get(upgraded.getKey(cg1.getDefinition(), cg1.getGenerifiedCode())));
+  }
+
   /**
    * Do a test of a three level class to ensure that nested code generators works correctly.
    * @throws Exception
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.physical.impl.window;
+
+import static com.dremio.sabot.Fixtures.t;
+import static com.dremio.sabot.Fixtures.th;
+import static com.dremio.sabot.Fixtures.tr;
+import static java.util.Collections.singletonList;
+import static org.apache.calcite.rel.RelFieldCollation.Direction.ASCENDING;
+import static org.apache.calcite.rel.RelFieldCollation.NullDirection.FIRST;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dremio.common.logical.data.Order;
+import com.dremio.exec.physical.config.WindowPOP;
+import com.dremio.exec.physical.config.WindowPOP.Bound;
+import com.dremio.options.OptionValue;
+import com.dremio.options.OptionValue.OptionType;
+import com.dremio.sabot.Fixtures;
+import com.dremio.sabot.Fixtures.DataRow;
+import com.dremio.sabot.op.windowframe.WindowFrameOperator;
+
+/**
+ * Runs the window operator tests keeping as few batches as possible in memory, so that every batch waiting for the
+ * end of its partition in the middle of the buffer is spilled to disk.
+ */
+public class TestWindowOperatorSpill extends TestWindowOperator {
+
+  private static final int BATCH_SIZE = 10;
+
+  @Before
+  public void forceSpill() {
+    testContext.getOptions().setOption(OptionValue.createLong(OptionType.SYSTEM,
+      WindowFrameOperator.MAX_BATCHES_IN_MEMORY.getOptionName(), 4));
+  }
+
+  @After
+  public void resetSpill() {
+    testContext.getOptions().setOption(WindowFrameOperator.MAX_BATCHES_IN_MEMORY.getDefault());
+  }
+
+  @Test
+  public void largePartition() throws Exception {
+    // SELECT p, v, SUM(v) OVER(PARTITION BY p) FROM t
+    final WindowPOP window = new WindowPOP(PROPS, null,
+      singletonList(n("p")),
+      singletonList(n("sum(v)", "total")),
+      Collections.<Order.Ordering>emptyList(),
+      false, new Bound(true, Long.MIN_VALUE), new Bound(true, Long.MIN_VALUE));
+
+    final int[] lengths = {305, 3, 57};
+    final DataRow[] input = new DataRow[365];
+    final DataRow[] output = new DataRow[input.length];
+    int row = 0;
+    for (int p = 0; p < lengths.length; p++) {
+      final long total = (long) lengths[p] * (lengths[p] + 1) / 2;
+      for (long v = 1; v <= lengths[p]; v++, row++) {
+        input[row] = tr(p, v);
+        output[row] = tr(p, v, total);
+      }
+    }
+
+    validateSingle(window, WindowFrameOperator.class, Fixtures.split(th("p", "v"), BATCH_SIZE, input),
+      t(th("p", "v", "total"), output), BATCH_SIZE);
+  }
+
+  @Test
+  public void rowsFrameWithManyPeers() throws Exception {
+    // SELECT p, o, v, SUM(v) OVER(PARTITION BY p ORDER BY o ROWS BETWEEN UNBOUNDED PRECEDING AND CURRENT ROW) FROM t
+    // all the rows of a partition are peers, the running sum must not wait for the end of the frame
+    final WindowPOP window = new WindowPOP(PROPS, null,
+      singletonList(n("p")),
+      Arrays.asList(n("sum(v)", "running")),
+      singletonList(ordering("o", ASCENDING, FIRST)),
+      true, new Bound(true, Long.MIN_VALUE), new Bound(false, 0));
+
+    final int[] lengths = {212, 1, 90};
+    final DataRow[] input = new DataRow[303];
+    final DataRow[] output = new DataRow[input.length];
+    int row = 0;
+    for (int p = 0; p < lengths.length; p++) {
+      long running = 0;
+      for (long v = 1; v <= lengths[p]; v++, row++) {
+        running += v;
+        input[row] = tr(p, 0, v);
+        output[row] = tr(p, 0, v, running);
+      }
+    }
+
+    validateSingle(window, WindowFrameOperator.class, Fixtures.split(th("p", "o", "v"), BATCH_SIZE, input),
+      t(th("p", "o", "v", "running"), output), BATCH_SIZE);
+  }
+
+  @Test
+  public void rangeFrameWithPeersAcrossBatches() throws Exception {
+    // SELECT p, o, v, SUM(v) OVER(PARTITION BY p ORDER BY o), LAST_VALUE(v) OVER(PARTITION BY p ORDER BY o) FROM t
+    // peer groups of 25 rows span several batches, the last one of which may have been read back from disk
+    final WindowPOP window = new WindowPOP(PROPS, null,
+      singletonList(n("p")),
+      Arrays.asList(n("sum(v)", "running"), n("last_value(v)", "last")),
+      singletonList(ordering("o", ASCENDING, FIRST)),
+      false, new Bound(true, Long.MIN_VALUE), new Bound(false, 0));
+
+    final int[] lengths = {230, 7, 120};
+    final DataRow[] input = new DataRow[357];
+    final DataRow[] output = new DataRow[input.length];
+    int row = 0;
+    for (int p = 0; p < lengths.length; p++) {
+      for (int i = 0; i < lengths[p]; i++, row++) {
+        // the frame of a row ends with the last row of its peer group
+        final long lastPeer = Math.min(lengths[p], (i / 25 + 1) * 25);
+        input[row] = tr(p, i / 25, (long) i + 1);
+        output[row] = tr(p, i / 25, (long) i + 1, lastPeer * (lastPeer + 1) / 2, lastPeer);
+      }
+    }
+
+    validateSingle(window, WindowFrameOperator.class, Fixtures.split(th("p", "o", "v"), BATCH_SIZE, input),
+      t(th("p", "o", "v", "running", "last"), output), BATCH_SIZE);
+  }
+
+  @Test
+  public void rangeFrameToEndOfPartition() throws Exception {
+    // SELECT p, o, v, SUM(v) OVER(PARTITION BY p ORDER BY o RANGE BETWEEN CURRENT ROW AND UNBOUNDED FOLLOWING),
+    //   LAST_VALUE(v) OVER(...) FROM t
+    final WindowPOP window = new WindowPOP(PROPS, null,
+      singletonList(n("p")),
+      Arrays.asList(n("sum(v)", "remaining"), n("last_value(v)", "last")),
+      singletonList(ordering("o", ASCENDING, FIRST)),
+      false, new Bound(false, 0), new Bound(true, Long.MIN_VALUE));
+
+    final int[] lengths = {230, 7, 120};
+    final DataRow[] input = new DataRow[357];
+    final DataRow[] output = new DataRow[input.length];
+    int row = 0;
+    for (int p = 0; p < lengths.length; p++) {
+      final long total = (long) lengths[p] * (lengths[p] + 1) / 2;
+      for (int i = 0; i < lengths[p]; i++, row++) {
+        // the frame of a row starts with the first row of its peer group
+        final long firstPeer = (i / 25) * 25;
+        input[row] = tr(p, i / 25, (long) i + 1);
+        output[row] = tr(p, i / 25, (long) i + 1, total - firstPeer * (firstPeer + 1) / 2, (long) lengths[p]);
+      }
+    }
+
+    validateSingle(window, WindowFrameOperator.class, Fixtures.split(th("p", "o", "v"), BATCH_SIZE, input),
+      t(th("p", "o", "v", "remaining", "last"), output), BATCH_SIZE);
+  }
+}
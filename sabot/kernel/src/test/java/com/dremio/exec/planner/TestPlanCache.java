@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.planner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.dremio.exec.catalog.Catalog;
+import com.dremio.exec.planner.proto.PlanCacheStatistics;
+import com.dremio.options.OptionList;
+import com.dremio.options.OptionManager;
+import com.dremio.options.OptionValue;
+import com.google.common.hash.HashCode;
+
+/**
+ * Tests for {@link PlanCache}
+ */
+public class TestPlanCache {
+  private static final String SQL = "SELECT * FROM t WHERE a = 1";
+
+  @Test
+  public void testKeyCoversUserAndOptions() {
+    final HashCode key = PlanCache.generateCacheKey(SQL, "UI_RUN", "space", "user1", options());
+    assertEquals(128, key.bits());
+    assertEquals(key, PlanCache.generateCacheKey(SQL, "UI_RUN", "space", "user1", options()));
+
+    assertNotEquals(key, PlanCache.generateCacheKey(SQL, "UI_RUN", "space", "user2", options()));
+    assertNotEquals(key, PlanCache.generateCacheKey(SQL, "UI_RUN", "space", "user1",
+      options(OptionValue.createLong(OptionValue.OptionType.SESSION, "planner.width.max_per_node", 2))));
+    // query options don't change the key
+    assertEquals(key, PlanCache.generateCacheKey(SQL, "UI_RUN", "space", "user1",
+      options(OptionValue.createString(OptionValue.OptionType.QUERY, "planner.store_query_results_policy", "path"))));
+  }
+
+  @Test
+  public void testInvalidateOnDataset() {
+    final PlanCache planCache = new PlanCache(Long.MAX_VALUE, 60);
+    final HashCode key1 = PlanCache.generateCacheKey("q1", "UI_RUN", "", "user", null);
+    final HashCode key2 = PlanCache.generateCacheKey("q2", "UI_RUN", "", "user", null);
+    cache(planCache, key1, "ds1", "ds2");
+    cache(planCache, key2, "ds2");
+
+    planCache.invalidateCacheOnDataset("ds1");
+    assertNull(planCache.getCachePlans().getIfPresent(key1));
+    assertNotNull(planCache.getCachePlans().getIfPresent(key2));
+    // the removed plan is dropped from the index of the other datasets it was reading
+    assertEquals(Collections.singleton(key2), planCache.getPlansOnDataset("ds2"));
+
+    planCache.invalidateCacheOnDataset("ds2");
+    assertNull(planCache.getCachePlans().getIfPresent(key2));
+    assertTrue(planCache.getPlansOnDataset("ds2").isEmpty());
+
+    final PlanCacheStatistics statistics = planCache.getStatistics();
+    assertEquals(0, statistics.getEntries());
+    assertEquals(0, statistics.getDatasets());
+    assertEquals(2, statistics.getInvalidations());
+  }
+
+  @Test
+  public void testStatistics() {
+    final PlanCache planCache = new PlanCache(Long.MAX_VALUE, 60);
+    final Catalog catalog = mock(Catalog.class);
+    when(catalog.getAllRequestedTables()).thenReturn(Collections.emptyList());
+    final HashCode key = PlanCache.generateCacheKey(SQL, "UI_RUN", "", "user", null);
+
+    assertNull(planCache.getIfPresentAndValid(catalog, key));
+    cache(planCache, key, "ds1");
+    assertNotNull(planCache.getIfPresentAndValid(catalog, key));
+    assertNotNull(planCache.getIfPresentAndValid(catalog, key));
+
+    final PlanCacheStatistics statistics = planCache.getStatistics();
+    assertEquals(1, statistics.getEntries());
+    assertEquals(1, statistics.getDatasets());
+    assertEquals(2, statistics.getHits());
+    assertEquals(1, statistics.getMisses());
+  }
+
+  private static void cache(PlanCache planCache, HashCode key, String... datasets) {
+    for (String dataset : datasets) {
+      planCache.addCacheToDatasetMap(dataset, key);
+    }
+    planCache.getCachePlans().put(key, CachedPlan.createCachedPlan(SQL, null, "", 1));
+  }
+
+  private static OptionManager options(OptionValue... values) {
+    final OptionList optionList = new OptionList();
+    Collections.addAll(optionList, values);
+    final OptionManager options = mock(OptionManager.class);
+    when(options.getNonDefaultOptions()).thenReturn(optionList);
+    return options;
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.planner.physical;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dremio.PlanTestBase;
+import com.dremio.exec.ExecConstants;
+
+/**
+ * Tests that limits above planner.op.topn.max_limit are planned as a limited sort instead of a TopN.
+ */
+public class TestTopNMaxLimit extends PlanTestBase {
+
+  private static final String QUERY = "select n_nationkey from cp.\"tpch/nation.parquet\" order by n_name limit %d offset %d";
+
+  @Before
+  public void setup() throws Exception {
+    test("alter session set planner.slice_target=1");
+    test("alter session set planner.enable_sort_round_robin=true");
+    test("alter session set \"" + TopNPrel.MAX_LIMIT.getOptionName() + "\" = 10");
+  }
+
+  @After
+  public void reset() throws Exception {
+    test("alter session set planner.slice_target=" + ExecConstants.SLICE_TARGET_DEFAULT);
+    test("alter session set planner.enable_sort_round_robin=" + PlannerSettings.ENABLE_SORT_ROUND_ROBIN.getDefault().getBoolVal());
+    test("alter session reset \"" + TopNPrel.MAX_LIMIT.getOptionName() + "\"");
+  }
+
+  @Test
+  public void testTopNBelowMaxLimit() throws Exception {
+    testPlanMatchingPatterns(
+      String.format(QUERY, 5, 5),
+      new String[]{"(?s)Limit.*SingleMergeExchange.*TopN\\(limit=\\[10\\]\\)"},
+      "Sort\\(");
+  }
+
+  @Test
+  public void testSortAboveMaxLimit() throws Exception {
+    testPlanMatchingPatterns(
+      String.format(QUERY, 6, 5),
+      new String[]{"(?s)Limit.*SingleMergeExchange.*Sort\\(.*fetch=\\[11\\]\\)"},
+      "TopN");
+  }
+}
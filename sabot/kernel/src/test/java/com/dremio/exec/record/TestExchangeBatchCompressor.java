@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.record;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.dremio.exec.proto.UserBitShared.QueryId;
+import com.dremio.sabot.exec.context.OpProfileDef;
+import com.dremio.sabot.exec.context.OperatorStats;
+import com.dremio.sabot.op.receiver.RawFragmentBatch;
+import com.dremio.sabot.op.sender.broadcast.BroadcastOperator.Metric;
+import com.dremio.test.AllocatorRule;
+import com.dremio.test.DremioTest;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Tests for {@link ExchangeBatchCompressor}
+ */
+public class TestExchangeBatchCompressor extends DremioTest {
+  private static final int RECORD_COUNT = 4096;
+
+  @Rule
+  public final AllocatorRule allocatorRule = AllocatorRule.defaultAllocator();
+
+  private BufferAllocator allocator;
+  private OperatorStats stats;
+
+  @Before
+  public void setup() {
+    allocator = allocatorRule.newAllocator("test-exchange-batch-compressor", 0, Long.MAX_VALUE);
+    stats = new OperatorStats(new OpProfileDef(1, 1, 1, 1), allocator);
+  }
+
+  @After
+  public void cleanup() {
+    allocator.close();
+  }
+
+  @Test
+  public void testRoundTrip() {
+    final ExchangeBatchCompressor compressor = newCompressor(ExchangeBatchCompressor.CODEC_LZ4);
+    try (VectorContainer container = new VectorContainer(allocator)) {
+      final IntVector ints = new IntVector("ints", allocator);
+      final VarCharVector strings = new VarCharVector("strings", allocator);
+      container.add(ints);
+      container.add(strings);
+      container.buildSchema();
+      fill(ints, strings);
+
+      final FragmentWritableBatch writableBatch = FragmentWritableBatch.create(QueryId.getDefaultInstance(), 0, 0, 0,
+        container, 0, compressor);
+      assertTrue(writableBatch.getHeader().getLz4Compressed());
+      assertTrue(stats.getLongStat(Metric.COMPRESSED_BYTES) < stats.getLongStat(Metric.UNCOMPRESSED_BYTES));
+
+      container.zeroVectors();
+      try (RawFragmentBatch compressed = toRawBatch(writableBatch);
+           RawFragmentBatch decompressed = ExchangeBatchCompressor.decompress(compressed, allocator);
+           ArrowRecordBatchLoader loader = new ArrowRecordBatchLoader(allocator, container.getSchema())) {
+        assertFalse(decompressed.getHeader().getLz4Compressed());
+        loader.load(decompressed);
+        assertEquals(RECORD_COUNT, loader.getRecordCount());
+
+        final IntVector loadedInts = (IntVector) loader.getValueAccessorById(IntVector.class, 0).getValueVector();
+        final VarCharVector loadedStrings = (VarCharVector) loader.getValueAccessorById(VarCharVector.class, 1).getValueVector();
+        for (int i = 0; i < RECORD_COUNT; i++) {
+          if (i % 10 == 0) {
+            assertTrue(loadedInts.isNull(i));
+          } else {
+            assertEquals(i % 100, loadedInts.get(i));
+          }
+          assertEquals("value" + (i % 7), new String(loadedStrings.get(i), StandardCharsets.UTF_8));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDisabledWhenRatioIsPoor() {
+    final ExchangeBatchCompressor compressor = newCompressor(ExchangeBatchCompressor.CODEC_LZ4_HC);
+    final Random random = new Random(42);
+    try (VectorContainer container = new VectorContainer(allocator)) {
+      final IntVector ints = new IntVector("ints", allocator);
+      container.add(ints);
+      container.buildSchema();
+
+      for (int batch = 0; batch < ExchangeBatchCompressor.SAMPLE_BATCH_COUNT; batch++) {
+        assertTrue(compressor.isEnabled());
+        ints.allocateNew(RECORD_COUNT);
+        for (int i = 0; i < RECORD_COUNT; i++) {
+          ints.set(i, random.nextInt());
+        }
+        container.setAllCount(RECORD_COUNT);
+        release(FragmentWritableBatch.create(QueryId.getDefaultInstance(), 0, 0, 0, container, 0, compressor));
+      }
+      assertFalse(compressor.isEnabled());
+
+      final FragmentWritableBatch writableBatch = FragmentWritableBatch.create(QueryId.getDefaultInstance(), 0, 0, 0,
+        container, 0, compressor);
+      assertFalse(writableBatch.getHeader().getLz4Compressed());
+      release(writableBatch);
+    }
+  }
+
+  @Test
+  public void testNoneCodec() {
+    assertFalse(newCompressor(ExchangeBatchCompressor.CODEC_NONE).isEnabled());
+  }
+
+  private ExchangeBatchCompressor newCompressor(String codec) {
+    return new ExchangeBatchCompressor(allocator, codec, 0.9, stats, Metric.UNCOMPRESSED_BYTES, Metric.COMPRESSED_BYTES);
+  }
+
+  private static void fill(IntVector ints, VarCharVector strings) {
+    ints.allocateNew(RECORD_COUNT);
+    strings.allocateNew();
+    for (int i = 0; i < RECORD_COUNT; i++) {
+      if (i % 10 != 0) {
+        ints.set(i, i % 100);
+      }
+      strings.setSafe(i, ("value" + (i % 7)).getBytes(StandardCharsets.UTF_8));
+    }
+    ints.setValueCount(RECORD_COUNT);
+    strings.setValueCount(RECORD_COUNT);
+  }
+
+  private RawFragmentBatch toRawBatch(FragmentWritableBatch writableBatch) {
+    final ArrowBuf body = allocator.buffer(writableBatch.getByteCount());
+    long offset = 0;
+    for (ByteBuf buf : writableBatch.getBuffers()) {
+      final int length = buf.readableBytes();
+      body.setBytes(offset, buf.nioBuffer(buf.readerIndex(), length));
+      offset += length;
+      buf.release();
+    }
+    body.writerIndex(offset);
+    final RawFragmentBatch rawBatch = new RawFragmentBatch(writableBatch.getHeader(), body, null);
+    body.release();
+    return rawBatch;
+  }
+
+  private static void release(FragmentWritableBatch writableBatch) {
+    for (ByteBuf buf : writableBatch.getBuffers()) {
+      buf.release();
+    }
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.record;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.complex.ListVector;
+import org.apache.arrow.vector.complex.impl.UnionListWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.dremio.test.AllocatorRule;
+import com.dremio.test.DremioTest;
+
+import io.netty.buffer.NettyArrowBuf;
+
+/**
+ * Tests for {@link RecordBatchLoader}
+ */
+public class TestRecordBatchLoader extends DremioTest {
+  private static final int RECORD_COUNT = 1000;
+
+  @Rule
+  public final AllocatorRule allocatorRule = AllocatorRule.defaultAllocator();
+
+  private BufferAllocator allocator;
+
+  @Before
+  public void setup() {
+    allocator = allocatorRule.newAllocator("test-record-batch-loader", 0, Long.MAX_VALUE);
+  }
+
+  @After
+  public void cleanup() {
+    allocator.close();
+  }
+
+  @Test
+  public void testLoadFromMultipleBuffers() {
+    try (VectorContainer container = new VectorContainer(allocator);
+         RecordBatchLoader loader = new RecordBatchLoader(allocator)) {
+      final IntVector ints = new IntVector("ints", allocator);
+      final VarCharVector strings = new VarCharVector("strings", allocator);
+      final ListVector lists = new ListVector("lists", allocator, null);
+      container.add(ints);
+      container.add(strings);
+      container.add(lists);
+      container.buildSchema();
+      fill(ints, strings, lists);
+      container.setRecordCount(RECORD_COUNT);
+
+      final List<Long> addresses = new ArrayList<>();
+      try (WritableBatch batch = WritableBatch.get(container)) {
+        final List<ArrowBuf> buffers = new ArrayList<>();
+        for (NettyArrowBuf buf : batch.getBuffers()) {
+          buffers.add(buf.arrowBuf().slice(buf.readerIndex(), buf.readableBytes()));
+          addresses.add(buf.arrowBuf().memoryAddress() + buf.readerIndex());
+        }
+        assertTrue(buffers.size() > 3);
+        loader.load(batch.getDef(), buffers);
+      }
+
+      assertEquals(RECORD_COUNT, loader.getRecordCount());
+      final IntVector loadedInts = loader.getValueAccessorById(IntVector.class, 0).getValueVector();
+      final VarCharVector loadedStrings = loader.getValueAccessorById(VarCharVector.class, 1).getValueVector();
+      final ListVector loadedLists = loader.getValueAccessorById(ListVector.class, 2).getValueVector();
+
+      // primitive vectors reference the incoming buffers
+      assertTrue(addresses.contains(loadedInts.getDataBuffer().memoryAddress()));
+      assertTrue(addresses.contains(loadedStrings.getOffsetBuffer().memoryAddress()));
+      assertTrue(addresses.contains(loadedStrings.getDataBuffer().memoryAddress()));
+
+      for (int i = 0; i < RECORD_COUNT; i++) {
+        if (i % 10 == 0) {
+          assertTrue(loadedInts.isNull(i));
+          assertTrue(loadedLists.isNull(i));
+        } else {
+          assertEquals(i, loadedInts.get(i));
+          assertEquals(i % 5, ((List<?>) loadedLists.getObject(i)).size());
+        }
+        assertEquals("value" + (i % 7), new String(loadedStrings.get(i), StandardCharsets.UTF_8));
+      }
+    }
+  }
+
+  private static void fill(IntVector ints, VarCharVector strings, ListVector lists) {
+    ints.allocateNew(RECORD_COUNT);
+    strings.allocateNew();
+    lists.allocateNew();
+    final UnionListWriter listWriter = lists.getWriter();
+    for (int i = 0; i < RECORD_COUNT; i++) {
+      strings.setSafe(i, ("value" + (i % 7)).getBytes(StandardCharsets.UTF_8));
+      if (i % 10 == 0) {
+        continue;
+      }
+      ints.set(i, i);
+      listWriter.setPosition(i);
+      listWriter.startList();
+      for (int j = 0; j < i % 5; j++) {
+        listWriter.writeInt(j);
+      }
+      listWriter.endList();
+    }
+    ints.setValueCount(RECORD_COUNT);
+    strings.setValueCount(RECORD_COUNT);
+    lists.setValueCount(RECORD_COUNT);
+  }
+}
@@ -24,9 +24,13 @@ import static org.mockito.Mockito.when;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.arrow.memory.BufferAllocator;
@@ -48,6 +52,7 @@ import com.dremio.BaseTestQuery;
 import com.dremio.common.AutoCloseables;
 import com.dremio.common.exceptions.ExecutionSetupException;
 import com.dremio.common.expression.CompleteType;
+import com.dremio.exec.catalog.CatalogOptions;
 import com.dremio.exec.hadoop.HadoopFileSystem;
 import com.dremio.exec.hadoop.HadoopFileSystem.FetchOnDemandDirectoryStream;
 import com.dremio.exec.physical.config.MinorFragmentEndpoint;
@@ -64,6 +69,7 @@ import com.dremio.service.namespace.dataset.proto.PartitionProtobuf;
 import com.dremio.service.namespace.dirlist.proto.DirListInputSplitProto;
 import com.dremio.test.AllocatorRule;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 
 public class TestDirListingRecordReader extends BaseTestQuery {
 
@@ -552,6 +558,72 @@ public class TestDirListingRecordReader extends BaseTestQuery {
   }
 
 
+  @Test
+  public void testParallelListing() throws Exception {
+    Path inputPath = Path.of("/randompath/");
+    HadoopFileSystem fs = (HadoopFileSystem) setUpFs();
+
+    // foo.parquet
+    // bar/
+    //   file1.parquet
+    //   subBar1/
+    //     file2.parquet
+    // baz/
+    //   file3.parquet
+    // .hidden/ (never listed)
+    Path bar = inputPath.resolve("bar");
+    Path subBar1 = bar.resolve("subBar1");
+    Path baz = inputPath.resolve("baz");
+    when(fs.list(inputPath)).thenReturn(newRemoteIterator(inputPath,
+      new FileStatus(20, false, 1, 4096, 1, 2, FsPermission.getFileDefault(), "testowner", "testgroup", toHadoopPath(inputPath.resolve("foo.parquet"))),
+      new FileStatus(0, true, 0, 0, 2, 4, FsPermission.getDirDefault(), "testowner", "testgroup", toHadoopPath(bar)),
+      new FileStatus(0, true, 0, 0, 3, 4, FsPermission.getDirDefault(), "testowner", "testgroup", toHadoopPath(baz)),
+      new FileStatus(0, true, 0, 0, 4, 4, FsPermission.getDirDefault(), "testowner", "testgroup", toHadoopPath(inputPath.resolve(".hidden")))));
+    when(fs.list(bar)).thenReturn(newRemoteIterator(bar,
+      new FileStatus(30, false, 1, 4096, 5, 2, FsPermission.getFileDefault(), "testowner", "testgroup", toHadoopPath(bar.resolve("file1.parquet"))),
+      new FileStatus(0, true, 0, 0, 6, 4, FsPermission.getDirDefault(), "testowner", "testgroup", toHadoopPath(subBar1))));
+    when(fs.list(subBar1)).thenReturn(newRemoteIterator(subBar1,
+      new FileStatus(40, false, 1, 4096, 7, 2, FsPermission.getFileDefault(), "testowner", "testgroup", toHadoopPath(subBar1.resolve("file2.parquet")))));
+    when(fs.list(baz)).thenReturn(newRemoteIterator(baz,
+      new FileStatus(50, false, 1, 4096, 8, 2, FsPermission.getFileDefault(), "testowner", "testgroup", toHadoopPath(baz.resolve("file3.parquet")))));
+
+    final ExecutorService executor = Executors.newCachedThreadPool();
+    OperatorContext context = getCtx();
+    when(context.getOptions().getOption(CatalogOptions.DIR_LISTING_PARALLELISM)).thenReturn(4L);
+    when(context.getExecutor()).thenReturn(executor);
+
+    setupMutator();
+    DirListInputSplitProto.DirListInputSplit split = getDirListInputSplit(inputPath.toString(), inputPath.toString());
+    reader = new DirListingRecordReader(context, fs, split, true, null, null, true);
+    reader.allocate(mutator.getFieldVectorMap());
+    reader.setup(mutator);
+    ((DirListingRecordReader) reader).setBatchSize(100);
+
+    int generatedRecords;
+    try {
+      generatedRecords = reader.next();
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(4, generatedRecords);
+
+    Map<String, ValueVector> fieldVectorMap = mutator.getFieldVectorMap();
+    VarCharVector outputpaths = (VarCharVector) fieldVectorMap.get("filepath");
+    VarBinaryVector outputPartInfo = (VarBinaryVector) fieldVectorMap.get("partitioninfo");
+    // files are listed in no particular order
+    Set<String> files = new HashSet<>();
+    for (int i = 0; i < generatedRecords; i++) {
+      files.add(outputpaths.getObject(i).toString() + " " + extractPartitionData(outputPartInfo.getObject(i)));
+    }
+    assertEquals(ImmutableSet.of(
+      "/randompath/foo.parquet?version=1 PartitionData{}",
+      "/randompath/bar/file1.parquet?version=5 PartitionData{dir0=bar}",
+      "/randompath/bar/subBar1/file2.parquet?version=7 PartitionData{dir0=bar, dir1=subBar1}",
+      "/randompath/baz/file3.parquet?version=8 PartitionData{dir0=baz}"), files);
+
+    assertEquals(0, reader.next());
+  }
+
     private String extractPartitionData(byte[] partitionInfoBytes) throws IOException, ClassNotFoundException {
     java.io.ByteArrayInputStream fis = new java.io.ByteArrayInputStream(partitionInfoBytes);
     java.io.ObjectInputStream ois = new java.io.ObjectInputStream(fis);
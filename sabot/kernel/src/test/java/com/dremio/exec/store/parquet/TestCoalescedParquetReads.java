@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.parquet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.parquet.column.Encoding;
+import org.apache.parquet.format.PageHeader;
+import org.apache.parquet.format.Util;
+import org.apache.parquet.format.converter.ParquetMetadataConverter;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.dremio.BaseTestQuery;
+import com.dremio.exec.ExecConstants;
+import com.dremio.io.AsyncByteReader;
+import com.dremio.io.FSInputStream;
+import com.dremio.io.file.FileAttributes;
+import com.dremio.io.file.FileSystem;
+import com.dremio.io.file.FilterFileSystem;
+import com.dremio.io.file.Path;
+import com.dremio.io.file.PathFilters;
+import com.dremio.options.OptionManager;
+import com.dremio.sabot.exec.context.OperatorContext;
+import com.dremio.test.AllocatorRule;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Compares the column chunks of a parquet file read through {@link StreamPerColumnProvider}, with and without
+ * prefetching them with a coalesced read.
+ */
+public class TestCoalescedParquetReads extends BaseTestQuery {
+  private static final String TABLE = "coalesced_reads";
+
+  private static Path file;
+
+  @Rule
+  public final AllocatorRule allocatorRule = AllocatorRule.defaultAllocator();
+
+  @BeforeClass
+  public static void createTable() throws Exception {
+    try (AutoCloseable ignored = withOption(ExecConstants.PARQUET_WRITER_ENABLE_DICTIONARY_ENCODING_VALIDATOR, true)) {
+      // n_regionkey has few distinct values and is dictionary encoded
+      test("CREATE TABLE dfs_test.%s AS SELECT n_nationkey, n_name, n_regionkey, n_comment FROM cp.\"tpch/nation.parquet\"", TABLE);
+    }
+    final Path tableDir = Path.of(getDfsTestTmpSchemaLocation()).resolve(TABLE);
+    try (DirectoryStream<FileAttributes> statuses = localFs.list(tableDir, PathFilters.endsWith(".parquet"))) {
+      file = statuses.iterator().next().getPath();
+    }
+  }
+
+  @AfterClass
+  public static void dropTable() throws Exception {
+    test("DROP TABLE dfs_test.%s", TABLE);
+  }
+
+  @Test
+  public void testPrefetchedChunksMatchStreams() throws Exception {
+    final long length = localFs.getFileAttributes(file).size();
+    final ParquetMetadata footer = SingletonParquetFooterCache.readFooter(localFs, file, ParquetMetadataConverter.NO_FILTER,
+      ExecConstants.PARQUET_MAX_FOOTER_LEN_VALIDATOR.getDefault().getNumVal());
+    final List<ColumnChunkMetaData> columns = new ArrayList<>();
+    for (BlockMetaData block : footer.getBlocks()) {
+      columns.addAll(block.getColumns());
+    }
+    assertTrue(columns.stream().anyMatch(c -> c.getEncodings().contains(Encoding.PLAIN_DICTIONARY)
+      || c.getEncodings().contains(Encoding.RLE_DICTIONARY)));
+
+    final AsyncLocalFileSystem asyncFs = new AsyncLocalFileSystem(localFs);
+    try (BufferAllocator allocator = allocatorRule.newAllocator("test-coalesced-reads", 0, Long.MAX_VALUE)) {
+      final List<byte[]> expected = new ArrayList<>();
+      try (StreamPerColumnProvider provider = new StreamPerColumnProvider(asyncFs, file, length, Long.MAX_VALUE,
+        new MutableParquetMetadata(footer), newContext(allocator, false), false)) {
+        provider.prefetch(columns);
+        for (ColumnChunkMetaData column : columns) {
+          expected.add(readPages(provider.getStream(column), column));
+        }
+      }
+      assertEquals(0, asyncFs.readers.get());
+
+      try (StreamPerColumnProvider provider = new StreamPerColumnProvider(asyncFs, file, length, Long.MAX_VALUE,
+        new MutableParquetMetadata(footer), newContext(allocator, true), false)) {
+        provider.prefetch(columns);
+        assertEquals(1, asyncFs.readers.get());
+        for (int i = 0; i < columns.size(); i++) {
+          assertArrayEquals(expected.get(i), readPages(provider.getStream(columns.get(i)), columns.get(i)));
+        }
+        // every chunk was read through, up to its total size, which releases the prefetched data
+        assertEquals(0, allocator.getAllocatedMemory());
+      }
+    }
+  }
+
+  /**
+   * Reads the pages of the column chunk, checking that the last one ends exactly at the end of the chunk.
+   */
+  private static byte[] readPages(BulkInputStream stream, ColumnChunkMetaData column) throws IOException {
+    final long end = column.getStartingPos() + column.getTotalSize();
+    final ByteArrayOutputStream pages = new ByteArrayOutputStream();
+    stream.seek(column.getStartingPos());
+    while (stream.getPos() < end) {
+      final PageHeader header = Util.readPageHeader(stream.asSeekableInputStream());
+      final byte[] page = new byte[header.getCompressed_page_size()];
+      stream.readFully(page, 0, page.length);
+      pages.write(page);
+    }
+    assertEquals(end, stream.getPos());
+    return pages.toByteArray();
+  }
+
+  private static OperatorContext newContext(BufferAllocator allocator, boolean prefetch) {
+    final OptionManager options = mock(OptionManager.class);
+    when(options.getOption(ExecConstants.PARQUET_COALESCED_READ_ENABLE)).thenReturn(prefetch);
+    when(options.getOption(ExecConstants.PARQUET_COALESCED_READ_MAX_GAP)).thenReturn(
+      ExecConstants.PARQUET_COALESCED_READ_MAX_GAP.getDefault().getNumVal());
+    when(options.getOption(ExecConstants.PARQUET_COALESCED_READ_MAX_MERGED_SIZE)).thenReturn(
+      ExecConstants.PARQUET_COALESCED_READ_MAX_MERGED_SIZE.getDefault().getNumVal());
+    when(options.getOption(ExecConstants.PARQUET_COALESCED_READ_MAX_CONCURRENT_READS)).thenReturn(
+      ExecConstants.PARQUET_COALESCED_READ_MAX_CONCURRENT_READS.getDefault().getNumVal());
+    when(options.getOption(ExecConstants.PARQUET_COALESCED_READ_MAX_PREFETCH_SIZE)).thenReturn(
+      ExecConstants.PARQUET_COALESCED_READ_MAX_PREFETCH_SIZE.getDefault().getNumVal());
+
+    final OperatorContext context = mock(OperatorContext.class);
+    when(context.getAllocator()).thenReturn(allocator);
+    when(context.getOptions()).thenReturn(options);
+    return context;
+  }
+
+  /**
+   * Local file system reading asynchronously through positioned reads, counting the readers created.
+   */
+  private static final class AsyncLocalFileSystem extends FilterFileSystem {
+    private final AtomicInteger readers = new AtomicInteger();
+
+    private AsyncLocalFileSystem(FileSystem fs) {
+      super(fs);
+    }
+
+    @Override
+    public boolean supportsAsync() {
+      return true;
+    }
+
+    @Override
+    public AsyncByteReader getAsyncByteReader(AsyncByteReader.FileKey fileKey, Map<String, String> options) throws IOException {
+      readers.incrementAndGet();
+      final FSInputStream input = open(fileKey.getPath());
+      return new AsyncByteReader() {
+        @Override
+        public CompletableFuture<Void> readFully(long offset, ByteBuf dst, int dstOffset, int len) {
+          return CompletableFuture.runAsync(() -> {
+            try {
+              final ByteBuffer buffer = dst.nioBuffer(dstOffset, len);
+              // positioned reads move the stream
+              synchronized (input) {
+                while (buffer.hasRemaining()) {
+                  if (input.read(offset + buffer.position(), buffer) < 0) {
+                    throw new IOException("Read past the end of " + fileKey.getPath());
+                  }
+                }
+              }
+            } catch (IOException e) {
+              throw new CompletionException(e);
+            }
+          });
+        }
+
+        @Override
+        public void close() throws Exception {
+          input.close();
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.parquet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnPath;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.hadoop.metadata.FileMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type.Repetition;
+import org.junit.Test;
+
+import com.dremio.exec.ExecConstants;
+import com.dremio.io.file.Path;
+import com.dremio.options.OptionManager;
+import com.dremio.sabot.exec.context.OperatorContext;
+
+/**
+ * Tests for {@link ParquetFooterCache}
+ */
+public class TestParquetFooterCache {
+  private static final Path PATH = Path.of("/tmp/test.parquet");
+
+  @Test
+  public void testInstanceFollowsMaxSize() throws Exception {
+    final OptionManager options = mock(OptionManager.class);
+    when(options.getOption(ExecConstants.PARQUET_FOOTER_CACHE_ENABLED)).thenReturn(true);
+    when(options.getOption(ExecConstants.PARQUET_FOOTER_CACHE_MAX_SIZE)).thenReturn(1024L * 1024);
+    final OperatorContext context = mock(OperatorContext.class);
+    when(context.getOptions()).thenReturn(options);
+
+    final ParquetFooterCache cache = ParquetFooterCache.getInstance(context, 100);
+    assertNotNull(cache);
+    assertSame(cache, ParquetFooterCache.getInstance(context, 100));
+
+    when(options.getOption(ExecConstants.PARQUET_FOOTER_CACHE_MAX_SIZE)).thenReturn(2048L * 1024);
+    final ParquetFooterCache resized = ParquetFooterCache.getInstance(context, 100);
+    assertNotSame(cache, resized);
+    assertSame(resized, ParquetFooterCache.getInstance(context, 100));
+  }
+
+  @Test
+  public void testFooterIsLoadedOnce() throws Exception {
+    final ParquetFooterCache cache = new ParquetFooterCache(1024 * 1024);
+    final AtomicInteger loads = new AtomicInteger();
+    final Callable<ParquetMetadata> loader = () -> {
+      loads.incrementAndGet();
+      return newFooter(3);
+    };
+
+    assertEquals(3, cache.getFooter(PATH, 100, 1000, loader, null).getBlocks().size());
+    assertEquals(3, cache.getFooter(PATH, 100, 1000, loader, null).getBlocks().size());
+    assertEquals(1, loads.get());
+    assertEquals(1, cache.getFooterHitCount());
+    assertEquals(1, cache.getFooterMissCount());
+  }
+
+  @Test
+  public void testModifiedFileIsReloaded() throws Exception {
+    final ParquetFooterCache cache = new ParquetFooterCache(1024 * 1024);
+    final AtomicInteger loads = new AtomicInteger();
+    final Callable<ParquetMetadata> loader = () -> {
+      loads.incrementAndGet();
+      return newFooter(1);
+    };
+
+    cache.getFooter(PATH, 100, 1000, loader, null);
+    cache.getFooter(PATH, 200, 1000, loader, null);
+    cache.getFooter(PATH, 200, 2000, loader, null);
+    cache.getFooter(Path.of("/tmp/other.parquet"), 200, 2000, loader, null);
+    assertEquals(4, loads.get());
+  }
+
+  @Test
+  public void testReturnedFootersAreIndependent() throws Exception {
+    final ParquetFooterCache cache = new ParquetFooterCache(1024 * 1024);
+    final Callable<ParquetMetadata> loader = () -> newFooter(2);
+
+    final MutableParquetMetadata first = new MutableParquetMetadata(cache.getFooter(PATH, 100, 1000, loader, null));
+    first.removeRowGroupInformation(0);
+    first.removeUnneededColumns(Collections.emptySet());
+
+    final ParquetMetadata second = cache.getFooter(PATH, 100, 1000, loader, null);
+    assertNotNull(second.getBlocks().get(0));
+    assertEquals(2, second.getBlocks().get(1).getColumns().size());
+  }
+
+  @Test
+  public void testCacheIsBounded() throws Exception {
+    // room for a few footers only
+    final ParquetFooterCache cache = new ParquetFooterCache(8 * 1024);
+    final AtomicInteger loads = new AtomicInteger();
+    final Callable<ParquetMetadata> loader = () -> {
+      loads.incrementAndGet();
+      return newFooter(1);
+    };
+
+    for (int i = 0; i < 100; i++) {
+      cache.getFooter(Path.of("/tmp/file" + i + ".parquet"), 100, 1000, loader, null);
+    }
+    cache.getFooter(Path.of("/tmp/file0.parquet"), 100, 1000, loader, null);
+    assertEquals(101, loads.get());
+  }
+
+  private static ParquetMetadata newFooter(int rowGroups) {
+    final MessageType schema = new MessageType("root",
+      new PrimitiveType(Repetition.OPTIONAL, PrimitiveTypeName.INT32, "a"),
+      new PrimitiveType(Repetition.OPTIONAL, PrimitiveTypeName.INT64, "b"));
+    final List<BlockMetaData> blocks = new ArrayList<>();
+    for (int i = 0; i < rowGroups; i++) {
+      final BlockMetaData block = new BlockMetaData();
+      block.setRowCount(10);
+      block.addColumn(column("a", PrimitiveTypeName.INT32));
+      block.addColumn(column("b", PrimitiveTypeName.INT64));
+      blocks.add(block);
+    }
+    return new ParquetMetadata(new FileMetaData(schema, Collections.emptyMap(), "test"), blocks);
+  }
+
+  private static ColumnChunkMetaData column(String name, PrimitiveTypeName typeName) {
+    final PrimitiveType type = new PrimitiveType(Repetition.OPTIONAL, typeName, name);
+    return ColumnChunkMetaData.get(ColumnPath.get(name), type, CompressionCodecName.UNCOMPRESSED, null,
+      Collections.emptySet(), Statistics.createStats(type), 0, 0, 10, 0, 0);
+  }
+}
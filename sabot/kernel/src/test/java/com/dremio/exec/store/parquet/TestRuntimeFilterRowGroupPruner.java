@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.parquet;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.function.Function;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.types.Types;
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnPath;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Type.Repetition;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.dremio.exec.store.CompositeColumnFilter;
+import com.dremio.exec.store.RuntimeFilter;
+import com.dremio.exec.util.ValueListFilter;
+import com.dremio.exec.util.ValueListFilterBuilder;
+import com.dremio.test.AllocatorRule;
+
+/**
+ * Tests for {@link RuntimeFilterRowGroupPruner}
+ */
+public class TestRuntimeFilterRowGroupPruner {
+  private static final Function<String, String> IDENTITY = Function.identity();
+
+  @Rule
+  public final AllocatorRule allocatorRule = AllocatorRule.defaultAllocator();
+
+  private BufferAllocator allocator;
+
+  @Before
+  public void setup() {
+    allocator = allocatorRule.newAllocator("test-row-group-pruner", 0, Long.MAX_VALUE);
+  }
+
+  @After
+  public void cleanup() {
+    allocator.close();
+  }
+
+  @Test
+  public void testIntRange() throws Exception {
+    final PrimitiveType type = new PrimitiveType(Repetition.OPTIONAL, PrimitiveTypeName.INT32, "col1");
+    try (ValueListFilter filter = intFilter("col1", false, 5, 50, 500)) {
+      assertTrue(canSkip(intBlock(type, 100, 0, 10, 40), filter));
+      assertTrue(canSkip(intBlock(type, 100, 0, 501, 1000), filter));
+      assertTrue(canSkip(intBlock(type, 100, 0, -100, 4), filter));
+      assertFalse(canSkip(intBlock(type, 100, 0, 40, 60), filter));
+      assertFalse(canSkip(intBlock(type, 100, 0, 500, 600), filter));
+    }
+  }
+
+  @Test
+  public void testNulls() throws Exception {
+    final PrimitiveType type = new PrimitiveType(Repetition.OPTIONAL, PrimitiveTypeName.INT32, "col1");
+    try (ValueListFilter withNull = intFilter("col1", true, 5);
+         ValueListFilter withoutNull = intFilter("col1", false, 5)) {
+      assertFalse(canSkip(intBlock(type, 100, 2, 10, 40), withNull));
+      assertTrue(canSkip(intBlock(type, 100, 2, 10, 40), withoutNull));
+      assertTrue(canSkip(intBlock(type, 100, 100), withoutNull));
+      assertFalse(canSkip(intBlock(type, 100, 100), withNull));
+    }
+  }
+
+  @Test
+  public void testIncompatibleTypeIsIgnored() throws Exception {
+    final PrimitiveType dateType = new PrimitiveType(Repetition.OPTIONAL, PrimitiveTypeName.INT32, "col1")
+      .withLogicalTypeAnnotation(LogicalTypeAnnotation.dateType());
+    final PrimitiveType int64Type = new PrimitiveType(Repetition.OPTIONAL, PrimitiveTypeName.INT64, "col1");
+    try (ValueListFilter filter = intFilter("col1", false, 5)) {
+      assertFalse(canSkip(intBlock(dateType, 100, 0, 10, 40), filter));
+
+      final Statistics<?> stats = Statistics.createStats(int64Type);
+      stats.updateStats(10L);
+      stats.updateStats(40L);
+      assertFalse(canSkip(block(int64Type, 100, stats), filter));
+    }
+  }
+
+  @Test
+  public void testUnknownColumnIsIgnored() throws Exception {
+    final PrimitiveType type = new PrimitiveType(Repetition.OPTIONAL, PrimitiveTypeName.INT32, "col2");
+    try (ValueListFilter filter = intFilter("col1", false, 5)) {
+      assertFalse(canSkip(intBlock(type, 100, 0, 10, 40), filter));
+    }
+  }
+
+  @Test
+  public void testVarcharRange() throws Exception {
+    final PrimitiveType type = new PrimitiveType(Repetition.OPTIONAL, PrimitiveTypeName.BINARY, "col1")
+      .withLogicalTypeAnnotation(LogicalTypeAnnotation.stringType());
+    try (ValueListFilter filter = varcharFilter("col1", "apple", "mango", "zebra")) {
+      assertTrue(canSkip(varcharBlock(type, "banana", "kiwi"), filter));
+      assertTrue(canSkip(varcharBlock(type, "a", "ap"), filter));
+      assertFalse(canSkip(varcharBlock(type, "banana", "orange"), filter));
+      assertFalse(canSkip(varcharBlock(type, "zebra", "zoo"), filter));
+    }
+  }
+
+  private boolean canSkip(BlockMetaData block, ValueListFilter filter) {
+    final CompositeColumnFilter columnFilter = new CompositeColumnFilter.Builder()
+      .setFilterType(CompositeColumnFilter.RuntimeFilterType.VALUE_LIST)
+      .setColumnsList(Collections.singletonList(filter.getFieldName()))
+      .setValueList(filter)
+      .build();
+    final RuntimeFilter runtimeFilter = new RuntimeFilter(null, Collections.singletonList(columnFilter), "test");
+    return RuntimeFilterRowGroupPruner.canSkip(block, Collections.singletonList(runtimeFilter), IDENTITY);
+  }
+
+  private ValueListFilter intFilter(String fieldName, boolean insertNull, int... values) throws Exception {
+    try (ValueListFilterBuilder builder = new ValueListFilterBuilder(allocator, 16, (byte) 4, false);
+         ArrowBuf keyBuf = allocator.buffer(4)) {
+      builder.setup();
+      builder.setFieldType(Types.MinorType.INT);
+      builder.setName(fieldName);
+      builder.setFieldName(fieldName);
+      for (int value : values) {
+        keyBuf.setInt(0, value);
+        builder.insert(keyBuf);
+      }
+      if (insertNull) {
+        builder.insertNull();
+      }
+      return builder.build();
+    }
+  }
+
+  private ValueListFilter varcharFilter(String fieldName, String... values) throws Exception {
+    final int blockSize = 16;
+    try (ValueListFilterBuilder builder = new ValueListFilterBuilder(allocator, 16, (byte) blockSize, false);
+         ArrowBuf keyBuf = allocator.buffer(blockSize)) {
+      builder.setup();
+      builder.setFieldType(Types.MinorType.VARCHAR);
+      builder.setFixedWidth(false);
+      builder.setName(fieldName);
+      builder.setFieldName(fieldName);
+      for (String value : values) {
+        final byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+        keyBuf.setBytes(0, new byte[blockSize]);
+        keyBuf.setByte(0, valueBytes.length);
+        keyBuf.setBytes(blockSize - valueBytes.length, valueBytes);
+        builder.insert(keyBuf);
+      }
+      return builder.build();
+    }
+  }
+
+  private static BlockMetaData intBlock(PrimitiveType type, long rowCount, long numNulls, int... values) {
+    final Statistics<?> stats = Statistics.createStats(type);
+    for (int value : values) {
+      stats.updateStats(value);
+    }
+    for (long i = 0; i < numNulls; i++) {
+      stats.incrementNumNulls();
+    }
+    return block(type, rowCount, stats);
+  }
+
+  private static BlockMetaData varcharBlock(PrimitiveType type, String... values) {
+    final Statistics<?> stats = Statistics.createStats(type);
+    for (String value : values) {
+      stats.updateStats(Binary.fromString(value));
+    }
+    return block(type, values.length, stats);
+  }
+
+  private static BlockMetaData block(PrimitiveType type, long rowCount, Statistics<?> stats) {
+    final ColumnChunkMetaData column = ColumnChunkMetaData.get(ColumnPath.get(type.getName()), type,
+      CompressionCodecName.UNCOMPRESSED, null, Collections.emptySet(), stats, 0, 0, rowCount, 0, 0);
+    final BlockMetaData block = new BlockMetaData();
+    block.setRowCount(rowCount);
+    block.addColumn(column);
+    return block;
+  }
+}
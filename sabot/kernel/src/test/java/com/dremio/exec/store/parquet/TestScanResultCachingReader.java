@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.parquet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.OutOfMemoryException;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.ValueVector;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.dremio.common.exceptions.ExecutionSetupException;
+import com.dremio.common.expression.CompleteType;
+import com.dremio.exec.store.RecordReader;
+import com.dremio.exec.store.RuntimeFilter;
+import com.dremio.exec.store.SampleMutator;
+import com.dremio.io.file.Path;
+import com.dremio.sabot.exec.context.OperatorContext;
+import com.dremio.sabot.exec.context.OperatorStats;
+import com.dremio.sabot.op.scan.OutputMutator;
+import com.dremio.test.AllocatorRule;
+
+/**
+ * Tests for {@link ScanResultCachingReader}
+ */
+public class TestScanResultCachingReader {
+  private static final List<String> COLUMNS = Collections.singletonList("a");
+  private static final Field FIELD = CompleteType.INT.toField("a");
+  private static final int BATCHES = 3;
+  private static final int BATCH_SIZE = 4;
+
+  @Rule
+  public final AllocatorRule allocatorRule = AllocatorRule.defaultAllocator();
+
+  private BufferAllocator allocator;
+  private OperatorContext context;
+
+  @Before
+  public void setup() {
+    allocator = allocatorRule.newAllocator("test-scan-result-caching-reader", 0, Long.MAX_VALUE);
+    context = mock(OperatorContext.class);
+    when(context.getAllocator()).thenReturn(allocator);
+    when(context.getStats()).thenReturn(mock(OperatorStats.class));
+  }
+
+  @After
+  public void cleanup() {
+    allocator.close();
+  }
+
+  @Test
+  public void testSplitIsCachedOnceFullyRead() throws Exception {
+    final ParquetScanResultCache cache = new ParquetScanResultCache(1024 * 1024);
+    final ParquetScanResultCache.SplitKey key = newKey(100);
+
+    readAll(new ScanResultCachingReader(context, cache, key, COLUMNS, new IntReader()));
+    final ParquetScanResultCache.CachedSplit split = cache.get(key);
+    assertNotNull(split);
+    assertEquals(BATCHES, split.getBatches().size());
+
+    // the inner reader isn't used when serving the split from the cache
+    readAll(new ScanResultCachingReader(context, cache, key, COLUMNS, new FailingReader()));
+
+    // a modified file is read again
+    assertNull(cache.get(newKey(200)));
+  }
+
+  @Test
+  public void testPartiallyReadSplitIsNotCached() throws Exception {
+    final ParquetScanResultCache cache = new ParquetScanResultCache(1024 * 1024);
+    final ParquetScanResultCache.SplitKey key = newKey(100);
+
+    try (SampleMutator mutator = new SampleMutator(allocator);
+         RecordReader reader = new ScanResultCachingReader(context, cache, key, COLUMNS, new IntReader())) {
+      reader.setup(mutator);
+      reader.allocate(mutator.getFieldVectorMap());
+      assertEquals(BATCH_SIZE, reader.next());
+    }
+    assertNull(cache.get(key));
+  }
+
+  @Test
+  public void testRuntimeFilteredSplitIsNotCached() throws Exception {
+    final ParquetScanResultCache cache = new ParquetScanResultCache(1024 * 1024);
+    final ParquetScanResultCache.SplitKey key = newKey(100);
+
+    final RecordReader reader = new ScanResultCachingReader(context, cache, key, COLUMNS, new IntReader());
+    reader.addRuntimeFilter(mock(RuntimeFilter.class));
+    readAll(reader);
+    assertNull(cache.get(key));
+  }
+
+  private static ParquetScanResultCache.SplitKey newKey(long mTime) {
+    return new ParquetScanResultCache.SplitKey(Path.of("/tmp/test.parquet"), mTime, 1000, 0, COLUMNS, "[]", 4095);
+  }
+
+  private void readAll(RecordReader reader) throws Exception {
+    try (SampleMutator mutator = new SampleMutator(allocator);
+         RecordReader r = reader) {
+      // the output vectors are set up by the scan before the reader
+      mutator.addField(FIELD, IntVector.class);
+      r.setup(mutator);
+      for (int batch = 0; batch < BATCHES; batch++) {
+        r.allocate(mutator.getFieldVectorMap());
+        assertEquals(BATCH_SIZE, r.next());
+        final IntVector vector = (IntVector) mutator.getVector("a");
+        for (int i = 0; i < BATCH_SIZE; i++) {
+          assertEquals(batch * BATCH_SIZE + i, vector.get(i));
+        }
+      }
+      r.allocate(mutator.getFieldVectorMap());
+      assertEquals(0, r.next());
+    }
+  }
+
+  /**
+   * Writes consecutive integers into column a.
+   */
+  private static final class IntReader implements RecordReader {
+    private IntVector vector;
+    private int batch;
+
+    @Override
+    public void setup(OutputMutator output) throws ExecutionSetupException {
+      try {
+        vector = output.addField(FIELD, IntVector.class);
+      } catch (Exception e) {
+        throw new ExecutionSetupException(e);
+      }
+    }
+
+    @Override
+    public void allocate(Map<String, ValueVector> vectorMap) throws OutOfMemoryException {
+      vector.allocateNew(BATCH_SIZE);
+    }
+
+    @Override
+    public int next() {
+      if (batch == BATCHES) {
+        return 0;
+      }
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        vector.set(i, batch * BATCH_SIZE + i);
+      }
+      vector.setValueCount(BATCH_SIZE);
+      batch++;
+      return BATCH_SIZE;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private static final class FailingReader implements RecordReader {
+    @Override
+    public void setup(OutputMutator output) {
+      throw new IllegalStateException("should not be read");
+    }
+
+    @Override
+    public void allocate(Map<String, ValueVector> vectorMap) {
+      throw new IllegalStateException("should not be read");
+    }
+
+    @Override
+    public int next() {
+      throw new IllegalStateException("should not be read");
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -725,9 +725,10 @@ public class BaseTestOperator extends ExecTest {
    * @param batchSize The target record batch size.
    * @param result The expected result.
    * @param isProduceRequired whether CAN_PRODUCE state should be called or not
+   * @return The stats of the operator.
    * @throws Exception
    */
-  protected <T extends DualInputOperator> void validateDual(
+  protected <T extends DualInputOperator> OperatorStats validateDual(
       PhysicalOperator pop,
       Class<T> clazz,
       Generator left,
@@ -743,7 +744,8 @@ public class BaseTestOperator extends ExecTest {
         ){
 
       // op is added to closeable list and will be closed when test finished. no need to close here.
-      T op = newOperator(clazz, pop, batchSize);
+      final Pair<T, OperatorStats> pair = newOperatorWithStats(clazz, pop, batchSize);
+      final T op = pair.first;
 
       final VectorAccessible output = op.setup(leftGen.getOutput(), right.getOutput());
 
@@ -785,6 +787,7 @@ public class BaseTestOperator extends ExecTest {
         data.add(new RecordBatchData(output, getTestAllocator()));
       }
       result.checkValid(data);
+      return pair.second;
 
     } finally {
       AutoCloseables.close(data);
@@ -800,9 +803,10 @@ public class BaseTestOperator extends ExecTest {
    * @param right The generator to provide the right input.
    * @param batchSize The target record batch size.
    * @param result The expected result.
+   * @return The stats of the operator.
    * @throws Exception
    */
-  protected <T extends DualInputOperator> void validateDual(
+  protected <T extends DualInputOperator> OperatorStats validateDual(
     PhysicalOperator pop,
     Class<T> clazz,
     Generator left,
@@ -810,7 +814,7 @@ public class BaseTestOperator extends ExecTest {
     int batchSize,
     Table result) throws Exception {
 
-    validateDual(pop, clazz, left, right, batchSize, result, true);
+    return validateDual(pop, clazz, left, right, batchSize, result, true);
   }
 
     public static void assertState(Operator operator, MasterState state){
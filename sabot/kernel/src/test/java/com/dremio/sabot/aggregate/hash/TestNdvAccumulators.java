@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.aggregate.hash;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.ipc.message.ArrowFieldNode;
+import org.apache.datasketches.hll.HllSketch;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.dremio.exec.proto.UserBitShared.SerializedField;
+import com.dremio.sabot.op.aggregate.vectorized.AccumulatorSet;
+import com.dremio.sabot.op.aggregate.vectorized.NdvAccumulators;
+import com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggOperator;
+import com.dremio.test.AllocatorRule;
+import com.dremio.test.DremioTest;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Tests for the spillable HLL/NDV accumulators of the vectorized hash agg.
+ */
+public class TestNdvAccumulators extends DremioTest {
+
+  private static final int MAX_VALUES_PER_BATCH = 128;
+  private static final int BITS_IN_CHUNK = 7;
+  private static final int CHUNK_OFFSET_MASK = MAX_VALUES_PER_BATCH - 1;
+  private static final int JOINT_ALLOCATION_MIN = 4*1024;
+  private static final int JOINT_ALLOCATION_MAX = 64*1024;
+
+  @Rule
+  public final AllocatorRule allocatorRule = AllocatorRule.defaultAllocator();
+
+  @Test
+  public void testAccumulateAndOutput() throws Exception {
+    try (BufferAllocator allocator = allocatorRule.newAllocator("test-ndv-accumulators", 0, Long.MAX_VALUE);
+         BigIntVector in = new BigIntVector("in", allocator);
+         VarBinaryVector out = new VarBinaryVector("in-ndv", allocator)) {
+
+      final NdvAccumulators.BigIntNdvAccumulator accumulator =
+        new NdvAccumulators.BigIntNdvAccumulator(in, out, out, MAX_VALUES_PER_BATCH);
+      try (AccumulatorSet accumulatorSet = new AccumulatorSet(JOINT_ALLOCATION_MIN, JOINT_ALLOCATION_MAX, allocator, accumulator)) {
+        accumulatorSet.addBatch();
+        accumulatorSet.addBatch();
+
+        /* groups 0, 1 in the first batch and groups 0, 1 in the second batch */
+        final int[] ordinals = {0, 1, MAX_VALUES_PER_BATCH, MAX_VALUES_PER_BATCH + 1};
+        final List<Set<Long>> expected = accumulate(allocator, accumulatorSet, in, ordinals, 1000, 0);
+        assertEquals(2 * (validitySize() + accumulator.getDataBufferSize()), accumulatorSet.getNdvSketchSizeInBytes());
+
+        accumulatorSet.output(0, 2);
+        assertEstimates(out, expected.subList(0, 2));
+        accumulatorSet.output(1, 2);
+        assertEstimates(out, expected.subList(2, 4));
+        assertEquals(validitySize() + accumulator.getDataBufferSize(), accumulatorSet.getNdvSketchSizeInBytes());
+      }
+    }
+  }
+
+  @Test
+  public void testEmptyGroups() throws Exception {
+    try (BufferAllocator allocator = allocatorRule.newAllocator("test-ndv-accumulators", 0, Long.MAX_VALUE);
+         BigIntVector in = new BigIntVector("in", allocator);
+         VarBinaryVector out = new VarBinaryVector("in-ndv", allocator)) {
+
+      final NdvAccumulators.BigIntNdvAccumulator accumulator =
+        new NdvAccumulators.BigIntNdvAccumulator(in, out, out, MAX_VALUES_PER_BATCH);
+      try (AccumulatorSet accumulatorSet = new AccumulatorSet(JOINT_ALLOCATION_MIN, JOINT_ALLOCATION_MAX, allocator, accumulator)) {
+        accumulatorSet.addBatch();
+        /* group 1 only gets null values */
+        in.allocateNew(2);
+        in.set(0, 42);
+        in.setNull(1);
+        in.setValueCount(2);
+        accumulate(allocator, accumulatorSet, new int[] {0, 1});
+
+        accumulatorSet.output(0, 2);
+        assertEquals(1.0, HllSketch.heapify(out.get(0)).getEstimate(), 0.0);
+        assertEquals(0.0, HllSketch.heapify(out.get(1)).getEstimate(), 0.0);
+      }
+    }
+  }
+
+  @Test
+  public void testSpillAndMerge() throws Exception {
+    try (BufferAllocator allocator = allocatorRule.newAllocator("test-ndv-accumulators", 0, Long.MAX_VALUE);
+         BigIntVector in = new BigIntVector("in", allocator);
+         VarBinaryVector out = new VarBinaryVector("in-ndv", allocator);
+         VarBinaryVector spilled = new VarBinaryVector("spilled", allocator);
+         VarBinaryVector merged = new VarBinaryVector("merged", allocator)) {
+
+      final NdvAccumulators.BigIntNdvAccumulator accumulator =
+        new NdvAccumulators.BigIntNdvAccumulator(in, out, out, MAX_VALUES_PER_BATCH);
+      final NdvAccumulators.NdvUnionAccumulator union =
+        new NdvAccumulators.NdvUnionAccumulator(spilled, merged, merged, MAX_VALUES_PER_BATCH);
+      try (AccumulatorSet accumulatorSet = new AccumulatorSet(JOINT_ALLOCATION_MIN, JOINT_ALLOCATION_MAX, allocator, accumulator);
+           AccumulatorSet unionSet = new AccumulatorSet(JOINT_ALLOCATION_MIN, JOINT_ALLOCATION_MAX, allocator, union)) {
+        accumulatorSet.addBatch();
+        unionSet.addBatch();
+
+        final int[] groups = {0, 1, 2};
+        final List<Set<Long>> expected = new ArrayList<>();
+        for (int i = 0; i < groups.length; i++) {
+          expected.add(new HashSet<>());
+        }
+
+        /* spill the same groups twice with overlapping values and merge both spills */
+        for (int spill = 0; spill < 2; spill++) {
+          final List<Set<Long>> values = accumulate(allocator, accumulatorSet, in, groups, 600, spill * 50);
+          for (int i = 0; i < groups.length; i++) {
+            expected.get(i).addAll(values.get(i));
+          }
+
+          final List<ArrowBuf> buffers = accumulator.getBuffers(0, groups.length);
+          final SerializedField field = accumulator.getSerializedField(0, groups.length);
+          assertEquals(3, buffers.size());
+          assertEquals(groups.length, field.getValueCount());
+          assertEquals(buffers.get(0).readableBytes() + buffers.get(1).readableBytes() + buffers.get(2).readableBytes(),
+            field.getBufferLength());
+
+          copySpilledBatch(buffers, groups.length, spilled);
+          accumulatorSet.releaseBatch(0);
+
+          accumulate(allocator, unionSet, groups);
+        }
+        assertEquals(2 * groups.length, accumulatorSet.getNdvSketchesSpilled());
+
+        unionSet.output(0, groups.length);
+        assertEstimates(merged, expected);
+      }
+    }
+  }
+
+  private static int validitySize() {
+    return (MAX_VALUES_PER_BATCH + 7) / 8;
+  }
+
+  /**
+   * Accumulates values in the given groups, round robin.
+   *
+   * @return distinct values accumulated in each group
+   */
+  private static List<Set<Long>> accumulate(BufferAllocator allocator, AccumulatorSet accumulatorSet, BigIntVector in,
+                                            int[] groups, int records, int firstValue) {
+    final List<Set<Long>> values = new ArrayList<>();
+    for (int i = 0; i < groups.length; i++) {
+      values.add(new HashSet<>());
+    }
+
+    in.allocateNew(records);
+    final int[] ordinals = new int[records];
+    for (int i = 0; i < records; i++) {
+      final long value = firstValue + (i % 150);
+      in.set(i, value);
+      ordinals[i] = groups[i % groups.length];
+      values.get(i % groups.length).add(value);
+    }
+    in.setValueCount(records);
+
+    accumulate(allocator, accumulatorSet, ordinals);
+    return values;
+  }
+
+  /**
+   * Builds the (hash table ordinal, incoming index) pairs consumed by the accumulators and accumulates them.
+   */
+  private static void accumulate(BufferAllocator allocator, AccumulatorSet accumulatorSet, int[] ordinals) {
+    try (ArrowBuf buf = allocator.buffer(ordinals.length * VectorizedHashAggOperator.PARTITIONINDEX_HTORDINAL_WIDTH)) {
+      final long addr = buf.memoryAddress();
+      for (int i = 0; i < ordinals.length; i++) {
+        final long offsetAddr = addr + i * VectorizedHashAggOperator.PARTITIONINDEX_HTORDINAL_WIDTH;
+        PlatformDependent.putInt(offsetAddr + VectorizedHashAggOperator.HTORDINAL_OFFSET, ordinals[i]);
+        PlatformDependent.putInt(offsetAddr + VectorizedHashAggOperator.KEYINDEX_OFFSET, i);
+      }
+      accumulatorSet.accumulate(addr, ordinals.length, BITS_IN_CHUNK, CHUNK_OFFSET_MASK);
+    }
+  }
+
+  /**
+   * Copies the spilled sketches out of the accumulator memory, as reading them back from disk would.
+   */
+  private static void copySpilledBatch(List<ArrowBuf> buffers, int count, VarBinaryVector target) {
+    try (VarBinaryVector loaded = new VarBinaryVector("loaded", target.getAllocator())) {
+      loaded.loadFieldBuffers(new ArrowFieldNode(count, 0), buffers);
+      target.clear();
+      target.allocateNew();
+      for (int i = 0; i < count; i++) {
+        target.setSafe(i, loaded.get(i));
+      }
+      target.setValueCount(count);
+    }
+  }
+
+  private static void assertEstimates(VarBinaryVector out, List<Set<Long>> expected) {
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).size(), HllSketch.heapify(out.get(i)).getEstimate(), 1.0);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.aggregate.hash;
+
+import static com.dremio.sabot.Fixtures.t;
+import static com.dremio.sabot.Fixtures.th;
+import static com.dremio.sabot.Fixtures.tr;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.dremio.exec.physical.base.OpProps;
+import com.dremio.exec.physical.config.HashAggregate;
+import com.dremio.sabot.BaseTestOperator;
+import com.dremio.sabot.Fixtures;
+import com.dremio.sabot.Fixtures.Table;
+import com.dremio.sabot.exec.context.OperatorStats;
+import com.dremio.sabot.op.aggregate.vectorized.HashAggStats.Metric;
+import com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggOperator;
+
+/**
+ * Tests for the adaptive bypass of the first phase of a two phase aggregation in {@link VectorizedHashAggOperator}
+ */
+public class TestPreAggregationBypass extends BaseTestOperator {
+
+  private static final int BATCH_SIZE = 4;
+
+  private static HashAggregate conf(boolean partialAggregation) {
+    return new HashAggregate(OpProps.prototype(), null,
+      Arrays.asList(n("k")),
+      Arrays.asList(
+        n("sum(v)", "sum"),
+        n("count(v)", "cnt"),
+        n("count(1)", "cnt1"),
+        n("$sum0(v)", "sum0"),
+        n("min(v)", "min"),
+        n("max(v)", "max")
+      ),
+      true,
+      true,
+      1f,
+      3968,
+      partialAggregation);
+  }
+
+  private OperatorStats run(HashAggregate conf, Table input, Table expected) throws Exception {
+    try (AutoCloseable sample = with(VectorizedHashAggOperator.VECTORIZED_HASHAGG_ADAPTIVE_BYPASS_SAMPLE_RECORDS, BATCH_SIZE)) {
+      return validateSingle(conf, VectorizedHashAggOperator.class, input.toGenerator(getTestAllocator()), expected, BATCH_SIZE);
+    }
+  }
+
+  @Test
+  public void bypassUniqueKeys() throws Exception {
+    // the first batch has no duplicate keys, so the records after it are streamed through without aggregation
+    final Table input = Fixtures.split(th("k", "v"), BATCH_SIZE,
+      tr("a", 1), tr("b", 2), tr("c", 3), tr("d", 4),
+      tr("a", 5), tr("e", Fixtures.NULL_INT), tr("a", 6), tr("f", 7));
+
+    final Table expected = t(
+      th("k", "sum", "cnt", "cnt1", "sum0", "min", "max"),
+      tr("a", 1L, 1L, 1L, 1L, 1, 1),
+      tr("b", 2L, 1L, 1L, 2L, 2, 2),
+      tr("c", 3L, 1L, 1L, 3L, 3, 3),
+      tr("d", 4L, 1L, 1L, 4L, 4, 4),
+      tr("a", 5L, 1L, 1L, 5L, 5, 5),
+      tr("e", Fixtures.NULL_BIGINT, 0L, 1L, 0L, Fixtures.NULL_INT, Fixtures.NULL_INT),
+      tr("a", 6L, 1L, 1L, 6L, 6, 6),
+      tr("f", 7L, 1L, 1L, 7L, 7, 7))
+      .orderInsensitive();
+
+    final OperatorStats stats = run(conf(true), input, expected);
+    assertEquals(1, stats.getLongStat(Metric.PREAGG_BYPASSED));
+    assertEquals(4, stats.getLongStat(Metric.PREAGG_SAMPLED_RECORDS));
+    assertEquals(4, stats.getLongStat(Metric.PREAGG_SAMPLED_GROUPS));
+    assertEquals(0, stats.getLongStat(Metric.PREAGG_REDUCTION_PERCENT));
+    assertEquals(4, stats.getLongStat(Metric.PREAGG_BYPASSED_RECORDS));
+  }
+
+  @Test
+  public void keepAggregatingDuplicateKeys() throws Exception {
+    final Table input = Fixtures.split(th("k", "v"), BATCH_SIZE,
+      tr("a", 1), tr("a", 2), tr("b", 3), tr("a", 4),
+      tr("a", 5), tr("c", Fixtures.NULL_INT), tr("b", 6), tr("c", 7));
+
+    final Table expected = t(
+      th("k", "sum", "cnt", "cnt1", "sum0", "min", "max"),
+      tr("a", 12L, 4L, 4L, 12L, 1, 5),
+      tr("b", 9L, 2L, 2L, 9L, 3, 6),
+      tr("c", 7L, 1L, 2L, 7L, 7, 7))
+      .orderInsensitive();
+
+    final OperatorStats stats = run(conf(true), input, expected);
+    assertEquals(0, stats.getLongStat(Metric.PREAGG_BYPASSED));
+    assertEquals(2, stats.getLongStat(Metric.PREAGG_SAMPLED_GROUPS));
+    assertEquals(50, stats.getLongStat(Metric.PREAGG_REDUCTION_PERCENT));
+  }
+
+  @Test
+  public void noBypassOutsideOfFirstPhase() throws Exception {
+    final Table input = Fixtures.split(th("k", "v"), BATCH_SIZE,
+      tr("a", 1), tr("b", 2), tr("c", 3), tr("d", 4),
+      tr("a", 5), tr("b", 6));
+
+    final Table expected = t(
+      th("k", "sum", "cnt", "cnt1", "sum0", "min", "max"),
+      tr("a", 6L, 2L, 2L, 6L, 1, 5),
+      tr("b", 8L, 2L, 2L, 8L, 2, 6),
+      tr("c", 3L, 1L, 1L, 3L, 3, 3),
+      tr("d", 4L, 1L, 1L, 4L, 4, 4))
+      .orderInsensitive();
+
+    final OperatorStats stats = run(conf(false), input, expected);
+    assertEquals(0, stats.getLongStat(Metric.PREAGG_BYPASSED));
+  }
+}
@@ -16,19 +16,25 @@
 package com.dremio.sabot.aggregate.hash;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.arrow.memory.BufferAllocator;
 import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarBinaryVector;
 import org.apache.arrow.vector.VarCharVector;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.datasketches.hll.HllSketch;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -43,6 +49,7 @@ import com.dremio.exec.physical.config.HashAggregate;
 import com.dremio.exec.planner.physical.PlannerSettings;
 import com.dremio.exec.proto.UserBitShared;
 import com.dremio.exec.record.BatchSchema;
+import com.dremio.exec.record.VectorAccessible;
 import com.dremio.exec.record.VectorContainer;
 import com.dremio.exec.server.SabotContext;
 import com.dremio.options.OptionManager;
@@ -52,17 +59,29 @@ import com.dremio.sabot.CustomHashAggDataGenerator;
 import com.dremio.sabot.CustomHashAggDataGeneratorDecimal;
 import com.dremio.sabot.CustomHashAggDataGeneratorLargeAccum;
 import com.dremio.sabot.Fixtures;
+import com.dremio.sabot.Generator;
 import com.dremio.sabot.exec.context.OperatorContextImpl;
 import com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggOperator;
 import com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggSpillStats;
+import com.dremio.sabot.op.aggregate.vectorized.nospill.VectorizedHashAggOperatorNoSpill;
 import com.dremio.sabot.op.common.ht2.FieldVectorPair;
 import com.dremio.sabot.op.common.ht2.PivotBuilder;
 import com.dremio.sabot.op.common.ht2.PivotDef;
+import com.dremio.sabot.op.spi.SingleInputOperator;
+import com.dremio.sabot.op.spi.SingleInputOperator.State;
 import com.dremio.test.AllocatorRule;
 import com.dremio.test.UserExceptionMatcher;
+import com.tdunning.math.stats.MergingDigest;
+import com.tdunning.math.stats.TDigest;
 
 public class TestSpillingHashAgg extends BaseTestOperator {
 
+  private static final int DIGEST_GROUPS = 2000;
+  private static final int DIGEST_VALUES_PER_GROUP = 10;
+  private static final int DIGEST_COMPRESSION = 100;
+  private static final int NDV_GROUPS = 4000;
+  private static final int NDV_VALUES_PER_GROUP = 10;
+
   @Rule
   public final TestRule TIMEOUT = TestTools.getTimeoutRule(1000, TimeUnit.SECONDS);
 
@@ -662,6 +681,199 @@ public class TestSpillingHashAgg extends BaseTestOperator {
     }
   }
 
+  /**
+   * The digests of TDIGEST accumulators are on heap, their footprint alone must make the operator spill.
+   * Each of the 2000 groups gets a digest of about 23KB, which don't fit in a 4MB heap budget but do in 100MB.
+   */
+  @Test
+  public void testSpillTDigest() throws Exception {
+    final Fixtures.DataRow[] rows = new Fixtures.DataRow[DIGEST_GROUPS * DIGEST_VALUES_PER_GROUP];
+    for (int i = 0; i < rows.length; i++) {
+      rows[i] = Fixtures.tr(i % DIGEST_GROUPS, (double) i);
+    }
+    final Fixtures.Table input = Fixtures.split(Fixtures.th("K", "V"), 1000, rows);
+    try (AutoCloseable useSpillingAgg = with(VectorizedHashAggOperator.VECTORIZED_HASHAGG_USE_SPILLING_OPERATOR, true)) {
+      final HashAggregate inMemoryAgg = getHashAggregateDigest("tdigest(V)");
+      assertDigests(aggregateDigests(inMemoryAgg, input, 100_000_000));
+      assertEquals(0, inMemoryAgg.getSpillStats().getSpills());
+
+      final HashAggregate spillingAgg = getHashAggregateDigest("tdigest(V)");
+      assertDigests(aggregateDigests(spillingAgg, input, 4_000_000));
+      assertTrue(spillingAgg.getSpillStats().getSpills() > 0);
+    }
+  }
+
+  /**
+   * Same as {@link #testSpillTDigest()}, merging two digests per group, each with half of its values.
+   */
+  @Test
+  public void testSpillTDigestMerge() throws Exception {
+    final int half = DIGEST_VALUES_PER_GROUP / 2;
+    final Fixtures.DataRow[] rows = new Fixtures.DataRow[2 * DIGEST_GROUPS];
+    for (int key = 0; key < DIGEST_GROUPS; key++) {
+      for (int part = 0; part < 2; part++) {
+        final TDigest digest = new MergingDigest(DIGEST_COMPRESSION);
+        for (int j = part * half; j < (part + 1) * half; j++) {
+          digest.add(key + j * DIGEST_GROUPS);
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate(digest.smallByteSize());
+        digest.asSmallBytes(buffer);
+        rows[part * DIGEST_GROUPS + key] = Fixtures.tr(key, buffer.array());
+      }
+    }
+    final Fixtures.Table input = Fixtures.split(Fixtures.th("K", "D"), 1000, rows);
+    try (AutoCloseable useSpillingAgg = with(VectorizedHashAggOperator.VECTORIZED_HASHAGG_USE_SPILLING_OPERATOR, true)) {
+      final HashAggregate inMemoryAgg = getHashAggregateDigest("tdigest_merge(D)");
+      assertDigests(aggregateDigests(inMemoryAgg, input, 100_000_000));
+      assertEquals(0, inMemoryAgg.getSpillStats().getSpills());
+
+      final HashAggregate spillingAgg = getHashAggregateDigest("tdigest_merge(D)");
+      assertDigests(aggregateDigests(spillingAgg, input, 4_000_000));
+      assertTrue(spillingAgg.getSpillStats().getSpills() > 0);
+    }
+  }
+
+  private HashAggregate getHashAggregateDigest(String aggExpr) {
+    OpProps props = PROPS.cloneWithNewReserve(1_000_000).cloneWithMemoryExpensive(true);
+    props.setMemLimit(100_000_000);
+    return new HashAggregate(props, null,
+      Arrays.asList(n("K")),
+      Arrays.asList(n(aggExpr, "DIGEST")),
+      true,
+      true,
+      1f,
+      990);
+  }
+
+  /**
+   * Runs the aggregation with the given heap budget for digests and deserializes the output digest of each group.
+   */
+  private Map<Integer, TDigest> aggregateDigests(HashAggregate agg, Fixtures.Table input, long maxHeapBytes) throws Exception {
+    final Map<Integer, TDigest> digests = new HashMap<>();
+    try (AutoCloseable compression = with(ExecConstants.TDIGEST_COMPRESSION, DIGEST_COMPRESSION);
+         AutoCloseable heapBudget = with(VectorizedHashAggOperator.VECTORIZED_HASHAGG_TDIGEST_MAX_HEAP_BYTES, maxHeapBytes);
+         Generator generator = input.toGenerator(getTestAllocator())) {
+      final VectorizedHashAggOperator op = newOperator(VectorizedHashAggOperator.class, agg, 1000);
+      final VectorAccessible output = op.setup(generator.getOutput());
+      int count;
+      while (op.getState() != State.DONE && (count = generator.next(1000)) != 0) {
+        op.consumeData(count);
+        readDigests(op, output, digests);
+      }
+      if (op.getState() == State.CAN_CONSUME) {
+        op.noMoreToConsume();
+      }
+      readDigests(op, output, digests);
+      assertEquals(State.DONE, op.getState());
+    }
+    return digests;
+  }
+
+  private static void readDigests(VectorizedHashAggOperator op, VectorAccessible output,
+                                  Map<Integer, TDigest> digests) throws Exception {
+    while (op.getState() == State.CAN_PRODUCE) {
+      final int records = op.outputData();
+      final IntVector keys = output.getValueAccessorById(IntVector.class, 0).getValueVector();
+      final VarBinaryVector values = output.getValueAccessorById(VarBinaryVector.class, 1).getValueVector();
+      for (int i = 0; i < records; i++) {
+        assertNull(digests.put(keys.get(i), MergingDigest.fromBytes(ByteBuffer.wrap(values.get(i)))));
+      }
+    }
+  }
+
+  /**
+   * Group k holds the values k, k + DIGEST_GROUPS, k + 2 * DIGEST_GROUPS, ...
+   */
+  private static void assertDigests(Map<Integer, TDigest> digests) {
+    assertEquals(DIGEST_GROUPS, digests.size());
+    for (int key = 0; key < DIGEST_GROUPS; key++) {
+      final TDigest digest = digests.get(key);
+      assertEquals(DIGEST_VALUES_PER_GROUP, digest.size());
+      assertEquals(key, digest.getMin(), 0.0);
+      assertEquals(key + (DIGEST_VALUES_PER_GROUP - 1) * DIGEST_GROUPS, digest.getMax(), 0.0);
+      assertEquals(key + (DIGEST_VALUES_PER_GROUP - 1) * DIGEST_GROUPS / 2.0, digest.quantile(0.5), DIGEST_GROUPS);
+    }
+  }
+
+  /**
+   * The sketches of NDV accumulators take about 4KB per group, 4000 groups don't fit in a 12MB limit.
+   * Sketches spilled and reloaded must give the same estimates as the non spilling operator, which is used
+   * when exec.operator.vectorized_spill.ndv is off.
+   */
+  @Test
+  public void testSpillNdv() throws Exception {
+    final Fixtures.DataRow[] rows = new Fixtures.DataRow[NDV_GROUPS * NDV_VALUES_PER_GROUP * 2];
+    for (int i = 0; i < rows.length; i++) {
+      // each value of a group appears twice
+      final int key = i % NDV_GROUPS;
+      rows[i] = Fixtures.tr(key, (long) (key * NDV_VALUES_PER_GROUP + (i / NDV_GROUPS) % NDV_VALUES_PER_GROUP));
+    }
+    final Fixtures.Table input = Fixtures.split(Fixtures.th("K", "V"), 1000, rows);
+
+    final Map<Integer, Double> expected;
+    try (AutoCloseable spillNdv = with(ExecConstants.ENABLE_VECTORIZED_SPILL_NDV_ACCUMULATOR, false)) {
+      expected = aggregateNdv(VectorizedHashAggOperatorNoSpill.class, getHashAggregateNdv(100_000_000, false), input);
+    }
+    assertEquals(NDV_GROUPS, expected.size());
+    for (double estimate : expected.values()) {
+      assertEquals(NDV_VALUES_PER_GROUP, estimate, 0.5);
+    }
+
+    try (AutoCloseable useSpillingAgg = with(VectorizedHashAggOperator.VECTORIZED_HASHAGG_USE_SPILLING_OPERATOR, true);
+         AutoCloseable spillNdv = with(ExecConstants.ENABLE_VECTORIZED_SPILL_NDV_ACCUMULATOR, true)) {
+      final HashAggregate spillingAgg = getHashAggregateNdv(12_000_000, true);
+      assertEquals(expected, aggregateNdv(VectorizedHashAggOperator.class, spillingAgg, input));
+      assertTrue(spillingAgg.getSpillStats().getSpills() > 0);
+    }
+  }
+
+  private HashAggregate getHashAggregateNdv(long max, boolean useSpill) {
+    OpProps props = PROPS.cloneWithNewReserve(1_000_000).cloneWithMemoryExpensive(true);
+    props.setMemLimit(max);
+    return new HashAggregate(props, null,
+      Arrays.asList(n("K")),
+      Arrays.asList(n("hll(V)", "SKETCH")),
+      true,
+      useSpill,
+      1f,
+      128);
+  }
+
+  /**
+   * Runs the aggregation and returns the estimate of the output sketch of each group.
+   */
+  private <T extends SingleInputOperator> Map<Integer, Double> aggregateNdv(Class<T> clazz, HashAggregate agg,
+                                                                             Fixtures.Table input) throws Exception {
+    final Map<Integer, Double> estimates = new HashMap<>();
+    try (Generator generator = input.toGenerator(getTestAllocator())) {
+      final T op = newOperator(clazz, agg, 1000);
+      final VectorAccessible output = op.setup(generator.getOutput());
+      int count;
+      while (op.getState() != State.DONE && (count = generator.next(1000)) != 0) {
+        op.consumeData(count);
+        readEstimates(op, output, estimates);
+      }
+      if (op.getState() == State.CAN_CONSUME) {
+        op.noMoreToConsume();
+      }
+      readEstimates(op, output, estimates);
+      assertEquals(State.DONE, op.getState());
+    }
+    return estimates;
+  }
+
+  private static void readEstimates(SingleInputOperator op, VectorAccessible output,
+                                    Map<Integer, Double> estimates) throws Exception {
+    while (op.getState() == State.CAN_PRODUCE) {
+      final int records = op.outputData();
+      final IntVector keys = output.getValueAccessorById(IntVector.class, 0).getValueVector();
+      final VarBinaryVector sketches = output.getValueAccessorById(VarBinaryVector.class, 1).getValueVector();
+      for (int i = 0; i < records; i++) {
+        assertNull(estimates.put(keys.get(i), HllSketch.heapify(sketches.get(i)).getEstimate()));
+      }
+    }
+  }
+
   @Test
   public void testCloseWithoutSetup() throws Exception {
     final HashAggregate agg = getHashAggregate(1_000_000, 12_000_000);
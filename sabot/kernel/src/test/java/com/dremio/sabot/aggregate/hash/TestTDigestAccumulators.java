@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.aggregate.hash;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.ipc.message.ArrowFieldNode;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.dremio.exec.proto.UserBitShared.SerializedField;
+import com.dremio.sabot.op.aggregate.vectorized.AccumulatorSet;
+import com.dremio.sabot.op.aggregate.vectorized.TDigestAccumulators;
+import com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggOperator;
+import com.dremio.test.AllocatorRule;
+import com.dremio.test.DremioTest;
+import com.tdunning.math.stats.MergingDigest;
+import com.tdunning.math.stats.TDigest;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Tests for the spillable TDIGEST accumulators of the vectorized hash agg.
+ */
+public class TestTDigestAccumulators extends DremioTest {
+
+  private static final int MAX_VALUES_PER_BATCH = 128;
+  private static final int BITS_IN_CHUNK = 7;
+  private static final int CHUNK_OFFSET_MASK = MAX_VALUES_PER_BATCH - 1;
+  private static final int JOINT_ALLOCATION_MIN = 4*1024;
+  private static final int JOINT_ALLOCATION_MAX = 64*1024;
+  private static final int COMPRESSION = 100;
+
+  @Rule
+  public final AllocatorRule allocatorRule = AllocatorRule.defaultAllocator();
+
+  @Test
+  public void testAccumulateAndOutput() throws Exception {
+    try (BufferAllocator allocator = allocatorRule.newAllocator("test-tdigest-accumulators", 0, Long.MAX_VALUE);
+         Float8Vector in = new Float8Vector("in", allocator);
+         VarBinaryVector out = new VarBinaryVector("in-tdigest", allocator)) {
+
+      final TDigestAccumulators.DoubleTDigestAccumulator accumulator =
+        new TDigestAccumulators.DoubleTDigestAccumulator(in, out, out, MAX_VALUES_PER_BATCH, COMPRESSION, allocator);
+      try (AccumulatorSet accumulatorSet = new AccumulatorSet(JOINT_ALLOCATION_MIN, JOINT_ALLOCATION_MAX, allocator, accumulator)) {
+        accumulatorSet.addBatch();
+        accumulatorSet.addBatch();
+
+        /* groups 0, 1 in the first batch and groups 0, 1 in the second batch */
+        final int[] ordinals = {0, 1, MAX_VALUES_PER_BATCH, MAX_VALUES_PER_BATCH + 1};
+        accumulate(allocator, accumulatorSet, in, ordinals, 4000, 0);
+
+        /* group i gets the values i, i + 4, i + 8, ... up to 4000 */
+        accumulatorSet.output(0, 2);
+        assertQuantiles(out, 0, 4000, ordinals.length, 2);
+        accumulatorSet.output(1, 2);
+        assertQuantiles(out, 2, 4000, ordinals.length, 2);
+      }
+    }
+  }
+
+  @Test
+  public void testEmptyGroups() throws Exception {
+    try (BufferAllocator allocator = allocatorRule.newAllocator("test-tdigest-accumulators", 0, Long.MAX_VALUE);
+         Float8Vector in = new Float8Vector("in", allocator);
+         VarBinaryVector out = new VarBinaryVector("in-tdigest", allocator)) {
+
+      final TDigestAccumulators.DoubleTDigestAccumulator accumulator =
+        new TDigestAccumulators.DoubleTDigestAccumulator(in, out, out, MAX_VALUES_PER_BATCH, COMPRESSION, allocator);
+      try (AccumulatorSet accumulatorSet = new AccumulatorSet(JOINT_ALLOCATION_MIN, JOINT_ALLOCATION_MAX, allocator, accumulator)) {
+        accumulatorSet.addBatch();
+        /* group 1 only gets null values */
+        in.allocateNew(2);
+        in.set(0, 42);
+        in.setNull(1);
+        in.setValueCount(2);
+        accumulate(allocator, accumulatorSet, new int[] {0, 1});
+
+        accumulatorSet.output(0, 2);
+        assertEquals(1, digest(out, 0).size());
+        assertEquals(42.0, digest(out, 0).quantile(0.5), 0.0);
+        assertEquals(0, digest(out, 1).size());
+      }
+    }
+  }
+
+  @Test
+  public void testSpillAndMerge() throws Exception {
+    try (BufferAllocator allocator = allocatorRule.newAllocator("test-tdigest-accumulators", 0, Long.MAX_VALUE);
+         Float8Vector in = new Float8Vector("in", allocator);
+         VarBinaryVector out = new VarBinaryVector("in-tdigest", allocator);
+         VarBinaryVector spilled = new VarBinaryVector("spilled", allocator);
+         VarBinaryVector merged = new VarBinaryVector("merged", allocator)) {
+
+      final TDigestAccumulators.DoubleTDigestAccumulator accumulator =
+        new TDigestAccumulators.DoubleTDigestAccumulator(in, out, out, MAX_VALUES_PER_BATCH, COMPRESSION, allocator);
+      final TDigestAccumulators.TDigestMergeAccumulator merge =
+        new TDigestAccumulators.TDigestMergeAccumulator(spilled, merged, merged, MAX_VALUES_PER_BATCH, COMPRESSION, allocator);
+      try (AccumulatorSet accumulatorSet = new AccumulatorSet(JOINT_ALLOCATION_MIN, JOINT_ALLOCATION_MAX, allocator, accumulator);
+           AccumulatorSet mergeSet = new AccumulatorSet(JOINT_ALLOCATION_MIN, JOINT_ALLOCATION_MAX, allocator, merge)) {
+        accumulatorSet.addBatch();
+        mergeSet.addBatch();
+
+        final int[] groups = {0, 1, 2};
+
+        /* spill the same groups twice, each spill gets half of the values, and merge both spills */
+        for (int spill = 0; spill < 2; spill++) {
+          accumulate(allocator, accumulatorSet, in, groups, 3000, spill * 3000);
+
+          final List<ArrowBuf> buffers = accumulator.getBuffers(0, groups.length);
+          final SerializedField field = accumulator.getSerializedField(0, groups.length);
+          assertEquals(3, buffers.size());
+          assertEquals(groups.length, field.getValueCount());
+          assertEquals(buffers.get(0).readableBytes() + buffers.get(1).readableBytes() + buffers.get(2).readableBytes(),
+            field.getBufferLength());
+
+          copySpilledBatch(buffers, groups.length, spilled);
+          accumulatorSet.releaseBatch(0);
+
+          accumulate(allocator, mergeSet, groups);
+        }
+        assertEquals(2 * groups.length, accumulatorSet.getTDigestsSpilled());
+
+        mergeSet.output(0, groups.length);
+        assertQuantiles(merged, 0, 6000, groups.length, groups.length);
+      }
+    }
+  }
+
+  /**
+   * Accumulates the values firstValue, firstValue + 1, ... in the given groups, round robin.
+   */
+  private static void accumulate(BufferAllocator allocator, AccumulatorSet accumulatorSet, Float8Vector in,
+                                 int[] groups, int records, int firstValue) {
+    in.allocateNew(records);
+    final int[] ordinals = new int[records];
+    for (int i = 0; i < records; i++) {
+      in.set(i, firstValue + i);
+      ordinals[i] = groups[i % groups.length];
+    }
+    in.setValueCount(records);
+
+    accumulate(allocator, accumulatorSet, ordinals);
+  }
+
+  /**
+   * Builds the (hash table ordinal, incoming index) pairs consumed by the accumulators and accumulates them.
+   */
+  private static void accumulate(BufferAllocator allocator, AccumulatorSet accumulatorSet, int[] ordinals) {
+    try (ArrowBuf buf = allocator.buffer(ordinals.length * VectorizedHashAggOperator.PARTITIONINDEX_HTORDINAL_WIDTH)) {
+      final long addr = buf.memoryAddress();
+      for (int i = 0; i < ordinals.length; i++) {
+        final long offsetAddr = addr + i * VectorizedHashAggOperator.PARTITIONINDEX_HTORDINAL_WIDTH;
+        PlatformDependent.putInt(offsetAddr + VectorizedHashAggOperator.HTORDINAL_OFFSET, ordinals[i]);
+        PlatformDependent.putInt(offsetAddr + VectorizedHashAggOperator.KEYINDEX_OFFSET, i);
+      }
+      accumulatorSet.accumulate(addr, ordinals.length, BITS_IN_CHUNK, CHUNK_OFFSET_MASK);
+    }
+  }
+
+  /**
+   * Copies the spilled digests out of the accumulator memory, as reading them back from disk would.
+   */
+  private static void copySpilledBatch(List<ArrowBuf> buffers, int count, VarBinaryVector target) {
+    try (VarBinaryVector loaded = new VarBinaryVector("loaded", target.getAllocator())) {
+      loaded.loadFieldBuffers(new ArrowFieldNode(count, 0), buffers);
+      target.clear();
+      target.allocateNew();
+      for (int i = 0; i < count; i++) {
+        target.setSafe(i, loaded.get(i));
+      }
+      target.setValueCount(count);
+    }
+  }
+
+  private static TDigest digest(VarBinaryVector out, int index) {
+    return MergingDigest.fromBytes(ByteBuffer.wrap(out.get(index)));
+  }
+
+  /**
+   * Checks the output digests of groups holding every numGroups-th value of [0, records).
+   */
+  private static void assertQuantiles(VarBinaryVector out, int firstGroup, int records, int numGroups, int count) {
+    for (int i = 0; i < count; i++) {
+      final TDigest digest = digest(out, i);
+      assertEquals(records / numGroups, digest.size());
+      assertEquals(firstGroup + i, digest.getMin(), 0.0);
+      assertEquals(records / 2.0, digest.quantile(0.5), records * 0.01);
+      assertEquals(records * 0.9, digest.quantile(0.9), records * 0.01);
+    }
+  }
+}
@@ -89,6 +89,11 @@ public class TestFragmentExecutors {
       throw new UnsupportedOperationException("not implemented");
     }
 
+    @Override
+    public void fail(Throwable t) {
+      throw new UnsupportedOperationException("not implemented");
+    }
+
     @Override
     public void updateSleepDuration(long duration) {
       throw new UnsupportedOperationException("not implemented");
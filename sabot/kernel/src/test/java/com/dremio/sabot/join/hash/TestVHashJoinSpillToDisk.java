@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.join.hash;
+
+import static com.dremio.sabot.Fixtures.NULL_BIGINT;
+import static com.dremio.sabot.Fixtures.t;
+import static com.dremio.sabot.Fixtures.th;
+import static com.dremio.sabot.Fixtures.tr;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.calcite.rel.core.JoinRelType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dremio.common.logical.data.JoinCondition;
+import com.dremio.options.OptionValue;
+import com.dremio.options.OptionValue.OptionType;
+import com.dremio.sabot.Fixtures.DataRow;
+import com.dremio.sabot.Fixtures.Table;
+import com.dremio.sabot.exec.context.OperatorStats;
+import com.dremio.sabot.op.join.vhash.HashJoinStats;
+import com.dremio.sabot.op.join.vhash.spill.VectorizedSpillingHashJoinOperator;
+
+/**
+ * Runs the join tests with the build side spilled to disk as soon as it holds more than one batch, recursively
+ * repartitioning the spilled partitions.
+ */
+public class TestVHashJoinSpillToDisk extends TestVHashJoinSpill {
+
+  private static final int ROWS = 300;
+  private static final int BATCH_SIZE = 16;
+
+  @Before
+  public void forceSpill() {
+    testContext.getOptions().setOption(OptionValue.createLong(OptionType.SYSTEM,
+      VectorizedSpillingHashJoinOperator.SPILL_AFTER_BUILD_BATCHES.getOptionName(), 1));
+    // few partitions, so that the spilled partitions hold several batches and get spilled again
+    testContext.getOptions().setOption(OptionValue.createLong(OptionType.SYSTEM,
+      VectorizedSpillingHashJoinOperator.NUM_SPILL_PARTITIONS.getOptionName(), 4));
+  }
+
+  @After
+  public void resetSpill() {
+    testContext.getOptions().setOption(VectorizedSpillingHashJoinOperator.SPILL_AFTER_BUILD_BATCHES.getDefault());
+    testContext.getOptions().setOption(VectorizedSpillingHashJoinOperator.NUM_SPILL_PARTITIONS.getDefault());
+  }
+
+  @Test
+  public void spilledInner() throws Exception {
+    spilledJoin(JoinRelType.INNER);
+  }
+
+  @Test
+  public void spilledLeft() throws Exception {
+    spilledJoin(JoinRelType.LEFT);
+  }
+
+  @Test
+  public void spilledRight() throws Exception {
+    spilledJoin(JoinRelType.RIGHT);
+  }
+
+  @Test
+  public void spilledFull() throws Exception {
+    spilledJoin(JoinRelType.FULL);
+  }
+
+  /**
+   * Joins multi batch inputs, with keys on one side only and duplicate build keys, once with the build side spilled
+   * and once in memory, and checks both against the same expected records.
+   */
+  private void spilledJoin(JoinRelType type) throws Exception {
+    final JoinInfo info = getJoinInfo(Arrays.asList(new JoinCondition("EQUALS", f("a"), f("b"))), type);
+    final Table expected = expectedJoin(type);
+
+    final OperatorStats spilledStats = validateDual(info.operator, info.clazz,
+      probeTable().toGenerator(getTestAllocator()), buildTable().toGenerator(getTestAllocator()), BATCH_SIZE, expected);
+    assertTrue(spilledStats.getLongStat(HashJoinStats.Metric.SPILL_COUNT) > 0);
+    assertTrue(spilledStats.getLongStat(HashJoinStats.Metric.SPILL_MAX_LEVEL) > 1);
+
+    testContext.getOptions().setOption(VectorizedSpillingHashJoinOperator.SPILL_AFTER_BUILD_BATCHES.getDefault());
+    final OperatorStats inMemoryStats = validateDual(info.operator, info.clazz,
+      probeTable().toGenerator(getTestAllocator()), buildTable().toGenerator(getTestAllocator()), BATCH_SIZE, expected);
+    assertEquals(0, inMemoryStats.getLongStat(HashJoinStats.Metric.SPILL_COUNT));
+  }
+
+  /**
+   * Build side: two records for each key b in [0, ROWS) not multiple of 3.
+   */
+  private static Table buildTable() {
+    final List<DataRow> rows = new ArrayList<>();
+    for (long b = 0; b < ROWS; b++) {
+      if (b % 3 != 0) {
+        rows.add(tr(b, b * 10));
+        rows.add(tr(b, b * 10 + 1));
+      }
+    }
+    return t(th("b", "bv"), rows.toArray(new DataRow[0]));
+  }
+
+  /**
+   * Probe side: one record for each even key a in [0, ROWS).
+   */
+  private static Table probeTable() {
+    final List<DataRow> rows = new ArrayList<>();
+    for (long a = 0; a < ROWS; a += 2) {
+      rows.add(tr(a, a * 100));
+    }
+    return t(th("a", "av"), rows.toArray(new DataRow[0]));
+  }
+
+  private static Table expectedJoin(JoinRelType type) {
+    final boolean keepProbe = type == JoinRelType.LEFT || type == JoinRelType.FULL;
+    final boolean keepBuild = type == JoinRelType.RIGHT || type == JoinRelType.FULL;
+    final List<DataRow> rows = new ArrayList<>();
+    for (long key = 0; key < ROWS; key++) {
+      final boolean inBuild = key % 3 != 0;
+      final boolean inProbe = key % 2 == 0;
+      if (inBuild && inProbe) {
+        rows.add(tr(key, key * 10, key, key * 100));
+        rows.add(tr(key, key * 10 + 1, key, key * 100));
+      } else if (inProbe && keepProbe) {
+        rows.add(tr(NULL_BIGINT, NULL_BIGINT, key, key * 100));
+      } else if (inBuild && keepBuild) {
+        rows.add(tr(key, key * 10, NULL_BIGINT, NULL_BIGINT));
+        rows.add(tr(key, key * 10 + 1, NULL_BIGINT, NULL_BIGINT));
+      }
+    }
+    return t(th("b", "bv", "a", "av"), rows.toArray(new DataRow[0]));
+  }
+}
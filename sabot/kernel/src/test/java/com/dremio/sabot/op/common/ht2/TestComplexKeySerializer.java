@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.common.ht2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.complex.ListVector;
+import org.apache.arrow.vector.complex.StructVector;
+import org.apache.arrow.vector.types.UnionMode;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.junit.Test;
+
+import com.dremio.sabot.BaseTestWithAllocator;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+
+public class TestComplexKeySerializer extends BaseTestWithAllocator {
+
+  @Test
+  public void structRoundtrip() throws Exception {
+    final int count = 100;
+    try (StructVector in = StructVector.empty("in", allocator)) {
+      populate(in, count);
+
+      try (StructVector out = (StructVector) in.getField().createVector(allocator);
+           ComplexKeySerializer serializer = new ComplexKeySerializer(in, out, allocator, allocator)) {
+        serializer.serialize(count);
+
+        // equal keys serialize to the same bytes, different keys to different bytes
+        final FieldVectorPair pair = serializer.getSerializedPair();
+        final VarBinaryVector serialized = (VarBinaryVector) pair.getIncoming();
+        for (int i = 10; i < count; i++) {
+          if (i % 7 == 0 || (i - 10) % 7 == 0 || (i - 1) % 7 == 0) {
+            continue;
+          }
+          assertArrayEquals(serialized.get(i - 10), serialized.get(i));
+          assertFalse(Arrays.equals(serialized.get(i - 1), serialized.get(i)));
+        }
+
+        final PivotDef pivot = PivotBuilder.getBlockDefinition(pair);
+        try (FixedBlockVector fbv = new FixedBlockVector(allocator, pivot.getBlockWidth());
+             VariableBlockVector vbv = new VariableBlockVector(allocator, pivot.getVariableCount())) {
+          Pivots.pivot(pivot, count, fbv, vbv);
+          Unpivots.unpivot(pivot, fbv, vbv, 0, count);
+        }
+
+        serializer.deserialize(count);
+        out.setValueCount(count);
+        for (int i = 0; i < count; i++) {
+          assertEquals(in.getObject(i), out.getObject(i));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void supportedTypes() {
+    final Field intField = Field.nullable("a", new ArrowType.Int(32, true));
+    final Field list = new Field("list", FieldType.nullable(ArrowType.List.INSTANCE), ImmutableList.of(intField));
+    final Field union = new Field("union",
+      FieldType.nullable(new ArrowType.Union(UnionMode.Sparse, new int[] {})),
+      ImmutableList.of());
+
+    assertTrue(ComplexKeySerializer.isSupported(list));
+    assertTrue(ComplexKeySerializer.isSupported(
+      new Field("struct", FieldType.nullable(ArrowType.Struct.INSTANCE), ImmutableList.of(intField, list))));
+    assertFalse(ComplexKeySerializer.isSupported(intField));
+    assertFalse(ComplexKeySerializer.isSupported(
+      new Field("struct", FieldType.nullable(ArrowType.Struct.INSTANCE), ImmutableList.of(intField, union))));
+  }
+
+  /**
+   * Populates a struct of an int, a varchar and a list of bigints, with 10 distinct values and nulls at every level.
+   */
+  private static void populate(StructVector vector, int count) {
+    final IntVector a = vector.addOrGet("a", FieldType.nullable(new ArrowType.Int(32, true)), IntVector.class);
+    final VarCharVector b = vector.addOrGet("b", FieldType.nullable(ArrowType.Utf8.INSTANCE), VarCharVector.class);
+    final ListVector c = vector.addOrGet("c", FieldType.nullable(ArrowType.List.INSTANCE), ListVector.class);
+    c.addOrGetVector(FieldType.nullable(new ArrowType.Int(64, true)));
+    final BigIntVector elements = (BigIntVector) c.getDataVector();
+
+    vector.allocateNew();
+    for (int i = 0; i < count; i++) {
+      if (i % 7 == 0) {
+        vector.setNull(i);
+        continue;
+      }
+      vector.setIndexDefined(i);
+      final int value = i % 10;
+      if (value % 3 == 0) {
+        a.setNull(i);
+      } else {
+        a.setSafe(i, value);
+      }
+      b.setSafe(i, ("value-" + value).getBytes(Charsets.UTF_8));
+      final int start = c.startNewValue(i);
+      final int size = value % 4;
+      for (int j = 0; j < size; j++) {
+        if (j == 1) {
+          elements.setNull(start + j);
+        } else {
+          elements.setSafe(start + j, value * 100 + j);
+        }
+      }
+      c.endValue(i, size);
+    }
+    vector.setValueCount(count);
+  }
+}
@@ -36,6 +36,8 @@ import com.dremio.test.AllocatorRule;
 import com.dremio.test.DremioTest;
 import com.koloboke.collect.hash.HashConfig;
 
+import io.netty.util.internal.PlatformDependent;
+
 public class TestHashTable2 extends DremioTest {
 
   private int MAX_VALUES_PER_BATCH = 0;
@@ -384,6 +386,78 @@ public class TestHashTable2 extends DremioTest {
     }
   }
 
+  @Test
+  public void testFindBatch() throws Exception {
+    final int records = 1000;
+    final String[] buildCol1 = new String[records];
+    final Integer[] buildCol2 = new Integer[records];
+    final String[] probeCol1 = new String[records];
+    final Integer[] probeCol2 = new Integer[records];
+    for (int i = 0; i < records; i++) {
+      // build keys are 0 to 299, probe keys are 0 to 499
+      buildCol1[i] = (i % 300) % 11 == 0 ? null : "key" + (i % 300);
+      buildCol2[i] = i % 300;
+      probeCol1[i] = (i % 500) % 11 == 0 ? null : "key" + (i % 500);
+      probeCol2[i] = i % 500;
+    }
+
+    try (final BufferAllocator allocator = allocatorRule.newAllocator("test-hash-table-2", 0, Long.MAX_VALUE);
+         final VectorContainer build = new VectorContainer();
+         final VectorContainer probe = new VectorContainer()) {
+      final PivotDef buildPivot = populate(allocator, build, buildCol1, buildCol2);
+      final PivotDef probePivot = populate(allocator, probe, probeCol1, probeCol2);
+
+      try (final FixedBlockVector buildFixed = new FixedBlockVector(allocator, buildPivot.getBlockWidth());
+           final VariableBlockVector buildVar = new VariableBlockVector(allocator, buildPivot.getVariableCount());
+           final FixedBlockVector probeFixed = new FixedBlockVector(allocator, probePivot.getBlockWidth());
+           final VariableBlockVector probeVar = new VariableBlockVector(allocator, probePivot.getVariableCount());
+           final LBlockHashTable bht = new LBlockHashTable(HashConfig.getDefault(), buildPivot, allocator, 16, 10,
+             true, ResizeListener.NO_OP, 4096);
+           final SimpleBigIntVector buildHashes = new SimpleBigIntVector("buildhashes", allocator);
+           final SimpleBigIntVector probeHashes = new SimpleBigIntVector("probehashes", allocator);
+           final SimpleBigIntVector ordinals = new SimpleBigIntVector("ordinals", allocator)) {
+        Pivots.pivot(buildPivot, records, buildFixed, buildVar);
+        Pivots.pivot(probePivot, records, probeFixed, probeVar);
+        buildHashes.allocateNew(records);
+        HashComputation.computeHash(new BlockChunk(buildFixed.getMemoryAddress(), buildVar.getMemoryAddress(), false,
+          buildPivot.getBlockWidth(), records, buildHashes.getBufferAddress(), 0));
+        probeHashes.allocateNew(records);
+        HashComputation.computeHash(new BlockChunk(probeFixed.getMemoryAddress(), probeVar.getMemoryAddress(), false,
+          probePivot.getBlockWidth(), records, probeHashes.getBufferAddress(), 0));
+
+        final int[] buildOrdinals = new int[300];
+        for (int keyIndex = 0; keyIndex < records; keyIndex++) {
+          buildOrdinals[keyIndex % 300] = bht.add(buildFixed.getMemoryAddress(), buildVar.getMemoryAddress(), keyIndex,
+            (int) buildHashes.get(keyIndex));
+        }
+        assertEquals(300, bht.size());
+
+        ordinals.allocateNew(records);
+        bht.findBatch(probeFixed.getMemoryAddress(), probeVar.getMemoryAddress(), probeHashes.getBufferAddress(),
+          records, ordinals.getBufferAddress());
+        for (int keyIndex = 0; keyIndex < records; keyIndex++) {
+          final int ordinal = PlatformDependent.getInt(ordinals.getBufferAddress() + keyIndex * 4L);
+          final int key = keyIndex % 500;
+          assertEquals(key < 300 ? buildOrdinals[key] : -1, ordinal);
+          assertEquals(bht.find(probeFixed.getMemoryAddress(), probeVar.getMemoryAddress(), keyIndex,
+            (int) probeHashes.get(keyIndex)), ordinal);
+        }
+      }
+    }
+  }
+
+  private static PivotDef populate(BufferAllocator allocator, VectorContainer container, String[] col1Arr,
+                                   Integer[] col2Arr) {
+    final VarCharVector col1 = new VarCharVector("col1", allocator);
+    TestVarBinaryPivot.populate(col1, col1Arr);
+    container.add(col1);
+    final IntVector col2 = new IntVector("col2", allocator);
+    TestIntPivot.populate(col2, col2Arr);
+    container.add(col2);
+    container.setAllCount(col1Arr.length);
+    return PivotBuilder.getBlockDefinition(new FieldVectorPair(col1, col1), new FieldVectorPair(col2, col2));
+  }
+
   @Test
   public void testResetToMinimumSize() throws Exception {
     MAX_VALUES_PER_BATCH = 4096;
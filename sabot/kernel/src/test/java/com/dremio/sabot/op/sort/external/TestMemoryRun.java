@@ -107,6 +107,19 @@ public class TestMemoryRun extends BaseTestOperator {
     }
   }
 
+  @Test
+  public void testCloseToCopierWithLimit() throws Exception {
+    final ExternalSort limitedSort = new ExternalSort(OpProps.prototype(), null,
+      singletonList(ordering(ID.getName(), ASCENDING, FIRST)), false, 1000);
+    final ExternalSortTracer tracer = new ExternalSortTracer();
+    try (MemoryRun memoryRun = new MemoryRun(limitedSort, producer, allocator, generator.getSchema(), tracer,
+      2, false, 8192, mock(ExecutionControls.class))) {
+      int totalAdded = addBatches(memoryRun);
+      // only the first records of the whole sorted run are returned
+      validateCloseToCopier(memoryRun, 100, totalAdded, Math.min(1000, totalAdded));
+    }
+  }
+
   @Test
   public void testQuickSortStartMicroSpilling() throws Exception {
     testStartMicroSpilling(false);
@@ -169,7 +182,12 @@ public class TestMemoryRun extends BaseTestOperator {
    */
   private void validateCloseToCopier(MemoryRun memoryRun, int targetRecordCount, int expectedRecordCount)
       throws Exception {
-    final CustomGenerator.SortValidator validator = generator.getValidator(expectedRecordCount);
+    validateCloseToCopier(memoryRun, targetRecordCount, expectedRecordCount, expectedRecordCount);
+  }
+
+  private void validateCloseToCopier(MemoryRun memoryRun, int targetRecordCount, int addedRecordCount,
+                                     int expectedRecordCount) throws Exception {
+    final CustomGenerator.SortValidator validator = generator.getValidator(addedRecordCount);
 
     try (VectorContainer output = VectorContainer.create(getTestAllocator(), generator.getSchema());
          MovingCopier copier = memoryRun.closeToCopier(output, targetRecordCount)) {
@@ -644,4 +644,32 @@ public class TestSortOp extends BaseTestOperator {
       validateSingle(sort, ExternalSortOperator.class, generator, table, 1000);
     }
   }
+
+  @Test
+  public void testSpillSortWithHighCompressionCodec() throws Exception {
+    try (AutoCloseable codec = with(ExecConstants.EXTERNAL_SORT_SPILL_COMPRESSION_CODEC, "lz4_hc")) {
+      ExternalSort sort = new ExternalSort(PROPS.cloneWithNewReserve(1_000_000), null, singletonList(ordering(ID.getName(), ASCENDING, FIRST)), false);
+      sort.getProps().setMemLimit(2_000_000); // this can't go below sort's initialAllocation (20K)
+      Fixtures.Table table = generator.getExpectedSortedTable();
+      OperatorStats stats = validateSingle(sort, ExternalSortOperator.class, generator, table, 1000);
+
+      assertTrue(stats.getLongStat(ExternalSortOperator.Metric.SPILL_COUNT) > 0);
+      assertTrue(stats.getLongStat(ExternalSortOperator.Metric.SPILL_COMPRESSION_RATIO) > 0);
+    }
+  }
+
+  @Test
+  public void testSpillSortWithBoundedMergeFanIn() throws Exception {
+    try (AutoCloseable fanIn = with(ExecConstants.EXTERNAL_SORT_MAX_MERGE_FAN_IN, 2);
+         AutoCloseable readBuffer = with(ExecConstants.EXTERNAL_SORT_SPILL_READ_BUFFER_BUDGET, 16 * 1024)) {
+      ExternalSort sort = new ExternalSort(PROPS.cloneWithNewReserve(1_000_000), null, singletonList(ordering(ID.getName(), ASCENDING, FIRST)), false);
+      sort.getProps().setMemLimit(2_000_000); // this can't go below sort's initialAllocation (20K)
+      Fixtures.Table table = generator.getExpectedSortedTable();
+      OperatorStats stats = validateSingle(sort, ExternalSortOperator.class, generator, table, 1000);
+
+      // every run beyond the fan-in needs to be merged before the final copy
+      final long spillCount = stats.getLongStat(ExternalSortOperator.Metric.SPILL_COUNT);
+      assertTrue(stats.getLongStat(ExternalSortOperator.Metric.MERGE_COUNT) >= spillCount - 2);
+    }
+  }
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.task.slicing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.dremio.sabot.task.AsyncTask;
+import com.dremio.sabot.task.AsyncTaskWrapper;
+import com.dremio.sabot.task.SchedulingGroup;
+import com.dremio.sabot.task.Task;
+
+/**
+ * Tests for {@link SlicingTaskPool} and its {@link WeightedScheduler}
+ */
+public class TestSlicingTaskPool {
+
+  private static AsyncTaskWrapper newTask(SchedulingGroup<AsyncTaskWrapper> group, Task.State state) {
+    final AsyncTask asyncTask = mock(AsyncTask.class);
+    when(asyncTask.getState()).thenReturn(state);
+    return new AsyncTaskWrapper(group, asyncTask, () -> {}, Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void testRunTimeIsSharedByWeight() throws Exception {
+    final WeightedScheduler scheduler = new WeightedScheduler();
+    final WeightedSchedulingGroup heavy = (WeightedSchedulingGroup) scheduler.newGroup(1000);
+    final WeightedSchedulingGroup light = (WeightedSchedulingGroup) scheduler.newGroup(100);
+
+    for (int i = 0; i < 4; i++) {
+      heavy.addTask(newTask(heavy, Task.State.RUNNABLE), SlicingTaskPool.TASK_WEIGHT);
+      light.addTask(newTask(light, Task.State.RUNNABLE), SlicingTaskPool.TASK_WEIGHT);
+    }
+
+    int heavyRuns = 0;
+    int lightRuns = 0;
+    for (int i = 0; i < 11_000; i++) {
+      final SlicingTaskHandle handle = scheduler.take(0);
+      if (handle.getParent() == heavy) {
+        heavyRuns++;
+      } else {
+        lightRuns++;
+      }
+      scheduler.charge(handle, TimeUnit.MILLISECONDS.toNanos(1));
+      scheduler.enqueue(handle);
+    }
+
+    assertEquals(10.0, (double) heavyRuns / lightRuns, 0.1);
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(heavyRuns), heavy.getCpuTimeNanos());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(lightRuns), light.getCpuTimeNanos());
+  }
+
+  @Test
+  public void testIdleGroupDoesNotAccumulateCredit() throws Exception {
+    final WeightedScheduler scheduler = new WeightedScheduler();
+    final WeightedSchedulingGroup busy = (WeightedSchedulingGroup) scheduler.newGroup(100);
+    final WeightedSchedulingGroup late = (WeightedSchedulingGroup) scheduler.newGroup(100);
+
+    busy.addTask(newTask(busy, Task.State.RUNNABLE), SlicingTaskPool.TASK_WEIGHT);
+    for (int i = 0; i < 100; i++) {
+      final SlicingTaskHandle handle = scheduler.take(0);
+      scheduler.charge(handle, TimeUnit.MILLISECONDS.toNanos(1));
+      scheduler.enqueue(handle);
+    }
+
+    // a group becoming runnable late shares the threads with the busy one instead of monopolizing them
+    late.addTask(newTask(late, Task.State.RUNNABLE), SlicingTaskPool.TASK_WEIGHT);
+    int lateRuns = 0;
+    for (int i = 0; i < 100; i++) {
+      final SlicingTaskHandle handle = scheduler.take(0);
+      if (handle.getParent() == late) {
+        lateRuns++;
+      }
+      scheduler.charge(handle, TimeUnit.MILLISECONDS.toNanos(1));
+      scheduler.enqueue(handle);
+    }
+    assertEquals(50, lateRuns, 2);
+  }
+
+  @Test
+  public void testTakeTimesOutWhenIdle() throws Exception {
+    final WeightedScheduler scheduler = new WeightedScheduler();
+    scheduler.newGroup(100);
+    assertNull(scheduler.take(10));
+  }
+
+  @Test
+  public void testTasksRunToCompletion() throws Exception {
+    final int numTasks = 16;
+    final CountDownLatch done = new CountDownLatch(numTasks);
+    try (SlicingTaskPool pool = new SlicingTaskPool(2)) {
+      final SchedulingGroup<AsyncTaskWrapper> group = pool.getGroupManager().newGroup(100);
+      for (int i = 0; i < numTasks; i++) {
+        final AtomicInteger remainingRuns = new AtomicInteger(10);
+        final AsyncTask asyncTask = mock(AsyncTask.class);
+        when(asyncTask.getState()).thenAnswer(
+          invocation -> remainingRuns.get() > 0 ? Task.State.RUNNABLE : Task.State.DONE);
+        doAnswer(invocation -> remainingRuns.decrementAndGet()).when(asyncTask).run();
+        pool.execute(new AsyncTaskWrapper(group, asyncTask, done::countDown, Integer.MAX_VALUE));
+      }
+
+      assertTrue(done.await(30, TimeUnit.SECONDS));
+      assertTrue(pool.areAllThreadsAlive());
+    }
+  }
+
+  @Test
+  public void testFailedTaskIsFailedAndCleanedUp() throws Exception {
+    final CountDownLatch done = new CountDownLatch(2);
+    try (SlicingTaskPool pool = new SlicingTaskPool(1)) {
+      final SchedulingGroup<AsyncTaskWrapper> group = pool.getGroupManager().newGroup(100);
+
+      // fails once, then reports the failure and finishes on its next run
+      final AtomicBoolean failed = new AtomicBoolean();
+      final AtomicBoolean finished = new AtomicBoolean();
+      final AsyncTask failingTask = mock(AsyncTask.class);
+      when(failingTask.getState()).thenAnswer(
+        invocation -> finished.get() ? Task.State.DONE : Task.State.RUNNABLE);
+      doAnswer(invocation -> {
+        if (!failed.get()) {
+          throw new IllegalStateException("task failure");
+        }
+        finished.set(true);
+        return null;
+      }).when(failingTask).run();
+      doAnswer(invocation -> {
+        failed.set(true);
+        return null;
+      }).when(failingTask).fail(any(Throwable.class));
+      pool.execute(new AsyncTaskWrapper(group, failingTask, done::countDown, Integer.MAX_VALUE));
+
+      // keeps failing, even after being failed
+      final AsyncTask brokenTask = mock(AsyncTask.class);
+      when(brokenTask.getState()).thenReturn(Task.State.RUNNABLE);
+      doAnswer(invocation -> {
+        throw new IllegalStateException("task failure");
+      }).when(brokenTask).run();
+      pool.execute(new AsyncTaskWrapper(group, brokenTask, done::countDown, Integer.MAX_VALUE));
+
+      assertTrue(done.await(30, TimeUnit.SECONDS));
+      assertTrue(finished.get());
+      verify(failingTask, times(1)).fail(any(Throwable.class));
+      verify(brokenTask, times(2)).run();
+      assertTrue(pool.areAllThreadsAlive());
+    }
+  }
+}
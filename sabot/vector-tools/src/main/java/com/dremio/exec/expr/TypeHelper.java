@@ -135,6 +135,16 @@ public class TypeHelper extends BasicTypeHelper {
     helper.get().loadFromValidityAndDataBuffers(metadata, dataBuffer, validityBuffer);
   }
 
+  public static void loadFromValidityOffsetAndDataBuffers(ValueVector v, SerializedField metadata,
+      ArrowBuf validityBuffer, ArrowBuf offsetBuffer, ArrowBuf dataBuffer) {
+    if (!(v instanceof BaseVariableWidthVector)) {
+      throw new UnsupportedOperationException(String.format("this loader is not supported for vector %s", v));
+    }
+
+    new VariableWidthVectorHelper<>((BaseVariableWidthVector) v)
+      .loadFromValidityOffsetAndDataBuffers(metadata, validityBuffer, offsetBuffer, dataBuffer);
+  }
+
   public static void loadData(ValueVector v, SerializedField metadata, ArrowBuf buffer) {
     Optional<ValueVectorHelper> helper = getHelper(v);
 
@@ -15,6 +15,7 @@
  */
 package com.dremio.exec.record;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +23,8 @@ import java.util.Map;
 import org.apache.arrow.memory.ArrowBuf;
 import org.apache.arrow.memory.BufferAllocator;
 import org.apache.arrow.vector.AllocationHelper;
+import org.apache.arrow.vector.BaseFixedWidthVector;
+import org.apache.arrow.vector.BaseVariableWidthVector;
 import org.apache.arrow.vector.ValueVector;
 import org.apache.arrow.vector.types.SerializedFieldHelper;
 import org.apache.arrow.vector.types.pojo.Field;
@@ -81,8 +84,24 @@ public class RecordBatchLoader implements VectorAccessible, Iterable<VectorWrapp
    * @return Whether the schema changed since the previous load.
    */
   public boolean load(RecordBatchDef def, ArrowBuf buf) {
+    return load(def, Collections.singletonList(buf));
+  }
+
+  /**
+   * Load a record batch whose data is split across several buffers, such as the buffers of a
+   * {@link WritableBatch}. The data of the batch is the concatenation of the given buffers, each of which is used up
+   * to its capacity. Vectors reference the given buffers directly, only fields whose buffers can't be mapped onto the
+   * vector buffers are copied.
+   *
+   * @param def
+   *          The definition for the record batch.
+   * @param buffers
+   *          The buffers that hold the data associated with the record batch.
+   * @return Whether the schema changed since the previous load.
+   */
+  public boolean load(RecordBatchDef def, List<ArrowBuf> buffers) {
     if (logger.isTraceEnabled()) {
-      logger.trace("Loading record batch with def {} and data {}", def, buf);
+      logger.trace("Loading record batch with def {} and data {}", def, buffers);
       logger.trace("Load, ThreadID: {}\n{}", Thread.currentThread().getId(), new StackTrace());
     }
 
@@ -105,7 +124,8 @@ public class RecordBatchLoader implements VectorAccessible, Iterable<VectorWrapp
     final VectorContainer newVectors = new VectorContainer();
     try {
       final List<SerializedField> fields = def.getFieldList();
-      int bufOffset = 0;
+      final BodyBuffers body = new BodyBuffers(buffers);
+      long bufOffset = 0;
       for(final SerializedField field : fields) {
         final Field fieldDef = SerializedFieldHelper.create(field);
         ValueVector vector = oldFields.remove(fieldDef.getName());
@@ -126,7 +146,7 @@ public class RecordBatchLoader implements VectorAccessible, Iterable<VectorWrapp
         if (field.getValueCount() == 0) {
           AllocationHelper.allocate(vector, 0, 0, 0);
         } else {
-          TypeHelper.load(vector, field, buf.slice(bufOffset, field.getBufferLength()));
+          loadVector(vector, field, body, bufOffset);
         }
         bufOffset += field.getBufferLength();
         newVectors.add(vector);
@@ -165,6 +185,99 @@ public class RecordBatchLoader implements VectorAccessible, Iterable<VectorWrapp
     return schemaChanged;
   }
 
+  private void loadVector(ValueVector vector, SerializedField field, BodyBuffers body, long offset) {
+    final ArrowBuf slice = body.slice(offset, field.getBufferLength());
+    if (slice != null) {
+      TypeHelper.load(vector, field, slice);
+      return;
+    }
+
+    // the field spans several buffers: map them onto the vector buffers when their boundaries line up
+    if (vector instanceof BaseFixedWidthVector || vector instanceof BaseVariableWidthVector) {
+      final SerializedField bitsField = field.getChild(0);
+      final SerializedField valuesField = field.getChild(1);
+      final long bitsLength = bitsField.getBufferLength();
+      final ArrowBuf validity = body.slice(offset, bitsLength);
+      if (validity != null && vector instanceof BaseFixedWidthVector) {
+        final ArrowBuf data = body.slice(offset + bitsLength, valuesField.getBufferLength());
+        if (data != null) {
+          TypeHelper.loadFromValidityAndDataBuffers(vector, field, data, validity);
+          return;
+        }
+      } else if (validity != null) {
+        final long offsetsLength = valuesField.getChild(0).getBufferLength();
+        final ArrowBuf offsets = body.slice(offset + bitsLength, offsetsLength);
+        final ArrowBuf data = offsets == null ? null :
+          body.slice(offset + bitsLength + offsetsLength, valuesField.getBufferLength() - offsetsLength);
+        if (data != null) {
+          TypeHelper.loadFromValidityOffsetAndDataBuffers(vector, field, validity, offsets, data);
+          return;
+        }
+      }
+    }
+
+    // fall back to a copy of this field only
+    final long length = field.getBufferLength();
+    try (ArrowBuf copy = allocator.buffer(length)) {
+      body.copy(offset, copy, length);
+      TypeHelper.load(vector, field, copy.slice(0, length));
+    }
+  }
+
+  /**
+   * The data of a record batch, made of consecutive buffers.
+   */
+  private static final class BodyBuffers {
+    private final List<ArrowBuf> buffers;
+    // index of the current buffer, and its offset in the batch data
+    private int index;
+    private long start;
+
+    private BodyBuffers(List<ArrowBuf> buffers) {
+      this.buffers = buffers;
+    }
+
+    private void seek(long offset) {
+      while (index > 0 && offset < start) {
+        index--;
+        start -= buffers.get(index).capacity();
+      }
+      while (index < buffers.size() - 1 && offset >= start + buffers.get(index).capacity()) {
+        start += buffers.get(index).capacity();
+        index++;
+      }
+    }
+
+    /**
+     * @return a slice of the given range of the batch data, or null if the range spans several buffers
+     */
+    private ArrowBuf slice(long offset, long length) {
+      if (buffers.isEmpty()) {
+        return null;
+      }
+      seek(offset);
+      final ArrowBuf buf = buffers.get(index);
+      if (offset - start + length > buf.capacity()) {
+        return null;
+      }
+      return buf.slice(offset - start, length);
+    }
+
+    private void copy(long offset, ArrowBuf target, long length) {
+      long copied = 0;
+      while (copied < length) {
+        Preconditions.checkState(!buffers.isEmpty(), "Record batch data is shorter than its definition");
+        seek(offset + copied);
+        final ArrowBuf buf = buffers.get(index);
+        final long bufOffset = offset + copied - start;
+        final long toCopy = Math.min(length - copied, buf.capacity() - bufOffset);
+        Preconditions.checkState(toCopy > 0, "Record batch data is shorter than its definition");
+        target.setBytes(copied, buf, bufOffset, toCopy);
+        copied += toCopy;
+      }
+    }
+  }
+
   @Override
   public TypedFieldId getValueVectorId(BasePath path) {
     return container.getValueVectorId(path);
@@ -86,6 +86,16 @@ public class SelectionVector4 implements AutoCloseable {
     return createNewWrapperCurrent(length);
   }
 
+  /**
+   * Drops the records past the given count, e.g. once enough of them have been sorted.
+   * @param maxRecordCount maximum number of records to keep
+   */
+  public void truncate(int maxRecordCount) {
+    Preconditions.checkArgument(maxRecordCount >= 0, "record count must be positive");
+    recordCount = Math.min(recordCount, maxRecordCount);
+    length = Math.max(0, Math.min(length, recordCount - start));
+  }
+
   public boolean next() {
 //    logger.debug("Next called. Start: {}, Length: {}, recordCount: " + recordCount, start, length);
 
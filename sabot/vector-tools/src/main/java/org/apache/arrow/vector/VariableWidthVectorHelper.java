@@ -63,16 +63,48 @@ public class VariableWidthVectorHelper<T extends BaseVariableWidthVector> extend
       String.format("Expected to load %d bytes but actually loaded %d bytes in offset buffer", offsetExpectedLength,
       offsetActualLength);
 
-    vector.offsetBuffer = buffer.slice(0, offsetActualLength);
-    vector.offsetBuffer.getReferenceManager().retain();
-    vector.offsetBuffer.writerIndex(offsetActualLength);
-
     final long capacity = buffer.capacity();
     final long dataLength = capacity - offsetActualLength;
 
-    vector.valueBuffer = buffer.slice(offsetActualLength, dataLength);
+    loadOffsetAndDataBuffers(buffer.slice(0, offsetActualLength), buffer.slice(offsetActualLength, dataLength));
+  }
+
+  /**
+   * Load the vector from separate validity, offset and data buffers, as sent by
+   * {@link BaseVariableWidthVector#getBuffers(boolean)}, without copying them.
+   */
+  public void loadFromValidityOffsetAndDataBuffers(SerializedField metadata, ArrowBuf validityBuffer,
+                                                   ArrowBuf offsetBuffer, ArrowBuf dataBuffer) {
+    /* clear the current buffers (if any) */
+    vector.clear();
+
+    final SerializedField bitsField = metadata.getChild(0);
+    final SerializedField offsetField = metadata.getChild(1).getChild(0);
+    assert offsetField.getBufferLength() == offsetBuffer.capacity() :
+      String.format("Expected to load %d bytes but actually loaded %d bytes in offset buffer",
+      offsetField.getBufferLength(), offsetBuffer.capacity());
+
+    final int bitsLength = bitsField.getBufferLength();
+    assert getValidityBufferSizeFromCount(bitsField.getValueCount()) == bitsLength :
+      String.format("Expected to load %d bytes but actually loaded %d bytes in validity buffer",
+      getValidityBufferSizeFromCount(bitsField.getValueCount()), bitsLength);
+
+    vector.validityBuffer = validityBuffer.slice(0, bitsLength);
+    vector.validityBuffer.writerIndex(bitsLength);
+    vector.validityBuffer.getReferenceManager().retain();
+    loadOffsetAndDataBuffers(offsetBuffer, dataBuffer);
+    vector.setLastSet(metadata.getValueCount() - 1);
+    vector.valueCount = metadata.getValueCount();
+  }
+
+  private void loadOffsetAndDataBuffers(ArrowBuf offsetBuffer, ArrowBuf dataBuffer) {
+    vector.offsetBuffer = offsetBuffer;
+    vector.offsetBuffer.getReferenceManager().retain();
+    vector.offsetBuffer.writerIndex(offsetBuffer.capacity());
+
+    vector.valueBuffer = dataBuffer;
     vector.valueBuffer.getReferenceManager().retain();
-    vector.valueBuffer.writerIndex(dataLength);
+    vector.valueBuffer.writerIndex(dataBuffer.capacity());
   }
 
 }
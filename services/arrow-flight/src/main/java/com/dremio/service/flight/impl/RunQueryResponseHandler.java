@@ -18,6 +18,8 @@ package com.dremio.service.flight.impl;
 import static org.apache.arrow.flight.BackpressureStrategy.CallbackBackpressureStrategy;
 import static org.apache.arrow.flight.BackpressureStrategy.WaitResult;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -94,36 +96,20 @@ public abstract class RunQueryResponseHandler implements UserResponseHandler {
     final ByteBuf[] buffers = result.getBuffers();
 
     /**
-     * RecordBatchLoader cannot reassemble ValueVectors for types which propagate more than one NettyArrowBuffer
-     * (such as DataBuffers [1] and OffsetBuffers [2]) in calls to UserResponseHandler#sendData.
-     * Because of this limitation, when {@link com.dremio.service.flight.impl.RunQueryResponseHandler#sendData}
-     * receives more than 1 buffer instance, it must consolidate all buffers into a single buffer before
-     * calling RecordBatchReader before returning data to the user.
-     *
-     * TODO: https://dremio.atlassian.net/browse/DX-25624
-     * This task is to improve RecordBatchLoader or find some other way to handle more than one buffer
-     * instance being provided for any given ValueVector, and then update this.
-     *
-     * [1] https://github.com/apache/arrow/blob/7b2d68570b4336308c52081a0349675e488caf11/java/vector/src/main/java/org/apache/arrow/vector/ValueVector.java#L197
-     * [2] https://github.com/apache/arrow/blob/7b2d68570b4336308c52081a0349675e488caf11/java/vector/src/main/java/org/apache/arrow/vector/ValueVector.java#L204
+     * The most optimistic approach from a buffer copying perspective is to use buffers as they
+     * are provided to this method directly. When NettyArrowBufs are provided, the underlying
+     * Arrow Buffers get used directly, even when the data of a ValueVector is split across several
+     * of them (such as DataBuffers and OffsetBuffers). Other implementations will require copying
+     * the data into a new Arrow Buffer first.
      */
     if (null == buffers || buffers.length == 0) {
       loadEmptyBuffer(def, result.getByteCount());
+    } else if (Arrays.stream(buffers).allMatch(NettyArrowBuf.class::isInstance)) {
+      loadDirectlyFromNettyArrowBufs(def, buffers);
     } else if (buffers.length > 1) {
       loadFromCopyOfEntireResult(result, def);
     } else {
-      final ByteBuf byteBuf = buffers[0];
-      /**
-       * The most optimistic approach from a buffer copying perspective is to use buffers as they
-       * are provided to this method directly. When a NettyArrowBuf is provided, the underlying
-       * Arrow Buffer gets used directly. Other implementations will require copying the data into
-       * a new Arrow Buffer first.
-       */
-      if (byteBuf instanceof NettyArrowBuf) {
-        loadDirectlyFromNettyArrowBuf(def, (NettyArrowBuf) byteBuf);
-      } else {
-        loadFromCopyOfSingleBuffer(def, byteBuf);
-      }
+      loadFromCopyOfSingleBuffer(def, buffers[0]);
     }
 
     prepareVectorSchemaRoot(result.getHeader().getRowCount());
@@ -160,11 +146,17 @@ public abstract class RunQueryResponseHandler implements UserResponseHandler {
   }
 
   @VisibleForTesting
-  void loadDirectlyFromNettyArrowBuf(RecordBatchDef def, NettyArrowBuf byteBuf) {
+  void loadDirectlyFromNettyArrowBufs(RecordBatchDef def, ByteBuf[] byteBufs) {
     try {
-      recordBatchLoader.load(def, byteBuf.arrowBuf());
+      final List<ArrowBuf> arrowBufs = new ArrayList<>(byteBufs.length);
+      for (ByteBuf byteBuf : byteBufs) {
+        arrowBufs.add(((NettyArrowBuf) byteBuf).arrowBuf().slice(byteBuf.readerIndex(), byteBuf.readableBytes()));
+      }
+      recordBatchLoader.load(def, arrowBufs);
     } finally {
-      byteBuf.release();
+      for (ByteBuf byteBuf : byteBufs) {
+        byteBuf.release();
+      }
     }
   }
 
@@ -29,12 +29,19 @@ import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
 import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompressionType;
 import org.rocksdb.DBOptions;
 import org.rocksdb.Logger;
 import org.rocksdb.Options;
@@ -46,14 +53,15 @@ import org.rocksdb.Status;
 import org.rocksdb.TickerType;
 import org.rocksdb.TransactionLogIterator;
 
+import com.dremio.common.AutoCloseables;
 import com.dremio.common.DeferredException;
+import com.dremio.common.concurrent.NamedThreadFactory;
 import com.dremio.datastore.CoreStoreProviderImpl.ForcedMemoryMode;
 import com.dremio.datastore.RocksDBStore.BlobNotFoundException;
 import com.dremio.datastore.RocksDBStore.RocksMetaManager;
 import com.dremio.datastore.api.Document;
 import com.dremio.telemetry.api.metrics.Metrics;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.StandardSystemProperty;
 import com.google.common.base.Throwables;
@@ -77,6 +85,18 @@ class ByteStoreManager implements AutoCloseable {
   private static final String DEFAULT = "default";
   private static final int STRIPE_COUNT = 16;
   private static final long ROCKSDB_OPEN_SLEEP_MILLIS = 100L;
+
+  // column family options, each can be overridden for one store by appending "." and the store name
+  private static final String BLOOM_FILTER_BITS_SYS_PROP = "dremio.rocksdb.bloom_filter_bits";
+  private static final String COMPRESSION_SYS_PROP = "dremio.rocksdb.compression";
+  private static final String BLOCK_CACHE_BYTES_SYS_PROP = "dremio.rocksdb.block_cache_bytes";
+  private static final int DEFAULT_BLOOM_FILTER_BITS = 10;
+  private static final String DEFAULT_COMPRESSION = "snappy";
+  private static final long DEFAULT_BLOCK_CACHE_BYTES = 8 * 1024 * 1024;
+
+  // stores are compacted one at a time in the background, once enough entries were deleted from them
+  private static final long COMPACTION_INTERVAL_SECONDS = Long.getLong("dremio.rocksdb.compaction_interval_seconds", 600L);
+  private static final long COMPACTION_MIN_DELETES = Long.getLong("dremio.rocksdb.compaction_min_deletes", 100_000L);
   // TODO: (DX-16211) this is a temporary hack for a blob whitelist
   static final String BLOB_WHITELIST_STORE = "dac-namespace";
   private static final Set<String> BLOB_WHITELIST = Collections.singleton(BLOB_WHITELIST_STORE);
@@ -92,6 +112,11 @@ class ByteStoreManager implements AutoCloseable {
   private RocksDB db;
   private ColumnFamilyHandle defaultHandle;
   private StoreMetadataManagerImpl metadataManager;
+  private RocksWriteBatcher writeBatcher;
+  private ScheduledExecutorService compactionExecutor;
+  private int nextCompactedStore;
+  // native options and filters of the column families, released after the db is closed
+  private final List<AutoCloseable> columnFamilyResources = new CopyOnWriteArrayList<>();
 
   private final DeferredException closeException = new DeferredException();
 
@@ -127,7 +152,7 @@ class ByteStoreManager implements AutoCloseable {
     if (inMemory) {
       return new MapStore(name);
     } else {
-      final ColumnFamilyDescriptor columnFamilyDescriptor = new ColumnFamilyDescriptor(name.getBytes(UTF_8));
+      final ColumnFamilyDescriptor columnFamilyDescriptor = newColumnFamilyDescriptor(name.getBytes(UTF_8));
       ColumnFamilyHandle handle = db.createColumnFamily(columnFamilyDescriptor);
       handleIdToNameMap.put(handle.getID(), name);
       metadataManager.createEntry(name, false);
@@ -144,7 +169,36 @@ class ByteStoreManager implements AutoCloseable {
     } else {
       rocksManager = new RocksMetaManager(baseDirectory, name, Long.MAX_VALUE);
     }
-    return new RocksDBStore(name, columnFamilyDescriptor, handle, db, stripeCount, rocksManager);
+    return new RocksDBStore(name, columnFamilyDescriptor, handle, db, stripeCount, rocksManager, writeBatcher);
+  }
+
+  private ColumnFamilyDescriptor newColumnFamilyDescriptor(byte[] family) {
+    final String name = new String(family, UTF_8);
+    final ColumnFamilyOptions options = new ColumnFamilyOptions();
+    columnFamilyResources.add(options);
+
+    final BlockBasedTableConfig tableConfig = new BlockBasedTableConfig();
+    // most writes first read the current value of their key, which is usually missing for new entries
+    final int bloomFilterBits = Integer.parseInt(
+        storeProperty(BLOOM_FILTER_BITS_SYS_PROP, name, Integer.toString(DEFAULT_BLOOM_FILTER_BITS)));
+    if (bloomFilterBits > 0) {
+      final BloomFilter bloomFilter = new BloomFilter(bloomFilterBits, false);
+      columnFamilyResources.add(bloomFilter);
+      tableConfig.setFilter(bloomFilter);
+    }
+    tableConfig.setBlockCacheSize(Long.parseLong(
+        storeProperty(BLOCK_CACHE_BYTES_SYS_PROP, name, Long.toString(DEFAULT_BLOCK_CACHE_BYTES))));
+    options.setTableFormatConfig(tableConfig);
+    options.setCompressionType(
+        CompressionType.getCompressionType(storeProperty(COMPRESSION_SYS_PROP, name, DEFAULT_COMPRESSION)));
+
+    LOGGER.debug("Options of store '{}': bloom filter bits: {}, compression: {}, block cache: {} bytes",
+        name, bloomFilterBits, options.compressionType(), tableConfig.blockCacheSize());
+    return new ColumnFamilyDescriptor(family, options);
+  }
+
+  private static String storeProperty(String property, String storeName, String defaultValue) {
+    return System.getProperty(property + "." + storeName, System.getProperty(property, defaultValue));
   }
 
   // Validates that the first file found in the DB directory is owned by the currently running user.
@@ -213,7 +267,9 @@ class ByteStoreManager implements AutoCloseable {
     if (families.isEmpty()) {
       families.add(RocksDB.DEFAULT_COLUMN_FAMILY);
     }
-    final Function<byte[], ColumnFamilyDescriptor> func = ColumnFamilyDescriptor::new;
+    // each descriptor is used to open its family and by its store
+    final List<ColumnFamilyDescriptor> descriptors =
+        new ArrayList<>(Lists.transform(families, this::newColumnFamilyDescriptor));
 
     List<ColumnFamilyHandle> familyHandles = new ArrayList<>();
     try (final DBOptions dboptions = new DBOptions()) {
@@ -229,8 +285,9 @@ class ByteStoreManager implements AutoCloseable {
 
 
       registerMetrics(dboptions);
-      db = openDB(dboptions, path, new ArrayList<>(Lists.transform(families, func)), familyHandles);
+      db = openDB(dboptions, path, descriptors, familyHandles);
     }
+    writeBatcher = RocksWriteBatcher.fromSystemProperties(db);
     // create an output list to be populated when we open the db.
 
     // populate the local cache with the existing tables.
@@ -242,7 +299,7 @@ class ByteStoreManager implements AutoCloseable {
         String name = new String(family, UTF_8);
         final ColumnFamilyHandle handle = familyHandles.get(i);
         handleIdToNameMap.put(handle.getID(), name);
-        RocksDBStore store = newRocksDBStore(name, new ColumnFamilyDescriptor(family), handle);
+        RocksDBStore store = newRocksDBStore(name, descriptors.get(i), handle);
         maps.put(name, store);
       }
     }
@@ -252,6 +309,35 @@ class ByteStoreManager implements AutoCloseable {
     for (String tableName : handleIdToNameMap.values()) {
       metadataManager.createEntry(tableName, true);
     }
+
+    if (COMPACTION_INTERVAL_SECONDS > 0) {
+      compactionExecutor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("rocksdb-compaction"));
+      compactionExecutor.scheduleWithFixedDelay(this::compactNextStore,
+          COMPACTION_INTERVAL_SECONDS, COMPACTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+  }
+
+  /**
+   * Compacts the next store with enough deleted entries, so that each run only rewrites a single store.
+   */
+  @VisibleForTesting
+  void compactNextStore() {
+    final List<ByteStore> stores = new ArrayList<>(maps.asMap().values());
+    for (int i = 0; i < stores.size(); i++) {
+      final ByteStore store = stores.get((nextCompactedStore + i) % stores.size());
+      if (!(store instanceof RocksDBStore)) {
+        continue;
+      }
+      try {
+        if (((RocksDBStore) store).compactIfNeeded(COMPACTION_MIN_DELETES)) {
+          nextCompactedStore = (nextCompactedStore + i + 1) % stores.size();
+          return;
+        }
+      } catch (RocksDBException | RuntimeException e) {
+        // the next run tries again
+        LOGGER.warn("Failed to compact store '{}'", store.getName(), e);
+      }
+    }
   }
 
   private void registerMetrics(DBOptions dbOptions) {
@@ -442,10 +528,18 @@ public RocksDB openDB(final DBOptions dboptions, final String path, final List<C
 
   @Override
   public void close() throws Exception {
+    if (compactionExecutor != null) {
+      // a running compaction can't be interrupted and must be over before closing the stores
+      compactionExecutor.shutdownNow();
+      while (!compactionExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+        LOGGER.info("Waiting for the background compaction to finish");
+      }
+    }
     maps.invalidateAll();
     getMetadataManager().close();
     closeException.suppressingClose(defaultHandle);
     closeException.suppressingClose(db);
+    closeException.suppressingClose(AutoCloseables.all(columnFamilyResources));
     closeException.close();
   }
 
@@ -46,7 +46,10 @@ import com.dremio.datastore.api.KVStore;
 import com.dremio.datastore.indexed.PutRequestDocumentWriter;
 import com.dremio.exec.rpc.RpcException;
 import com.dremio.services.fabric.simple.ReceivedResponseMessage;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.collect.AbstractIterator;
 import com.google.protobuf.ByteString;
 
 /**
@@ -55,10 +58,28 @@ import com.google.protobuf.ByteString;
  */
 public class DatastoreRpcClient {
 
+  /**
+   * Returned by {@link #get(String, List, List)} for the entries which still have the cached tag.
+   */
+  public static final Document<ByteString, ByteString> NOT_MODIFIED = new ImmutableDocument.Builder<ByteString, ByteString>()
+    .setKey(ByteString.EMPTY)
+    .setValue(ByteString.EMPTY)
+    .build();
+
+  private static final int DEFAULT_FIND_PAGE_SIZE = Integer.getInteger("dremio.datastore.remote.find_page_size", 1000);
+
   private final DatastoreRpcService rpcService;
+  private final int findPageSize;
 
   public DatastoreRpcClient(DatastoreRpcService rpcService) {
+    this(rpcService, DEFAULT_FIND_PAGE_SIZE);
+  }
+
+  @VisibleForTesting
+  DatastoreRpcClient(DatastoreRpcService rpcService, int findPageSize) {
+    Preconditions.checkArgument(findPageSize > 0, "find page size must be positive");
     this.rpcService = rpcService;
+    this.findPageSize = findPageSize;
   }
 
   /**
@@ -118,6 +139,29 @@ public class DatastoreRpcClient {
     return createListOfImmutableDocuments(response.getBody().getDocumentsList());
   }
 
+  /**
+   * Get method to retrieve a list of key-value store entries, unless they still have the tag of a cached copy.
+   *
+   * @param storeId the storeId.
+   * @param keys the list of keys which entries are to be retrieved from the store.
+   * @param cachedTags the tag of the cached copy of each entry, or {@code null} if there is none.
+   * @return a list of documents representing entries retrieved from the store. A document in the list can be {@code null}
+   *         if no corresponding value is found, or {@link #NOT_MODIFIED} if the entry still has the cached tag.
+   * @throws RpcException when RPC related exceptions are encountered.
+   */
+  public List<Document<ByteString, ByteString>> get(String storeId, List<ByteString> keys, List<String> cachedTags)
+      throws RpcException {
+    Preconditions.checkArgument(keys.size() == cachedTags.size(), "one cached tag is needed per key");
+    final GetRequest.Builder builder = GetRequest.newBuilder();
+    builder.setStoreId(storeId);
+    builder.addAllKeys(keys);
+    for (String tag : cachedTags) {
+      builder.addCachedTags(Strings.nullToEmpty(tag));
+    }
+    ReceivedResponseMessage<GetResponse> response = rpcService.getGetEndpoint().send(builder.build());
+    return createListOfImmutableDocuments(response.getBody().getDocumentsList());
+  }
+
   /**
    * Contains method to determine whether the store has an entry of the provided key.
    *
@@ -142,8 +186,13 @@ public class DatastoreRpcClient {
    * @throws RpcException when RPC related errors are encountered.
    */
   public Iterable<Document<ByteString, ByteString>> find(FindRequest request) throws RpcException {
-    ReceivedResponseMessage<FindResponse> response = rpcService.getFindEndpoint().send(request);
-    return createListOfImmutableDocuments(response.getBody().getDocumentsList());
+    final FindRequest firstPageRequest = request.toBuilder().setMaxResults(findPageSize).build();
+    final FindResponse firstPage = rpcService.getFindEndpoint().send(firstPageRequest).getBody();
+    if (!firstPage.getHasMore()) {
+      return createListOfImmutableDocuments(firstPage.getDocumentsList());
+    }
+    // the following pages are only requested when iterating over the previous ones
+    return () -> new PagedFindIterator(firstPageRequest, firstPage);
   }
 
   /**
@@ -156,8 +205,48 @@ public class DatastoreRpcClient {
   public Iterable<Document<ByteString, ByteString>> find(String storeId) throws RpcException {
     final FindRequest.Builder builder = FindRequest.newBuilder();
     builder.setStoreId(storeId);
-    ReceivedResponseMessage<FindResponse> response = rpcService.getFindEndpoint().send(builder.build());
-    return createListOfImmutableDocuments(response.getBody().getDocumentsList());
+    return find(builder.build());
+  }
+
+  /**
+   * Iterates over the results of a range search, requesting each page of results from the key following the last
+   * key of the previous page. Unlike a single response, the pages don't come from a single snapshot of the store.
+   */
+  private final class PagedFindIterator extends AbstractIterator<Document<ByteString, ByteString>> {
+    private final FindRequest request;
+    private FindResponse page;
+    private int index;
+
+    private PagedFindIterator(FindRequest request, FindResponse firstPage) {
+      this.request = request;
+      this.page = firstPage;
+    }
+
+    @Override
+    protected Document<ByteString, ByteString> computeNext() {
+      if (index == page.getDocumentsCount()) {
+        if (!page.getHasMore() || page.getDocumentsCount() == 0) {
+          return endOfData();
+        }
+        final ByteString lastKey = page.getDocuments(page.getDocumentsCount() - 1).getKey();
+        final FindRequest nextPageRequest = request.toBuilder()
+          .setStart(lastKey)
+          .setIncludeStart(false)
+          .build();
+        try {
+          page = rpcService.getFindEndpoint().send(nextPageRequest).getBody();
+        } catch (RpcException e) {
+          throw new DatastoreException(String.format("Failed to find next results for store id: %s",
+            request.getStoreId()), e);
+        }
+        index = 0;
+        if (page.getDocumentsCount() == 0) {
+          return endOfData();
+        }
+      }
+      final DocumentResponse document = page.getDocuments(index++);
+      return createImmutableDocumentFromKeyValueTag(document.getKey(), document.getValue(), document.getTag());
+    }
   }
 
   /**
@@ -305,10 +394,15 @@ public class DatastoreRpcClient {
    */
   private List<Document<ByteString, ByteString>> createListOfImmutableDocuments(List<DocumentResponse> documents) {
     ArrayList<Document<ByteString, ByteString>> list = new ArrayList<>();
-    documents.forEach(document ->
-      list.add((document.equals(DocumentResponse.getDefaultInstance())) ? null
-          : createImmutableDocumentFromKeyValueTag(document.getKey(), document.getValue(), document.getTag())
-      ));
+    documents.forEach(document -> {
+      if (document.equals(DocumentResponse.getDefaultInstance())) {
+        list.add(null);
+      } else if (document.getNotModified()) {
+        list.add(NOT_MODIFIED);
+      } else {
+        list.add(createImmutableDocumentFromKeyValueTag(document.getKey(), document.getValue(), document.getTag()));
+      }
+    });
     return Collections.unmodifiableList(list);
   }
 }
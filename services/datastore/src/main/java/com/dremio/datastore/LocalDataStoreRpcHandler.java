@@ -16,6 +16,7 @@
 package com.dremio.datastore;
 
 import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.List;
 
 import com.dremio.datastore.RemoteDataStoreProtobuf.ContainsRequest;
@@ -66,7 +67,7 @@ public class LocalDataStoreRpcHandler extends DefaultDataStoreRpcHandler {
     final GetResponse.Builder builder = GetResponse.newBuilder();
     if (request.getKeysCount() == 1) {
       final Document<KVStoreTuple<?>, KVStoreTuple<?>> result = store.get(store.newKey().setSerializedBytes(request.getKeys(0).toByteArray()));
-      return builder.addDocuments(getDocumentResponse(result)).build();
+      return builder.addDocuments(getDocumentResponse(result, getCachedTag(request, 0))).build();
     } else {
       final List<KVStoreTuple<?>> keys = Lists.transform(request.getKeysList(), new Function<ByteString, KVStoreTuple<?>>() {
         @Override
@@ -75,13 +76,18 @@ public class LocalDataStoreRpcHandler extends DefaultDataStoreRpcHandler {
         }
       });
       final Iterable<Document<KVStoreTuple<?>, KVStoreTuple<?>>> results = store.get(keys);
+      int index = 0;
       for (Document<KVStoreTuple<?>, KVStoreTuple<?>> result : results) {
-          builder.addDocuments(getDocumentResponse(result));
+          builder.addDocuments(getDocumentResponse(result, getCachedTag(request, index++)));
       }
       return builder.build();
     }
   }
 
+  private static String getCachedTag(GetRequest request, int index) {
+    return index < request.getCachedTagsCount() ? request.getCachedTags(index) : null;
+  }
+
   @Override
   public FindResponse find(FindRequest request) {
     final CoreKVStore store = coreStoreProvider.getStore(request.getStoreId());
@@ -104,8 +110,15 @@ public class LocalDataStoreRpcHandler extends DefaultDataStoreRpcHandler {
     }
     final FindResponse.Builder findResponseBuilder = FindResponse.newBuilder();
 
-    for (Document<KVStoreTuple<?>, KVStoreTuple<?>> result : results) {
-      findResponseBuilder.addDocuments(getDocumentResponse(result));
+    final int maxResults = request.hasMaxResults() ? request.getMaxResults() : Integer.MAX_VALUE;
+    final Iterator<Document<KVStoreTuple<?>, KVStoreTuple<?>>> iterator = results.iterator();
+    while (iterator.hasNext()) {
+      if (findResponseBuilder.getDocumentsCount() >= maxResults) {
+        // the client asks for the next page, starting after the last document of this one
+        findResponseBuilder.setHasMore(true);
+        break;
+      }
+      findResponseBuilder.addDocuments(getDocumentResponse(iterator.next()));
     }
     return findResponseBuilder.build();
   }
@@ -174,13 +187,25 @@ public class LocalDataStoreRpcHandler extends DefaultDataStoreRpcHandler {
   }
 
   private DocumentResponse getDocumentResponse(Document<KVStoreTuple<?>, KVStoreTuple<?>> result) {
+    return getDocumentResponse(result, null);
+  }
+
+  private DocumentResponse getDocumentResponse(Document<KVStoreTuple<?>, KVStoreTuple<?>> result, String cachedTag) {
     if (result == null) {
       return DocumentResponse.getDefaultInstance();
     }
+    final String tag = result.getTag();
+    if (!Strings.isNullOrEmpty(cachedTag) && cachedTag.equals(tag)) {
+      // the caller already has this version of the entry
+      return DocumentResponse.newBuilder()
+        .setKey(ByteString.copyFrom(result.getKey().getSerializedBytes()))
+        .setTag(tag)
+        .setNotModified(true)
+        .build();
+    }
     final DocumentResponse.Builder documentResponseBuilder = DocumentResponse.newBuilder();
     documentResponseBuilder.setKey(ByteString.copyFrom(result.getKey().getSerializedBytes()));
     documentResponseBuilder.setValue(ByteString.copyFrom(result.getValue().getSerializedBytes()));
-    final String tag = result.getTag();
     if (!Strings.isNullOrEmpty(tag)) {
       documentResponseBuilder.setTag(tag);
     }
@@ -17,6 +17,8 @@ package com.dremio.datastore;
 
 import static java.lang.String.format;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -35,6 +37,8 @@ import com.dremio.telemetry.api.metrics.Timer;
 import com.dremio.telemetry.api.metrics.Timer.TimerContext;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -42,10 +46,15 @@ import com.google.protobuf.ByteString;
 
 /**
  * Remote KVStore. Caches store id received from master.
+ *
+ * Entries read from the master can be kept in a near cache, sized by the dremio.datastore.remote.near_cache_size
+ * system property (disabled by default). Cached entries are revalidated by their tag on each read, so that the master
+ * only sends the values which changed.
  */
 public class RemoteKVStore <K, V> implements KVStore<K, V> {
 
   private static final String METRIC_PREFIX = "kvstore.remote";
+  private static final long NEAR_CACHE_SIZE = Long.getLong("dremio.datastore.remote.near_cache_size", 0L);
 
   private enum Stats {
     GET,
@@ -67,9 +76,16 @@ public class RemoteKVStore <K, V> implements KVStore<K, V> {
   private final StoreBuilderHelper<K, V> helper;
 
   private final Map<Stats, Timer> metrics;
+  // serialized entries with a tag, by serialized key
+  private final Cache<ByteString, Document<ByteString, ByteString>> nearCache;
 
-  @SuppressWarnings("unchecked")
   public RemoteKVStore(DatastoreRpcClient client, String storeId, StoreBuilderHelper<K, V> helper) {
+    this(client, storeId, helper, NEAR_CACHE_SIZE);
+  }
+
+  @SuppressWarnings("unchecked")
+  RemoteKVStore(DatastoreRpcClient client, String storeId, StoreBuilderHelper<K, V> helper, long nearCacheSize) {
+    this.nearCache = nearCacheSize > 0 ? CacheBuilder.newBuilder().maximumSize(nearCacheSize).build() : null;
     this.client = client;
     this.storeId = storeId;
     this.helper = helper;
@@ -112,8 +128,14 @@ public class RemoteKVStore <K, V> implements KVStore<K, V> {
   @Override
   public Document<K, V> get(K key, GetOption ... options) {
     try (TimerContext timer = time(Stats.GET)) {
-      final Document<ByteString, ByteString> document = client.get(storeId, convertKey(key));
-      return convertDocument(document);
+      final ByteString keyBytes = convertKey(key);
+      if (nearCache == null) {
+        return convertDocument(client.get(storeId, keyBytes));
+      }
+      final Document<ByteString, ByteString> cached = nearCache.getIfPresent(keyBytes);
+      final List<Document<ByteString, ByteString>> documents = client.get(storeId,
+        Collections.singletonList(keyBytes), Collections.singletonList(cached != null ? cached.getTag() : null));
+      return convertDocument(updateNearCache(keyBytes, cached, documents.isEmpty() ? null : documents.get(0)));
     } catch (RpcException e) {
       throw new DatastoreException(format("Failed to get from store id: %s", getStoreId()), e);
     }
@@ -147,7 +169,23 @@ public class RemoteKVStore <K, V> implements KVStore<K, V> {
       for (K key : keys) {
         keyLists.add(convertKey(key));
       }
-      return Lists.transform(client.get(storeId, keyLists), this::convertDocument);
+      if (nearCache == null) {
+        return Lists.transform(client.get(storeId, keyLists), this::convertDocument);
+      }
+
+      final List<Document<ByteString, ByteString>> cachedDocuments = new ArrayList<>(keyLists.size());
+      final List<String> cachedTags = new ArrayList<>(keyLists.size());
+      for (ByteString key : keyLists) {
+        final Document<ByteString, ByteString> cached = nearCache.getIfPresent(key);
+        cachedDocuments.add(cached);
+        cachedTags.add(cached != null ? cached.getTag() : null);
+      }
+      final List<Document<ByteString, ByteString>> documents = client.get(storeId, keyLists, cachedTags);
+      final List<Document<K, V>> results = new ArrayList<>(documents.size());
+      for (int i = 0; i < documents.size(); i++) {
+        results.add(convertDocument(updateNearCache(keyLists.get(i), cachedDocuments.get(i), documents.get(i))));
+      }
+      return results;
     } catch (RpcException e) {
       throw new DatastoreException(format("Failed to get multiple values from store id: %s", getStoreId()), e);
     }
@@ -163,15 +201,20 @@ public class RemoteKVStore <K, V> implements KVStore<K, V> {
       helper.getDocumentConverter().convert(putRequestDocumentWriter, key, value);
     }
 
+    final ByteString keyBytes = convertKey(key);
+    final ByteString valueBytes = convertValue(value);
     try (TimerContext timer = time(Stats.PUT)) {
       final Optional<PutOption> option = KVStoreOptionUtility.getCreateOrVersionOption(options);
       if (option.isPresent()) {
-        tag = client.put(storeId, convertKey(key), convertValue(value), putRequestDocumentWriter, option.get());
+        tag = client.put(storeId, keyBytes, valueBytes, putRequestDocumentWriter, option.get());
       } else {
-        tag = client.put(storeId, convertKey(key), convertValue(value), putRequestDocumentWriter);
+        tag = client.put(storeId, keyBytes, valueBytes, putRequestDocumentWriter);
       }
     } catch (RpcException e) {
       throw new DatastoreException(format("Failed to put in store id: %s", getStoreId()), e);
+    } finally {
+      // the master may rewrite the value (e.g. legacy version fields), so the next read fetches it
+      invalidateNearCache(keyBytes);
     }
     return createDocument(key, value, tag);
   }
@@ -187,11 +230,41 @@ public class RemoteKVStore <K, V> implements KVStore<K, V> {
 
   @Override
   public void delete(K key, DeleteOption... options) {
+    final ByteString keyBytes = convertKey(key);
     try (TimerContext timer = time(Stats.DELETE)) {
       final String deleteOptionTag = VersionOption.getTagInfo(options).getTag();
-      client.delete(storeId, convertKey(key), deleteOptionTag);
+      client.delete(storeId, keyBytes, deleteOptionTag);
     } catch (RpcException e) {
       throw new DatastoreException(format("Failed to delete from store id: %s", getStoreId()), e);
+    } finally {
+      invalidateNearCache(keyBytes);
+    }
+  }
+
+  /**
+   * Keeps the near cache up to date with an entry read from the master.
+   *
+   * @param cached the cached entry whose tag was sent to the master, if any
+   * @param document the entry from the master
+   * @return the current entry
+   */
+  private Document<ByteString, ByteString> updateNearCache(ByteString key, Document<ByteString, ByteString> cached,
+                                                           Document<ByteString, ByteString> document) {
+    if (document == DatastoreRpcClient.NOT_MODIFIED) {
+      return cached;
+    }
+    if (document == null || Strings.isNullOrEmpty(document.getTag())) {
+      // entries without a tag can't be revalidated
+      nearCache.invalidate(key);
+    } else {
+      nearCache.put(key, document);
+    }
+    return document;
+  }
+
+  private void invalidateNearCache(ByteString key) {
+    if (nearCache != null) {
+      nearCache.invalidate(key);
     }
   }
 
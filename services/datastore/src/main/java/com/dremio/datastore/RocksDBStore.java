@@ -27,6 +27,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -172,6 +173,7 @@ class RocksDBStore implements ByteStore {
   private final int parallel;
   private final String name;
   private final MetaManager metaManager;
+  private final RocksWriteBatcher writeBatcher;
 
   private final ReferenceQueue<FindByRangeIterator> iteratorQueue = new ReferenceQueue<>();
   private final Set<IteratorReference> iteratorSet = Sets.newConcurrentHashSet();
@@ -182,12 +184,23 @@ class RocksDBStore implements ByteStore {
 
   private final AtomicBoolean closed = new AtomicBoolean(false);
 
+  // deletes leave tombstones behind until the range holding them is compacted
+  private final AtomicLong deletesSinceCompaction = new AtomicLong(0);
+  private final AtomicLong compactions = new AtomicLong(0);
+  private final AtomicLong compactionNanos = new AtomicLong(0);
+  private volatile long lastCompactionMillis;
+
   public RocksDBStore(String name, ColumnFamilyDescriptor family, ColumnFamilyHandle handle, RocksDB db, int stripes) {
     this(name, family, handle, db, stripes, INLINE_BLOB_MANAGER);
   }
 
   public RocksDBStore(String name, ColumnFamilyDescriptor family, ColumnFamilyHandle handle, RocksDB db, int stripes,
                       MetaManager metaManager) {
+    this(name, family, handle, db, stripes, metaManager, RocksWriteBatcher.direct(db));
+  }
+
+  public RocksDBStore(String name, ColumnFamilyDescriptor family, ColumnFamilyHandle handle, RocksDB db, int stripes,
+                      MetaManager metaManager, RocksWriteBatcher writeBatcher) {
     super();
     this.family = family;
     this.name = name;
@@ -197,6 +210,7 @@ class RocksDBStore implements ByteStore {
     this.sharedLocks = new AutoCloseableLock[stripes];
     this.exclusiveLocks = new AutoCloseableLock[stripes];
     this.metaManager = metaManager;
+    this.writeBatcher = writeBatcher;
 
     for (int i = 0; i < stripes; i++) {
       ReadWriteLock core = new ReentrantReadWriteLock();
@@ -239,8 +253,29 @@ class RocksDBStore implements ByteStore {
     }
   }
 
-  private void compact() throws RocksDBException {
+  void compact() throws RocksDBException {
+    final long deletes = deletesSinceCompaction.get();
+    final Stopwatch stopwatch = Stopwatch.createStarted();
     db.compactRange(handle);
+    compactionNanos.addAndGet(stopwatch.elapsed(TimeUnit.NANOSECONDS));
+    compactions.incrementAndGet();
+    lastCompactionMillis = System.currentTimeMillis();
+    deletesSinceCompaction.addAndGet(-deletes);
+  }
+
+  /**
+   * Compacts the store if enough entries were deleted since its last compaction.
+   *
+   * @param minDeletes minimum number of deletes since the last compaction
+   * @return true if the store was compacted
+   */
+  boolean compactIfNeeded(long minDeletes) throws RocksDBException {
+    if (closed.get() || deletesSinceCompaction.get() < minDeletes) {
+      return false;
+    }
+    logger.debug("Compacting store '{}' after {} deletes", name, deletesSinceCompaction.get());
+    compact();
+    return true;
   }
 
   private String stats() {
@@ -250,6 +285,14 @@ class RocksDBStore implements ByteStore {
       append(sb, "rocksdb.estimate-live-data-size", "Estimated Live Data Size");
       append(sb, "rocksdb.total-sst-files-size", "Total SST files size");
       append(sb, "rocksdb.estimate-pending-compaction-bytes", "Pending Compaction Bytes");
+      append(sb, "rocksdb.actual-delayed-write-rate", "Delayed Write Rate");
+      append(sb, "rocksdb.is-write-stopped", "Write Stopped");
+      sb.append("* Deletes since last compaction: ").append(deletesSinceCompaction.get()).append('\n');
+      sb.append("* Compactions: ").append(compactions.get()).append('\n');
+      sb.append("* Compaction time (ms): ").append(TimeUnit.NANOSECONDS.toMillis(compactionNanos.get())).append('\n');
+      sb.append("* Last compaction: ").append(lastCompactionMillis == 0 ? "never" : new Date(lastCompactionMillis))
+        .append('\n');
+      writeBatcher.appendStats(sb);
 
       final BlobStats blobStats = metaManager.getStats();
       if (blobStats != null) {
@@ -468,7 +511,7 @@ class RocksDBStore implements ByteStore {
 
       try (BlobHolder blob = metaManager.filterPut(newValue, newTag)){
         final byte[] blobOrPtrVal = blob.ptrOrValue();
-        db.put(handle, key, blobOrPtrVal);
+        writeBatcher.put(handle, key, blobOrPtrVal);
         metaManager.deleteTranslation(meta(oldValueOrPtr));
         blob.commit();
       } catch (IOException e) {
@@ -516,7 +559,7 @@ class RocksDBStore implements ByteStore {
 
       final String newTag = ByteStore.generateTagFromBytes(newValue);
       try (BlobHolder blob = metaManager.filterPut(newValue, newTag)) {
-        db.put(handle, key, blob.ptrOrValue());
+        writeBatcher.put(handle, key, blob.ptrOrValue());
         metaManager.deleteTranslation(oldMeta);
         blob.commit();
       } catch (IOException e) {
@@ -546,7 +589,8 @@ class RocksDBStore implements ByteStore {
         oldMeta != null && oldMeta.hasTag() && !versionInfo.getTag().equals(oldTag)) {
         return false;
       }
-      db.delete(handle, key);
+      writeBatcher.delete(handle, key);
+      deletesSinceCompaction.incrementAndGet();
       metaManager.deleteTranslation(oldMeta);
       return true;
     } catch (RocksDBException e) {
@@ -572,7 +616,8 @@ class RocksDBStore implements ByteStore {
       if (oldValueOrPtr == null) {
         return;
       }
-      db.delete(handle, key);
+      writeBatcher.delete(handle, key);
+      deletesSinceCompaction.incrementAndGet();
       metaManager.deleteTranslation(meta(oldValueOrPtr));
     } catch (RocksDBException e) {
       throw new RuntimeException(e);
@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.datastore;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Commits the writes of concurrent callers to RocksDB as a single write batch (group commit).
+ *
+ * The first caller to find no write in progress becomes the leader: it optionally waits for the flush window so that
+ * more writes can join, then writes every pending write as one batch. Other callers wait for their write to be
+ * committed, or become the next leader if their write was left for the next batch. Each caller returns once its own
+ * write is committed, so the write ordering and visibility seen by a caller do not change.
+ */
+class RocksWriteBatcher {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(RocksWriteBatcher.class);
+
+  static final String ENABLED_SYS_PROP = "dremio.rocksdb.write_batching.enabled";
+  static final String WINDOW_SYS_PROP = "dremio.rocksdb.write_batching.window_micros";
+  static final String MAX_BATCH_SYS_PROP = "dremio.rocksdb.write_batching.max_writes";
+
+  private final RocksDB db;
+  private final boolean enabled;
+  private final long windowNanos;
+  private final int maxBatchWrites;
+
+  private final Object lock = new Object();
+  private final ArrayDeque<PendingWrite> pending = new ArrayDeque<>();
+  private boolean leaderActive;
+
+  private final LongAdder writes = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder writeNanos = new LongAdder();
+  private final LongAdder commitNanos = new LongAdder();
+
+  RocksWriteBatcher(RocksDB db, boolean enabled, long windowMicros, int maxBatchWrites) {
+    Preconditions.checkArgument(windowMicros >= 0, "flush window must not be negative");
+    Preconditions.checkArgument(maxBatchWrites > 0, "maximum writes per batch must be positive");
+    this.db = db;
+    this.enabled = enabled;
+    this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+    this.maxBatchWrites = maxBatchWrites;
+  }
+
+  /**
+   * Creates a batcher configured through system properties.
+   */
+  static RocksWriteBatcher fromSystemProperties(RocksDB db) {
+    final boolean enabled = Boolean.parseBoolean(System.getProperty(ENABLED_SYS_PROP, "true"));
+    final long windowMicros = Long.getLong(WINDOW_SYS_PROP, 0L);
+    final int maxBatchWrites = Integer.getInteger(MAX_BATCH_SYS_PROP, 1024);
+    logger.debug("RocksDB write batching: enabled: {}, window: {} us, max writes: {}",
+        enabled, windowMicros, maxBatchWrites);
+    return new RocksWriteBatcher(db, enabled, windowMicros, maxBatchWrites);
+  }
+
+  /**
+   * Creates a batcher writing each write on its own.
+   */
+  static RocksWriteBatcher direct(RocksDB db) {
+    return new RocksWriteBatcher(db, false, 0, 1);
+  }
+
+  void put(ColumnFamilyHandle handle, byte[] key, byte[] value) throws RocksDBException {
+    if (!enabled) {
+      final long start = System.nanoTime();
+      db.put(handle, key, value);
+      recordDirectWrite(start);
+      return;
+    }
+    write(new PendingWrite(handle, key, value));
+  }
+
+  void delete(ColumnFamilyHandle handle, byte[] key) throws RocksDBException {
+    if (!enabled) {
+      final long start = System.nanoTime();
+      db.delete(handle, key);
+      recordDirectWrite(start);
+      return;
+    }
+    write(new PendingWrite(handle, key, null));
+  }
+
+  private void recordDirectWrite(long start) {
+    writeNanos.add(System.nanoTime() - start);
+    writes.increment();
+    batches.increment();
+  }
+
+  private void write(PendingWrite write) throws RocksDBException {
+    final long start = System.nanoTime();
+    boolean interrupted = false;
+    try {
+      synchronized (lock) {
+        pending.add(write);
+      }
+      while (true) {
+        synchronized (lock) {
+          while (!write.done && leaderActive) {
+            try {
+              lock.wait();
+            } catch (InterruptedException e) {
+              // the write is already queued and can't be cancelled
+              interrupted = true;
+            }
+          }
+          if (write.done) {
+            break;
+          }
+          leaderActive = true;
+        }
+        // a full batch may not include the write of the leader, which then leads again
+        lead();
+      }
+    } finally {
+      commitNanos.add(System.nanoTime() - start);
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    if (write.failure != null) {
+      throw write.failure;
+    }
+  }
+
+  /**
+   * Writes the pending writes as one batch, then hands over to a waiting caller if more writes came in meanwhile.
+   */
+  private void lead() {
+    if (windowNanos > 0) {
+      LockSupport.parkNanos(windowNanos);
+    }
+
+    final List<PendingWrite> batch = new ArrayList<>();
+    try {
+      synchronized (lock) {
+        while (!pending.isEmpty() && batch.size() < maxBatchWrites) {
+          batch.add(pending.poll());
+        }
+      }
+
+      RocksDBException failure = null;
+      final long start = System.nanoTime();
+      try (WriteBatch writeBatch = new WriteBatch();
+           WriteOptions writeOptions = new WriteOptions()) {
+        for (PendingWrite write : batch) {
+          if (write.value != null) {
+            writeBatch.put(write.handle, write.key, write.value);
+          } else {
+            writeBatch.delete(write.handle, write.key);
+          }
+        }
+        db.write(writeOptions, writeBatch);
+      } catch (RocksDBException e) {
+        failure = e;
+      }
+      writeNanos.add(System.nanoTime() - start);
+      writes.add(batch.size());
+      batches.increment();
+
+      for (PendingWrite write : batch) {
+        write.failure = failure;
+      }
+    } finally {
+      synchronized (lock) {
+        for (PendingWrite write : batch) {
+          write.done = true;
+        }
+        leaderActive = false;
+        lock.notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Appends the write statistics since the database was opened.
+   */
+  void appendStats(StringBuilder sb) {
+    final long batchCount = batches.sum();
+    final long writeCount = writes.sum();
+    sb.append("* Write batching enabled: ").append(enabled).append('\n');
+    sb.append("* Writes: ").append(writeCount).append('\n');
+    sb.append("* Write batches: ").append(batchCount).append('\n');
+    sb.append("* Average writes per batch: ").append(batchCount == 0 ? 0 : writeCount / (double) batchCount).append('\n');
+    sb.append("* Write time (ms): ").append(TimeUnit.NANOSECONDS.toMillis(writeNanos.sum())).append('\n');
+    sb.append("* Time spent committing writes, including waits (ms): ")
+      .append(TimeUnit.NANOSECONDS.toMillis(commitNanos.sum())).append('\n');
+  }
+
+  long getWriteCount() {
+    return writes.sum();
+  }
+
+  long getBatchCount() {
+    return batches.sum();
+  }
+
+  private static final class PendingWrite {
+    private final ColumnFamilyHandle handle;
+    private final byte[] key;
+    // null for deletes
+    private final byte[] value;
+
+    // guarded by the batcher lock
+    private boolean done;
+    private RocksDBException failure;
+
+    private PendingWrite(ColumnFamilyHandle handle, byte[] key, byte[] value) {
+      this.handle = handle;
+      this.key = key;
+      this.value = value;
+    }
+  }
+}
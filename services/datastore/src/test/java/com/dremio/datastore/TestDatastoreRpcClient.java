@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.datastore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.dremio.datastore.RemoteDataStoreProtobuf.DocumentResponse;
+import com.dremio.datastore.RemoteDataStoreProtobuf.FindRequest;
+import com.dremio.datastore.RemoteDataStoreProtobuf.FindResponse;
+import com.dremio.datastore.RemoteDataStoreProtobuf.GetResponse;
+import com.dremio.datastore.api.Document;
+import com.dremio.services.fabric.simple.ReceivedResponseMessage;
+import com.google.protobuf.ByteString;
+
+/**
+ * Tests for {@link DatastoreRpcClient}
+ */
+public class TestDatastoreRpcClient {
+  private static final String STORE_ID = "store";
+  private static final int ENTRIES = 5;
+
+  private final AtomicInteger findRequests = new AtomicInteger();
+  private DatastoreRpcService rpcService;
+
+  @Before
+  public void setup() throws Exception {
+    rpcService = mock(DatastoreRpcService.class);
+    // serves the entries key0..key4 in order, honoring the start key and the maximum number of results
+    when(rpcService.getFindEndpoint()).thenReturn((request, bufs) -> {
+      findRequests.incrementAndGet();
+      final FindResponse.Builder builder = FindResponse.newBuilder();
+      for (int i = 0; i < ENTRIES; i++) {
+        final ByteString key = key(i);
+        if (request.hasStart()) {
+          final int cmp = key.toStringUtf8().compareTo(request.getStart().toStringUtf8());
+          if (cmp < 0 || (cmp == 0 && !request.getIncludeStart())) {
+            continue;
+          }
+        }
+        if (request.hasMaxResults() && builder.getDocumentsCount() == request.getMaxResults()) {
+          builder.setHasMore(true);
+          break;
+        }
+        builder.addDocuments(DocumentResponse.newBuilder().setKey(key).setValue(value(i)).setTag(tag(i)));
+      }
+      return new ReceivedResponseMessage<>(builder.build(), null);
+    });
+    // returns the entries unless the cached tag matches
+    when(rpcService.getGetEndpoint()).thenReturn((request, bufs) -> {
+      final GetResponse.Builder builder = GetResponse.newBuilder();
+      for (int i = 0; i < request.getKeysCount(); i++) {
+        final int index = Integer.parseInt(request.getKeys(i).toStringUtf8().substring(3));
+        if (index >= ENTRIES) {
+          builder.addDocuments(DocumentResponse.getDefaultInstance());
+        } else if (i < request.getCachedTagsCount() && request.getCachedTags(i).equals(tag(index))) {
+          builder.addDocuments(DocumentResponse.newBuilder().setKey(key(index)).setTag(tag(index)).setNotModified(true));
+        } else {
+          builder.addDocuments(DocumentResponse.newBuilder().setKey(key(index)).setValue(value(index)).setTag(tag(index)));
+        }
+      }
+      return new ReceivedResponseMessage<>(builder.build(), null);
+    });
+  }
+
+  @Test
+  public void testPagedFind() throws Exception {
+    final DatastoreRpcClient client = new DatastoreRpcClient(rpcService, 2);
+    final Iterable<Document<ByteString, ByteString>> documents = client.find(STORE_ID);
+    // only the first page is requested until iterating
+    assertEquals(1, findRequests.get());
+
+    final List<Document<ByteString, ByteString>> results = new ArrayList<>();
+    documents.forEach(results::add);
+    assertEquals(ENTRIES, results.size());
+    for (int i = 0; i < ENTRIES; i++) {
+      assertEquals(key(i), results.get(i).getKey());
+      assertEquals(value(i), results.get(i).getValue());
+      assertEquals(tag(i), results.get(i).getTag());
+    }
+    assertEquals(3, findRequests.get());
+  }
+
+  @Test
+  public void testSinglePageFind() throws Exception {
+    final DatastoreRpcClient client = new DatastoreRpcClient(rpcService, ENTRIES);
+    final List<Document<ByteString, ByteString>> results = new ArrayList<>();
+    client.find(FindRequest.newBuilder().setStoreId(STORE_ID).build()).forEach(results::add);
+    assertEquals(ENTRIES, results.size());
+    assertEquals(1, findRequests.get());
+  }
+
+  @Test
+  public void testGetWithCachedTags() throws Exception {
+    final DatastoreRpcClient client = new DatastoreRpcClient(rpcService);
+    final List<Document<ByteString, ByteString>> results = client.get(STORE_ID,
+      Arrays.asList(key(0), key(1), key(2), key(ENTRIES)),
+      Arrays.asList(tag(0), "stale", null, null));
+
+    assertEquals(4, results.size());
+    assertSame(DatastoreRpcClient.NOT_MODIFIED, results.get(0));
+    assertEquals(value(1), results.get(1).getValue());
+    assertEquals(tag(1), results.get(1).getTag());
+    assertEquals(value(2), results.get(2).getValue());
+    assertNull(results.get(3));
+  }
+
+  private static ByteString key(int i) {
+    return ByteString.copyFromUtf8("key" + i);
+  }
+
+  private static ByteString value(int i) {
+    return ByteString.copyFromUtf8("value" + i);
+  }
+
+  private static String tag(int i) {
+    return "tag" + i;
+  }
+}
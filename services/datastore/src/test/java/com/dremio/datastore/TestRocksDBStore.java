@@ -21,6 +21,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -191,6 +192,19 @@ public class TestRocksDBStore {
     }
   }
 
+  @Test
+  public void testCompactIfNeeded() throws RocksDBException {
+    // no entry was deleted yet
+    assertFalse(store.compactIfNeeded(1));
+
+    store.delete(specialKey);
+    assertFalse(store.compactIfNeeded(2));
+    assertTrue(store.compactIfNeeded(1));
+    // deletes are counted again from the last compaction
+    assertFalse(store.compactIfNeeded(1));
+    assertThat(store.getAdmin().getStats(), CoreMatchers.containsString("Compactions: 1"));
+  }
+
   @Test
   public void checkBlobOps() throws IOException {
     byte[] randomKey = new byte[5];
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.datastore;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rocksdb.RocksDB;
+
+/**
+ * Tests for {@link RocksWriteBatcher}
+ */
+public class TestRocksWriteBatcher {
+  private static final int THREADS = 8;
+  private static final int KEYS_PER_THREAD = 500;
+
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private RocksDB db;
+
+  @Before
+  public void openDB() throws Exception {
+    db = RocksDB.open(temporaryFolder.newFolder().getPath());
+  }
+
+  @After
+  public void closeDB() {
+    db.close();
+  }
+
+  @Test
+  public void testConcurrentWrites() throws Exception {
+    final RocksWriteBatcher batcher = new RocksWriteBatcher(db, true, 100, 16);
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      final List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        final int thread = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < KEYS_PER_THREAD; i++) {
+            batcher.put(db.getDefaultColumnFamily(), key(thread, i), value(thread, i));
+          }
+          // deletes of odd keys are batched with the puts of the other threads
+          for (int i = 1; i < KEYS_PER_THREAD; i += 2) {
+            batcher.delete(db.getDefaultColumnFamily(), key(thread, i));
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    for (int t = 0; t < THREADS; t++) {
+      for (int i = 0; i < KEYS_PER_THREAD; i++) {
+        if (i % 2 == 0) {
+          assertArrayEquals(value(t, i), db.get(key(t, i)));
+        } else {
+          assertNull(db.get(key(t, i)));
+        }
+      }
+    }
+    assertEquals(THREADS * (KEYS_PER_THREAD + KEYS_PER_THREAD / 2), batcher.getWriteCount());
+    assertTrue(batcher.getBatchCount() <= batcher.getWriteCount());
+  }
+
+  @Test
+  public void testDirectWrites() throws Exception {
+    final RocksWriteBatcher batcher = RocksWriteBatcher.direct(db);
+    batcher.put(db.getDefaultColumnFamily(), key(0, 0), value(0, 0));
+    assertArrayEquals(value(0, 0), db.get(key(0, 0)));
+    batcher.delete(db.getDefaultColumnFamily(), key(0, 0));
+    assertNull(db.get(key(0, 0)));
+    assertEquals(2, batcher.getBatchCount());
+  }
+
+  private static byte[] key(int thread, int i) {
+    return String.format("key-%d-%d", thread, i).getBytes(UTF_8);
+  }
+
+  private static byte[] value(int thread, int i) {
+    return String.format("value-%d-%d", thread, i).getBytes(UTF_8);
+  }
+}
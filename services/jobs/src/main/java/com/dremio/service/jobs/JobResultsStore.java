@@ -33,6 +33,7 @@ import com.dremio.datastore.api.LegacyIndexedStore;
 import com.dremio.exec.proto.CoordinationProtos.NodeEndpoint;
 import com.dremio.exec.record.RecordBatchHolder;
 import com.dremio.exec.store.JobResultsStoreConfig;
+import com.dremio.exec.store.easy.arrow.ArrowBatchCache;
 import com.dremio.exec.store.easy.arrow.ArrowFileMetadata;
 import com.dremio.exec.store.easy.arrow.ArrowFileMetadataValidator;
 import com.dremio.exec.store.easy.arrow.ArrowFileReader;
@@ -56,11 +57,15 @@ import com.google.common.collect.Sets;
 public class JobResultsStore implements Service {
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(JobResultsStore.class);
 
+  // size of the cache of the result batches recently read by this node, 0 to disable it
+  private static final long BATCH_CACHE_SIZE_MB = Long.getLong("dremio.jobs.results.batch_cache_size_mb", 64);
+
   private final String storageName;
   private final Path jobStoreLocation;
   private final FileSystem dfs;
   private final BufferAllocator allocator;
   private final LegacyIndexedStore<JobId, JobResult> store;
+  private final ArrowBatchCache batchCache;
 
   public JobResultsStore(
       final JobResultsStoreConfig resultsStoreConfig,
@@ -74,6 +79,7 @@ public class JobResultsStore implements Service {
 
     this.store = store;
     this.allocator = allocator;
+    this.batchCache = BATCH_CACHE_SIZE_MB > 0 ? new ArrowBatchCache(BATCH_CACHE_SIZE_MB * 1024 * 1024) : null;
   }
 
   /**
@@ -96,6 +102,9 @@ public class JobResultsStore implements Service {
 
   public boolean cleanup(JobId jobId) {
     final Path jobOutputDir = getJobOutputDir(jobId);
+    if (batchCache != null) {
+      batchCache.invalidateDirectory(jobOutputDir);
+    }
     try {
       if (doesQueryResultsDirExists(jobOutputDir, jobId)) {
         deleteQueryResults(jobOutputDir, true, jobId);
@@ -242,7 +251,7 @@ public class JobResultsStore implements Service {
                                                     BufferAllocator allocator,
                                                     long fileOffset,
                                                     long fileLimit) throws IOException {
-    try(ArrowFileReader fileReader = new ArrowFileReader(dfs, jobOutputDir, arrowFileMetadata, allocator)) {
+    try(ArrowFileReader fileReader = new ArrowFileReader(dfs, jobOutputDir, arrowFileMetadata, allocator, batchCache)) {
       return fileReader.read(fileOffset, fileLimit);
     }
   }
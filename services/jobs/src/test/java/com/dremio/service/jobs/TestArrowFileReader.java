@@ -67,6 +67,7 @@ import com.dremio.exec.store.RecordWriter.WriteStatsListener;
 import com.dremio.exec.store.dfs.FileSystemPlugin;
 import com.dremio.exec.store.dfs.easy.EasyFormatPlugin;
 import com.dremio.exec.store.dfs.easy.EasyWriter;
+import com.dremio.exec.store.easy.arrow.ArrowBatchCache;
 import com.dremio.exec.store.easy.arrow.ArrowFileFormat;
 import com.dremio.exec.store.easy.arrow.ArrowFileMetadata;
 import com.dremio.exec.store.easy.arrow.ArrowFileReader;
@@ -377,6 +378,55 @@ public class TestArrowFileReader extends DremioTest {
     }
   }
 
+  @Test
+  public void readingMultiBatchFileWithBatchCache() throws Exception {
+    List<VectorContainer> containers = Lists.newArrayList();
+    try (final BufferAllocator allocator = allocatorRule.newAllocator("test-arrow-file-reader", 0, Long.MAX_VALUE)) {
+      containers.add(createBatch(5, testBitVector(allocator), testVarCharVector(allocator)));
+      containers.add(createBatch(5, testBitVector(allocator), testVarCharVector(allocator)));
+      containers.add(createBatch(5, testBitVector(allocator), testVarCharVector(allocator)));
+
+      Path basePath = new Path(dateGenFolder.getRoot().getPath());
+      ArrowFileMetadata metadata = writeArrowFile(containers.toArray(new VectorContainer[3]));
+      final ArrowBatchCache batchCache = new ArrowBatchCache(1024 * 1024);
+      try(ArrowFileReader reader = new ArrowFileReader(HadoopFileSystem.getLocal(FS_CONF), com.dremio.io.file.Path.of(basePath.toUri()), metadata, allocator, batchCache)) {
+        List<RecordBatchHolder> batchHolders = getRecords(reader, 0, 7, allocator);
+        assertEquals(2, batchHolders.size());
+        releaseBatches(batchHolders);
+      }
+      assertEquals(2, batchCache.size());
+
+      // the cached batches are served without reading the file
+      FileSystem.getLocal(FS_CONF).delete(new Path(basePath, metadata.getPath()), false);
+      try(ArrowFileReader reader = new ArrowFileReader(HadoopFileSystem.getLocal(FS_CONF), com.dremio.io.file.Path.of(basePath.toUri()), metadata, allocator, batchCache)) {
+        List<RecordBatchHolder> batchHolders = getRecords(reader, 2, 8, allocator);
+        assertEquals(2, batchHolders.size());
+
+        verifyBatchHolder(batchHolders.get(0), 2, 5);
+        VectorContainer batchContainer = batchHolders.get(0).getData().getContainer();
+        assertEquals(TEST_BIT_VALUES.subList(2, 5), getBitValues(batchContainer, 2, 5));
+        assertEquals(TEST_VARCHAR_VALUES.subList(2, 5), getVarCharValues(batchContainer, 2, 5));
+
+        verifyBatchHolder(batchHolders.get(1), 0, 5);
+        batchContainer = batchHolders.get(1).getData().getContainer();
+        assertEquals(TEST_BIT_VALUES, getBitValues(batchContainer, 0, 5));
+        assertEquals(TEST_VARCHAR_VALUES, getVarCharValues(batchContainer, 0, 5));
+
+        releaseBatches(batchHolders);
+      }
+      assertEquals(2, batchCache.stats().hitCount());
+
+      batchCache.invalidateDirectory(com.dremio.io.file.Path.of(basePath.toUri()));
+      assertEquals(0, batchCache.size());
+    } finally {
+      for(VectorContainer container : containers) {
+        if (container != null) {
+          container.clear();
+        }
+      }
+    }
+  }
+
   /** Helper method which creates a test bit vector */
   private static BitVector testBitVector(BufferAllocator allocator) {
     BitVector colBitV = new BitVector("colBit", allocator);
@@ -52,7 +52,8 @@ public interface SystemTableManager extends AutoCloseable {
     MEMBERSHIP("membership"),
     USERS("users"),
     CLOUDS("clouds"),
-    PROJECTS("projects");
+    PROJECTS("projects"),
+    PLAN_CACHE("plan_cache");
 
     final String name;
     private TABLES(String name) {